@@ -0,0 +1,102 @@
+package com.reg.time_series;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Read replica for the read-only service methods, enabled with
+ * {@code time-series.replica.enabled}. Writes and everything outside of a
+ * read-only transaction stay on the {@code spring.datasource} primary, the
+ * replica pool is configured under {@code time-series.replica.datasource}.
+ * <p>
+ * The query cache is turned off: an empty result read from a lagging replica
+ * would be served to every client until the next write to the table.
+ *
+ * @see ReplicaStalenessGuard
+ */
+@Log4j2
+@Configuration
+@ConditionalOnProperty(name = "time-series.replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfiguration implements WebMvcConfigurer {
+    private static final String REPLICA_PREFIX = "time-series.replica.datasource";
+
+    private final Environment environment;
+    private final long readYourWritesMillis;
+
+    public ReplicaRoutingConfiguration(Environment environment,
+                                       @Value("${time-series.replica.read-your-writes-ms}") long readYourWritesMillis) {
+        this.environment = environment;
+        this.readYourWritesMillis = readYourWritesMillis;
+    }
+
+    @Bean
+    ReplicaStalenessGuard replicaStalenessGuard() {
+        return new ReplicaStalenessGuard(readYourWritesMillis);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(replicaStalenessGuard());
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer replicaQueryCache() {
+        return properties -> properties.put(AvailableSettings.USE_QUERY_CACHE, false);
+    }
+
+    @Bean(autowireCandidate = false)
+    HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return pool(properties, "spring.datasource.hikari", "primary");
+    }
+
+    @Bean(autowireCandidate = false)
+    HikariDataSource replicaDataSource() {
+        DataSourceProperties properties = Binder.get(environment)
+                .bind(REPLICA_PREFIX, DataSourceProperties.class)
+                .orElseGet(DataSourceProperties::new);
+        if (properties.getUrl() == null) {
+            throw new IllegalStateException(REPLICA_PREFIX + ".url is required for the replica routing");
+        }
+        HikariDataSource replica = pool(properties, REPLICA_PREFIX + ".hikari", "replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(replicaStalenessGuard());
+        HikariDataSource primary = primaryDataSource(properties);
+        routing.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.Route.PRIMARY, primary,
+                ReplicaRoutingDataSource.Route.REPLICA, replicaDataSource()));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        log.info("Read-only transactions are routed to the replica {}", replicaDataSource().getJdbcUrl());
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private HikariDataSource pool(DataSourceProperties properties, String hikariPrefix, String poolName) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind(hikariPrefix, Bindable.ofInstance(pool));
+        pool.setPoolName(poolName);
+        return pool;
+    }
+}
@@ -0,0 +1,29 @@
+package com.reg.time_series;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends the connections of read-only transactions to the replica and every other
+ * connection to the primary. Must be used behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, as the
+ * read-only flag of a transaction is only set after its connection is requested.
+ */
+class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route { PRIMARY, REPLICA }
+
+    private final ReplicaStalenessGuard stalenessGuard;
+
+    ReplicaRoutingDataSource(ReplicaStalenessGuard stalenessGuard) {
+        this.stalenessGuard = stalenessGuard;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !stalenessGuard.isPinnedToPrimary()) {
+            return Route.REPLICA;
+        }
+        return Route.PRIMARY;
+    }
+}
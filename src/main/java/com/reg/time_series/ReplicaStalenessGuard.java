@@ -0,0 +1,66 @@
+package com.reg.time_series;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-your-writes guard of the replica routing. A client that sent a write
+ * request is pinned to the primary for {@code readYourWritesMillis} after it, so
+ * that it does not read a replica that has not replicated the write yet.
+ * <p>
+ * Clients are told apart by their remote address. Behind a proxy this needs
+ * {@code server.forward-headers-strategy} so that the address is the client's.
+ */
+class ReplicaStalenessGuard implements HandlerInterceptor {
+    private final long windowNanos;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final ThreadLocal<Boolean> pinnedToPrimary = new ThreadLocal<>();
+
+    ReplicaStalenessGuard(long readYourWritesMillis) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(readYourWritesMillis);
+    }
+
+    boolean isPinnedToPrimary() {
+        return Boolean.TRUE.equals(pinnedToPrimary.get());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String client = request.getRemoteAddr();
+        if (isWrite(request)) {
+            recordWrite(client);
+        } else {
+            Long lastWrite = lastWrites.get(client);
+            if (lastWrite != null && System.nanoTime() - lastWrite < windowNanos) {
+                pinnedToPrimary.set(Boolean.TRUE);
+            }
+        }
+        return true;
+    }
+
+    // The window starts again when the write is finished, a long import is not cut short
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        pinnedToPrimary.remove();
+        if (isWrite(request)) {
+            recordWrite(request.getRemoteAddr());
+        }
+    }
+
+    private void recordWrite(String client) {
+        long now = System.nanoTime();
+        lastWrites.put(client, now);
+        lastWrites.values().removeIf(lastWrite -> now - lastWrite >= windowNanos);
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method) && !HttpMethod.OPTIONS.matches(method);
+    }
+}
@@ -2,11 +2,22 @@ package com.reg.time_series;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Clock;
 
 @SpringBootApplication
+@EnableScheduling
 public class TimeSeriesApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(TimeSeriesApplication.class, args);
     }
+
+    // Replaced by a fixed clock in tests of time dependent behaviour
+    @Bean
+    public Clock clock() {
+        return Clock.systemDefaultZone();
+    }
 }
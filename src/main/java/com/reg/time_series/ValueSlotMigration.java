@@ -0,0 +1,179 @@
+package com.reg.time_series;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Numbers the values of a database written before {@code time_series_values} had
+ * its {@code slot} column. Runs before the entity manager factory, so that
+ * {@code ddl-auto=update} finds the column and does not add it as NOT NULL with
+ * every existing value in slot 0.
+ * <p>
+ * The column is added as nullable and the values of every version without slots
+ * are rewritten with the slots in the order they were loaded so far. The column
+ * is made NOT NULL once every value has a slot that is unique within its version;
+ * the application refuses to start while that is not the case. Tables without the
+ * primary key of the mapping, such as the partitioned one, are checked on every start.
+ */
+@Log4j2
+@Component
+public class ValueSlotMigration implements InitializingBean {
+    private static final int PAGE_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public ValueSlotMigration(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    /**
+     * Makes the entity manager factory wait for the migration.
+     */
+    @Component
+    static class BeforeEntityManagerFactory extends EntityManagerFactoryDependsOnPostProcessor {
+        BeforeEntityManagerFactory() {
+            super(ValueSlotMigration.class);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Boolean nullable = slotColumnNullable();
+        if (nullable == null) {
+            return;
+        }
+        if (!nullable) {
+            // Without the primary key of the mapping the slots may repeat, e.g. when the column was added by ddl-auto
+            if (!slotInPrimaryKey()) {
+                verify();
+            }
+            return;
+        }
+        int versions = numberValues();
+        verify();
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        jdbcTemplate.execute("MySQL".equals(product)
+                ? "ALTER TABLE time_series_values MODIFY COLUMN slot INTEGER NOT NULL"
+                : "ALTER TABLE time_series_values ALTER COLUMN slot SET NOT NULL");
+        log.info("Numbered the values of {} versions, every value has its slot", versions);
+    }
+
+    // Null when there is no values table yet, adds the column when the table has none
+    private Boolean slotColumnNullable() {
+        Integer nullable;
+        try {
+            nullable = jdbcTemplate.query("SELECT * FROM time_series_values WHERE 1 = 0", rs -> {
+                ResultSetMetaData metaData = rs.getMetaData();
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    if ("slot".equalsIgnoreCase(metaData.getColumnName(i))) {
+                        return metaData.isNullable(i);
+                    }
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            return null;
+        }
+        if (nullable == null) {
+            log.warn("time_series_values has no slot column, numbering the stored values");
+            jdbcTemplate.execute("ALTER TABLE time_series_values ADD COLUMN slot INTEGER");
+            return true;
+        }
+        return nullable != ResultSetMetaData.columnNoNulls;
+    }
+
+    private boolean slotInPrimaryKey() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String table = metaData.storesUpperCaseIdentifiers() ? "TIME_SERIES_VALUES" : "time_series_values";
+            try (ResultSet keys = metaData.getPrimaryKeys(connection.getCatalog(), null, table)) {
+                while (keys.next()) {
+                    if ("slot".equalsIgnoreCase(keys.getString("COLUMN_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }));
+    }
+
+    private int numberValues() {
+        int versions = 0;
+        long lastId = 0;
+        List<Long> page;
+        do {
+            long after = lastId;
+            page = jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement("SELECT DISTINCT time_series_version_id " +
+                        "FROM time_series_values WHERE slot IS NULL AND time_series_version_id > ? " +
+                        "ORDER BY time_series_version_id");
+                statement.setLong(1, after);
+                statement.setMaxRows(PAGE_SIZE);
+                return statement;
+            }, (rs, rowNum) -> rs.getLong(1));
+            List<Long> versionIds = page;
+            transactionTemplate.executeWithoutResult(status -> versionIds.forEach(this::numberVersion));
+            versions += page.size();
+            if (!page.isEmpty()) {
+                lastId = page.get(page.size() - 1);
+                log.info("Numbered the values of {} versions", versions);
+            }
+        } while (page.size() == PAGE_SIZE);
+        return versions;
+    }
+
+    // The same query the unordered collection was loaded with, the values are rewritten in its order
+    private void numberVersion(long versionId) {
+        List<Integer> values = new ArrayList<>();
+        jdbcTemplate.query("SELECT series_value FROM time_series_values WHERE time_series_version_id = ? AND slot IS NULL",
+                rs -> {
+                    int value = rs.getInt(1);
+                    values.add(rs.wasNull() ? null : value);
+                }, versionId);
+        jdbcTemplate.update("DELETE FROM time_series_values WHERE time_series_version_id = ? AND slot IS NULL", versionId);
+        List<Object[]> rows = new ArrayList<>(values.size());
+        for (int slot = 0; slot < values.size(); slot++) {
+            rows.add(new Object[]{versionId, slot, values.get(slot)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO time_series_values (time_series_version_id, slot, series_value) " +
+                "VALUES (?, ?, ?)", rows);
+    }
+
+    private void verify() {
+        List<Long> unnumbered = firstVersion("SELECT time_series_version_id FROM time_series_values WHERE slot IS NULL");
+        List<Long> duplicated = firstVersion("SELECT time_series_version_id FROM time_series_values " +
+                "GROUP BY time_series_version_id, slot HAVING COUNT(*) > 1");
+        if (!unnumbered.isEmpty() || !duplicated.isEmpty()) {
+            throw new IllegalStateException(String.format("The values of version %s have %s slots, " +
+                            "fix time_series_values.slot before starting the application",
+                    unnumbered.isEmpty() ? duplicated.get(0) : unnumbered.get(0),
+                    unnumbered.isEmpty() ? "duplicated" : "missing"));
+        }
+    }
+
+    private List<Long> firstVersion(String sql) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setMaxRows(1);
+            return statement;
+        }, (rs, rowNum) -> rs.getLong(1));
+    }
+}
@@ -0,0 +1,28 @@
+package com.reg.time_series.controller;
+
+import com.reg.time_series.model.SecondLevelCacheStatus;
+import com.reg.time_series.service.SecondLevelCache;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/time-series/cache")
+@Tag(name = "Cache", description = "Second-level cache of the power stations and their dates")
+public class CacheController {
+    private final SecondLevelCache secondLevelCache;
+
+    public CacheController(SecondLevelCache secondLevelCache) {
+        this.secondLevelCache = secondLevelCache;
+    }
+
+    @GetMapping("/status")
+    @Operation(summary = "Hit ratios of the second-level cache",
+              description = "Hits, misses and puts of the station, date and query result regions since the start")
+    public ResponseEntity<SecondLevelCacheStatus> status() {
+        return ResponseEntity.ok(secondLevelCache.status());
+    }
+}
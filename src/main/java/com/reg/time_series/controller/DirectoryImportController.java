@@ -0,0 +1,31 @@
+package com.reg.time_series.controller;
+
+import com.reg.time_series.model.DirectoryImportStatus;
+import com.reg.time_series.service.DirectoryImporter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/time-series/import")
+@ConditionalOnProperty(name = "time-series.import.enabled", havingValue = "true")
+@Tag(name = "Directory import", description = "Importer of the files dropped into the import directory")
+public class DirectoryImportController {
+    private final DirectoryImporter directoryImporter;
+
+    public DirectoryImportController(DirectoryImporter directoryImporter) {
+        this.directoryImporter = directoryImporter;
+    }
+
+    @GetMapping("/status")
+    @Operation(summary = "Throughput and lag of the directory importer",
+              description = "Rates and lags of the last round that imported files, the lag of a file is " +
+                      "the time from its last modification to its commit")
+    public ResponseEntity<DirectoryImportStatus> status() {
+        return ResponseEntity.ok(directoryImporter.status());
+    }
+}
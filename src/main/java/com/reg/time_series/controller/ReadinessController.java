@@ -0,0 +1,31 @@
+package com.reg.time_series.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api")
+@Tag(name = "Readiness", description = "Readiness probe for load balancers and container health checks")
+public class ReadinessController {
+    private final ApplicationAvailability availability;
+
+    public ReadinessController(ApplicationAvailability availability) {
+        this.availability = availability;
+    }
+
+    @GetMapping("/ready")
+    @Operation(summary = "Readiness of the application",
+              description = "503 until the startup warmup has finished, then 200")
+    public ResponseEntity<String> ready() {
+        ReadinessState state = availability.getReadinessState();
+        HttpStatus status = state == ReadinessState.ACCEPTING_TRAFFIC ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(state.name());
+    }
+}
@@ -5,8 +5,18 @@ package com.reg.time_series.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.reg.time_series.exceptions.TimeSeriesNotFoundException;
+import com.reg.time_series.model.BulkImportResult;
+import com.reg.time_series.model.ForecastAccuracyDTO;
+import com.reg.time_series.model.TimeSeriesAsOfDTO;
+import com.reg.time_series.model.TimeSeriesChangesDTO;
+import com.reg.time_series.model.TimeSeriesColumnsDTO;
 import com.reg.time_series.model.TimeSeriesData;
 import com.reg.time_series.model.TimeSeriesViewDTO;
+import com.reg.time_series.model.TimeSeriesViewWindow;
+import com.reg.time_series.service.ForecastAnalyticsService;
+import com.reg.time_series.service.TimeSeriesBulkImportService;
+import com.reg.time_series.service.TimeSeriesETagTracker;
+import com.reg.time_series.service.TimeSeriesEventBroadcaster;
 import com.reg.time_series.service.TimeSeriesService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -14,21 +24,34 @@ import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
         import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.text.SimpleDateFormat;
+import java.time.Clock;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -38,11 +61,31 @@ import java.util.zip.ZipInputStream;
 @Log4j2
 @Tag(name = "TimeSeries", description = "Endpoints for time-series data")
 public class TimeSeriesController {
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     private final TimeSeriesService timeSeriesService;
+    private final TimeSeriesBulkImportService bulkImportService;
+    private final TimeSeriesEventBroadcaster eventBroadcaster;
+    private final TimeSeriesETagTracker eTagTracker;
+    private final ForecastAnalyticsService analyticsService;
     private final ObjectMapper objectMapper;
+    private final Clock clock;
+
+    @Value("${time-series.http-cache.past-date-max-age-seconds}")
+    private long pastDateMaxAgeSeconds;
 
-    public TimeSeriesController(TimeSeriesService timeSeriesService) {
+    public TimeSeriesController(TimeSeriesService timeSeriesService,
+                                TimeSeriesBulkImportService bulkImportService,
+                                TimeSeriesEventBroadcaster eventBroadcaster,
+                                TimeSeriesETagTracker eTagTracker,
+                                ForecastAnalyticsService analyticsService,
+                                Clock clock) {
         this.timeSeriesService = timeSeriesService;
+        this.bulkImportService = bulkImportService;
+        this.eventBroadcaster = eventBroadcaster;
+        this.eTagTracker = eTagTracker;
+        this.analyticsService = analyticsService;
+        this.clock = clock;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
         this.objectMapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"));
@@ -110,6 +153,8 @@ public class TimeSeriesController {
         int failureCount = 0;
 
         try (ZipInputStream zipInputStream = new ZipInputStream(zipFile.getInputStream())) {
+            // Entries are in arbitrary order, they are saved in timestamp order so that few arrive late
+            Map<String, TimeSeriesData> entries = new LinkedHashMap<>();
             ZipEntry entry;
             while ((entry = zipInputStream.getNextEntry()) != null) {
                 if (!entry.isDirectory() && entry.getName().toLowerCase().endsWith(".json")) {
@@ -118,13 +163,7 @@ public class TimeSeriesController {
                         String jsonContent = new String(zipInputStream.readAllBytes(), StandardCharsets.UTF_8);
 
                         // Converting JSON to TimeSeriesData object
-                        TimeSeriesData timeSeriesData = objectMapper.readValue(jsonContent, TimeSeriesData.class);
-
-                        // Saving data
-                        timeSeriesService.save(timeSeriesData);
-
-                        successCount++;
-                        result.append(String.format("Successful processing: %s%n", entry.getName()));
+                        entries.put(entry.getName(), objectMapper.readValue(jsonContent, TimeSeriesData.class));
 
                     } catch (Exception e) {
                         failureCount++;
@@ -136,6 +175,25 @@ public class TimeSeriesController {
                 zipInputStream.closeEntry();
             }
 
+            List<Map.Entry<String, TimeSeriesData>> ordered = new ArrayList<>(entries.entrySet());
+            ordered.sort(Comparator.comparing(e -> e.getValue().getTimestamp(),
+                    Comparator.nullsLast(Comparator.naturalOrder())));
+            for (Map.Entry<String, TimeSeriesData> parsed : ordered) {
+                try {
+                    // Saving data
+                    timeSeriesService.save(parsed.getValue());
+
+                    successCount++;
+                    result.append(String.format("Successful processing: %s%n", parsed.getKey()));
+
+                } catch (Exception e) {
+                    failureCount++;
+                    result.append(String.format("Error during processing %s: %s%n",
+                            parsed.getKey(), e.getMessage()));
+                    log.error("Error processing file {}: ", parsed.getKey(), e);
+                }
+            }
+
             result.append(String.format("%nSummary: %d files successfully processed, %d files failed",
                     successCount, failureCount));
 
@@ -151,72 +209,209 @@ public class TimeSeriesController {
         }
     }
 
-    // At development helps to upload local files
-//    @PostMapping("/process-local-folder")
-    public ResponseEntity<String> processLocalFolder(@RequestParam String folderPath) {
-        File folder = new File(folderPath);
-        if (!folder.isDirectory()) {
-            return ResponseEntity.badRequest().body("The path is not a directory!");
-        }
-
-        File[] jsonFiles = folder.listFiles((dir, name) -> name.toLowerCase().endsWith(".json"));
-        if (jsonFiles == null || jsonFiles.length == 0) {
-            return ResponseEntity.badRequest().body("No JSON files found in the directory!");
-        }
-
-        StringBuilder result = new StringBuilder();
-        int successCount = 0;
-        int failureCount = 0;
-
-        for (File jsonFile : jsonFiles) {
-            try {
-                String jsonContent = Files.readString(jsonFile.toPath());
-                TimeSeriesData timeSeriesData = objectMapper.readValue(jsonContent, TimeSeriesData.class);
-                timeSeriesService.save(timeSeriesData);
-
-                successCount++;
-                result.append(String.format("Successful processing: %s%n", jsonFile.getName()));
-            } catch (Exception e) {
-                failureCount++;
-                result.append(String.format("Error during processing %s: %s%n",
-                        jsonFile.getName(), e.getMessage()));
-                log.error("Error processing file {}: ", jsonFile.getName(), e);
+    @PostMapping("/bulk")
+    @Operation(summary = "Receiving many time-series in one file",
+              description = "Accepts an NDJSON file (.ndjson/.jsonl, first line is the shared header) " +
+                      "or a JSON document with zone, period and a records array")
+    public ResponseEntity<BulkImportResult> receiveTimeSeriesBulk(@RequestParam("file") MultipartFile file) {
+        String fileName = Optional.ofNullable(file.getOriginalFilename()).orElse("").toLowerCase();
+        try (InputStream inputStream = file.getInputStream()) {
+            BulkImportResult result = fileName.endsWith(".ndjson") || fileName.endsWith(".jsonl")
+                    ? bulkImportService.importNdjson(inputStream)
+                    : bulkImportService.importDocument(inputStream);
+
+            log.info("Bulk upload {}: {} records in {} batches, {} failed",
+                    fileName, result.getRecords(), result.getBatches(), result.getFailedRecords());
+            if (result.getSavedRecords() > 0) {
+                return ResponseEntity.status(HttpStatus.CREATED).body(result);
+            } else {
+                return ResponseEntity.badRequest().body(result);
             }
+        } catch (IOException e) {
+            log.error("Error processing bulk file: ", e);
+            return ResponseEntity.badRequest().build();
         }
-
-        result.append(String.format("%nSummary: %d files successfully processed, %d files failed",
-                successCount, failureCount));
-
-        return ResponseEntity.ok(result.toString());
     }
 
-
+    // The ETag checks come first, a matching If-None-Match is answered with 304 without reading the database
     @GetMapping("/power-stations")
-    public ResponseEntity<List<String>> getPowerStations() {
-        return ResponseEntity.ok(timeSeriesService.getAllPowerStations());
+    public ResponseEntity<List<String>> getPowerStations(
+            @RequestParam(required = false) String prefix,
+            WebRequest request) {
+        if (request.checkNotModified(eTagTracker.powerStationsTag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(prefix == null || prefix.isEmpty()
+                        ? timeSeriesService.getAllPowerStations()
+                        : timeSeriesService.findPowerStations(prefix));
     }
 
     @GetMapping("/power-stations/{powerStationName}/dates")
     public ResponseEntity<List<String>> getAvailableDates(
-            @PathVariable String powerStationName) {
-        List<String> formattedDates = timeSeriesService.getAvailableDates(powerStationName)
+            @PathVariable String powerStationName,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to,
+            WebRequest request) {
+        if (request.checkNotModified(eTagTracker.datesTag(powerStationName))) {
+            return null;
+        }
+        List<String> formattedDates = timeSeriesService.getAvailableDates(powerStationName, from, to)
                 .stream()
                 .map(date -> date.format(DateTimeFormatter.ISO_DATE))
                 .collect(Collectors.toList());
-        return ResponseEntity.ok(formattedDates);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(formattedDates);
     }
 
 
     @GetMapping("/power-stations/{powerStationName}/dates/{date}")
-    public ResponseEntity<TimeSeriesViewDTO> getTimeSeriesView(
+    @Operation(summary = "Time series view of a date",
+              description = "JSON rows by default; with 'Accept: application/x-ndjson' a header line " +
+                      "followed by one line with the values array of every version. With asOf only the " +
+                      "version that was the latest one at that time. The JSON rows can be limited to a " +
+                      "version range, the latest versions in it and a slot range, all bounds inclusive")
+    public ResponseEntity<?> getTimeSeriesView(
             @PathVariable String powerStationName,
-            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date) {
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf,
+            @RequestParam(required = false) Integer fromVersion,
+            @RequestParam(required = false) Integer toVersion,
+            @RequestParam(required = false) Integer latest,
+            @RequestParam(required = false) Integer fromSlot,
+            @RequestParam(required = false) Integer toSlot,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest request) {
+        TimeSeriesViewWindow window = new TimeSeriesViewWindow();
+        window.setFromVersion(fromVersion);
+        window.setToVersion(toVersion);
+        window.setLatest(latest);
+        window.setFromSlot(fromSlot);
+        window.setToSlot(toSlot);
+        window.validate();
+        boolean ndjson = accept != null && accept.contains(APPLICATION_NDJSON_VALUE);
+        LocalDateTime now = LocalDateTime.now(clock);
+        String variant = asOf != null ? "asOf=" + asOf
+                : ndjson ? "ndjson"
+                : window.isAll() ? null : window.variant();
+        String currentTag = variant(eTagTracker.viewTag(powerStationName, date, now), variant);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), currentTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(currentTag).build();
+        }
+        Object body;
+        int readVersion;
         try {
-            return ResponseEntity.ok(timeSeriesService.getTimeSeriesView(powerStationName, date));
+            if (asOf != null) {
+                // Read first, a replica that catches up in between only makes the tag older than the body
+                readVersion = timeSeriesService.getLatestVersionNumber(powerStationName, date);
+                body = timeSeriesService.getTimeSeriesAsOf(powerStationName, date, asOf);
+            } else if (ndjson) {
+                TimeSeriesColumnsDTO columns = timeSeriesService.getTimeSeriesColumns(powerStationName, date);
+                readVersion = columns.getVersions().stream()
+                        .mapToInt(TimeSeriesColumnsDTO.VersionColumn::getVersion).max().orElse(0);
+                body = toNdjson(columns);
+            } else {
+                TimeSeriesViewDTO view = window.isAll()
+                        ? timeSeriesService.getTimeSeriesView(powerStationName, date)
+                        : timeSeriesService.getTimeSeriesView(powerStationName, date, window);
+                readVersion = view.getLatestVersion();
+                body = view;
+            }
         } catch (Exception e) {
             throw new TimeSeriesNotFoundException("Time series not found for station: " + powerStationName);
         }
+        // The tag is the one of the data read, which a replica can serve before it has the latest save.
+        // A day that has ended only changes when late data arrives for it, unless this read is behind already.
+        boolean current = eTagTracker.observe(powerStationName, date, readVersion);
+        CacheControl cacheControl = current && TimeSeriesETagTracker.isPastDate(date, now.toLocalDate())
+                ? CacheControl.maxAge(pastDateMaxAgeSeconds, TimeUnit.SECONDS)
+                : CacheControl.noCache();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(variant(eTagTracker.viewTag(powerStationName, date, now, readVersion), variant))
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT);
+        if (ndjson) {
+            response.contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE));
+        }
+        return response.body(body);
+    }
 
+    private static String variant(String eTag, String variant) {
+        return variant == null ? eTag : TimeSeriesETagTracker.variant(eTag, variant);
+    }
+
+    // Not checkNotModified, that would put the current tag on a 200 response that may carry an older one
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || eTag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String toNdjson(TimeSeriesColumnsDTO columns) throws IOException {
+        StringBuilder ndjson = new StringBuilder();
+        ndjson.append(objectMapper.writeValueAsString(columns.getHeader())).append('\n');
+        for (TimeSeriesColumnsDTO.VersionColumn version : columns.getVersions()) {
+            ndjson.append(objectMapper.writeValueAsString(version)).append('\n');
+        }
+        return ndjson.toString();
+    }
+
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribing to new versions",
+              description = "Server-Sent Events stream with a 'version' event for every committed version, " +
+                      "optionally filtered by power station and date")
+    public SseEmitter subscribeToVersions(
+            @RequestParam(required = false) String powerStation,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date) {
+        return eventBroadcaster.subscribe(powerStation, date);
+    }
+
+    @GetMapping("/power-stations/{powerStationName}/analytics")
+    @Operation(summary = "Forecast accuracy over the version history",
+              description = "Drift between the first and last version and revisions per slot, mean absolute " +
+                      "error per lead time hour against the last version, between from and to inclusive")
+    public ResponseEntity<ForecastAccuracyDTO> getForecastAccuracy(
+            @PathVariable String powerStationName,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to) {
+        return ResponseEntity.ok(analyticsService.getForecastAccuracy(powerStationName, from, to));
+    }
+
+    @GetMapping("/dates/{date}")
+    @Operation(summary = "Every station as of a time",
+              description = "For every station the version of the date that was the latest one at asOf")
+    public ResponseEntity<List<TimeSeriesAsOfDTO>> getTimeSeriesAsOf(
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        return ResponseEntity.ok(timeSeriesService.getTimeSeriesAsOf(date, asOf));
+    }
+
+    @GetMapping("/power-stations/{powerStationName}/dates/{date}/changes")
+    @Operation(summary = "Changes since a version",
+              description = "Versions added after sinceVersion, each with only the slots that differ from its predecessor. " +
+                      "When a late version renumbered versions up to sinceVersion, rewrittenFrom is set and the " +
+                      "changes start with that version")
+    public ResponseEntity<TimeSeriesChangesDTO> getChangesSince(
+            @PathVariable String powerStationName,
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date,
+            @RequestParam(defaultValue = "0") int sinceVersion) {
+        try {
+            return ResponseEntity.ok(timeSeriesService.getChangesSince(powerStationName, date, sinceVersion));
+        } catch (IllegalArgumentException e) {
+            throw new TimeSeriesNotFoundException("Time series not found for station: " + powerStationName);
+        }
     }
 
 
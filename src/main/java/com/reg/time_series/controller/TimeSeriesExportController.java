@@ -0,0 +1,52 @@
+package com.reg.time_series.controller;
+
+import com.reg.time_series.service.TimeSeriesExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/time-series/export")
+@Tag(name = "Export", description = "Version history as CSV")
+public class TimeSeriesExportController {
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    private final TimeSeriesExportService exportService;
+
+    public TimeSeriesExportController(TimeSeriesExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @GetMapping
+    @Operation(summary = "Version history as CSV",
+              description = "One row per station, date, version and slot between from and to inclusive, " +
+                      "of the given stations or of every station. Streamed while it is read")
+    public ResponseEntity<StreamingResponseBody> exportCsv(
+            @RequestParam(name = "station", required = false) List<String> powerStationNames,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to) {
+        // Checked before the response starts, the export itself runs after the headers are sent
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("The start of the range is after its end");
+        }
+        List<String> stations = powerStationNames == null ? List.of() : powerStationNames;
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("time-series-" + from + "-" + to + ".csv").build().toString())
+                .body(output -> exportService.exportCsv(stations, from, to, output));
+    }
+}
@@ -0,0 +1,17 @@
+package com.reg.time_series.entity;
+
+/**
+ * Second-level cache regions, sized in {@code caffeine.conf}.
+ * <p>
+ * Only the station and date rows are cached. The version collections change
+ * with every save and are not cached, neither are the versions and values.
+ */
+public final class CacheRegions {
+    public static final String POWER_STATION = "power-station";
+    public static final String POWER_STATION_DATE = "power-station-date";
+    // Results of the cacheable queries, invalidated by any write to the tables they read
+    public static final String QUERY_RESULTS = "default-query-results-region";
+
+    private CacheRegions() {
+    }
+}
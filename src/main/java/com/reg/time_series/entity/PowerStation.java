@@ -2,11 +2,20 @@ package com.reg.time_series.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.POWER_STATION)
+@Table(name = "power_station",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_power_station_name", columnNames = "power_station")
+        }
+)
 public class PowerStation {
 
     @Id
@@ -3,12 +3,16 @@ package com.reg.time_series.entity;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.util.List;
 
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.POWER_STATION_DATE)
 @Table(name = "power_station_date",
         uniqueConstraints = {
                 @UniqueConstraint(columnNames = {"power_station_id", "station_date"})
@@ -26,6 +30,7 @@ public class PowerStationDate {
 
     @ToString.Exclude
     @OneToMany(mappedBy = "powerStationDate", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("version")
     private List<TimeSeriesVersion> versions;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -38,4 +43,20 @@ public class PowerStationDate {
     @Column(name = "zone", nullable = false)
     private String zone;
 
+    // Number of versions moved to the TimeSeriesArchive of this date, null or 0 when not compacted
+    @Column(name = "archived_versions")
+    private Integer archivedVersions;
+
+    // Lowest version renumbered by a late insert and the latest version right after the last one,
+    // null when no version has arrived late
+    @Column(name = "rewritten_from_version")
+    private Integer rewrittenFromVersion;
+
+    @Column(name = "rewritten_latest_version")
+    private Integer rewrittenLatestVersion;
+
+    public boolean hasArchivedVersions() {
+        return archivedVersions != null && archivedVersions > 0;
+    }
+
 }
@@ -0,0 +1,37 @@
+package com.reg.time_series.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compressed intermediate versions of a compacted {@link PowerStationDate}.
+ * The first and the latest versions of the day stay in {@code time_series_versions}.
+ */
+@Data
+@Entity
+@Table(name = "time_series_archives")
+public class TimeSeriesArchive {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ToString.Exclude
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "power_station_date_id", nullable = false, unique = true)
+    private PowerStationDate powerStationDate;
+
+    @Column(name = "version_count", nullable = false)
+    private int versionCount;
+
+    @Column(name = "compacted_at", nullable = false)
+    private LocalDateTime compactedAt;
+
+    @ToString.Exclude
+    @Lob
+    @Column(name = "data", nullable = false, length = 16 * 1024 * 1024)
+    private byte[] data;
+}
@@ -4,12 +4,19 @@ import jakarta.persistence.*;
 import lombok.Data;
 
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
 @Entity
-@Table(name = "time_series_versions")
+@Table(name = "time_series_versions",
+        indexes = {
+                @Index(columnList = "station_date"),
+                // Point-in-time lookups of the latest version at a given time
+                @Index(name = "idx_time_series_versions_as_of", columnList = "time_series_id,timestamp")
+        }
+)
 public class TimeSeriesVersion {
 
     @Id
@@ -20,6 +27,10 @@ public class TimeSeriesVersion {
     @JoinColumn(name = "time_series_id", nullable = false)
     private PowerStationDate powerStationDate;
 
+    // Copy of PowerStationDate.stationDate, the partitioning key of the versions table
+    @Column(name = "station_date")
+    private LocalDate stationDate;
+
     @Column(name = "version", nullable = false)
     private int version;
 
@@ -29,9 +40,25 @@ public class TimeSeriesVersion {
     @Column(name = "period", nullable = false)
     private Duration period;
 
+    // Slots that differ from the previous version, null for rows written before it was recorded
+    @Column(name = "changed_from_slot")
+    private Integer changedFromSlot;
+
+    @Column(name = "changed_slot_count")
+    private Integer changedSlotCount;
+
+    // The slot is stored, a bag has no order the database keeps; ValueSlotMigration numbers older databases
     @ElementCollection
     @CollectionTable(name = "time_series_values", joinColumns = @JoinColumn(name = "time_series_version_id"))
+    @OrderColumn(name = "slot")
     @Column(name = "series_value")
     private List<Integer> series;
+
+    @PrePersist
+    void copyStationDate() {
+        if (stationDate == null && powerStationDate != null) {
+            stationDate = powerStationDate.getStationDate();
+        }
+    }
 }
 
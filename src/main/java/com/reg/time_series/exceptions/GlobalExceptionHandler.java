@@ -28,6 +28,18 @@ public class GlobalExceptionHandler {
     }
 
 
+    @ExceptionHandler(StaleTimeSeriesException.class)
+    public ResponseEntity<ErrorResponse> handleStaleTimeSeriesException(StaleTimeSeriesException ex, WebRequest request) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                LocalDateTime.now(),
+                HttpStatus.CONFLICT.value(),
+                "Stale time series",
+                ex.getMessage(),
+                request.getDescription(false)
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ErrorResponse> handleIllegalArgumentException(IllegalArgumentException ex, WebRequest request) {
         ErrorResponse errorResponse = new ErrorResponse(
@@ -0,0 +1,8 @@
+package com.reg.time_series.exceptions;
+
+
+public class StaleTimeSeriesException extends RuntimeException {
+    public StaleTimeSeriesException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.reg.time_series.model;
+
+import lombok.Data;
+
+/**
+ * Shared header of a bulk upload. Records that do not carry their own
+ * {@code zone} or {@code period} inherit them from here.
+ */
+@Data
+public class BulkImportHeader {
+    private String zone;
+    private String period;
+}
@@ -0,0 +1,15 @@
+package com.reg.time_series.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkImportResult {
+    private int records;
+    private int savedRecords;
+    private int failedRecords;
+    private int batches;
+    private List<String> errors = new ArrayList<>();
+}
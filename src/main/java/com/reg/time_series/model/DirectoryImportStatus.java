@@ -0,0 +1,22 @@
+package com.reg.time_series.model;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Counters of the directory importer. The rates and lags are the ones of the
+ * last round that imported files; the lag of a file is the time from its last
+ * modification to its commit.
+ */
+@Data
+public class DirectoryImportStatus {
+    private String directory;
+    private long importedFiles;
+    private long failedFiles;
+    private int pendingFiles;
+    private double filesPerSecond;
+    private long averageLagMillis;
+    private long maxLagMillis;
+    private LocalDateTime lastImport;
+}
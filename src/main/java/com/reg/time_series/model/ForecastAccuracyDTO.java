@@ -0,0 +1,46 @@
+package com.reg.time_series.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * How the forecasts of a station evolved across the versions of each date. The
+ * last version of a date stands in for the actual values.
+ */
+@Data
+public class ForecastAccuracyDTO {
+    private String powerStationName;
+    private String from;
+    private String to;
+    private long periodMinutes;
+    private int days;
+    // Dates with a different slot count than the first date of the range
+    private int skippedDays;
+    private long versions;
+    private List<SlotStatistics> slots;
+    private List<LeadTimeError> leadTimes;
+
+    @Data
+    public static class SlotStatistics {
+        private int slot;
+        private String timeSlot;
+        // Last minus first version, averaged over the dates
+        private double meanDrift;
+        private double meanAbsoluteDrift;
+        // Versions that changed the value of the slot
+        private long revisions;
+        private double revisionsPerDay;
+    }
+
+    /**
+     * Error of the versions sent {@code leadTimeHours} to {@code leadTimeHours + 1}
+     * hours before the start of a slot, against the last version of the slot.
+     */
+    @Data
+    public static class LeadTimeError {
+        private int leadTimeHours;
+        private double meanAbsoluteError;
+        private long samples;
+    }
+}
@@ -0,0 +1,24 @@
+package com.reg.time_series.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Counters of the Hibernate second-level cache since the start or the last
+ * eviction. The hit ratio is 0 before the first lookup.
+ */
+@Data
+public class SecondLevelCacheStatus {
+    private boolean enabled;
+    private List<Region> regions;
+
+    @Data
+    public static class Region {
+        private String name;
+        private long hits;
+        private long misses;
+        private long puts;
+        private double hitRatio;
+    }
+}
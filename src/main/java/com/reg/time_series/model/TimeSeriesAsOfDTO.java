@@ -0,0 +1,21 @@
+package com.reg.time_series.model;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The version of a date that was the latest one at {@code asOf}, i.e. the
+ * forecast that was valid at that time.
+ */
+@Data
+public class TimeSeriesAsOfDTO {
+    private String powerStationName;
+    private String date;
+    private LocalDateTime asOf;
+    private int version;
+    private LocalDateTime timestamp;
+    private long periodMinutes;
+    private List<Integer> values;
+}
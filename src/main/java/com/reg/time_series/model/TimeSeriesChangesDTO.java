@@ -0,0 +1,34 @@
+package com.reg.time_series.model;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class TimeSeriesChangesDTO {
+    private String powerStationName;
+    private String date;
+    private int sinceVersion;
+    private int latestVersion;
+    /**
+     * Set when versions up to {@code sinceVersion} were renumbered by a late version since
+     * they could have been read: the versions from this one on are to be dropped, the
+     * changes start with it. Null otherwise.
+     */
+    private Integer rewrittenFrom;
+    private List<VersionChange> changes;
+
+    /**
+     * The slots of a version that differ from its predecessor. Slots outside
+     * {@code fromSlot .. fromSlot + values.size() - 1} are equal to the previous version.
+     */
+    @Data
+    public static class VersionChange {
+        private int version;
+        private LocalDateTime timestamp;
+        private int fromSlot;
+        private String fromTimeSlot;
+        private List<Integer> values;
+    }
+}
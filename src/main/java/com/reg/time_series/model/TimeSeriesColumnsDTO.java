@@ -0,0 +1,40 @@
+package com.reg.time_series.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Column oriented form of {@link TimeSeriesViewDTO}: the values of a version are
+ * a plain array indexed by slot instead of one map entry per row, and the safety
+ * window is a slot range instead of a flag on every row.
+ * <p>
+ * Served as {@code application/x-ndjson}: the header on the first line, then one
+ * line per version.
+ */
+@Data
+public class TimeSeriesColumnsDTO {
+    private Header header;
+    private List<VersionColumn> versions;
+
+    @Data
+    public static class Header {
+        private String powerStationName;
+        private String date;
+        private long periodMinutes;
+        private int slots;
+        // Inclusive slot range, null when no slot of the date is in the safety window
+        private Integer safetyWindowFromSlot;
+        private Integer safetyWindowToSlot;
+    }
+
+    @Data
+    public static class VersionColumn {
+        private int version;
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+        private LocalDateTime timestamp;
+        private List<Integer> values;
+    }
+}
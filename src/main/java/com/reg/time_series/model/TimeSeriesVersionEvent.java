@@ -0,0 +1,35 @@
+package com.reg.time_series.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Published by {@code TimeSeriesService.save} for every new version and pushed to
+ * the subscribers of {@code /api/time-series/events} once the transaction commits.
+ * A version that arrived late is inserted before newer ones, then {@code version}
+ * is its position, {@code latestVersion} the number of the newest version and
+ * {@code rewrittenFrom} equals {@code version}: the versions from it on were
+ * renumbered and have to be read again. Null for a version added as the newest.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimeSeriesVersionEvent {
+    private String powerStationName;
+    private LocalDate date;
+    private int version;
+    private LocalDateTime timestamp;
+    private int fromSlot;
+    private int changedSlotCount;
+    private int latestVersion;
+    private Integer rewrittenFrom;
+
+    public TimeSeriesVersionEvent(String powerStationName, LocalDate date, int version, LocalDateTime timestamp,
+                                  int fromSlot, int changedSlotCount) {
+        this(powerStationName, date, version, timestamp, fromSlot, changedSlotCount, version, null);
+    }
+}
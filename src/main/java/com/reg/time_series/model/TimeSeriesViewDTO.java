@@ -11,6 +11,8 @@ public class TimeSeriesViewDTO {
     private String powerStationName;
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private String date;
+    // Latest stored version, the versions may be a window before it
+    private int latestVersion;
     private List<VersionInfo> versions;
     private List<TimeSeriesRow> rows;
     private boolean hasSafetyWindow;
@@ -0,0 +1,66 @@
+package com.reg.time_series.model;
+
+import lombok.Data;
+
+/**
+ * Part of the time series view to return. Both ranges are inclusive, a null
+ * bound is not limited. {@code latest} keeps the latest versions within the
+ * version range.
+ */
+@Data
+public class TimeSeriesViewWindow {
+    private Integer fromVersion;
+    private Integer toVersion;
+    private Integer latest;
+    private Integer fromSlot;
+    private Integer toSlot;
+
+    public static TimeSeriesViewWindow all() {
+        return new TimeSeriesViewWindow();
+    }
+
+    public boolean limitsVersions() {
+        return fromVersion != null || toVersion != null || latest != null;
+    }
+
+    public boolean isAll() {
+        return !limitsVersions() && fromSlot == null && toSlot == null;
+    }
+
+    public void validate() {
+        if (latest != null && latest < 1) {
+            throw new IllegalArgumentException("latest must be at least 1");
+        }
+        if (fromSlot != null && fromSlot < 0) {
+            throw new IllegalArgumentException("fromSlot must not be negative");
+        }
+        if (fromVersion != null && toVersion != null && fromVersion > toVersion) {
+            throw new IllegalArgumentException("fromVersion must not be after toVersion");
+        }
+        if (fromSlot != null && toSlot != null && fromSlot > toSlot) {
+            throw new IllegalArgumentException("fromSlot must not be after toSlot");
+        }
+    }
+
+    /**
+     * The first version to return when the latest stored one is {@code latestVersion}.
+     */
+    public int firstVersion(int latestVersion) {
+        int first = fromVersion == null ? 1 : fromVersion;
+        return latest == null ? first : Math.max(first, lastVersion(latestVersion) - latest + 1);
+    }
+
+    public int lastVersion(int latestVersion) {
+        return toVersion == null ? latestVersion : Math.min(toVersion, latestVersion);
+    }
+
+    // Distinguishes the ETag of a window from the one of the whole view; without commas, If-None-Match lists tags with them
+    public String variant() {
+        return "versions=" + bound(fromVersion) + ".." + bound(toVersion) + ";latest=" + bound(latest)
+                + ";slots=" + bound(fromSlot) + ".." + bound(toSlot);
+    }
+
+    private static String bound(Integer value) {
+        return value == null ? "" : value.toString();
+    }
+}
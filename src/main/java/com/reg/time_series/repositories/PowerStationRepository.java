@@ -1,8 +1,11 @@
 package com.reg.time_series.repositories;
 
 import com.reg.time_series.entity.PowerStation;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,10 +13,17 @@ import java.util.Optional;
 
 @Repository
 public interface PowerStationRepository extends JpaRepository<PowerStation, Long> {
+    // Cached queries are invalidated by any write to power_station, see CacheRegions
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<PowerStation> findByPowerStation(String powerStation);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("SELECT DISTINCT p.powerStation FROM PowerStation p")
     List<String> findDistinctPowerStationNames();
 
+    // Name and id pairs for PowerStationDictionary
+    @Query("SELECT p.powerStation, p.id FROM PowerStation p")
+    List<Object[]> findAllNamesAndIds();
+
 }
 
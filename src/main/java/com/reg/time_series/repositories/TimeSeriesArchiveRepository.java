@@ -0,0 +1,12 @@
+package com.reg.time_series.repositories;
+
+import com.reg.time_series.entity.PowerStationDate;
+import com.reg.time_series.entity.TimeSeriesArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface TimeSeriesArchiveRepository extends JpaRepository<TimeSeriesArchive, Long> {
+
+    Optional<TimeSeriesArchive> findByPowerStationDate(PowerStationDate powerStationDate);
+}
@@ -3,9 +3,15 @@ package com.reg.time_series.repositories;
 import com.reg.time_series.entity.PowerStation;
 import com.reg.time_series.entity.PowerStationDate;
 import com.reg.time_series.entity.TimeSeriesVersion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,21 +21,116 @@ import org.springframework.data.repository.query.Param;
 
 public interface TimeSeriesRepository extends JpaRepository<PowerStationDate, Long> {
 
+    // Cached queries are invalidated by any write to power_station_date, which only happens for a new date
+    // or a compaction, saving a version does not touch the date row
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<PowerStationDate> findByPowerStationAndStationDate(
             @NonNull PowerStation powerStation,
             @NonNull LocalDate stationDate);
 
+    // Unlike findByPowerStationNameAndDate the versions are not fetched
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Optional<PowerStationDate> findByPowerStationPowerStationAndStationDate(String powerStationName,
+                                                                            LocalDate stationDate);
+
+    // The station_date predicate lets MySQL prune the lookup to a single partition;
+    // rows written before the column existed have no date yet.
     @Query(value = "SELECT v FROM TimeSeriesVersion v " +
             "WHERE v.powerStationDate = :psd " +
+            "AND (v.stationDate = :#{#psd.stationDate} OR v.stationDate IS NULL) " +
             "ORDER BY v.version DESC " +
             "FETCH FIRST 1 ROWS ONLY")
     Optional<TimeSeriesVersion> findFirstByPowerStationDateOrderByVersionDesc(
             @Param("psd") PowerStationDate powerStationDate);
 
+    @Query("SELECT v FROM TimeSeriesVersion v " +
+            "WHERE v.powerStationDate = :psd " +
+            "AND (v.stationDate = :#{#psd.stationDate} OR v.stationDate IS NULL) " +
+            "AND v.version >= :fromVersion " +
+            "ORDER BY v.version")
+    List<TimeSeriesVersion> findVersionsFrom(@Param("psd") PowerStationDate powerStationDate,
+                                             @Param("fromVersion") int fromVersion);
+
+    @Query("SELECT MAX(v.version) FROM TimeSeriesVersion v " +
+            "WHERE v.powerStationDate = :psd " +
+            "AND (v.stationDate = :#{#psd.stationDate} OR v.stationDate IS NULL)")
+    Optional<Integer> findLatestVersionNumber(@Param("psd") PowerStationDate powerStationDate);
+
+    // The ones of the given version numbers that the tables have already
+    @Query("SELECT v.version FROM TimeSeriesVersion v " +
+            "WHERE v.powerStationDate = :psd " +
+            "AND (v.stationDate = :#{#psd.stationDate} OR v.stationDate IS NULL) " +
+            "AND v.version IN :versions")
+    List<Integer> findExistingVersionNumbers(@Param("psd") PowerStationDate powerStationDate,
+                                             @Param("versions") Collection<Integer> versions);
+
+    // The window of the time series view, the values of other versions are not read
+    @Query("SELECT v FROM TimeSeriesVersion v " +
+            "WHERE v.powerStationDate = :psd " +
+            "AND (v.stationDate = :#{#psd.stationDate} OR v.stationDate IS NULL) " +
+            "AND v.version BETWEEN :fromVersion AND :toVersion " +
+            "ORDER BY v.version")
+    List<TimeSeriesVersion> findVersionsBetween(@Param("psd") PowerStationDate powerStationDate,
+                                                @Param("fromVersion") int fromVersion,
+                                                @Param("toVersion") int toVersion);
+
+    // Where a version that arrived late belongs
+    @Query("SELECT MIN(v.version) FROM TimeSeriesVersion v " +
+            "WHERE v.powerStationDate = :psd " +
+            "AND (v.stationDate = :#{#psd.stationDate} OR v.stationDate IS NULL) " +
+            "AND v.timestamp > :timestamp")
+    Optional<Integer> findFirstVersionAfter(@Param("psd") PowerStationDate powerStationDate,
+                                            @Param("timestamp") LocalDateTime timestamp);
+
+    // Served by the (time_series_id, timestamp) index, equal timestamps are ordered by version
+    @Query("SELECT v FROM TimeSeriesVersion v " +
+            "WHERE v.powerStationDate = :psd " +
+            "AND (v.stationDate = :#{#psd.stationDate} OR v.stationDate IS NULL) " +
+            "AND v.timestamp <= :asOf " +
+            "ORDER BY v.timestamp DESC, v.version DESC " +
+            "FETCH FIRST 1 ROWS ONLY")
+    Optional<TimeSeriesVersion> findLatestAsOf(@Param("psd") PowerStationDate powerStationDate,
+                                               @Param("asOf") LocalDateTime asOf);
+
+    // The latest versions of every station on the date at asOf with their values, several when timestamps are equal
+    @Query("SELECT DISTINCT v FROM TimeSeriesVersion v " +
+            "JOIN FETCH v.powerStationDate psd " +
+            "JOIN FETCH psd.powerStation " +
+            "LEFT JOIN FETCH v.series " +
+            "WHERE psd.stationDate = :date " +
+            "AND v.timestamp = (SELECT MAX(v2.timestamp) FROM TimeSeriesVersion v2 " +
+            "WHERE v2.powerStationDate = psd AND v2.timestamp <= :asOf)")
+    List<TimeSeriesVersion> findLatestOfEveryStationAsOf(@Param("date") LocalDate date,
+                                                         @Param("asOf") LocalDateTime asOf);
+
+    @Query("SELECT psd FROM PowerStationDate psd JOIN FETCH psd.powerStation WHERE psd.stationDate = :date")
+    List<PowerStationDate> findByStationDateWithPowerStation(@Param("date") LocalDate date);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("SELECT DISTINCT psd.stationDate FROM PowerStationDate psd " +
             "WHERE psd.powerStation.powerStation = :powerStationName ORDER BY psd.stationDate")
     List<LocalDate> findDatesByPowerStation(@Param("powerStationName") String powerStationName);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT DISTINCT psd.stationDate FROM PowerStationDate psd " +
+            "WHERE psd.powerStation.powerStation = :powerStationName " +
+            "AND psd.stationDate BETWEEN :from AND :to ORDER BY psd.stationDate")
+    List<LocalDate> findDatesByPowerStationBetween(@Param("powerStationName") String powerStationName,
+                                                   @Param("from") LocalDate from,
+                                                   @Param("to") LocalDate to);
+
+    // Station name and date pairs for PowerStationCatalogue
+    @Query("SELECT psd.powerStation.powerStation, psd.stationDate FROM PowerStationDate psd")
+    List<Object[]> findAllStationDates();
+
+    @Query("SELECT v FROM TimeSeriesVersion v " +
+            "WHERE v.powerStationDate.powerStation.powerStation = :powerStationName " +
+            "AND v.stationDate BETWEEN :from AND :to " +
+            "ORDER BY v.stationDate, v.version")
+    List<TimeSeriesVersion> findVersionsByPowerStationBetween(@Param("powerStationName") String powerStationName,
+                                                              @Param("from") LocalDate from,
+                                                              @Param("to") LocalDate to);
+
     @Query("SELECT psd FROM PowerStationDate psd " +
             "LEFT JOIN FETCH psd.versions v " +
             "WHERE psd.powerStation.powerStation = :powerStationName " +
@@ -38,5 +139,10 @@ public interface TimeSeriesRepository extends JpaRepository<PowerStationDate, Lo
             @Param("powerStationName") String powerStationName,
             @Param("date") LocalDate date);
 
-
-}
\ No newline at end of file
+    @Query("SELECT psd.id FROM PowerStationDate psd " +
+            "WHERE psd.stationDate < :cutoff AND psd.id > :afterId AND SIZE(psd.versions) > 2 " +
+            "ORDER BY psd.id")
+    List<Long> findCompactionCandidates(@Param("cutoff") LocalDate cutoff,
+                                        @Param("afterId") long afterId,
+                                        Pageable pageable);
+}
@@ -0,0 +1,110 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.exceptions.StaleTimeSeriesException;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes the saves of a (station id, date) in a {@link VersionStore}. A save
+ * locks the date before it merges on top of the latest version and the store
+ * unlocks it once the transaction of the save has completed, so the next save of
+ * the date merges on top of a committed version.
+ * <p>
+ * The lock is one of {@link #STRIPES}, chosen by the hash of the station and the
+ * date, so saves of different dates that share a lock wait for each other too. A
+ * batch that saves many dates in one transaction locks all of them up front with
+ * {@link #lockInOrder}, in ascending lock order, so that two batches never wait
+ * for each other in a cycle. A save that waits longer than
+ * {@link #TIMEOUT_SECONDS} is refused and rolls back.
+ */
+final class DateLocks {
+    private static final long TIMEOUT_SECONDS = 5;
+    // A fixed set of locks however many dates are saved; dates that share one only wait for each other's saves
+    private static final int STRIPES = 256;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    DateLocks() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the date for the current thread, again when it holds it already.
+     *
+     * @return the lock, to unlock once per call
+     * @throws StaleTimeSeriesException when another save holds the lock for too long
+     */
+    ReentrantLock lock(long stationId, LocalDate date) {
+        return lock(locks[stripe(stationId, date)], String.format(
+                "Station %d on %s is being saved by another transaction, try again", stationId, date));
+    }
+
+    /**
+     * Locks the dates of a batch in ascending lock order for the current thread, until
+     * the current transaction completes. The saves of the batch then lock them again
+     * without waiting. Does nothing outside a transaction.
+     *
+     * @param dates the dates of every station id
+     * @throws StaleTimeSeriesException when another save holds one of the locks for too long
+     */
+    void lockInOrder(Map<Long, ? extends Collection<LocalDate>> dates) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        SortedSet<Integer> stripes = new TreeSet<>();
+        dates.forEach((stationId, stationDates) ->
+                stationDates.forEach(date -> stripes.add(stripe(stationId, date))));
+        List<ReentrantLock> held = new ArrayList<>(stripes.size());
+        try {
+            for (int stripe : stripes) {
+                held.add(lock(locks[stripe], "Dates of the batch are being saved by another transaction, try again"));
+            }
+        } catch (RuntimeException e) {
+            unlock(held);
+            throw e;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                unlock(held);
+            }
+        });
+    }
+
+    /**
+     * Locks the date when no save holds it, null otherwise.
+     */
+    ReentrantLock tryLock(long stationId, LocalDate date) {
+        ReentrantLock lock = locks[stripe(stationId, date)];
+        return lock.tryLock() ? lock : null;
+    }
+
+    private static ReentrantLock lock(ReentrantLock lock, String refusal) {
+        try {
+            if (lock.tryLock(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                return lock;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new StaleTimeSeriesException(refusal);
+    }
+
+    private static void unlock(List<ReentrantLock> held) {
+        for (int i = held.size() - 1; i >= 0; i--) {
+            held.get(i).unlock();
+        }
+    }
+
+    private static int stripe(long stationId, LocalDate date) {
+        return Math.floorMod(31 * Long.hashCode(stationId) + Long.hashCode(date.toEpochDay()), STRIPES);
+    }
+}
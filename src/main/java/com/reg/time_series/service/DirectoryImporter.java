@@ -0,0 +1,407 @@
+package com.reg.time_series.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reg.time_series.model.DirectoryImportStatus;
+import com.reg.time_series.model.TimeSeriesData;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Imports the JSON files dropped into {@code time-series.import.directory}, enabled
+ * with {@code time-series.import.enabled=true}.
+ * <p>
+ * A {@link WatchService} wakes the importer, which then takes every file that has
+ * not been modified for {@code time-series.import.settle-ms}, so files that are
+ * still being written are left alone. The files of a round are parsed in parallel
+ * and grouped by station and date; each group is saved in timestamp order in one
+ * transaction, the groups in parallel. When a group fails its files are saved one
+ * by one. Imported files are moved to {@code done/}, unreadable and refused ones to
+ * {@code failed/} together with a {@code .error} file holding the reason. Files
+ * that could not be saved for any other reason, e.g. while the database is down,
+ * stay in the directory and are tried again on the next rounds.
+ * <p>
+ * Committed files are recorded in a checkpoint before they are moved. A file that
+ * is still in the directory with the recorded size and modification time, e.g.
+ * after a crash between the commit and the move, is moved on the next round or
+ * start instead of being imported again.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "time-series.import.enabled", havingValue = "true")
+public class DirectoryImporter {
+    static final String CHECKPOINT = ".import-checkpoint";
+    private static final long MIN_POLL_MILLIS = 100;
+
+    private final TimeSeriesService timeSeriesService;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final Path doneDirectory;
+    private final Path failedDirectory;
+    private final Path checkpoint;
+    private final long settleMillis;
+    private final ExecutorService workers;
+
+    private final AtomicLong importedFiles = new AtomicLong();
+    private final AtomicLong failedFiles = new AtomicLong();
+    // Of the current round, only the watcher thread starts rounds
+    private final LongAdder roundFiles = new LongAdder();
+    private final LongAdder roundLagMillis = new LongAdder();
+    private final LongAccumulator roundMaxLagMillis = new LongAccumulator(Math::max, 0);
+    private final AtomicInteger roundRetries = new AtomicInteger();
+    private volatile int pendingFiles;
+    private volatile double filesPerSecond;
+    private volatile long averageLagMillis;
+    private volatile long maxLagMillis;
+    private volatile LocalDateTime lastImport;
+
+    private volatile boolean running;
+    private WatchService watchService;
+    private Thread watcher;
+
+    public DirectoryImporter(TimeSeriesService timeSeriesService,
+                             ObjectMapper objectMapper,
+                             @Value("${time-series.import.directory}") Path directory,
+                             @Value("${time-series.import.threads}") int threads,
+                             @Value("${time-series.import.settle-ms}") long settleMillis) {
+        if (threads <= 0) {
+            throw new IllegalStateException("Import threads must be positive");
+        }
+        this.timeSeriesService = timeSeriesService;
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.doneDirectory = directory.resolve("done");
+        this.failedDirectory = directory.resolve("failed");
+        this.checkpoint = directory.resolve(CHECKPOINT);
+        this.settleMillis = settleMillis;
+        try {
+            Files.createDirectories(doneDirectory);
+            Files.createDirectories(failedDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the import directories in " + directory, e);
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "directory-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        completeCheckpoint();
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        running = true;
+        watcher = new Thread(this::watch, "directory-import-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("Importing the JSON files of {}", directory.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        running = false;
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (watcher != null) {
+            watcher.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Directory import workers did not stop in time");
+        }
+    }
+
+    public DirectoryImportStatus status() {
+        DirectoryImportStatus status = new DirectoryImportStatus();
+        status.setDirectory(directory.toAbsolutePath().toString());
+        status.setImportedFiles(importedFiles.get());
+        status.setFailedFiles(failedFiles.get());
+        status.setPendingFiles(pendingFiles);
+        status.setFilesPerSecond(filesPerSecond);
+        status.setAverageLagMillis(averageLagMillis);
+        status.setMaxLagMillis(maxLagMillis);
+        status.setLastImport(lastImport);
+        return status;
+    }
+
+    private void watch() {
+        try {
+            while (running) {
+                boolean unsettled;
+                try {
+                    unsettled = importRound();
+                } catch (RuntimeException e) {
+                    log.error("Directory import round failed: ", e);
+                    unsettled = true;
+                }
+                // The events only wake the watcher, the listing decides what is imported
+                WatchKey key = unsettled
+                        ? watchService.poll(Math.max(settleMillis, MIN_POLL_MILLIS), TimeUnit.MILLISECONDS)
+                        : watchService.take();
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            log.debug("Directory import watcher stopped");
+        }
+    }
+
+    /**
+     * Imports the files of the directory that are not being written any more.
+     *
+     * @return whether some files were left because they were modified recently or
+     * could not be saved for now
+     */
+    boolean importRound() {
+        Set<Path> committed = completeCheckpoint();
+        long now = System.currentTimeMillis();
+        List<InboxFile> settled = new ArrayList<>();
+        int unsettled = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                path -> path.getFileName().toString().toLowerCase().endsWith(".json"))) {
+            for (Path file : files) {
+                Optional<InboxFile> inboxFile = InboxFile.of(file);
+                if (inboxFile.isEmpty() || committed.contains(file)) {
+                    continue;
+                }
+                if (now - inboxFile.get().modifiedMillis() >= settleMillis) {
+                    settled.add(inboxFile.get());
+                } else {
+                    unsettled++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list " + directory, e);
+        }
+        pendingFiles = settled.size() + unsettled;
+        roundRetries.set(0);
+        if (!settled.isEmpty()) {
+            importFiles(settled);
+            completeCheckpoint();
+        }
+        int retries = roundRetries.get();
+        pendingFiles = unsettled + retries;
+        return unsettled + retries > 0;
+    }
+
+    private void importFiles(List<InboxFile> files) {
+        long start = System.nanoTime();
+        roundFiles.reset();
+        roundLagMillis.reset();
+        roundMaxLagMillis.reset();
+
+        List<CompletableFuture<Parsed>> parsing = files.stream()
+                .map(file -> CompletableFuture.supplyAsync(() -> parse(file), workers))
+                .toList();
+        Map<String, List<Parsed>> groups = new LinkedHashMap<>();
+        for (CompletableFuture<Parsed> future : parsing) {
+            Parsed parsed = future.join();
+            if (parsed.error() != null) {
+                fail(parsed.file(), parsed.error());
+            } else {
+                groups.computeIfAbsent(parsed.data().getPowerStation() + "|" + parsed.data().getDate(),
+                        key -> new ArrayList<>()).add(parsed);
+            }
+        }
+        // Saves of the same station and date stay in one thread, in timestamp order
+        groups.values().stream()
+                .map(group -> CompletableFuture.runAsync(() -> commit(group), workers))
+                .toList()
+                .forEach(CompletableFuture::join);
+
+        long imported = roundFiles.sum();
+        if (imported > 0) {
+            long elapsedNanos = Math.max(1, System.nanoTime() - start);
+            filesPerSecond = imported * 1e9 / elapsedNanos;
+            averageLagMillis = roundLagMillis.sum() / imported;
+            maxLagMillis = roundMaxLagMillis.get();
+            lastImport = LocalDateTime.now();
+        }
+        log.info("Imported {} of {} files from {} in {} ms, {} files/s, lag avg {} ms max {} ms",
+                imported, parsing.size(), directory, (System.nanoTime() - start) / 1_000_000,
+                String.format("%.1f", filesPerSecond), averageLagMillis, maxLagMillis);
+    }
+
+    private Parsed parse(InboxFile file) {
+        try {
+            TimeSeriesData data = objectMapper.readValue(Files.readString(file.path()), TimeSeriesData.class);
+            if (data.getPowerStation() == null || data.getDate() == null || data.getTimestamp() == null) {
+                return new Parsed(file, null, new IllegalArgumentException("Power station, date and timestamp are required"));
+            }
+            return new Parsed(file, data, null);
+        } catch (Exception e) {
+            return new Parsed(file, null, e);
+        }
+    }
+
+    private void commit(List<Parsed> group) {
+        group.sort(Comparator.comparing(parsed -> parsed.data().getTimestamp()));
+        try {
+            timeSeriesService.saveAll(group.stream().map(Parsed::data).toList());
+        } catch (Exception groupError) {
+            log.warn("Import of {} files of {} on {} failed, retrying them one by one", group.size(),
+                    group.get(0).data().getPowerStation(), group.get(0).data().getDate(), groupError);
+            for (Parsed parsed : group) {
+                try {
+                    timeSeriesService.save(parsed.data());
+                } catch (IllegalArgumentException | DateTimeException e) {
+                    fail(parsed.file(), e);
+                    continue;
+                } catch (Exception e) {
+                    // Not the file's fault, left in the directory for the next round
+                    roundRetries.incrementAndGet();
+                    log.warn("Cannot import file {} now, trying again later: {}",
+                            parsed.file().path().getFileName(), e.getMessage());
+                    continue;
+                }
+                done(List.of(parsed.file()));
+            }
+            return;
+        }
+        done(group.stream().map(Parsed::file).toList());
+    }
+
+    // Committed files, recorded before they are moved
+    private void done(List<InboxFile> files) {
+        try {
+            appendCheckpoint(files);
+        } catch (IOException e) {
+            log.error("Cannot record {} committed files in the checkpoint: ", files.size(), e);
+        }
+        long now = System.currentTimeMillis();
+        for (InboxFile file : files) {
+            long lag = Math.max(0, now - file.modifiedMillis());
+            roundFiles.increment();
+            roundLagMillis.add(lag);
+            roundMaxLagMillis.accumulate(lag);
+            importedFiles.incrementAndGet();
+            try {
+                move(file.path(), doneDirectory);
+            } catch (IOException e) {
+                // Moved by the next round through the checkpoint
+                log.warn("Cannot move imported file {}: {}", file.path(), e.getMessage());
+            }
+        }
+    }
+
+    private void fail(InboxFile file, Exception error) {
+        failedFiles.incrementAndGet();
+        log.error("Error processing file {}: {}", file.path().getFileName(), error.getMessage());
+        try {
+            Files.writeString(failedDirectory.resolve(file.path().getFileName() + ".error"),
+                    String.valueOf(error.getMessage()), StandardCharsets.UTF_8);
+            move(file.path(), failedDirectory);
+        } catch (IOException e) {
+            log.error("Cannot move failed file {}: ", file.path(), e);
+        }
+    }
+
+    private synchronized void appendCheckpoint(List<InboxFile> files) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (InboxFile file : files) {
+            lines.append(file.path().getFileName()).append('\t').append(file.size())
+                    .append('\t').append(file.modifiedMillis()).append('\n');
+        }
+        Files.writeString(checkpoint, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+    }
+
+    /**
+     * Moves the committed files of the checkpoint that are still in the directory
+     * and clears the checkpoint.
+     *
+     * @return the committed files that could not be moved, they are kept in the checkpoint
+     */
+    private synchronized Set<Path> completeCheckpoint() {
+        if (!Files.exists(checkpoint)) {
+            return Set.of();
+        }
+        try {
+            List<String> remaining = new ArrayList<>();
+            Set<Path> committed = new HashSet<>();
+            for (String line : Files.readAllLines(checkpoint, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t");
+                if (fields.length != 3) {
+                    continue;
+                }
+                Path file = directory.resolve(fields[0]);
+                // A file with the same name but other content is a new file
+                boolean unchanged = InboxFile.of(file)
+                        .filter(f -> f.size() == Long.parseLong(fields[1]) && f.modifiedMillis() == Long.parseLong(fields[2]))
+                        .isPresent();
+                if (!unchanged) {
+                    continue;
+                }
+                try {
+                    move(file, doneDirectory);
+                    log.info("Moved {}, it was imported before the last stop", file.getFileName());
+                } catch (IOException e) {
+                    log.warn("Cannot move imported file {}: {}", file, e.getMessage());
+                    remaining.add(line);
+                    committed.add(file);
+                }
+            }
+            if (remaining.isEmpty()) {
+                Files.delete(checkpoint);
+            } else {
+                Files.write(checkpoint, remaining, StandardCharsets.UTF_8);
+            }
+            return committed;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the import checkpoint " + checkpoint, e);
+        }
+    }
+
+    private static void move(Path file, Path targetDirectory) throws IOException {
+        Path target = targetDirectory.resolve(file.getFileName());
+        try {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private record InboxFile(Path path, long size, long modifiedMillis) {
+        // Empty when the file is gone or is not a regular file
+        static Optional<InboxFile> of(Path path) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return attributes.isRegularFile()
+                        ? Optional.of(new InboxFile(path, attributes.size(), attributes.lastModifiedTime().toMillis()))
+                        : Optional.empty();
+            } catch (IOException e) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    private record Parsed(InboxFile file, TimeSeriesData data, Exception error) {
+    }
+}
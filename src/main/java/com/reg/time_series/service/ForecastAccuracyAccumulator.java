@@ -0,0 +1,141 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.model.ForecastAccuracyDTO;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Primitive accumulators of {@link ForecastAccuracyDTO}. The dates are added one
+ * after the other, only the sums per slot and per lead time hour are kept.
+ * <p>
+ * Missing values are {@link #NO_VALUE} and are left out of every statistic.
+ */
+final class ForecastAccuracyAccumulator {
+    static final int NO_VALUE = Integer.MIN_VALUE;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private int slots = -1;
+    private long periodMinutes;
+    private int days;
+    private int skippedDays;
+    private long versions;
+
+    private long[] driftSum;
+    private long[] absoluteDriftSum;
+    private int[] driftDays;
+    private long[] revisions;
+    private long[] absoluteErrorSum = new long[48];
+    private long[] errorSamples = new long[48];
+
+    /**
+     * Adds the versions of a date.
+     *
+     * @param timestamps epoch minutes of the versions, in version order
+     * @param values     the series of the versions, in version order
+     */
+    void addDay(LocalDate date, long[] timestamps, int[][] values) {
+        if (values.length == 0) {
+            return;
+        }
+        int daySlots = values[0].length;
+        if (slots < 0) {
+            init(daySlots);
+        } else if (daySlots != slots) {
+            skippedDays++;
+            return;
+        }
+        days++;
+        versions += values.length;
+
+        int[] first = values[0];
+        int[] last = values[values.length - 1];
+        for (int i = 0; i < slots; i++) {
+            if (first[i] != NO_VALUE && last[i] != NO_VALUE) {
+                long drift = (long) last[i] - first[i];
+                driftSum[i] += drift;
+                absoluteDriftSum[i] += Math.abs(drift);
+                driftDays[i]++;
+            }
+        }
+
+        long dayStart = date.toEpochDay() * MINUTES_PER_DAY;
+        for (int v = 0; v < values.length - 1; v++) {
+            int[] version = values[v];
+            int[] next = values[v + 1];
+            for (int i = 0; i < slots; i++) {
+                if (version[i] != next[i] && version[i] != NO_VALUE && next[i] != NO_VALUE) {
+                    revisions[i]++;
+                }
+                long leadMinutes = dayStart + i * periodMinutes - timestamps[v];
+                if (leadMinutes >= 0 && version[i] != NO_VALUE && last[i] != NO_VALUE) {
+                    int hour = (int) (leadMinutes / 60);
+                    ensureLeadTimeCapacity(hour);
+                    absoluteErrorSum[hour] += Math.abs((long) version[i] - last[i]);
+                    errorSamples[hour]++;
+                }
+            }
+        }
+    }
+
+    ForecastAccuracyDTO result(String powerStationName, LocalDate from, LocalDate to) {
+        ForecastAccuracyDTO dto = new ForecastAccuracyDTO();
+        dto.setPowerStationName(powerStationName);
+        dto.setFrom(from.toString());
+        dto.setTo(to.toString());
+        dto.setPeriodMinutes(periodMinutes);
+        dto.setDays(days);
+        dto.setSkippedDays(skippedDays);
+        dto.setVersions(versions);
+
+        List<ForecastAccuracyDTO.SlotStatistics> slotStatistics = new ArrayList<>(Math.max(slots, 0));
+        for (int i = 0; i < slots; i++) {
+            ForecastAccuracyDTO.SlotStatistics statistics = new ForecastAccuracyDTO.SlotStatistics();
+            statistics.setSlot(i);
+            long minutes = i * periodMinutes;
+            statistics.setTimeSlot(String.format("%02d:%02d", minutes / 60, minutes % 60));
+            statistics.setMeanDrift(mean(driftSum[i], driftDays[i]));
+            statistics.setMeanAbsoluteDrift(mean(absoluteDriftSum[i], driftDays[i]));
+            statistics.setRevisions(revisions[i]);
+            statistics.setRevisionsPerDay(mean(revisions[i], days));
+            slotStatistics.add(statistics);
+        }
+        dto.setSlots(slotStatistics);
+
+        List<ForecastAccuracyDTO.LeadTimeError> leadTimes = new ArrayList<>();
+        for (int hour = 0; hour < errorSamples.length; hour++) {
+            if (errorSamples[hour] > 0) {
+                ForecastAccuracyDTO.LeadTimeError error = new ForecastAccuracyDTO.LeadTimeError();
+                error.setLeadTimeHours(hour);
+                error.setMeanAbsoluteError(mean(absoluteErrorSum[hour], errorSamples[hour]));
+                error.setSamples(errorSamples[hour]);
+                leadTimes.add(error);
+            }
+        }
+        dto.setLeadTimes(leadTimes);
+        return dto;
+    }
+
+    private void init(int daySlots) {
+        slots = daySlots;
+        periodMinutes = daySlots == 0 ? 0 : MINUTES_PER_DAY / daySlots;
+        driftSum = new long[slots];
+        absoluteDriftSum = new long[slots];
+        driftDays = new int[slots];
+        revisions = new long[slots];
+    }
+
+    private void ensureLeadTimeCapacity(int hour) {
+        if (hour >= errorSamples.length) {
+            int length = Math.max(hour + 1, errorSamples.length * 2);
+            absoluteErrorSum = Arrays.copyOf(absoluteErrorSum, length);
+            errorSamples = Arrays.copyOf(errorSamples, length);
+        }
+    }
+
+    private static double mean(long sum, long count) {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+}
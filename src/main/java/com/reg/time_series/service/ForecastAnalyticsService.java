@@ -0,0 +1,96 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.model.ForecastAccuracyDTO;
+import jakarta.annotation.Nullable;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Forecast accuracy analytics over the stored versions of a station.
+ * <p>
+ * The versions of the range are read in one ordered pass with a
+ * {@link StoredVersionReader} and handed to a {@link ForecastAccuracyAccumulator}
+ * one date at a time. Memory use does not grow with the length of the range.
+ * The dates that a {@link VersionStore} holds are taken from the store instead,
+ * as in the view.
+ */
+@Log4j2
+@Service
+public class ForecastAnalyticsService {
+    private final StoredVersionReader reader;
+    private final VersionStore versionStore;
+    private final int maxDays;
+
+    public ForecastAnalyticsService(JdbcTemplate jdbcTemplate,
+                                    @Nullable VersionStore versionStore,
+                                    @Value("${time-series.analytics.max-days}") int maxDays,
+                                    @Value("${time-series.analytics.fetch-size}") int fetchSize) {
+        // Same data source, the cursor runs in the transaction of the analytics
+        JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+        cursor.setFetchSize(fetchSize);
+        this.reader = new StoredVersionReader(cursor);
+        this.versionStore = versionStore;
+        this.maxDays = maxDays;
+    }
+
+    @Transactional(readOnly = true)
+    public ForecastAccuracyDTO getForecastAccuracy(String powerStationName, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("The start of the range is after its end");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new IllegalArgumentException("The range can be at most " + maxDays + " days");
+        }
+        long start = System.currentTimeMillis();
+        ForecastAccuracyAccumulator accumulator = new ForecastAccuracyAccumulator();
+        reader.readStation(powerStationName, from, to,
+                (stationId, powerStationDateId, date, versions) ->
+                        addDay(accumulator, date, storedVersions(stationId, date, versions)));
+        ForecastAccuracyDTO result = accumulator.result(powerStationName, from, to);
+        log.info("Forecast accuracy of {} over {} days and {} versions in {} ms",
+                powerStationName, result.getDays(), result.getVersions(), System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private Collection<StoredVersionReader.StoredVersion> storedVersions(long stationId, LocalDate date,
+                                                                         Collection<StoredVersionReader.StoredVersion> versions) {
+        if (versionStore == null || !versionStore.isResident(date)) {
+            return versions;
+        }
+        return versionStore.find(stationId, date)
+                .<Collection<StoredVersionReader.StoredVersion>>map(stored -> stored.getVersions().stream()
+                        .map(StoredVersionReader.StoredVersion::of).toList())
+                .orElse(versions);
+    }
+
+    private static void addDay(ForecastAccuracyAccumulator accumulator, LocalDate date,
+                               Collection<StoredVersionReader.StoredVersion> versions) {
+        int slots = versions.stream().mapToInt(version -> version.values().length).max().orElse(0);
+        int[][] series = new int[versions.size()][];
+        long[] versionTimestamps = new long[versions.size()];
+        int v = 0;
+        for (StoredVersionReader.StoredVersion version : versions) {
+            series[v] = pad(version.values(), slots);
+            versionTimestamps[v] = version.timestamp().toEpochSecond(ZoneOffset.UTC) / 60;
+            v++;
+        }
+        accumulator.addDay(date, versionTimestamps, series);
+    }
+
+    private static int[] pad(int[] values, int slots) {
+        if (values.length == slots) {
+            return values;
+        }
+        int[] padded = Arrays.copyOf(values, slots);
+        Arrays.fill(padded, values.length, slots, ForecastAccuracyAccumulator.NO_VALUE);
+        return padded;
+    }
+}
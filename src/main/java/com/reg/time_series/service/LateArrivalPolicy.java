@@ -0,0 +1,21 @@
+package com.reg.time_series.service;
+
+/**
+ * What {@link TimeSeriesService#save} does with a version whose timestamp is
+ * older than the latest version of its date, set with {@code time-series.late-arrival}.
+ */
+public enum LateArrivalPolicy {
+    /**
+     * Inserted at the position of its timestamp, the versions after it are
+     * renumbered and merged again on top of it.
+     */
+    INSERT,
+    /**
+     * Refused with a {@link com.reg.time_series.exceptions.StaleTimeSeriesException}.
+     */
+    REJECT,
+    /**
+     * Merged as the newest version, in arrival order.
+     */
+    APPEND
+}
@@ -0,0 +1,543 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.PowerStationDate;
+import com.reg.time_series.entity.TimeSeriesVersion;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Resident copy of the recent dates, with the version series kept in direct
+ * memory instead of the Java heap. Enabled with {@code time-series.store=off-heap}.
+ * <p>
+ * The versions of a (station id, date) are appended to fixed size chunks cut from
+ * large direct buffers; only a small index per date stays on the heap, so the
+ * amount of resident history does not show up in the GC pauses. A date becomes
+ * resident on its first save within {@code resident-days}, with the versions read
+ * from the database, and is evicted once it falls out of that window.
+ * <p>
+ * The database stays the durable copy. Saves of the same date are serialized by
+ * {@link DateLocks} until their transaction completes. The versions of a
+ * transaction are kept aside until it commits, then written to the store and to
+ * JPA by a single writer thread; a rolled back transaction leaves nothing behind.
+ * A write that fails is retried until the database takes it, the versions behind
+ * it wait in order. Readers of this store see a version as soon as the save
+ * returns, the tables a moment later. When the capacity is used up the new
+ * versions are kept on the heap until memory is released by the eviction.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "time-series.store", havingValue = "off-heap")
+public class OffHeapSeriesStore implements VersionStore {
+    static final int NO_VALUE = Integer.MIN_VALUE;
+    // version, epoch second, nano, period seconds, changed from slot, changed slot count, slots
+    private static final int HEADER_BYTES = 4 + 8 + 4 + 8 + 4 + 4 + 4;
+    private static final int MAX_SLAB_BYTES = 16 << 20;
+    private static final long MAX_RETRY_DELAY_MILLIS = 5000;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkBytes;
+    private final int chunksPerSlab;
+    private final int totalChunks;
+    private final int residentDays;
+    private final ByteBuffer[] slabs;
+    private final Map<Key, DateSeries> dates = new ConcurrentHashMap<>();
+    private final DateLocks locks = new DateLocks();
+    private final Clock clock;
+    private final ExecutorService writer;
+    private final AtomicLong pendingWrites = new AtomicLong();
+
+    // Chunk allocation, guarded by this
+    private int[] freeChunks = new int[64];
+    private int freeChunkCount;
+    private int nextUnusedChunk;
+    private boolean overflowLogged;
+
+    public OffHeapSeriesStore(PlatformTransactionManager transactionManager,
+                              Clock clock,
+                              @Value("${time-series.off-heap.capacity-mb}") int capacityMb,
+                              @Value("${time-series.off-heap.chunk-kb}") int chunkKb,
+                              @Value("${time-series.off-heap.resident-days}") int residentDays) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.chunkBytes = chunkKb << 10;
+        long capacityBytes = (long) capacityMb << 20;
+        int slabBytes = (int) Math.min(MAX_SLAB_BYTES, capacityBytes) / chunkBytes * chunkBytes;
+        if (slabBytes == 0) {
+            throw new IllegalStateException("The off-heap capacity must hold at least one chunk");
+        }
+        this.chunksPerSlab = slabBytes / chunkBytes;
+        this.totalChunks = (int) (capacityBytes / chunkBytes);
+        this.slabs = new ByteBuffer[(totalChunks + chunksPerSlab - 1) / chunksPerSlab];
+        this.residentDays = residentDays;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "off-heap-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Off-heap series store with {} MB in {} KB chunks, {} resident days", capacityMb, chunkKb, residentDays);
+    }
+
+    @Override
+    public boolean isResident(LocalDate date) {
+        return !date.isBefore(LocalDate.now(clock).minusDays(residentDays - 1L));
+    }
+
+    // The tables are written behind
+    @Override
+    public boolean isDurable() {
+        return false;
+    }
+
+    // Empty when the date has not been saved since it became resident
+    @Override
+    public Optional<PowerStationDate> find(long stationId, LocalDate date) {
+        DateSeries series = dates.get(new Key(stationId, date.toEpochDay()));
+        if (series == null) {
+            return Optional.empty();
+        }
+        synchronized (series) {
+            if (!series.loaded || series.released || series.count == 0) {
+                return Optional.empty();
+            }
+            PowerStationDate powerStationDate = new PowerStationDate();
+            powerStationDate.setStationDate(date);
+            powerStationDate.setZone(series.zone);
+            List<TimeSeriesVersion> versions = new ArrayList<>(series.count);
+            for (int i = 0; i < series.count; i++) {
+                versions.add(read(series, i, date));
+            }
+            powerStationDate.setVersions(versions);
+            return Optional.of(powerStationDate);
+        }
+    }
+
+    // The durable write is run by the writer thread
+    @Override
+    public TimeSeriesVersion append(long stationId, LocalDate date, String zone,
+                                    Supplier<PowerStationDate> loader,
+                                    Function<Optional<TimeSeriesVersion>, TimeSeriesVersion> nextVersion,
+                                    Consumer<TimeSeriesVersion> durableWrite) {
+        Key key = new Key(stationId, date.toEpochDay());
+        ReentrantLock lock = locks.lock(stationId, date);
+        boolean staged = false;
+        try {
+            while (true) {
+                DateSeries series = dates.computeIfAbsent(key, k -> new DateSeries());
+                synchronized (series) {
+                    if (series.released) {
+                        continue;
+                    }
+                    if (!series.loaded) {
+                        load(key, series, date, zone, loader);
+                    }
+                    List<Append> transactionAppends = transactionAppends();
+                    TimeSeriesVersion version = nextVersion.apply(latest(key, series, date, transactionAppends));
+                    series.inFlight++;
+                    Append append = new Append(key, series, copy(version), durableWrite, lock);
+                    if (transactionAppends == null) {
+                        commit(append);
+                    } else {
+                        transactionAppends.add(append);
+                        staged = true;
+                    }
+                    return version;
+                }
+            }
+        } finally {
+            // A staged version keeps the lock until its transaction completes
+            if (!staged) {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void lockDates(Map<Long, ? extends Collection<LocalDate>> dates) {
+        locks.lockInOrder(dates);
+    }
+
+    public int residentDates() {
+        return dates.size();
+    }
+
+    public synchronized long usedBytes() {
+        return (long) (nextUnusedChunk - freeChunkCount) * chunkBytes;
+    }
+
+    public long pendingWrites() {
+        return pendingWrites.get();
+    }
+
+    /**
+     * Waits until the versions committed so far are written to the database.
+     */
+    public void flush() {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Scheduled(cron = "${time-series.off-heap.eviction-cron}")
+    public void scheduledEviction() {
+        evictBefore(LocalDate.now(clock).minusDays(residentDays - 1L));
+    }
+
+    /**
+     * Releases the dates before {@code cutoff} whose versions are all written to the
+     * database.
+     *
+     * @return the number of released dates
+     */
+    int evictBefore(LocalDate cutoff) {
+        int evicted = 0;
+        for (Map.Entry<Key, DateSeries> entry : dates.entrySet()) {
+            if (entry.getKey().epochDay() >= cutoff.toEpochDay()) {
+                continue;
+            }
+            DateSeries series = entry.getValue();
+            synchronized (series) {
+                if (series.inFlight == 0) {
+                    release(entry.getKey(), series);
+                    evicted++;
+                }
+            }
+        }
+        log.info("Evicted {} dates from the off-heap store, {} resident using {} bytes, {} writes pending",
+                evicted, residentDates(), usedBytes(), pendingWrites());
+        return evicted;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.error("{} off-heap versions were not written to the database before shutdown", pendingWrites());
+        }
+    }
+
+    private void load(Key key, DateSeries series, LocalDate date, String zone, Supplier<PowerStationDate> loader) {
+        PowerStationDate stored = loader.get();
+        series.zone = stored == null ? zone : stored.getZone();
+        if (stored != null) {
+            for (TimeSeriesVersion version : stored.getVersions()) {
+                write(series, version);
+            }
+        }
+        series.loaded = true;
+        log.debug("Loaded {} versions of station {} on {} into the off-heap store", series.count, key.stationId(), date);
+    }
+
+    // The latest version of the date, the one saved before in this transaction or the latest committed one
+    private Optional<TimeSeriesVersion> latest(Key key, DateSeries series, LocalDate date,
+                                               List<Append> transactionAppends) {
+        if (transactionAppends != null) {
+            for (int i = transactionAppends.size() - 1; i >= 0; i--) {
+                if (transactionAppends.get(i).key().equals(key)) {
+                    return Optional.of(copy(transactionAppends.get(i).version()));
+                }
+            }
+        }
+        return series.count == 0 ? Optional.empty() : Optional.of(read(series, series.count - 1, date));
+    }
+
+    // The appends of the current transaction, committed after it in order or dropped on rollback; null outside one
+    private List<Append> transactionAppends() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        List<Append> appends = (List<Append>) TransactionSynchronizationManager.getResource(this);
+        if (appends == null) {
+            List<Append> transactionAppends = new ArrayList<>();
+            appends = transactionAppends;
+            TransactionSynchronizationManager.bindResource(this, transactionAppends);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(OffHeapSeriesStore.this);
+                    for (Append append : transactionAppends) {
+                        if (status == STATUS_COMMITTED) {
+                            commit(append);
+                        } else {
+                            drop(append);
+                        }
+                    }
+                    for (int i = transactionAppends.size() - 1; i >= 0; i--) {
+                        transactionAppends.get(i).lock().unlock();
+                    }
+                }
+            });
+        }
+        return appends;
+    }
+
+    // The version in flight keeps the date from being evicted until it is written to the database
+    private void commit(Append append) {
+        synchronized (append.series()) {
+            write(append.series(), append.version());
+        }
+        submit(append);
+    }
+
+    private void drop(Append append) {
+        synchronized (append.series()) {
+            append.series().inFlight--;
+        }
+    }
+
+    private void submit(Append append) {
+        pendingWrites.incrementAndGet();
+        writer.execute(() -> {
+            try {
+                persist(append);
+            } finally {
+                pendingWrites.decrementAndGet();
+                synchronized (append.series()) {
+                    append.series().inFlight--;
+                }
+            }
+        });
+    }
+
+    // Retried until the database takes it, the versions behind it wait so that none is written out of order
+    private void persist(Append append) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> append.durableWrite().accept(append.version()));
+                if (attempt > 1) {
+                    log.info("Version {} of station {} written after {} attempts",
+                            append.version().getVersion(), append.key().stationId(), attempt);
+                }
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Writing version {} of station {} failed, attempt {}, retrying",
+                        append.version().getVersion(), append.key().stationId(), attempt, e);
+                if (!sleep(Math.min(attempt * 100L, MAX_RETRY_DELAY_MILLIS))) {
+                    log.error("Version {} of station {} on {} was not written, the writer was interrupted",
+                            append.version().getVersion(), append.key().stationId(),
+                            LocalDate.ofEpochDay(append.key().epochDay()));
+                    return;
+                }
+            }
+        }
+    }
+
+    private void release(Key key, DateSeries series) {
+        series.released = true;
+        dates.remove(key, series);
+        synchronized (this) {
+            for (int i = 0; i < series.chunkCount; i++) {
+                freeChunk(series.chunks[i]);
+            }
+        }
+        series.chunkCount = 0;
+        series.overflow.clear();
+    }
+
+    private void write(DateSeries series, TimeSeriesVersion version) {
+        List<Integer> values = version.getSeries();
+        int bytes = HEADER_BYTES + 4 * values.size();
+        long address = allocate(series, bytes);
+        if (address < 0) {
+            series.add(version.getVersion(), series.overflow.size(), true);
+            series.overflow.add(copy(version));
+        } else {
+            ByteBuffer slab = slab(address);
+            int position = position(address);
+            LocalDateTime timestamp = version.getTimestamp();
+            slab.putInt(position, version.getVersion());
+            slab.putLong(position + 4, timestamp.toEpochSecond(ZoneOffset.UTC));
+            slab.putInt(position + 12, timestamp.getNano());
+            slab.putLong(position + 16, version.getPeriod().getSeconds());
+            slab.putInt(position + 24, version.getChangedFromSlot() == null ? -1 : version.getChangedFromSlot());
+            slab.putInt(position + 28, version.getChangedSlotCount() == null ? -1 : version.getChangedSlotCount());
+            slab.putInt(position + 32, values.size());
+            int valuePosition = position + HEADER_BYTES;
+            for (Integer value : values) {
+                slab.putInt(valuePosition, value == null ? NO_VALUE : value);
+                valuePosition += 4;
+            }
+            series.add(version.getVersion(), address, false);
+        }
+    }
+
+    private TimeSeriesVersion read(DateSeries series, int index, LocalDate date) {
+        long address = series.addresses[index];
+        if (series.overflowFlags[index]) {
+            return copy(series.overflow.get((int) address));
+        }
+        ByteBuffer slab = slab(address);
+        int position = position(address);
+        TimeSeriesVersion version = new TimeSeriesVersion();
+        version.setStationDate(date);
+        version.setVersion(slab.getInt(position));
+        version.setTimestamp(LocalDateTime.ofEpochSecond(slab.getLong(position + 4), slab.getInt(position + 12), ZoneOffset.UTC));
+        version.setPeriod(Duration.ofSeconds(slab.getLong(position + 16)));
+        int changedFromSlot = slab.getInt(position + 24);
+        int changedSlotCount = slab.getInt(position + 28);
+        version.setChangedFromSlot(changedFromSlot < 0 ? null : changedFromSlot);
+        version.setChangedSlotCount(changedSlotCount < 0 ? null : changedSlotCount);
+        int slots = slab.getInt(position + 32);
+        List<Integer> values = new ArrayList<>(slots);
+        int valuePosition = position + HEADER_BYTES;
+        for (int i = 0; i < slots; i++) {
+            int value = slab.getInt(valuePosition);
+            values.add(value == NO_VALUE ? null : value);
+            valuePosition += 4;
+        }
+        version.setSeries(values);
+        return version;
+    }
+
+    // Address in the store, or -1 when the capacity is used up
+    private long allocate(DateSeries series, int bytes) {
+        if (bytes > chunkBytes) {
+            return -1;
+        }
+        if (series.chunkCount == 0 || series.chunkFill + bytes > chunkBytes) {
+            int chunk = allocateChunk();
+            if (chunk < 0) {
+                return -1;
+            }
+            series.addChunk(chunk);
+        }
+        long address = (long) series.chunks[series.chunkCount - 1] * chunkBytes + series.chunkFill;
+        series.chunkFill += bytes;
+        return address;
+    }
+
+    private synchronized int allocateChunk() {
+        if (freeChunkCount > 0) {
+            return freeChunks[--freeChunkCount];
+        }
+        if (nextUnusedChunk == totalChunks) {
+            if (!overflowLogged) {
+                log.warn("The off-heap store is full, new versions are kept on the heap until the eviction");
+                overflowLogged = true;
+            }
+            return -1;
+        }
+        int chunk = nextUnusedChunk++;
+        int slab = chunk / chunksPerSlab;
+        if (slabs[slab] == null) {
+            slabs[slab] = ByteBuffer.allocateDirect(chunksPerSlab * chunkBytes).order(ByteOrder.nativeOrder());
+        }
+        return chunk;
+    }
+
+    // Called holding the lock of this store
+    private void freeChunk(int chunk) {
+        if (freeChunkCount == freeChunks.length) {
+            freeChunks = Arrays.copyOf(freeChunks, freeChunkCount * 2);
+        }
+        freeChunks[freeChunkCount++] = chunk;
+        overflowLogged = false;
+    }
+
+    private ByteBuffer slab(long address) {
+        return slabs[(int) (address / chunkBytes / chunksPerSlab)];
+    }
+
+    private int position(long address) {
+        return (int) (address % ((long) chunksPerSlab * chunkBytes));
+    }
+
+    private static TimeSeriesVersion copy(TimeSeriesVersion version) {
+        TimeSeriesVersion copy = new TimeSeriesVersion();
+        copy.setStationDate(version.getStationDate());
+        copy.setVersion(version.getVersion());
+        copy.setTimestamp(version.getTimestamp());
+        copy.setPeriod(version.getPeriod());
+        copy.setChangedFromSlot(version.getChangedFromSlot());
+        copy.setChangedSlotCount(version.getChangedSlotCount());
+        copy.setSeries(new ArrayList<>(version.getSeries()));
+        return copy;
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record Key(long stationId, long epochDay) {
+    }
+
+    // A version kept by a save, with the lock of its date held until the transaction completes
+    private record Append(Key key, DateSeries series, TimeSeriesVersion version,
+                          Consumer<TimeSeriesVersion> durableWrite, ReentrantLock lock) {
+    }
+
+    /**
+     * On-heap index of a resident date, guarded by its own lock. Off-heap versions
+     * have their address, versions kept on the heap their index in {@link #overflow}.
+     */
+    private static final class DateSeries {
+        String zone;
+        boolean loaded;
+        boolean released;
+        // Kept versions not yet written to the database or dropped
+        int inFlight;
+
+        int count;
+        int[] versions = new int[16];
+        long[] addresses = new long[16];
+        boolean[] overflowFlags = new boolean[16];
+        final List<TimeSeriesVersion> overflow = new ArrayList<>(0);
+
+        int[] chunks = new int[2];
+        int chunkCount;
+        int chunkFill;
+
+        void add(int version, long address, boolean inOverflow) {
+            if (count == versions.length) {
+                versions = Arrays.copyOf(versions, count * 2);
+                addresses = Arrays.copyOf(addresses, count * 2);
+                overflowFlags = Arrays.copyOf(overflowFlags, count * 2);
+            }
+            versions[count] = version;
+            addresses[count] = address;
+            overflowFlags[count] = inOverflow;
+            count++;
+        }
+
+        void addChunk(int chunk) {
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            chunks[chunkCount++] = chunk;
+            chunkFill = 0;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.reg.time_series.service;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Maintains the monthly partitions of the versions and values tables
+ * in the {@code mysql-partitioned} schema mode.
+ * <p>
+ * Future months are split off the empty {@code p_max} partition ahead of time,
+ * and months older than the retention are removed with {@code DROP PARTITION},
+ * which is a metadata operation instead of a row-by-row delete.
+ */
+@Log4j2
+@Service
+@ConditionalOnProperty(name = "time-series.partitioning.enabled", havingValue = "true")
+public class PartitionMaintenanceService {
+    static final List<String> PARTITIONED_TABLES = List.of("time_series_versions", "time_series_values");
+    private static final String CATCH_ALL_PARTITION = "p_max";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'uuuuMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TimeSeriesETagTracker eTagTracker;
+    private final PowerStationCatalogue catalogue;
+    private final SecondLevelCache secondLevelCache;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public PartitionMaintenanceService(JdbcTemplate jdbcTemplate,
+                                       TimeSeriesETagTracker eTagTracker,
+                                       PowerStationCatalogue catalogue,
+                                       SecondLevelCache secondLevelCache,
+                                       @Value("${time-series.partitioning.months-ahead}") int monthsAhead,
+                                       @Value("${time-series.partitioning.retention-months}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eTagTracker = eTagTracker;
+        this.catalogue = catalogue;
+        this.secondLevelCache = secondLevelCache;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${time-series.partitioning.cron}")
+    public void maintainPartitions() {
+        YearMonth current = YearMonth.now();
+        for (String table : PARTITIONED_TABLES) {
+            createFuturePartitions(table, current);
+            if (retentionMonths > 0) {
+                dropExpiredPartitions(table, current.minusMonths(retentionMonths));
+            }
+        }
+        if (retentionMonths > 0) {
+            LocalDate cutoff = current.minusMonths(retentionMonths).atDay(1);
+            jdbcTemplate.update("DELETE FROM time_series_archives WHERE power_station_date_id IN " +
+                    "(SELECT id FROM power_station_date WHERE station_date < ?)", cutoff);
+            int deleted = jdbcTemplate.update("DELETE FROM power_station_date WHERE station_date < ?", cutoff);
+            log.info("Removed {} power station dates before {}", deleted, cutoff);
+            if (deleted > 0) {
+                catalogue.removeDatesBefore(cutoff);
+                secondLevelCache.evictStationDates();
+                eTagTracker.invalidateAll();
+            }
+        }
+    }
+
+    private void createFuturePartitions(String table, YearMonth current) {
+        List<String> existing = partitionNames(table);
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            String name = partitionName(month);
+            if (existing.contains(name)) {
+                continue;
+            }
+            // Splitting the catch-all only moves the rows already in p_max, which is empty in normal operation
+            jdbcTemplate.execute(String.format(
+                    "ALTER TABLE %s REORGANIZE PARTITION %s INTO (" +
+                            "PARTITION %s VALUES LESS THAN ('%s'), " +
+                            "PARTITION %s VALUES LESS THAN (MAXVALUE))",
+                    table, CATCH_ALL_PARTITION, name, month.plusMonths(1).atDay(1), CATCH_ALL_PARTITION));
+            log.info("Created partition {} on {}", name, table);
+        }
+    }
+
+    private void dropExpiredPartitions(String table, YearMonth firstRetainedMonth) {
+        List<String> monthly = partitionNames(table).stream()
+                .filter(name -> !CATCH_ALL_PARTITION.equals(name))
+                .toList();
+        for (String name : monthly) {
+            // The newest monthly partition is never dropped, it is the lower bound of every later range
+            if (name.equals(monthly.get(monthly.size() - 1))) {
+                break;
+            }
+            YearMonth month = YearMonth.parse(name, PARTITION_NAME);
+            if (month.isBefore(firstRetainedMonth)) {
+                jdbcTemplate.execute(String.format("ALTER TABLE %s DROP PARTITION %s", table, name));
+                log.info("Dropped expired partition {} on {}", name, table);
+            }
+        }
+    }
+
+    List<String> partitionNames(String table) {
+        return jdbcTemplate.queryForList(
+                "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL " +
+                        "ORDER BY PARTITION_ORDINAL_POSITION",
+                String.class, table);
+    }
+
+    static String partitionName(YearMonth month) {
+        return month.format(PARTITION_NAME);
+    }
+}
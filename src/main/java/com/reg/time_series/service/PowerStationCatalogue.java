@@ -0,0 +1,178 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.repositories.PowerStationRepository;
+import com.reg.time_series.repositories.TimeSeriesRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory catalogue of the power stations and their dates, so that the
+ * navigation endpoints do not run {@code SELECT DISTINCT} queries.
+ * <p>
+ * The catalogue is loaded when the application is ready and then updated by
+ * {@link TimeSeriesService} whenever it creates a station or a station date.
+ * An entry added in a transaction that rolls back is removed again. Until the
+ * first load is finished {@link #isWarmedUp()} is false and the callers read
+ * the database.
+ * <p>
+ * Station names are ordered case-insensitively, which also makes the prefix
+ * search of the station picker case-insensitive.
+ */
+@Log4j2
+@Component
+public class PowerStationCatalogue {
+    private static final Comparator<String> STATION_ORDER =
+            String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    private final TimeSeriesRepository repository;
+    private final PowerStationRepository powerStationRepository;
+    private final ConcurrentSkipListMap<String, EpochDaySet> stations = new ConcurrentSkipListMap<>(STATION_ORDER);
+    private volatile boolean warmedUp;
+
+    public PowerStationCatalogue(TimeSeriesRepository repository, PowerStationRepository powerStationRepository) {
+        this.repository = repository;
+        this.powerStationRepository = powerStationRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        powerStationRepository.findDistinctPowerStationNames().forEach(this::dateSet);
+        List<Object[]> stationDates = repository.findAllStationDates();
+        for (Object[] stationDate : stationDates) {
+            dateSet((String) stationDate[0]).add((LocalDate) stationDate[1]);
+        }
+        warmedUp = true;
+        log.info("Power station catalogue loaded with {} stations and {} dates in {} ms",
+                stations.size(), stationDates.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isWarmedUp() {
+        return warmedUp;
+    }
+
+    public List<String> powerStations() {
+        return new ArrayList<>(stations.keySet());
+    }
+
+    public List<String> powerStationsStartingWith(String prefix) {
+        List<String> result = new ArrayList<>();
+        for (String name : stations.tailMap(lowestWithPrefix(prefix)).keySet()) {
+            if (!name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                break;
+            }
+            result.add(name);
+        }
+        return result;
+    }
+
+    /**
+     * The dates of the station between {@code from} and {@code to} inclusive, ascending.
+     */
+    public List<LocalDate> dates(String powerStationName, LocalDate from, LocalDate to) {
+        EpochDaySet dates = stations.get(powerStationName);
+        return dates == null ? List.of() : dates.between(from, to);
+    }
+
+    public void addPowerStation(String powerStationName) {
+        if (stations.putIfAbsent(powerStationName, new EpochDaySet()) == null) {
+            afterRollback(() -> stations.remove(powerStationName));
+        }
+    }
+
+    public void addDate(String powerStationName, LocalDate date) {
+        if (dateSet(powerStationName).add(date)) {
+            afterRollback(() -> Optional.ofNullable(stations.get(powerStationName))
+                    .ifPresent(dates -> dates.remove(date)));
+        }
+    }
+
+    public void removeDatesBefore(LocalDate cutoff) {
+        stations.values().forEach(dates -> dates.removeBefore(cutoff));
+    }
+
+    private EpochDaySet dateSet(String powerStationName) {
+        return stations.computeIfAbsent(powerStationName, name -> new EpochDaySet());
+    }
+
+    private void afterRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+
+    // Case-insensitively equal names are ordered by their chars, upper case first
+    private static String lowestWithPrefix(String prefix) {
+        StringBuilder lowest = new StringBuilder(prefix.length());
+        prefix.chars().forEach(c -> lowest.append(Character.toUpperCase((char) c)));
+        return lowest.toString();
+    }
+
+    /**
+     * Sorted set of dates stored as epoch days. Reads work on an immutable
+     * snapshot of the array, writes replace it.
+     */
+    static final class EpochDaySet {
+        private volatile int[] days = new int[0];
+
+        synchronized boolean add(LocalDate date) {
+            int day = (int) date.toEpochDay();
+            int index = Arrays.binarySearch(days, day);
+            if (index >= 0) {
+                return false;
+            }
+            int insertAt = -index - 1;
+            int[] updated = new int[days.length + 1];
+            System.arraycopy(days, 0, updated, 0, insertAt);
+            updated[insertAt] = day;
+            System.arraycopy(days, insertAt, updated, insertAt + 1, days.length - insertAt);
+            days = updated;
+            return true;
+        }
+
+        synchronized void remove(LocalDate date) {
+            int index = Arrays.binarySearch(days, (int) date.toEpochDay());
+            if (index >= 0) {
+                int[] updated = new int[days.length - 1];
+                System.arraycopy(days, 0, updated, 0, index);
+                System.arraycopy(days, index + 1, updated, index, updated.length - index);
+                days = updated;
+            }
+        }
+
+        synchronized void removeBefore(LocalDate cutoff) {
+            days = Arrays.copyOfRange(days, firstIndexFrom(days, (int) cutoff.toEpochDay()), days.length);
+        }
+
+        List<LocalDate> between(LocalDate from, LocalDate to) {
+            int[] snapshot = days;
+            int start = firstIndexFrom(snapshot, (int) Math.max(from.toEpochDay(), Integer.MIN_VALUE));
+            int end = firstIndexFrom(snapshot, (int) Math.min(to.toEpochDay() + 1, Integer.MAX_VALUE));
+            List<LocalDate> dates = new ArrayList<>(Math.max(0, end - start));
+            for (int i = start; i < end; i++) {
+                dates.add(LocalDate.ofEpochDay(snapshot[i]));
+            }
+            return dates;
+        }
+
+        private static int firstIndexFrom(int[] days, int day) {
+            int index = Arrays.binarySearch(days, day);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.PowerStation;
+import com.reg.time_series.repositories.PowerStationRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Name to id dictionary of the power stations, so that a save of a known station
+ * resolves it with a map lookup instead of a query on the station name.
+ * <p>
+ * New stations are created in the transaction of the save. Until that transaction
+ * completes, other saves of the same new name wait on a lock, one of
+ * {@link #CREATE_LOCK_STRIPES} chosen by the hash of the name. After the
+ * lock they find the id in the dictionary, which is only updated on commit. A
+ * waiter gives up after {@link #CREATE_LOCK_TIMEOUT_SECONDS}, e.g. when two
+ * batches create the same stations in different order. It then inserts anyway,
+ * and the unique index on the name rejects the duplicate, the same way a race
+ * between two instances is resolved.
+ * <p>
+ * Stations are never deleted by the application. A station removed directly in
+ * the database stays in the dictionary until the next restart.
+ */
+@Log4j2
+@Component
+public class PowerStationDictionary {
+    private static final long CREATE_LOCK_TIMEOUT_SECONDS = 5;
+    // A fixed set of locks however many names are posted; names that share one only wait for each other's creation
+    private static final int CREATE_LOCK_STRIPES = 64;
+
+    private final PowerStationRepository powerStationRepository;
+    private final PowerStationCatalogue catalogue;
+    private final Map<String, Long> ids = new ConcurrentHashMap<>();
+    private final ReentrantLock[] creationLocks = new ReentrantLock[CREATE_LOCK_STRIPES];
+
+    public PowerStationDictionary(PowerStationRepository powerStationRepository, PowerStationCatalogue catalogue) {
+        this.powerStationRepository = powerStationRepository;
+        this.catalogue = catalogue;
+        for (int i = 0; i < creationLocks.length; i++) {
+            creationLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (Object[] nameAndId : powerStationRepository.findAllNamesAndIds()) {
+            ids.put((String) nameAndId[0], (Long) nameAndId[1]);
+        }
+        log.info("Power station dictionary loaded with {} stations", ids.size());
+    }
+
+    /**
+     * Returns the station with the given name, creating it when it does not exist.
+     * A known station is returned as an uninitialized reference.
+     */
+    public PowerStation getOrCreate(String powerStationName) {
+        Long id = ids.get(powerStationName);
+        if (id != null) {
+            return powerStationRepository.getReferenceById(id);
+        }
+
+        ReentrantLock lock = creationLocks[Math.floorMod(powerStationName.hashCode(), CREATE_LOCK_STRIPES)];
+        boolean locked = tryLock(lock);
+        boolean unlockOnCompletion = locked && TransactionSynchronizationManager.isSynchronizationActive();
+        if (unlockOnCompletion) {
+            afterCompletion(lock::unlock);
+        }
+        try {
+            id = ids.get(powerStationName);
+            if (id != null) {
+                return powerStationRepository.getReferenceById(id);
+            }
+            PowerStation powerStation = powerStationRepository.findByPowerStation(powerStationName)
+                    .orElseGet(() -> create(powerStationName));
+            if (powerStation.getId() != null) {
+                remember(powerStationName, powerStation.getId());
+            }
+            return powerStation;
+        } finally {
+            if (locked && !unlockOnCompletion) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the id of a committed station, null when it is not known.
+     */
+    public Long findId(String powerStationName) {
+        return ids.get(powerStationName);
+    }
+
+    int size() {
+        return ids.size();
+    }
+
+    private PowerStation create(String powerStationName) {
+        PowerStation newPowerStation = new PowerStation();
+        newPowerStation.setPowerStation(powerStationName);
+        PowerStation saved = powerStationRepository.save(newPowerStation);
+        catalogue.addPowerStation(powerStationName);
+        return saved;
+    }
+
+    // Only committed stations go into the dictionary
+    private void remember(String powerStationName, Long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ids.put(powerStationName, id);
+                }
+            });
+        } else {
+            ids.put(powerStationName, id);
+        }
+    }
+
+    private void afterCompletion(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+
+    private boolean tryLock(ReentrantLock lock) {
+        try {
+            if (lock.tryLock(CREATE_LOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                return true;
+            }
+            log.warn("Timed out waiting for the creation of a power station, relying on the unique index");
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.reg.time_series.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings of the version compaction, bound from {@code time-series.retention.*}.
+ * <p>
+ * A station listed in {@code stations} uses its own number of days instead of
+ * {@code default-days}; zero or a negative value turns compaction off for it:
+ * <pre>
+ * time-series.retention.stations.[Solar Power Plant Kft. Nemesmedves]=90
+ * </pre>
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "time-series.retention")
+public class RetentionProperties {
+    private boolean enabled = false;
+    private int defaultDays = 30;
+    private Map<String, Integer> stations = new HashMap<>();
+
+    public int daysFor(String powerStation) {
+        return stations.getOrDefault(powerStation, defaultDays);
+    }
+
+    public int minimumDays() {
+        return stations.values().stream()
+                .filter(days -> days > 0)
+                .reduce(defaultDays > 0 ? defaultDays : Integer.MAX_VALUE, Math::min);
+    }
+}
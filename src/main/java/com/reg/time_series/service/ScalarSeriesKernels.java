@@ -0,0 +1,58 @@
+package com.reg.time_series.service;
+
+import java.util.Arrays;
+
+/**
+ * Plain loop implementation of {@link SeriesKernels}, the fallback when the
+ * Vector API module is not loaded.
+ */
+final class ScalarSeriesKernels implements SeriesKernels {
+    static final ScalarSeriesKernels INSTANCE = new ScalarSeriesKernels();
+
+    private ScalarSeriesKernels() {
+    }
+
+    @Override
+    public void mergeFrom(int[] previous, int[] next, int from, int[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = i < from ? previous[i] : next[i];
+        }
+    }
+
+    @Override
+    public int[] sum(int[][] series, int length) {
+        int[] result = new int[length];
+        for (int[] values : series) {
+            for (int i = 0; i < length; i++) {
+                result[i] += values[i];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int[] max(int[][] series, int length) {
+        int[] result = new int[length];
+        Arrays.fill(result, Integer.MIN_VALUE);
+        for (int[] values : series) {
+            for (int i = 0; i < length; i++) {
+                result[i] = Math.max(result[i], values[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int[] blockSum(int[] series, int blockSize) {
+        int[] result = new int[(series.length + blockSize - 1) / blockSize];
+        for (int i = 0; i < series.length; i++) {
+            result[i / blockSize] += series[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "scalar";
+    }
+}
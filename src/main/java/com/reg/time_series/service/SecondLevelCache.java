@@ -0,0 +1,73 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.CacheRegions;
+import com.reg.time_series.entity.PowerStationDate;
+import com.reg.time_series.model.SecondLevelCacheStatus;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hit ratios and eviction of the second-level cache of the station and date rows.
+ * <p>
+ * Saves through JPA keep the cache consistent on their own. Rows removed with
+ * plain SQL bypass Hibernate and have to be evicted with {@link #evictStationDates()}.
+ */
+@Log4j2
+@Component
+public class SecondLevelCache {
+    private static final List<String> REGIONS = List.of(
+            CacheRegions.POWER_STATION, CacheRegions.POWER_STATION_DATE, CacheRegions.QUERY_RESULTS);
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    public SecondLevelCache(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    /**
+     * Evicts the cached dates and the cached query results, which may refer to them.
+     */
+    public void evictStationDates() {
+        sessionFactory.getCache().evictEntityData(PowerStationDate.class);
+        sessionFactory.getCache().evictQueryRegions();
+    }
+
+    public SecondLevelCacheStatus status() {
+        Statistics statistics = sessionFactory.getStatistics();
+        SecondLevelCacheStatus status = new SecondLevelCacheStatus();
+        status.setEnabled(sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()
+                && statistics.isStatisticsEnabled());
+        status.setRegions(status.isEnabled()
+                ? REGIONS.stream().map(name -> region(name, statistics.getCacheRegionStatistics(name))).toList()
+                : List.of());
+        return status;
+    }
+
+    @Scheduled(cron = "${time-series.cache.log-cron}")
+    public void logStatus() {
+        for (SecondLevelCacheStatus.Region region : status().getRegions()) {
+            log.info("Second-level cache {}: {} hits, {} misses, hit ratio {}",
+                    region.getName(), region.getHits(), region.getMisses(), String.format("%.3f", region.getHitRatio()));
+        }
+    }
+
+    private static SecondLevelCacheStatus.Region region(String name, CacheRegionStatistics statistics) {
+        SecondLevelCacheStatus.Region region = new SecondLevelCacheStatus.Region();
+        region.setName(name);
+        if (statistics != null) {
+            region.setHits(statistics.getHitCount());
+            region.setMisses(statistics.getMissCount());
+            region.setPuts(statistics.getPutCount());
+            long lookups = region.getHits() + region.getMisses();
+            region.setHitRatio(lookups == 0 ? 0 : (double) region.getHits() / lookups);
+        }
+        return region;
+    }
+}
@@ -0,0 +1,193 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.PowerStationDate;
+import com.reg.time_series.entity.TimeSeriesVersion;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the versions in memory-mapped {@link VersionSegment} files, one per date,
+ * instead of {@code time_series_versions} and {@code time_series_values}. Enabled
+ * with {@code time-series.store=segments}; stations and dates stay in the database.
+ * <p>
+ * A version is appended as pending in the transaction of the save and marked
+ * committed or aborted when the transaction completes, so a crash in between
+ * leaves an aborted record. The saves of a station and date are serialized by
+ * {@link DateLocks} held until that moment, each one merges on top of the latest
+ * committed version, or on its own transaction's previous one. Versions that
+ * were saved to the tables before the switch are copied into the segment the
+ * first time a station is saved on that date. Views read the values straight
+ * from the mapping; the export and the analytics read these dates through the
+ * store too, compaction leaves them alone.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "time-series.store", havingValue = "segments")
+public class SegmentVersionStore implements VersionStore {
+    private final Path directory;
+    private final boolean forceOnCommit;
+    private final Map<LocalDate, VersionSegment> segments = new ConcurrentHashMap<>();
+    private final DateLocks locks = new DateLocks();
+
+    public SegmentVersionStore(@Value("${time-series.segments.directory}") Path directory,
+                               @Value("${time-series.segments.force-on-commit}") boolean forceOnCommit) {
+        this.directory = directory;
+        this.forceOnCommit = forceOnCommit;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the segment directory " + directory, e);
+        }
+        log.info("Version segments in {}, forced on commit: {}", directory.toAbsolutePath(), forceOnCommit);
+    }
+
+    @Override
+    public boolean isResident(LocalDate date) {
+        return true;
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    @Override
+    public Optional<PowerStationDate> find(long stationId, LocalDate date) {
+        return Optional.ofNullable(segment(date, false)).flatMap(segment -> segment.find(stationId));
+    }
+
+    @Override
+    public TimeSeriesVersion append(long stationId, LocalDate date, String zone,
+                                    Supplier<PowerStationDate> loader,
+                                    Function<Optional<TimeSeriesVersion>, TimeSeriesVersion> nextVersion,
+                                    Consumer<TimeSeriesVersion> durableWrite) {
+        VersionSegment segment = segment(date, true);
+        ReentrantLock lock = locks.lock(stationId, date);
+        boolean staged = false;
+        try {
+            if (!segment.contains(stationId)) {
+                importVersions(segment, stationId, zone, loader.get());
+            }
+            List<Append> transactionAppends = transactionAppends();
+            TimeSeriesVersion version = nextVersion.apply(latest(segment, stationId, transactionAppends));
+            if (transactionAppends == null) {
+                int offset = segment.append(stationId, zone, version, VersionSegment.COMMITTED);
+                if (forceOnCommit) {
+                    segment.setStatus(offset, VersionSegment.COMMITTED, true);
+                }
+            } else {
+                int offset = segment.append(stationId, zone, version, VersionSegment.PENDING);
+                transactionAppends.add(new Append(segment, stationId, offset, version, lock));
+                staged = true;
+            }
+            return version;
+        } finally {
+            // A pending version keeps the lock until its transaction completes
+            if (!staged) {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void lockDates(Map<Long, ? extends Collection<LocalDate>> dates) {
+        locks.lockInOrder(dates);
+    }
+
+    int segmentBytes(LocalDate date) {
+        VersionSegment segment = segment(date, false);
+        return segment == null ? 0 : segment.size();
+    }
+
+    private void importVersions(VersionSegment segment, long stationId, String zone, PowerStationDate stored) {
+        if (stored == null || stored.getVersions().isEmpty()) {
+            segment.addStation(stationId, zone);
+            return;
+        }
+        for (TimeSeriesVersion version : stored.getVersions()) {
+            segment.append(stationId, stored.getZone(), version, VersionSegment.COMMITTED);
+        }
+        log.info("Copied {} versions of station {} on {} into its segment",
+                stored.getVersions().size(), stationId, stored.getStationDate());
+    }
+
+    // The latest version of the station, the one saved before in this transaction or the latest committed one
+    private static Optional<TimeSeriesVersion> latest(VersionSegment segment, long stationId,
+                                                      List<Append> transactionAppends) {
+        if (transactionAppends != null) {
+            for (int i = transactionAppends.size() - 1; i >= 0; i--) {
+                Append append = transactionAppends.get(i);
+                if (append.segment() == segment && append.stationId() == stationId) {
+                    return Optional.of(append.version());
+                }
+            }
+        }
+        return segment.latestCommitted(stationId);
+    }
+
+    // The pending appends of the current transaction, marked when it completes; null outside one
+    private List<Append> transactionAppends() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        List<Append> appends = (List<Append>) TransactionSynchronizationManager.getResource(this);
+        if (appends == null) {
+            List<Append> transactionAppends = new ArrayList<>();
+            appends = transactionAppends;
+            TransactionSynchronizationManager.bindResource(this, transactionAppends);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SegmentVersionStore.this);
+                    boolean committed = status == STATUS_COMMITTED;
+                    try {
+                        for (Append append : transactionAppends) {
+                            append.segment().setStatus(append.offset(),
+                                    committed ? VersionSegment.COMMITTED : VersionSegment.ABORTED,
+                                    forceOnCommit && committed);
+                        }
+                    } finally {
+                        for (int i = transactionAppends.size() - 1; i >= 0; i--) {
+                            transactionAppends.get(i).lock().unlock();
+                        }
+                    }
+                }
+            });
+        }
+        return appends;
+    }
+
+    private VersionSegment segment(LocalDate date, boolean create) {
+        VersionSegment segment = segments.get(date);
+        if (segment != null || !create && !Files.exists(directory.resolve(date + ".seg"))) {
+            return segment;
+        }
+        return segments.computeIfAbsent(date, d -> VersionSegment.open(directory, d, true));
+    }
+
+    // A pending version, with the lock of its date held until the transaction completes
+    private record Append(VersionSegment segment, long stationId, int offset, TimeSeriesVersion version,
+                          ReentrantLock lock) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.reg.time_series.service;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Element-wise kernels over the int series of a day (96 to 1440 slots).
+ * <p>
+ * {@link #get()} returns the Vector API implementation when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}, otherwise the scalar loops. The
+ * scalar loops are forced with {@code -Dtime-series.kernels=scalar}.
+ * <p>
+ * Sums are int sums, like the series themselves.
+ */
+public interface SeriesKernels {
+
+    /**
+     * {@code out[i] = i < from ? previous[i] : next[i]} for {@code i < out.length}.
+     */
+    void mergeFrom(int[] previous, int[] next, int from, int[] out);
+
+    /**
+     * Element-wise sum of the series, all of them at least {@code length} long.
+     */
+    int[] sum(int[][] series, int length);
+
+    /**
+     * Element-wise maximum of the series, all of them at least {@code length} long.
+     */
+    int[] max(int[][] series, int length);
+
+    /**
+     * Sums of consecutive blocks of {@code blockSize} slots, e.g. 15 one-minute
+     * slots into one quarter hour. A last partial block is summed as well.
+     */
+    int[] blockSum(int[] series, int blockSize);
+
+    static SeriesKernels get() {
+        return Holder.INSTANCE;
+    }
+
+    static SeriesKernels scalar() {
+        return ScalarSeriesKernels.INSTANCE;
+    }
+
+    @Log4j2
+    final class Holder {
+        private static final String VECTOR_MODULE = "jdk.incubator.vector";
+        private static final SeriesKernels INSTANCE = load();
+
+        private Holder() {
+        }
+
+        private static SeriesKernels load() {
+            if ("scalar".equals(System.getProperty("time-series.kernels"))
+                    || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+                log.info("Using scalar series kernels");
+                return ScalarSeriesKernels.INSTANCE;
+            }
+            try {
+                SeriesKernels kernels = (SeriesKernels) Class.forName("com.reg.time_series.service.VectorSeriesKernels")
+                        .getDeclaredConstructor().newInstance();
+                log.info("Using Vector API series kernels: {}", kernels);
+                return kernels;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Vector API series kernels are not available, using scalar kernels", e);
+                return ScalarSeriesKernels.INSTANCE;
+            }
+        }
+    }
+}
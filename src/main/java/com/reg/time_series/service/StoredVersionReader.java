@@ -0,0 +1,207 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.TimeSeriesVersion;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Reads the versions of a date straight into int arrays, bypassing the entities.
+ * Archived versions are decoded from their {@link com.reg.time_series.entity.TimeSeriesArchive},
+ * the live ones come from the version tables. Missing values are
+ * {@link ForecastAccuracyAccumulator#NO_VALUE}.
+ */
+final class StoredVersionReader {
+    private static final String VERSIONS_OF_DATE = "SELECT id, version, timestamp FROM time_series_versions " +
+            "WHERE time_series_id = ? AND (station_date = ? OR station_date IS NULL)";
+    // Null values have no row, their slots are filled in as missing
+    private static final String VALUES_OF_DATE = "SELECT val.time_series_version_id, val.slot, val.series_value " +
+            "FROM time_series_versions v JOIN time_series_values val ON val.time_series_version_id = v.id " +
+            "WHERE v.time_series_id = ? AND (v.station_date = ? OR v.station_date IS NULL) " +
+            "ORDER BY val.time_series_version_id, val.slot";
+    private static final String ARCHIVE_OF_DATE = "SELECT data FROM time_series_archives WHERE power_station_date_id = ?";
+    // Every date of the range, with or without live versions, and every value in one ordered pass
+    private static final String VALUES_OF_STATION = "SELECT psd.id, psd.station_date, psd.archived_versions, " +
+            "v.id, v.version, v.timestamp, val.slot, val.series_value, ps.id " +
+            "FROM power_station ps JOIN power_station_date psd ON psd.power_station_id = ps.id " +
+            "LEFT JOIN time_series_versions v ON v.time_series_id = psd.id " +
+            "AND (v.station_date = psd.station_date OR v.station_date IS NULL) " +
+            "LEFT JOIN time_series_values val ON val.time_series_version_id = v.id " +
+            "WHERE ps.power_station = ? AND psd.station_date BETWEEN ? AND ? " +
+            "ORDER BY psd.station_date, v.version, val.slot";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * A version with its values, one per slot.
+     */
+    record StoredVersion(int version, LocalDateTime timestamp, int[] values) {
+
+        static StoredVersion of(TimeSeriesVersion version) {
+            return new StoredVersion(version.getVersion(), version.getTimestamp(), toArray(version.getSeries()));
+        }
+    }
+
+    /**
+     * Receives the versions of the dates of a station one date at a time.
+     */
+    @FunctionalInterface
+    interface DateVersions {
+        void accept(long stationId, long powerStationDateId, LocalDate date, Collection<StoredVersion> versions);
+    }
+
+    StoredVersionReader(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The versions of every date of a station between {@code from} and {@code to} inclusive,
+     * in date order. The live versions of the whole range are read with a single query, only
+     * the dates with archived versions cost one more. A date without versions is handed over
+     * with none.
+     */
+    void readStation(String powerStationName, LocalDate from, LocalDate to, DateVersions consumer) {
+        StationCursor cursor = new StationCursor(consumer);
+        jdbcTemplate.query(VALUES_OF_STATION, cursor, powerStationName, Date.valueOf(from), Date.valueOf(to));
+        cursor.finishDate();
+    }
+
+    /**
+     * The versions of a date ordered by version number, archived and live versions together.
+     */
+    Collection<StoredVersion> read(long powerStationDateId, LocalDate date, boolean archived) {
+        SortedMap<Integer, StoredVersion> versions = new TreeMap<>();
+        if (archived) {
+            readArchive(powerStationDateId, date, versions);
+        }
+
+        Map<Long, StoredVersion> liveVersions = new HashMap<>();
+        jdbcTemplate.query(VERSIONS_OF_DATE, rs -> {
+            liveVersions.put(rs.getLong(1), new StoredVersion(rs.getInt(2), rs.getTimestamp(3).toLocalDateTime(), null));
+        }, powerStationDateId, date);
+        if (!liveVersions.isEmpty()) {
+            Map<Long, IntList> liveValues = new HashMap<>();
+            jdbcTemplate.query(VALUES_OF_DATE, rs -> {
+                int value = rs.getInt(3);
+                liveValues.computeIfAbsent(rs.getLong(1), versionId -> new IntList())
+                        .set(rs.getInt(2), rs.wasNull() ? ForecastAccuracyAccumulator.NO_VALUE : value);
+            }, powerStationDateId, date);
+            liveVersions.forEach((versionId, version) -> versions.put(version.version(), new StoredVersion(
+                    version.version(), version.timestamp(),
+                    liveValues.getOrDefault(versionId, new IntList()).toArray())));
+        }
+        return versions.values();
+    }
+
+    private void readArchive(long powerStationDateId, LocalDate date, SortedMap<Integer, StoredVersion> versions) {
+        jdbcTemplate.query(ARCHIVE_OF_DATE, rs -> {
+            for (TimeSeriesVersion version : TimeSeriesArchiveCodec.decode(rs.getBytes(1), date)) {
+                versions.put(version.getVersion(), StoredVersion.of(version));
+            }
+        }, powerStationDateId);
+    }
+
+    static int[] toArray(List<Integer> series) {
+        int[] values = new int[series.size()];
+        for (int i = 0; i < values.length; i++) {
+            Integer value = series.get(i);
+            values[i] = value == null ? ForecastAccuracyAccumulator.NO_VALUE : value;
+        }
+        return values;
+    }
+
+    /**
+     * Collects the rows of one date, then of one version of it, and hands the date over
+     * when the rows of the next one start.
+     */
+    private final class StationCursor implements RowCallbackHandler {
+        private final DateVersions consumer;
+        private SortedMap<Integer, StoredVersion> versions = new TreeMap<>();
+        private long stationId;
+        private long dateId = -1;
+        private LocalDate date;
+        private boolean archived;
+        private long versionId = -1;
+        private int version;
+        private LocalDateTime timestamp;
+        private IntList values;
+
+        StationCursor(DateVersions consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long rowDateId = rs.getLong(1);
+            if (rowDateId != dateId) {
+                finishDate();
+                dateId = rowDateId;
+                stationId = rs.getLong(9);
+                date = rs.getDate(2).toLocalDate();
+                archived = rs.getInt(3) > 0;
+            }
+            long rowVersionId = rs.getLong(4);
+            if (rs.wasNull()) {
+                return;
+            }
+            if (rowVersionId != versionId) {
+                finishVersion();
+                versionId = rowVersionId;
+                version = rs.getInt(5);
+                timestamp = rs.getTimestamp(6).toLocalDateTime();
+                values = new IntList();
+            }
+            int slot = rs.getInt(7);
+            if (!rs.wasNull()) {
+                int value = rs.getInt(8);
+                values.set(slot, rs.wasNull() ? ForecastAccuracyAccumulator.NO_VALUE : value);
+            }
+        }
+
+        void finishDate() {
+            finishVersion();
+            if (dateId < 0) {
+                return;
+            }
+            if (archived) {
+                readArchive(dateId, date, versions);
+            }
+            consumer.accept(stationId, dateId, date, versions.values());
+            versions = new TreeMap<>();
+            dateId = -1;
+        }
+
+        private void finishVersion() {
+            if (versionId >= 0) {
+                versions.put(version, new StoredVersion(version, timestamp, values.toArray()));
+                versionId = -1;
+            }
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[96];
+        private int size;
+
+        void set(int slot, int value) {
+            if (slot >= values.length) {
+                values = Arrays.copyOf(values, Math.max(slot + 1, values.length * 2));
+            }
+            if (slot > size) {
+                Arrays.fill(values, size, slot, ForecastAccuracyAccumulator.NO_VALUE);
+            }
+            values[slot] = value;
+            size = Math.max(size, slot + 1);
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
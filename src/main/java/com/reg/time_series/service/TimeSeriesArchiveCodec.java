@@ -0,0 +1,84 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.TimeSeriesVersion;
+
+import java.io.*;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary format of {@link com.reg.time_series.entity.TimeSeriesArchive#getData()}.
+ * <p>
+ * The versions are written one after the other as plain ints and the whole
+ * block is gzipped. Consecutive versions of a day share most of their values,
+ * which the compressor turns into back references to the previous version.
+ */
+final class TimeSeriesArchiveCodec {
+    private static final int FORMAT = 1;
+    private static final int NULL_VALUE = Integer.MIN_VALUE;
+
+    private TimeSeriesArchiveCodec() {
+    }
+
+    static byte[] encode(List<TimeSeriesVersion> versions) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(bytes)))) {
+            out.writeByte(FORMAT);
+            out.writeInt(versions.size());
+            for (TimeSeriesVersion version : versions) {
+                out.writeInt(version.getVersion());
+                out.writeLong(version.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(version.getTimestamp().getNano());
+                out.writeLong(version.getPeriod().getSeconds());
+                List<Integer> series = version.getSeries();
+                out.writeInt(series.size());
+                for (Integer value : series) {
+                    out.writeInt(value == null ? NULL_VALUE : value);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot encode time series archive", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes the archived versions. The returned entities are detached copies,
+     * they are not part of any {@code PowerStationDate.versions} collection.
+     */
+    static List<TimeSeriesVersion> decode(byte[] data, LocalDate stationDate) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new ByteArrayInputStream(data))))) {
+            int format = in.readByte();
+            if (format != FORMAT) {
+                throw new IllegalStateException("Unknown time series archive format: " + format);
+            }
+            int count = in.readInt();
+            List<TimeSeriesVersion> versions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                TimeSeriesVersion version = new TimeSeriesVersion();
+                version.setStationDate(stationDate);
+                version.setVersion(in.readInt());
+                version.setTimestamp(LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC));
+                version.setPeriod(Duration.ofSeconds(in.readLong()));
+                int size = in.readInt();
+                List<Integer> series = new ArrayList<>(size);
+                for (int j = 0; j < size; j++) {
+                    int value = in.readInt();
+                    series.add(value == NULL_VALUE ? null : value);
+                }
+                version.setSeries(series);
+                versions.add(version);
+            }
+            return versions;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot decode time series archive", e);
+        }
+    }
+}
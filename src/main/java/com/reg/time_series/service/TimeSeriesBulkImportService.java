@@ -0,0 +1,174 @@
+package com.reg.time_series.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.reg.time_series.model.BulkImportHeader;
+import com.reg.time_series.model.BulkImportResult;
+import com.reg.time_series.model.TimeSeriesData;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Imports many (station, date) time series from a single upload.
+ * <p>
+ * Two container formats are supported, both parsed incrementally so the
+ * whole upload never has to be held in memory:
+ * <ul>
+ *     <li>NDJSON: the first line is a {@link BulkImportHeader}, every following
+ *     line is one {@link TimeSeriesData} record.</li>
+ *     <li>JSON document: {@code {"zone": ..., "period": ..., "records": [...]}}.
+ *     The header fields have to precede the {@code records} array.</li>
+ * </ul>
+ * Records are saved through {@link TimeSeriesService#saveAll(List)} in batches,
+ * one transaction per batch. When a batch fails, its records are retried one by
+ * one so a single bad record does not discard the rest of the batch. A batch is
+ * saved in timestamp order, so only versions that are late across batches have to
+ * be inserted before newer ones.
+ */
+@Log4j2
+@Service
+public class TimeSeriesBulkImportService {
+    private final TimeSeriesService timeSeriesService;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public TimeSeriesBulkImportService(TimeSeriesService timeSeriesService,
+                                       @Value("${time-series.bulk.batch-size}") int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalStateException("Bulk batch size must be positive");
+        }
+        this.timeSeriesService = timeSeriesService;
+        this.batchSize = batchSize;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"));
+    }
+
+    public BulkImportResult importNdjson(InputStream inputStream) throws IOException {
+        BulkImportResult result = new BulkImportResult();
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("NDJSON upload must start with a header object");
+            }
+            BulkImportHeader header = objectMapper.readValue(parser, BulkImportHeader.class);
+
+            List<TimeSeriesData> batch = new ArrayList<>(batchSize);
+            try (MappingIterator<TimeSeriesData> records = objectMapper
+                    .readerFor(TimeSeriesData.class)
+                    .readValues(parser)) {
+                while (records.hasNextValue()) {
+                    add(batch, applyHeader(records.nextValue(), header), result);
+                }
+            } catch (JsonProcessingException e) {
+                parseError(e, result);
+            }
+            flush(batch, result);
+        }
+        return result;
+    }
+
+    public BulkImportResult importDocument(InputStream inputStream) throws IOException {
+        BulkImportResult result = new BulkImportResult();
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Bulk document must be a JSON object");
+            }
+            BulkImportHeader header = new BulkImportHeader();
+            List<TimeSeriesData> batch = new ArrayList<>(batchSize);
+            try {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    switch (field) {
+                        case "zone" -> header.setZone(parser.getValueAsString());
+                        case "period" -> header.setPeriod(parser.getValueAsString());
+                        case "records" -> readRecords(parser, header, batch, result);
+                        default -> parser.skipChildren();
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                parseError(e, result);
+            }
+            flush(batch, result);
+        }
+        return result;
+    }
+
+    private void readRecords(JsonParser parser, BulkImportHeader header,
+                             List<TimeSeriesData> batch, BulkImportResult result) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("\"records\" must be an array");
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            add(batch, applyHeader(parser.readValueAs(TimeSeriesData.class), header), result);
+        }
+    }
+
+    private void parseError(JsonProcessingException e, BulkImportResult result) {
+        // The stream cannot be resynchronised after a syntax error, the rest of the upload is skipped
+        log.error("Error parsing bulk upload after {} records: ", result.getRecords(), e);
+        result.getErrors().add(String.format("Parse error after %d records: %s",
+                result.getRecords(), e.getOriginalMessage()));
+    }
+
+    private TimeSeriesData applyHeader(TimeSeriesData data, BulkImportHeader header) {
+        if (data.getZone() == null) {
+            data.setZone(header.getZone());
+        }
+        if (data.getPeriod() == null) {
+            data.setPeriod(header.getPeriod());
+        }
+        return data;
+    }
+
+    private void add(List<TimeSeriesData> batch, TimeSeriesData data, BulkImportResult result) {
+        result.setRecords(result.getRecords() + 1);
+        if (data.getTimestamp() == null) {
+            result.setFailedRecords(result.getFailedRecords() + 1);
+            result.getErrors().add(String.format("Error during processing %s %s: Timestamp cannot be null",
+                    data.getPowerStation(), data.getDate()));
+            return;
+        }
+        batch.add(data);
+        if (batch.size() >= batchSize) {
+            flush(batch, result);
+        }
+    }
+
+    private void flush(List<TimeSeriesData> batch, BulkImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        result.setBatches(result.getBatches() + 1);
+        batch.sort(Comparator.comparing(TimeSeriesData::getTimestamp));
+        try {
+            timeSeriesService.saveAll(batch);
+            result.setSavedRecords(result.getSavedRecords() + batch.size());
+        } catch (Exception batchError) {
+            log.warn("Batch of {} records failed, retrying records one by one", batch.size(), batchError);
+            for (TimeSeriesData data : batch) {
+                try {
+                    timeSeriesService.save(data);
+                    result.setSavedRecords(result.getSavedRecords() + 1);
+                } catch (Exception e) {
+                    result.setFailedRecords(result.getFailedRecords() + 1);
+                    result.getErrors().add(String.format("Error during processing %s %s %s: %s",
+                            data.getPowerStation(), data.getDate(), data.getTimestamp(), e.getMessage()));
+                }
+            }
+        }
+        batch.clear();
+    }
+}
@@ -0,0 +1,144 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.PowerStationDate;
+import com.reg.time_series.entity.TimeSeriesArchive;
+import com.reg.time_series.entity.TimeSeriesVersion;
+import com.reg.time_series.repositories.TimeSeriesArchiveRepository;
+import com.reg.time_series.repositories.TimeSeriesRepository;
+import jakarta.annotation.Nullable;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Moves the intermediate versions of old days into a compressed {@link TimeSeriesArchive}.
+ * <p>
+ * For every {@link PowerStationDate} older than the retention of its station only
+ * the first and the latest versions are kept in {@code time_series_versions}, the
+ * rest is appended to the archive of the date. Archived versions are rehydrated by
+ * {@link TimeSeriesService#loadVersions(PowerStationDate)}.
+ * Each date is compacted in its own transaction.
+ * <p>
+ * Dates whose versions are kept by a durable {@link VersionStore}, such as the
+ * {@link SegmentVersionStore}, are not compacted: the store holds every version
+ * and the tables only the ones saved before the switch.
+ */
+@Log4j2
+@Service
+public class TimeSeriesCompactionService {
+    private static final int PAGE_SIZE = 100;
+
+    private final TimeSeriesRepository repository;
+    private final TimeSeriesArchiveRepository archiveRepository;
+    private final RetentionProperties retention;
+    private final TransactionTemplate transactionTemplate;
+    private final VersionStore versionStore;
+
+    public TimeSeriesCompactionService(TimeSeriesRepository repository,
+                                       TimeSeriesArchiveRepository archiveRepository,
+                                       RetentionProperties retention,
+                                       PlatformTransactionManager transactionManager,
+                                       @Nullable VersionStore versionStore) {
+        this.repository = repository;
+        this.archiveRepository = archiveRepository;
+        this.retention = retention;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.versionStore = versionStore;
+    }
+
+    @Scheduled(cron = "${time-series.retention.cron}")
+    public void scheduledCompaction() {
+        if (retention.isEnabled()) {
+            compact(LocalDate.now());
+        }
+    }
+
+    /**
+     * Compacts every date that is older than the retention of its station on {@code today}.
+     *
+     * @return the number of versions moved to archives
+     */
+    public int compact(LocalDate today) {
+        int minimumDays = retention.minimumDays();
+        if (minimumDays == Integer.MAX_VALUE) {
+            return 0;
+        }
+        LocalDate cutoff = today.minusDays(minimumDays);
+
+        int archivedVersions = 0;
+        long lastId = 0;
+        List<Long> candidates;
+        do {
+            candidates = repository.findCompactionCandidates(cutoff, lastId, PageRequest.ofSize(PAGE_SIZE));
+            for (Long id : candidates) {
+                Integer archived = transactionTemplate.execute(status -> compactDate(id, today));
+                archivedVersions += archived == null ? 0 : archived;
+                lastId = id;
+            }
+        } while (candidates.size() == PAGE_SIZE);
+
+        log.info("Compaction before {} archived {} versions", cutoff, archivedVersions);
+        return archivedVersions;
+    }
+
+    private int compactDate(Long powerStationDateId, LocalDate today) {
+        PowerStationDate powerStationDate = repository.findById(powerStationDateId).orElse(null);
+        if (powerStationDate == null) {
+            return 0;
+        }
+        int days = retention.daysFor(powerStationDate.getPowerStation().getPowerStation());
+        if (days <= 0 || !powerStationDate.getStationDate().isBefore(today.minusDays(days))) {
+            return 0;
+        }
+        if (heldByStore(powerStationDate)) {
+            return 0;
+        }
+
+        List<TimeSeriesVersion> hot = new ArrayList<>(powerStationDate.getVersions());
+        if (hot.size() <= 2) {
+            return 0;
+        }
+        hot.sort(Comparator.comparingInt(TimeSeriesVersion::getVersion));
+        List<TimeSeriesVersion> intermediate = hot.subList(1, hot.size() - 1);
+
+        TimeSeriesArchive archive = archiveRepository.findByPowerStationDate(powerStationDate)
+                .orElseGet(() -> {
+                    TimeSeriesArchive newArchive = new TimeSeriesArchive();
+                    newArchive.setPowerStationDate(powerStationDate);
+                    return newArchive;
+                });
+        List<TimeSeriesVersion> archived = archive.getData() == null
+                ? new ArrayList<>()
+                : TimeSeriesArchiveCodec.decode(archive.getData(), powerStationDate.getStationDate());
+        archived.addAll(intermediate);
+        archived.sort(Comparator.comparingInt(TimeSeriesVersion::getVersion));
+
+        archive.setData(TimeSeriesArchiveCodec.encode(archived));
+        archive.setVersionCount(archived.size());
+        archive.setCompactedAt(LocalDateTime.now());
+        archiveRepository.save(archive);
+
+        // Entity equality is field based and recursive, remove the versions by id
+        Set<Long> intermediateIds = new HashSet<>();
+        intermediate.forEach(version -> intermediateIds.add(version.getId()));
+        powerStationDate.getVersions().removeIf(version -> intermediateIds.contains(version.getId()));
+        powerStationDate.setArchivedVersions(archived.size());
+
+        log.debug("Archived {} versions of {} {}", intermediateIds.size(),
+                powerStationDate.getPowerStation().getPowerStation(), powerStationDate.getStationDate());
+        return intermediateIds.size();
+    }
+
+    private boolean heldByStore(PowerStationDate powerStationDate) {
+        return versionStore != null && versionStore.isDurable()
+                && versionStore.isResident(powerStationDate.getStationDate())
+                && versionStore.find(powerStationDate.getPowerStation().getId(), powerStationDate.getStationDate()).isPresent();
+    }
+}
@@ -0,0 +1,122 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.model.TimeSeriesVersionEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version aware ETags of the read endpoints, kept in memory so that a matching
+ * {@code If-None-Match} is answered without touching the database.
+ * <p>
+ * Every tag starts with a token of the current data generation, which changes on
+ * restart and when rows are removed outside of the normal saves. After that come
+ * <ul>
+ *     <li>the global ingest sequence for the station list,</li>
+ *     <li>the sequence of the last save of the station for its dates,</li>
+ *     <li>the latest version of the station date for the time series view.</li>
+ * </ul>
+ * The counters only see saves committed by this instance, and the generation
+ * differs between instances and starts again on every restart.
+ * <p>
+ * The tags are therefore meant for a single instance. Behind a load balancer,
+ * the requests of a client need to stick to one instance. Otherwise an instance
+ * that did not see a save made through another one can confirm an outdated copy
+ * with 304. Tags from before a restart, or from another instance, never match,
+ * so such requests get a full response.
+ */
+@Component
+public class TimeSeriesETagTracker {
+    private final AtomicLong ingestSequence = new AtomicLong();
+    private final Map<String, Long> stationSequences = new ConcurrentHashMap<>();
+    private final Map<String, Integer> latestVersions = new ConcurrentHashMap<>();
+    private volatile String generation = newGeneration();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVersionSaved(TimeSeriesVersionEvent event) {
+        long sequence = ingestSequence.incrementAndGet();
+        stationSequences.put(event.getPowerStationName(), sequence);
+        latestVersions.merge(key(event.getPowerStationName(), event.getDate()), event.getLatestVersion(), Math::max);
+    }
+
+    /**
+     * Starts a new generation, used when stored data is removed.
+     */
+    public void invalidateAll() {
+        generation = newGeneration();
+        stationSequences.clear();
+        latestVersions.clear();
+    }
+
+    public String powerStationsTag() {
+        return tag("s" + ingestSequence.get());
+    }
+
+    public String datesTag(String powerStationName) {
+        return tag("d" + stationSequences.getOrDefault(powerStationName, 0L));
+    }
+
+    /**
+     * The safety window flags of the view depend on the current time around today,
+     * so for those dates the tag also changes every minute.
+     */
+    public String viewTag(String powerStationName, LocalDate date, LocalDateTime now) {
+        return viewTag(powerStationName, date, now, latestVersions.getOrDefault(key(powerStationName, date), 0));
+    }
+
+    /**
+     * Tag of a view built from data whose latest version is {@code readVersion}.
+     * A read from a replica that lags behind gets an older tag than
+     * {@link #viewTag(String, LocalDate, LocalDateTime)}, so its body is not
+     * confirmed with 304 once the replica has caught up.
+     */
+    public String viewTag(String powerStationName, LocalDate date, LocalDateTime now, int readVersion) {
+        String tag = "v" + readVersion;
+        if (!isPastDate(date, now.toLocalDate()) && !date.isAfter(now.toLocalDate().plusDays(1))) {
+            tag += "-" + now.truncatedTo(ChronoUnit.MINUTES).toLocalTime();
+        }
+        return tag(tag);
+    }
+
+    /**
+     * Takes the latest version a read has seen, so that after a restart views are
+     * answered with 304 before the next save. Returns false when the read is behind
+     * a save committed through this instance.
+     */
+    public boolean observe(String powerStationName, LocalDate date, int readVersion) {
+        return latestVersions.merge(key(powerStationName, date), readVersion, Math::max) == readVersion;
+    }
+
+    /**
+     * Tag of another representation of the same resource, e.g. the NDJSON view.
+     */
+    public static String variant(String tag, String variant) {
+        return tag == null ? null : tag.substring(0, tag.length() - 1) + "-" + variant + "\"";
+    }
+
+    /**
+     * A date has ended in every time zone once it is at least two days before today.
+     */
+    public static boolean isPastDate(LocalDate date, LocalDate today) {
+        return date.isBefore(today.minusDays(1));
+    }
+
+    private String tag(String value) {
+        return "\"" + generation + "-" + value + "\"";
+    }
+
+    private static String key(String powerStationName, LocalDate date) {
+        return powerStationName + '|' + date;
+    }
+
+    private static String newGeneration() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
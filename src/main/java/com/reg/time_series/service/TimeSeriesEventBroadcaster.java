@@ -0,0 +1,160 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.model.TimeSeriesVersionEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes {@link TimeSeriesVersionEvent}s to Server-Sent Events subscribers.
+ * <p>
+ * The committing thread only puts the event into the bounded buffer of every
+ * matching subscriber; the events are written to the connections by a small
+ * sender pool. When a client cannot keep up its oldest buffered events are
+ * dropped and it receives a {@code dropped} event with their number, from
+ * which it can catch up through the changes endpoint.
+ */
+@Log4j2
+@Component
+public class TimeSeriesEventBroadcaster {
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ExecutorService sender;
+    private final int bufferSize;
+    private final long timeoutMillis;
+
+    public TimeSeriesEventBroadcaster(@Value("${time-series.events.buffer-size}") int bufferSize,
+                                      @Value("${time-series.events.timeout-ms}") long timeoutMillis,
+                                      @Value("${time-series.events.sender-threads}") int senderThreads) {
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sse-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Subscribes to the new versions of a station and date; a null station or
+     * date matches every station or date.
+     */
+    public SseEmitter subscribe(String powerStationName, LocalDate date) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscription subscription = new Subscription(emitter, powerStationName, date, bufferSize);
+        subscriptions.add(subscription);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscriptions.remove(subscription));
+        log.debug("New event subscriber for {} {}, {} subscribers", powerStationName, date, subscriptions.size());
+        return emitter;
+    }
+
+    // fallbackExecution: saves made without a transaction are pushed right away
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVersionSaved(TimeSeriesVersionEvent event) {
+        SseEmitter.SseEventBuilder sseEvent = SseEmitter.event().name("version").data(event);
+        for (Subscription subscription : subscriptions) {
+            if (subscription.matches(event)) {
+                subscription.offer(sseEvent);
+                schedule(subscription);
+            }
+        }
+    }
+
+    // Keeps idle connections open through proxies and detects clients that are gone
+    @Scheduled(fixedDelayString = "${time-series.events.heartbeat-ms}")
+    public void heartbeat() {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.queue.isEmpty()) {
+                subscription.offer(SseEmitter.event().comment("heartbeat"));
+                schedule(subscription);
+            }
+        }
+    }
+
+    int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+        sender.shutdownNow();
+    }
+
+    private void schedule(Subscription subscription) {
+        if (subscription.draining.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> drain(subscription));
+            } catch (RejectedExecutionException e) {
+                subscription.draining.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscription subscription) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while ((event = subscription.queue.poll()) != null) {
+                int dropped = subscription.dropped.getAndSet(0);
+                if (dropped > 0) {
+                    subscription.emitter.send(SseEmitter.event().name("dropped").data(dropped));
+                }
+                subscription.emitter.send(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Event subscriber disconnected: {}", e.getMessage());
+            subscriptions.remove(subscription);
+            subscription.emitter.completeWithError(e);
+            return;
+        } finally {
+            subscription.draining.set(false);
+        }
+        // An event may have arrived between the last poll and releasing the flag
+        if (!subscription.queue.isEmpty()) {
+            schedule(subscription);
+        }
+    }
+
+    static class Subscription {
+        private final SseEmitter emitter;
+        private final String powerStationName;
+        private final LocalDate date;
+        final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        final AtomicInteger dropped = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscription(SseEmitter emitter, String powerStationName, LocalDate date, int bufferSize) {
+            this.emitter = emitter;
+            this.powerStationName = powerStationName;
+            this.date = date;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        boolean matches(TimeSeriesVersionEvent event) {
+            return (powerStationName == null || powerStationName.equals(event.getPowerStationName()))
+                    && (date == null || date.equals(event.getDate()));
+        }
+
+        // Never blocks, a full buffer loses its oldest event
+        void offer(SseEmitter.SseEventBuilder event) {
+            while (!queue.offer(event)) {
+                if (queue.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.PowerStationDate;
+import com.reg.time_series.entity.TimeSeriesVersion;
+import jakarta.annotation.Nullable;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * CSV export of the version history, one row per station, date, version and slot.
+ * <p>
+ * The dates of the filter are read through a cursor and the versions of each
+ * date with a {@link StoredVersionReader} while the cursor is open, so that
+ * memory use is bounded by a single date whatever the range. Rows are written
+ * to the output as they are produced.
+ */
+@Log4j2
+@Service
+public class TimeSeriesExportService {
+    static final String HEADER = "power_station,date,version,timestamp,slot,value\n";
+    private static final String DATES = "SELECT psd.id, ps.id, ps.power_station, psd.station_date, psd.archived_versions " +
+            "FROM power_station_date psd JOIN power_station ps ON ps.id = psd.power_station_id " +
+            "WHERE psd.station_date BETWEEN ? AND ?";
+    private static final String DATES_ORDER = " ORDER BY ps.power_station, psd.station_date";
+
+    private final JdbcTemplate cursor;
+    private final StoredVersionReader reader;
+    private final VersionStore versionStore;
+
+    public TimeSeriesExportService(JdbcTemplate jdbcTemplate,
+                                   @Nullable VersionStore versionStore,
+                                   @Value("${time-series.export.fetch-size}") int fetchSize) {
+        // Same data source, the cursor runs in the transaction of the reader
+        this.cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.cursor.setFetchSize(fetchSize);
+        this.reader = new StoredVersionReader(jdbcTemplate);
+        this.versionStore = versionStore;
+    }
+
+    /**
+     * Writes the versions of the dates between {@code from} and {@code to} inclusive
+     * as CSV, ordered by station name, date, version and slot. Every station when
+     * {@code powerStationNames} is empty. Missing values are empty fields.
+     */
+    @Transactional(readOnly = true)
+    public void exportCsv(Collection<String> powerStationNames, LocalDate from, LocalDate to,
+                          OutputStream output) throws IOException {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("The start of the range is after its end");
+        }
+        long start = System.currentTimeMillis();
+        List<Object> args = new ArrayList<>(List.of(Date.valueOf(from), Date.valueOf(to)));
+        String sql = DATES;
+        if (!powerStationNames.isEmpty()) {
+            sql += " AND ps.power_station IN (" + String.join(",", Collections.nCopies(powerStationNames.size(), "?")) + ")";
+            args.addAll(powerStationNames);
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(HEADER);
+        long[] counts = new long[2];
+        try {
+            cursor.query(sql + DATES_ORDER, rs -> {
+                String station = quote(rs.getString(3));
+                LocalDate date = rs.getDate(4).toLocalDate();
+                int archived = rs.getInt(5);
+                Collection<StoredVersionReader.StoredVersion> versions =
+                        versions(rs.getLong(1), rs.getLong(2), date, archived > 0);
+                try {
+                    write(writer, station, date, versions);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                counts[0]++;
+                counts[1] += versions.size();
+            }, args.toArray());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        log.info("Exported {} versions of {} dates between {} and {} in {} ms",
+                counts[1], counts[0], from, to, System.currentTimeMillis() - start);
+    }
+
+    private Collection<StoredVersionReader.StoredVersion> versions(long powerStationDateId, long stationId,
+                                                                   LocalDate date, boolean archived) {
+        if (versionStore != null && versionStore.isResident(date)) {
+            Optional<PowerStationDate> stored = versionStore.find(stationId, date);
+            if (stored.isPresent()) {
+                List<StoredVersionReader.StoredVersion> versions = new ArrayList<>();
+                for (TimeSeriesVersion version : stored.get().getVersions()) {
+                    versions.add(StoredVersionReader.StoredVersion.of(version));
+                }
+                return versions;
+            }
+        }
+        return reader.read(powerStationDateId, date, archived);
+    }
+
+    private static void write(Writer writer, String station, LocalDate date,
+                              Collection<StoredVersionReader.StoredVersion> versions) throws IOException {
+        StringBuilder row = new StringBuilder(128);
+        for (StoredVersionReader.StoredVersion version : versions) {
+            int[] values = version.values();
+            for (int slot = 0; slot < values.length; slot++) {
+                row.setLength(0);
+                row.append(station).append(',').append(date).append(',').append(version.version()).append(',')
+                        .append(version.timestamp()).append(',').append(slot).append(',');
+                if (values[slot] != ForecastAccuracyAccumulator.NO_VALUE) {
+                    row.append(values[slot]);
+                }
+                writer.append(row).append('\n');
+            }
+        }
+    }
+
+    static String quote(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+}
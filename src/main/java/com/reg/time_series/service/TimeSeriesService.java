@@ -3,14 +3,23 @@ package com.reg.time_series.service;
 import com.reg.time_series.entity.PowerStation;
 import com.reg.time_series.entity.PowerStationDate;
 import com.reg.time_series.entity.TimeSeriesVersion;
+import com.reg.time_series.exceptions.StaleTimeSeriesException;
+import com.reg.time_series.model.TimeSeriesAsOfDTO;
+import com.reg.time_series.model.TimeSeriesChangesDTO;
+import com.reg.time_series.model.TimeSeriesColumnsDTO;
 import com.reg.time_series.model.TimeSeriesData;
+import com.reg.time_series.model.TimeSeriesVersionEvent;
 import com.reg.time_series.model.TimeSeriesViewDTO;
+import com.reg.time_series.model.TimeSeriesViewWindow;
 import com.reg.time_series.repositories.PowerStationRepository;
+import com.reg.time_series.repositories.TimeSeriesArchiveRepository;
 import com.reg.time_series.repositories.TimeSeriesRepository;
-import jakarta.transaction.Transactional;
+import jakarta.annotation.Nullable;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.*;
 
@@ -34,23 +43,60 @@ import java.util.stream.Collectors;
 public class TimeSeriesService {
     private final TimeSeriesRepository repository;
     private final PowerStationRepository powerStationRepository;
+    private final TimeSeriesArchiveRepository archiveRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PowerStationCatalogue catalogue;
+    private final PowerStationDictionary dictionary;
+    private final Clock clock;
+    // Only present when time-series.store is not jpa
+    private final VersionStore versionStore;
 
     @Value("${time-series.safety-window-minutes}")
     private int safetyWindowMinutes;
 
-    public TimeSeriesService(TimeSeriesRepository repository, PowerStationRepository powerStationRepository) {
+    @Value("${time-series.late-arrival}")
+    private LateArrivalPolicy lateArrivalPolicy = LateArrivalPolicy.INSERT;
+
+    public TimeSeriesService(TimeSeriesRepository repository,
+                             PowerStationRepository powerStationRepository,
+                             TimeSeriesArchiveRepository archiveRepository,
+                             ApplicationEventPublisher eventPublisher,
+                             PowerStationCatalogue catalogue,
+                             PowerStationDictionary dictionary,
+                             Clock clock,
+                             @Nullable VersionStore versionStore) {
         this.repository = repository;
         this.powerStationRepository = powerStationRepository;
+        this.archiveRepository = archiveRepository;
+        this.eventPublisher = eventPublisher;
+        this.catalogue = catalogue;
+        this.dictionary = dictionary;
+        this.clock = clock;
+        this.versionStore = versionStore;
     }
 
     @Transactional
     public void save(TimeSeriesData timeSeriesData) {
         PowerStation powerStation = getOrCreatePowerStation(timeSeriesData);
+        if (versionStore != null && versionStore.isResident(timeSeriesData.getDate())) {
+            saveToVersionStore(powerStation, timeSeriesData);
+            return;
+        }
         PowerStationDate powerStationDate = getOrCreatePowerStationDate(powerStation, timeSeriesData);
+        Optional<TimeSeriesVersion> latestVersion = repository.findFirstByPowerStationDateOrderByVersionDesc(powerStationDate);
+        if (isLate(timeSeriesData, latestVersion)) {
+            if (!powerStationDate.hasArchivedVersions()) {
+                insertLateVersion(powerStationDate, timeSeriesData, latestVersion.get().getVersion());
+                return;
+            }
+            log.warn("{} on {} is compacted, the version of {} is appended after newer ones",
+                    timeSeriesData.getPowerStation(), timeSeriesData.getDate(), timeSeriesData.getTimestamp());
+        }
         TimeSeriesVersion newVersion = createTimeSeriesVersion(powerStationDate, timeSeriesData);
 
-        List<Integer> mergedSeries = mergeSeries(powerStationDate, timeSeriesData);
+        List<Integer> mergedSeries = mergeSeries(powerStationDate, timeSeriesData, latestVersion);
         newVersion.setSeries(mergedSeries);
+        recordChangedSlots(newVersion, latestVersion.map(TimeSeriesVersion::getSeries).orElse(List.of()));
 
         int nextVersion = calculateNextVersion(powerStationDate.getVersions());
         newVersion.setVersion(nextVersion);
@@ -58,17 +104,204 @@ public class TimeSeriesService {
         ensureVersionsList(powerStationDate);
         powerStationDate.getVersions().add(newVersion);
         repository.save(powerStationDate);
+
+        publishVersionEvent(timeSeriesData, newVersion);
+    }
+
+    /**
+     * Merges against the latest version held by the {@link VersionStore}. A store
+     * that is not durable writes the tables after the commit, with the version
+     * number assigned here; otherwise only the date row is written.
+     */
+    private void saveToVersionStore(PowerStation powerStation, TimeSeriesData timeSeriesData) {
+        LocalDate date = timeSeriesData.getDate();
+        if (versionStore.isDurable()) {
+            getOrCreatePowerStationDate(powerStation, timeSeriesData);
+        }
+        TimeSeriesVersion newVersion = versionStore.append(powerStation.getId(), date, timeSeriesData.getZone(),
+                () -> repository.findByPowerStationAndStationDate(powerStation, date)
+                        .map(this::withAllVersions)
+                        .orElse(null),
+                latestVersion -> {
+                    if (isLate(timeSeriesData, latestVersion)) {
+                        // The stores are append only
+                        log.warn("{} on {} is held by the version store, the version of {} is appended after newer ones",
+                                timeSeriesData.getPowerStation(), date, timeSeriesData.getTimestamp());
+                    }
+                    TimeSeriesVersion version = createTimeSeriesVersion(null, timeSeriesData);
+                    version.setStationDate(date);
+                    version.setSeries(mergeSeries(timeSeriesData, latestVersion));
+                    recordChangedSlots(version, latestVersion.map(TimeSeriesVersion::getSeries).orElse(List.of()));
+                    version.setVersion(latestVersion.map(TimeSeriesVersion::getVersion).orElse(0) + 1);
+                    return version;
+                },
+                version -> writeVersion(timeSeriesData, version));
+        catalogue.addDate(timeSeriesData.getPowerStation(), date);
+        publishVersionEvent(timeSeriesData, newVersion);
+    }
+
+    /**
+     * Whether the new version is older than the latest one and has to be inserted
+     * before it. Refuses it under {@link LateArrivalPolicy#REJECT}.
+     */
+    private boolean isLate(TimeSeriesData timeSeriesData, Optional<TimeSeriesVersion> latestVersion) {
+        if (latestVersion.isEmpty() || !timeSeriesData.getTimestamp().isBefore(latestVersion.get().getTimestamp())) {
+            return false;
+        }
+        return switch (lateArrivalPolicy) {
+            case INSERT -> true;
+            case APPEND -> false;
+            case REJECT -> throw new StaleTimeSeriesException(String.format(
+                    "%s on %s already has a version of %s, newer than %s", timeSeriesData.getPowerStation(),
+                    timeSeriesData.getDate(), latestVersion.get().getTimestamp(), timeSeriesData.getTimestamp()));
+        };
+    }
+
+    /**
+     * Inserts a version that arrived after newer ones at the position of its
+     * timestamp. The versions after it move up by one and are merged again on top
+     * of their new predecessor, until one comes out unchanged: from there on each
+     * merge has the same input as before, so the rest is only renumbered.
+     */
+    private void insertLateVersion(PowerStationDate powerStationDate, TimeSeriesData timeSeriesData, int latestVersion) {
+        int position = repository.findFirstVersionAfter(powerStationDate, timeSeriesData.getTimestamp())
+                .orElseThrow(() -> new IllegalStateException("No version after " + timeSeriesData.getTimestamp()));
+        List<TimeSeriesVersion> versions = repository.findVersionsFrom(powerStationDate, Math.max(1, position - 1));
+        Optional<TimeSeriesVersion> previous = versions.stream().filter(v -> v.getVersion() < position).findFirst();
+        List<TimeSeriesVersion> suffix = versions.stream().filter(v -> v.getVersion() >= position).toList();
+
+        TimeSeriesVersion inserted = createTimeSeriesVersion(powerStationDate, timeSeriesData);
+        inserted.setVersion(position);
+        inserted.setSeries(mergeSeries(timeSeriesData, previous));
+        recordChangedSlots(inserted, previous.map(TimeSeriesVersion::getSeries).orElse(List.of()));
+
+        TimeSeriesVersion predecessor = inserted;
+        boolean remerge = true;
+        int remerged = 0;
+        for (TimeSeriesVersion version : suffix) {
+            version.setVersion(version.getVersion() + 1);
+            if (remerge) {
+                List<Integer> series = remergeSeries(version, predecessor, powerStationDate);
+                remerge = !series.equals(version.getSeries());
+                if (remerge) {
+                    version.setSeries(series);
+                    remerged++;
+                }
+                recordChangedSlots(version, predecessor.getSeries());
+            }
+            predecessor = version;
+        }
+        log.info("Late version of {} on {} at {} inserted as version {}, {} of the {} later versions merged again",
+                timeSeriesData.getPowerStation(), timeSeriesData.getDate(), timeSeriesData.getTimestamp(),
+                position, remerged, suffix.size());
+
+        ensureVersionsList(powerStationDate);
+        powerStationDate.getVersions().add(inserted);
+        // Readers of the changes that are behind the new latest version may hold renumbered ones
+        Integer rewrittenFrom = powerStationDate.getRewrittenFromVersion();
+        powerStationDate.setRewrittenFromVersion(rewrittenFrom == null ? position : Math.min(rewrittenFrom, position));
+        powerStationDate.setRewrittenLatestVersion(latestVersion + 1);
+        repository.save(powerStationDate);
+
+        eventPublisher.publishEvent(new TimeSeriesVersionEvent(timeSeriesData.getPowerStation(),
+                timeSeriesData.getDate(), position, inserted.getTimestamp(),
+                inserted.getChangedFromSlot(), inserted.getChangedSlotCount(), latestVersion + 1, position));
     }
 
+    /**
+     * Merges a stored version again on top of another predecessor. After its safety
+     * window a stored series holds the values it was saved with, in the resolution
+     * of the series it was merged into.
+     */
+    private List<Integer> remergeSeries(TimeSeriesVersion version, TimeSeriesVersion previous,
+                                        PowerStationDate powerStationDate) {
+        TimeSeriesData replay = new TimeSeriesData();
+        replay.setDate(powerStationDate.getStationDate());
+        replay.setZone(powerStationDate.getZone());
+        replay.setTimestamp(version.getTimestamp());
+        LocalDateTime safetyWindowEnd = calculateSafetyWindowEnd(replay, version.getPeriod());
+        return mergeDifferentPeriodSeries(previous.getSeries(), version.getSeries(), previous.getPeriod(),
+                Duration.ofMinutes(24 * 60 / version.getSeries().size()), safetyWindowEnd, replay.getDate());
+    }
 
+    // Run by a store that is not durable, in its own transaction
+    private void writeVersion(TimeSeriesData timeSeriesData, TimeSeriesVersion version) {
+        PowerStationDate powerStationDate = getOrCreatePowerStationDate(getOrCreatePowerStation(timeSeriesData), timeSeriesData);
+        version.setPowerStationDate(powerStationDate);
+        ensureVersionsList(powerStationDate);
+        powerStationDate.getVersions().add(version);
+        repository.save(powerStationDate);
+    }
+
+    private void publishVersionEvent(TimeSeriesData timeSeriesData, TimeSeriesVersion version) {
+        eventPublisher.publishEvent(new TimeSeriesVersionEvent(timeSeriesData.getPowerStation(),
+                timeSeriesData.getDate(), version.getVersion(), version.getTimestamp(),
+                version.getChangedFromSlot(), version.getChangedSlotCount()));
+    }
 
+    // A copy of the date that is not managed by JPA, with the archived versions
+    private PowerStationDate withAllVersions(PowerStationDate powerStationDate) {
+        PowerStationDate copy = new PowerStationDate();
+        copy.setStationDate(powerStationDate.getStationDate());
+        copy.setZone(powerStationDate.getZone());
+        copy.setVersions(loadVersions(powerStationDate));
+        return copy;
+    }
+
+    /**
+     * The versions of a date when the {@link VersionStore} holds them.
+     */
+    private Optional<PowerStationDate> findResident(String powerStationName, LocalDate date) {
+        if (versionStore == null || !versionStore.isResident(date)) {
+            return Optional.empty();
+        }
+        Long stationId = dictionary.findId(powerStationName);
+        return stationId == null ? Optional.empty() : versionStore.find(stationId, date);
+    }
+
+    /**
+     * Saves several time series in a single transaction, in the given order.
+     * Used by bulk imports so that the transaction count scales with the
+     * number of batches instead of the number of records.
+     */
+    @Transactional
+    public void saveAll(List<TimeSeriesData> timeSeriesData) {
+        if (versionStore != null) {
+            lockResidentDates(timeSeriesData);
+        }
+        for (TimeSeriesData data : timeSeriesData) {
+            save(data);
+        }
+    }
 
-    private List<Integer> mergeSeries(PowerStationDate powerStationDate, TimeSeriesData newData) {
-        if (powerStationDate == null || newData == null) {
+    // The dates of a batch are locked up front in one global order, one at a time two batches could deadlock
+    private void lockResidentDates(List<TimeSeriesData> timeSeriesData) {
+        Map<Long, Set<LocalDate>> dates = new HashMap<>();
+        for (TimeSeriesData data : timeSeriesData) {
+            // Invalid records are refused by their save
+            if (data.getPowerStation() != null && data.getDate() != null && versionStore.isResident(data.getDate())) {
+                dates.computeIfAbsent(getOrCreatePowerStation(data).getId(), id -> new HashSet<>()).add(data.getDate());
+            }
+        }
+        versionStore.lockDates(dates);
+    }
+
+
+
+
+    private List<Integer> mergeSeries(PowerStationDate powerStationDate, TimeSeriesData newData,
+                                      Optional<TimeSeriesVersion> latestVersionOpt) {
+        if (powerStationDate == null) {
+            throw new IllegalArgumentException("Input parameters cannot be null");
+        }
+        return mergeSeries(newData, latestVersionOpt);
+    }
+
+    private List<Integer> mergeSeries(TimeSeriesData newData, Optional<TimeSeriesVersion> latestVersionOpt) {
+        if (newData == null) {
             throw new IllegalArgumentException("Input parameters cannot be null");
         }
 
-        Optional<TimeSeriesVersion> latestVersionOpt = repository.findFirstByPowerStationDateOrderByVersionDesc(powerStationDate);
         if (latestVersionOpt.isEmpty()) {
             return Optional.ofNullable(newData.getSeries())
                     .orElseThrow(() -> new IllegalArgumentException("New series data cannot be null"));
@@ -96,6 +329,43 @@ public class TimeSeriesService {
         );
     }
 
+    /**
+     * Stores the slot range of the new version that differs from the previous one.
+     * Because of the safety window this is normally the tail after the safety window
+     * index, but only slots whose value really changed are counted.
+     */
+    static void recordChangedSlots(TimeSeriesVersion version, List<Integer> previousSeries) {
+        int[] range = changedRange(previousSeries, version.getSeries());
+        version.setChangedFromSlot(range[0]);
+        version.setChangedSlotCount(range[1] - range[0]);
+    }
+
+    /**
+     * Returns {@code [from, to)} of the slots that differ, an empty range at the end
+     * of the series when both are equal.
+     */
+    static int[] changedRange(List<Integer> previousSeries, List<Integer> series) {
+        int size = Math.max(previousSeries.size(), series.size());
+        int from = 0;
+        while (from < size && slotEquals(previousSeries, series, from)) {
+            from++;
+        }
+        if (from == size) {
+            return new int[]{series.size(), series.size()};
+        }
+        int to = size;
+        while (to > from && slotEquals(previousSeries, series, to - 1)) {
+            to--;
+        }
+        return new int[]{from, Math.min(to, series.size())};
+    }
+
+    private static boolean slotEquals(List<Integer> previousSeries, List<Integer> series, int slot) {
+        boolean inPrevious = slot < previousSeries.size();
+        boolean inSeries = slot < series.size();
+        return inPrevious == inSeries && (!inSeries || Objects.equals(previousSeries.get(slot), series.get(slot)));
+    }
+
     private Duration tryParsePeriod(String period) {
         try {
             return Duration.parse(period);
@@ -197,6 +467,19 @@ public class TimeSeriesService {
 
         log.debug("Safety window end minutes: {}, index: {}", safetyWindowEndMinutes, safetyWindowEndIndex);
 
+        // Same period and complete series: a copy of the new values from the first slot after the window
+        if (previousPeriod.equals(newPeriod) && previousSeries.size() >= expectedSize && newSeries.size() >= expectedSize) {
+            long periodMinutes = previousPeriod.toMinutes();
+            int from = (int) Math.max(0, Math.min(expectedSize, (safetyWindowEndMinutes + periodMinutes - 1) / periodMinutes));
+            int[] previous = toArray(previousSeries, expectedSize);
+            int[] next = toArray(newSeries, expectedSize);
+            if (previous != null && next != null) {
+                int[] merged = new int[expectedSize];
+                SeriesKernels.get().mergeFrom(previous, next, from, merged);
+                return toList(merged);
+            }
+        }
+
         for (int i = 0; i < expectedSize; i++) {
             int currentMinutes = i * (int)previousPeriod.toMinutes();
 
@@ -217,21 +500,34 @@ public class TimeSeriesService {
             }
         }
 
-        log.info("Merged series size: {}, Expected size: {}",
+        log.debug("Merged series size: {}, Expected size: {}",
                 mergedSeries.size(), expectedSize);
         return mergedSeries;
     }
 
-    private PowerStation getOrCreatePowerStation(TimeSeriesData data) {
-        return powerStationRepository
-                .findByPowerStation(data.getPowerStation())
-                .orElseGet(() -> createPowerStation(data));
+    // null when a slot has no value, those series are merged by the loop
+    private static int[] toArray(List<Integer> series, int length) {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            Integer value = series.get(i);
+            if (value == null) {
+                return null;
+            }
+            values[i] = value;
+        }
+        return values;
+    }
+
+    private static List<Integer> toList(int[] values) {
+        List<Integer> series = new ArrayList<>(values.length);
+        for (int value : values) {
+            series.add(value);
+        }
+        return series;
     }
 
-    private PowerStation createPowerStation(TimeSeriesData data) {
-        PowerStation newPowerStation = new PowerStation();
-        newPowerStation.setPowerStation(data.getPowerStation());
-        return powerStationRepository.save(newPowerStation);
+    private PowerStation getOrCreatePowerStation(TimeSeriesData data) {
+        return dictionary.getOrCreate(data.getPowerStation());
     }
 
     private PowerStationDate getOrCreatePowerStationDate(PowerStation powerStation, TimeSeriesData data) {
@@ -246,7 +542,9 @@ public class TimeSeriesService {
         newPowerStationDate.setStationDate(data.getDate());
         newPowerStationDate.setZone(data.getZone());
         newPowerStationDate.setVersions(new ArrayList<>());
-        return repository.save(newPowerStationDate);
+        PowerStationDate saved = repository.save(newPowerStationDate);
+        catalogue.addDate(data.getPowerStation(), data.getDate());
+        return saved;
     }
 
     private TimeSeriesVersion createTimeSeriesVersion(PowerStationDate powerStationDate, TimeSeriesData data) {
@@ -275,23 +573,110 @@ public class TimeSeriesService {
         }
     }
 
+    // The navigation queries are answered by the catalogue once it is loaded.
+    // Read-only transactions go to the replica when one is configured.
+    @Transactional(readOnly = true)
     public List<String> getAllPowerStations() {
+        if (catalogue.isWarmedUp()) {
+            return catalogue.powerStations();
+        }
         return powerStationRepository.findDistinctPowerStationNames();
     }
 
+    @Transactional(readOnly = true)
+    public List<String> findPowerStations(String prefix) {
+        if (catalogue.isWarmedUp()) {
+            return catalogue.powerStationsStartingWith(prefix);
+        }
+        return powerStationRepository.findDistinctPowerStationNames().stream()
+                .filter(name -> name.regionMatches(true, 0, prefix, 0, prefix.length()))
+                .sorted(String.CASE_INSENSITIVE_ORDER)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
     public List<LocalDate> getAvailableDates(String powerStationName) {
+        if (catalogue.isWarmedUp()) {
+            return catalogue.dates(powerStationName, LocalDate.MIN, LocalDate.MAX);
+        }
         return repository.findDatesByPowerStation(powerStationName);
     }
 
+    @Transactional(readOnly = true)
+    public List<LocalDate> getAvailableDates(String powerStationName, LocalDate from, LocalDate to) {
+        if (from == null && to == null) {
+            return getAvailableDates(powerStationName);
+        }
+        LocalDate fromDate = Optional.ofNullable(from).orElse(LocalDate.EPOCH);
+        LocalDate toDate = Optional.ofNullable(to).orElse(LocalDate.of(9999, 12, 31));
+        if (catalogue.isWarmedUp()) {
+            return catalogue.dates(powerStationName, fromDate, toDate);
+        }
+        return repository.findDatesByPowerStationBetween(powerStationName, fromDate, toDate);
+    }
+
+    @Transactional(readOnly = true)
     public TimeSeriesViewDTO getTimeSeriesView(String powerStationName, LocalDate date) {
-        PowerStationDate powerStationDate = repository.findByPowerStationNameAndDate(powerStationName, date)
+        PowerStationDate powerStationDate = findResident(powerStationName, date)
+                .or(() -> repository.findByPowerStationNameAndDate(powerStationName, date))
                 .orElseThrow(() -> new IllegalArgumentException("No data found for given power station and date"));
+        return toView(powerStationName, date, powerStationDate, loadVersions(powerStationDate));
+    }
+
+    /**
+     * The view limited to a window of versions and slots. Dates in the tables read
+     * only the versions of the window and their values, resident and archived dates
+     * are held or decoded whole anyway and are cut in memory. The values are read
+     * per version, so a slot range only shortens the rows.
+     */
+    @Transactional(readOnly = true)
+    public TimeSeriesViewDTO getTimeSeriesView(String powerStationName, LocalDate date, TimeSeriesViewWindow window) {
+        if (!window.limitsVersions()) {
+            TimeSeriesViewDTO view = getTimeSeriesView(powerStationName, date);
+            return window.isAll() ? view : slots(view, window);
+        }
+        Optional<PowerStationDate> resident = findResident(powerStationName, date);
+        PowerStationDate powerStationDate = resident
+                .or(() -> repository.findByPowerStationPowerStationAndStationDate(powerStationName, date))
+                .orElseThrow(() -> new IllegalArgumentException("No data found for given power station and date"));
+
+        List<TimeSeriesVersion> versions;
+        int latestVersion;
+        if (resident.isPresent() || powerStationDate.hasArchivedVersions()) {
+            List<TimeSeriesVersion> all = loadVersions(powerStationDate);
+            latestVersion = all.isEmpty() ? 0 : all.get(all.size() - 1).getVersion();
+            int first = window.firstVersion(latestVersion);
+            int last = window.lastVersion(latestVersion);
+            versions = all.stream().filter(v -> v.getVersion() >= first && v.getVersion() <= last).toList();
+        } else {
+            latestVersion = repository.findLatestVersionNumber(powerStationDate).orElse(0);
+            versions = repository.findVersionsBetween(powerStationDate,
+                    window.firstVersion(latestVersion), window.lastVersion(latestVersion));
+        }
+        if (versions.isEmpty()) {
+            throw new IllegalArgumentException("No versions in the requested window");
+        }
+        TimeSeriesViewDTO view = toView(powerStationName, date, powerStationDate, versions);
+        view.setLatestVersion(latestVersion);
+        return slots(view, window);
+    }
+
+    private static TimeSeriesViewDTO slots(TimeSeriesViewDTO view, TimeSeriesViewWindow window) {
+        int from = window.getFromSlot() == null ? 0 : Math.min(window.getFromSlot(), view.getRows().size());
+        int to = window.getToSlot() == null ? view.getRows().size() : Math.min(window.getToSlot() + 1, view.getRows().size());
+        view.setRows(new ArrayList<>(view.getRows().subList(from, Math.max(from, to))));
+        view.setHasSafetyWindow(view.getRows().stream().anyMatch(TimeSeriesViewDTO.TimeSeriesRow::isInSafetyWindow));
+        return view;
+    }
 
+    TimeSeriesViewDTO toView(String powerStationName, LocalDate date,
+                             PowerStationDate powerStationDate, List<TimeSeriesVersion> versions) {
         TimeSeriesViewDTO dto = new TimeSeriesViewDTO();
         dto.setPowerStationName(powerStationName);
         dto.setDate(date.toString());
+        dto.setLatestVersion(versions.get(versions.size() - 1).getVersion());
 
-        dto.setVersions(powerStationDate.getVersions().stream()
+        dto.setVersions(versions.stream()
                 .map(v -> {
                     TimeSeriesViewDTO.VersionInfo versionInfo = new TimeSeriesViewDTO.VersionInfo();
                     versionInfo.setVersion(v.getVersion());
@@ -299,8 +684,10 @@ public class TimeSeriesService {
                     return versionInfo;
                 }).toList());
 
-        Duration periodLength = powerStationDate.getVersions().get(0).getPeriod();
+        Duration periodLength = versions.get(0).getPeriod();
         int periodsPerDay = (int) (24 * 60 / periodLength.toMinutes());
+        int safetyWindowSlots = safetyWindowSlots(date, powerStationDate.getZone(), periodLength);
+        dto.setHasSafetyWindow(safetyWindowSlots > 0);
 
         List<TimeSeriesViewDTO.TimeSeriesRow> rows = new ArrayList<>();
         for (int i = 0; i < periodsPerDay; i++) {
@@ -312,15 +699,13 @@ public class TimeSeriesService {
             row.setTimeSlot(String.format("%02d:%02d", hours, minutes));
 
             Map<Integer, Integer> versionValues = new HashMap<>();
-            for (TimeSeriesVersion version : powerStationDate.getVersions()) {
+            for (TimeSeriesVersion version : versions) {
                 if (i < version.getSeries().size()) {
                     versionValues.put(version.getVersion(), version.getSeries().get(i));
                 }
             }
             row.setVersionValues(versionValues);
-
-            LocalDateTime timeSlotDateTime = date.atStartOfDay().plusMinutes(i * periodLength.toMinutes());
-            row.setInSafetyWindow(isInSafetyWindow(timeSlotDateTime, powerStationDate.getZone(), powerStationDate));
+            row.setInSafetyWindow(i < safetyWindowSlots);
 
             rows.add(row);
         }
@@ -329,17 +714,238 @@ public class TimeSeriesService {
         return dto;
     }
 
-    private boolean isInSafetyWindow(LocalDateTime timeSlot, String zoneId, PowerStationDate powerStationDate) {
-        ZoneId zone = ZoneId.of(zoneId);
-        ZonedDateTime zonedTimeSlot = timeSlot.atZone(zone);
+    /**
+     * Same content as {@link #getTimeSeriesView(String, LocalDate)} in the compact
+     * column oriented form.
+     */
+    @Transactional(readOnly = true)
+    public TimeSeriesColumnsDTO getTimeSeriesColumns(String powerStationName, LocalDate date) {
+        PowerStationDate powerStationDate = findResident(powerStationName, date)
+                .or(() -> repository.findByPowerStationNameAndDate(powerStationName, date))
+                .orElseThrow(() -> new IllegalArgumentException("No data found for given power station and date"));
+        return toColumns(powerStationName, date, powerStationDate, loadVersions(powerStationDate));
+    }
+
+    TimeSeriesColumnsDTO toColumns(String powerStationName, LocalDate date,
+                                   PowerStationDate powerStationDate, List<TimeSeriesVersion> versions) {
+        Duration periodLength = versions.get(0).getPeriod();
+        int periodsPerDay = (int) (24 * 60 / periodLength.toMinutes());
+
+        TimeSeriesColumnsDTO.Header header = new TimeSeriesColumnsDTO.Header();
+        header.setPowerStationName(powerStationName);
+        header.setDate(date.toString());
+        header.setPeriodMinutes(periodLength.toMinutes());
+        header.setSlots(periodsPerDay);
+        int safetyWindowSlots = safetyWindowSlots(date, powerStationDate.getZone(), periodLength);
+        if (safetyWindowSlots > 0) {
+            header.setSafetyWindowFromSlot(0);
+            header.setSafetyWindowToSlot(safetyWindowSlots - 1);
+        }
+
+        TimeSeriesColumnsDTO dto = new TimeSeriesColumnsDTO();
+        dto.setHeader(header);
+        dto.setVersions(versions.stream()
+                .map(v -> {
+                    TimeSeriesColumnsDTO.VersionColumn column = new TimeSeriesColumnsDTO.VersionColumn();
+                    column.setVersion(v.getVersion());
+                    column.setTimestamp(v.getTimestamp());
+                    column.setValues(v.getSeries());
+                    return column;
+                }).toList());
+        return dto;
+    }
+
+    /**
+     * Returns the versions added after {@code sinceVersion}, each with only the slots
+     * that differ from its predecessor. Only the new versions and the one they follow
+     * are read, so polling costs grow with the number of changes instead of the
+     * number of stored versions. When a late version has renumbered versions up to
+     * {@code sinceVersion}, the changes start at the first renumbered one instead.
+     */
+    @Transactional(readOnly = true)
+    public TimeSeriesChangesDTO getChangesSince(String powerStationName, LocalDate date, int sinceVersion) {
+        Optional<PowerStationDate> resident = findResident(powerStationName, date);
+        PowerStationDate powerStationDate = resident
+                .or(() -> repository.findByPowerStationPowerStationAndStationDate(powerStationName, date))
+                .orElseThrow(() -> new IllegalArgumentException("No data found for given power station and date"));
+
+        // A reader that is behind the last late insert may hold versions it renumbered, it gets them again
+        Integer rewrittenFrom = powerStationDate.getRewrittenFromVersion();
+        boolean rewritten = rewrittenFrom != null && rewrittenFrom <= sinceVersion
+                && sinceVersion < powerStationDate.getRewrittenLatestVersion();
+        int fromVersion = rewritten ? rewrittenFrom - 1 : sinceVersion;
 
-        ZonedDateTime now = ZonedDateTime.now(zone);
-        Duration actualPeriod = powerStationDate.getVersions().get(0).getPeriod();
-        ZonedDateTime nextPeriodStart = calculateNextPeriodStart(now, (int) actualPeriod.toMinutes());
+        List<TimeSeriesVersion> versions = resident.isPresent() || powerStationDate.hasArchivedVersions()
+                ? loadVersions(powerStationDate).stream().filter(v -> v.getVersion() >= fromVersion).toList()
+                : repository.findVersionsFrom(powerStationDate, fromVersion);
 
-        ZonedDateTime safetyWindowEnd = nextPeriodStart.plusMinutes(safetyWindowMinutes);
+        TimeSeriesChangesDTO dto = new TimeSeriesChangesDTO();
+        dto.setPowerStationName(powerStationName);
+        dto.setDate(date.toString());
+        dto.setSinceVersion(sinceVersion);
+        dto.setLatestVersion(Math.max(sinceVersion,
+                versions.stream().mapToInt(TimeSeriesVersion::getVersion).max().orElse(sinceVersion)));
+        dto.setRewrittenFrom(rewritten ? rewrittenFrom : null);
+
+        List<TimeSeriesChangesDTO.VersionChange> changes = new ArrayList<>();
+        TimeSeriesVersion previous = null;
+        for (TimeSeriesVersion version : versions) {
+            if (version.getVersion() > fromVersion) {
+                changes.add(toVersionChange(version, previous));
+            }
+            previous = version;
+        }
+        dto.setChanges(changes);
+        return dto;
+    }
+
+    private TimeSeriesChangesDTO.VersionChange toVersionChange(TimeSeriesVersion version, TimeSeriesVersion previous) {
+        int from;
+        int count;
+        if (version.getChangedFromSlot() != null && version.getChangedSlotCount() != null) {
+            from = version.getChangedFromSlot();
+            count = version.getChangedSlotCount();
+        } else {
+            // Archived versions and the ones saved before the range was recorded
+            int[] range = changedRange(previous == null ? List.of() : previous.getSeries(), version.getSeries());
+            from = range[0];
+            count = range[1] - range[0];
+        }
+
+        TimeSeriesChangesDTO.VersionChange change = new TimeSeriesChangesDTO.VersionChange();
+        change.setVersion(version.getVersion());
+        change.setTimestamp(version.getTimestamp());
+        change.setFromSlot(from);
+        long minutes = from * version.getPeriod().toMinutes();
+        change.setFromTimeSlot(String.format("%02d:%02d", minutes / 60, minutes % 60));
+        change.setValues(new ArrayList<>(version.getSeries().subList(from, from + count)));
+        return change;
+    }
+
+    /**
+     * Returns the version of the date that was the latest one at {@code asOf}: the
+     * one with the latest timestamp not after it, the higher version number when
+     * timestamps are equal. Dates in the tables are looked up by the
+     * (time_series_id, timestamp) index, resident and archived dates by a binary
+     * search over their version timestamps.
+     */
+    @Transactional(readOnly = true)
+    public TimeSeriesAsOfDTO getTimeSeriesAsOf(String powerStationName, LocalDate date, LocalDateTime asOf) {
+        Optional<PowerStationDate> resident = findResident(powerStationName, date);
+        PowerStationDate powerStationDate = resident
+                .or(() -> repository.findByPowerStationPowerStationAndStationDate(powerStationName, date))
+                .orElseThrow(() -> new IllegalArgumentException("No data found for given power station and date"));
+
+        Optional<TimeSeriesVersion> version = resident.isPresent() || powerStationDate.hasArchivedVersions()
+                ? VersionTimeline.of(loadVersions(powerStationDate)).latestAsOf(asOf)
+                : repository.findLatestAsOf(powerStationDate, asOf);
+        return version
+                .map(v -> toAsOf(powerStationName, date, asOf, v))
+                .orElseThrow(() -> new IllegalArgumentException("No version of " + powerStationName + " on " + date
+                        + " existed at " + asOf));
+    }
+
+    /**
+     * The highest version number of the date, zero when it has none. Compaction keeps
+     * the latest version in the tables, so archived dates need no decoding.
+     */
+    @Transactional(readOnly = true)
+    public int getLatestVersionNumber(String powerStationName, LocalDate date) {
+        Optional<PowerStationDate> resident = findResident(powerStationName, date);
+        if (resident.isPresent()) {
+            List<TimeSeriesVersion> versions = resident.get().getVersions();
+            return versions.isEmpty() ? 0 : versions.get(versions.size() - 1).getVersion();
+        }
+        return repository.findByPowerStationPowerStationAndStationDate(powerStationName, date)
+                .flatMap(repository::findLatestVersionNumber)
+                .orElse(0);
+    }
 
-        return zonedTimeSlot.toLocalDate().equals(now.toLocalDate()) &&
-                !zonedTimeSlot.isAfter(safetyWindowEnd);
+    /**
+     * {@link #getTimeSeriesAsOf(String, LocalDate, LocalDateTime)} for every station
+     * that has a version of the date at {@code asOf}, ordered by station name. The
+     * dates in the tables are read with a single query.
+     */
+    @Transactional(readOnly = true)
+    public List<TimeSeriesAsOfDTO> getTimeSeriesAsOf(LocalDate date, LocalDateTime asOf) {
+        boolean resident = versionStore != null && versionStore.isResident(date);
+        List<TimeSeriesAsOfDTO> result = new ArrayList<>();
+        boolean queryTables = false;
+        for (PowerStationDate powerStationDate : repository.findByStationDateWithPowerStation(date)) {
+            PowerStation powerStation = powerStationDate.getPowerStation();
+            Optional<PowerStationDate> stored = resident
+                    ? versionStore.find(powerStation.getId(), date)
+                    : Optional.empty();
+            if (stored.isEmpty() && !powerStationDate.hasArchivedVersions()) {
+                queryTables = true;
+                continue;
+            }
+            VersionTimeline.of(loadVersions(stored.orElse(powerStationDate))).latestAsOf(asOf)
+                    .ifPresent(v -> result.add(toAsOf(powerStation.getPowerStation(), date, asOf, v)));
+        }
+        if (queryTables) {
+            Set<String> found = result.stream().map(TimeSeriesAsOfDTO::getPowerStationName).collect(Collectors.toSet());
+            // Equal timestamps return several versions of a station, the highest one wins
+            repository.findLatestOfEveryStationAsOf(date, asOf).stream()
+                    .filter(v -> !found.contains(v.getPowerStationDate().getPowerStation().getPowerStation())
+                            && !v.getPowerStationDate().hasArchivedVersions())
+                    .collect(Collectors.toMap(v -> v.getPowerStationDate().getPowerStation().getPowerStation(),
+                            v -> v, (a, b) -> a.getVersion() >= b.getVersion() ? a : b))
+                    .forEach((name, v) -> result.add(toAsOf(name, date, asOf, v)));
+        }
+        result.sort(Comparator.comparing(TimeSeriesAsOfDTO::getPowerStationName));
+        return result;
+    }
+
+    private static TimeSeriesAsOfDTO toAsOf(String powerStationName, LocalDate date, LocalDateTime asOf,
+                                            TimeSeriesVersion version) {
+        TimeSeriesAsOfDTO dto = new TimeSeriesAsOfDTO();
+        dto.setPowerStationName(powerStationName);
+        dto.setDate(date.toString());
+        dto.setAsOf(asOf);
+        dto.setVersion(version.getVersion());
+        dto.setTimestamp(version.getTimestamp());
+        dto.setPeriodMinutes(version.getPeriod().toMinutes());
+        dto.setValues(new ArrayList<>(version.getSeries()));
+        return dto;
+    }
+
+    /**
+     * Returns every version of the date ordered by version number, including the
+     * ones moved to the archive by {@link TimeSeriesCompactionService}.
+     */
+    List<TimeSeriesVersion> loadVersions(PowerStationDate powerStationDate) {
+        if (!powerStationDate.hasArchivedVersions()) {
+            return powerStationDate.getVersions();
+        }
+        List<TimeSeriesVersion> versions = new ArrayList<>(powerStationDate.getVersions());
+        archiveRepository.findByPowerStationDate(powerStationDate)
+                .map(archive -> TimeSeriesArchiveCodec.decode(archive.getData(), powerStationDate.getStationDate()))
+                .ifPresent(versions::addAll);
+        versions.sort(Comparator.comparingInt(TimeSeriesVersion::getVersion));
+        return versions;
+    }
+
+    /**
+     * The number of leading slots of the date that are in the safety window now.
+     * Only today has a window, from midnight to the end of the next period plus the
+     * safety window, so the boundary is computed once per view instead of per slot.
+     */
+    int safetyWindowSlots(LocalDate date, String zoneId, Duration period) {
+        ZoneId zone = ZoneId.of(zoneId);
+        ZonedDateTime now = ZonedDateTime.now(clock.withZone(zone));
+        if (!date.equals(now.toLocalDate())) {
+            return 0;
+        }
+        ZonedDateTime safetyWindowEnd = calculateNextPeriodStart(now, (int) period.toMinutes())
+                .plusMinutes(safetyWindowMinutes);
+
+        int periodsPerDay = (int) (24 * 60 / period.toMinutes());
+        int slots = 0;
+        while (slots < periodsPerDay
+                && !date.atStartOfDay().plus(period.multipliedBy(slots)).atZone(zone).isAfter(safetyWindowEnd)) {
+            slots++;
+        }
+        return slots;
     }
 }
\ No newline at end of file
@@ -0,0 +1,142 @@
+package com.reg.time_series.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reg.time_series.entity.PowerStationDate;
+import com.reg.time_series.entity.TimeSeriesVersion;
+import com.reg.time_series.model.TimeSeriesData;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the parse, merge and view code paths on synthetic data before the
+ * application reports readiness, so that the first requests after a deploy do
+ * not pay for cold Jackson serializers, Hibernate query plans and interpreted code.
+ * <p>
+ * Application runners complete before Spring Boot switches the readiness state to
+ * accepting traffic. Nothing is written: the only database access is a view query
+ * for a station that does not exist.
+ * <p>
+ * The warmup runs in rounds until a round is within {@link #STEADY_STATE_TOLERANCE}
+ * of the previous one, or {@code time-series.warmup.max-rounds} is reached.
+ */
+@Log4j2
+@Component
+public class TimeSeriesWarmup implements ApplicationRunner {
+    private static final String WARMUP_STATION = "__warmup__";
+    private static final double STEADY_STATE_TOLERANCE = 0.1;
+    private static final int VERSIONS = 8;
+    private static final Duration PERIOD = Duration.ofMinutes(15);
+
+    private final TimeSeriesService timeSeriesService;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int maxRounds;
+    private final int iterationsPerRound;
+
+    public TimeSeriesWarmup(TimeSeriesService timeSeriesService,
+                            ObjectMapper objectMapper,
+                            @Value("${time-series.warmup.enabled}") boolean enabled,
+                            @Value("${time-series.warmup.max-rounds}") int maxRounds,
+                            @Value("${time-series.warmup.iterations-per-round}") int iterationsPerRound) {
+        this.timeSeriesService = timeSeriesService;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxRounds = maxRounds;
+        this.iterationsPerRound = iterationsPerRound;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        LocalDate date = LocalDate.now();
+        byte[] json = objectMapper.writeValueAsBytes(syntheticData(date, 0));
+        PowerStationDate powerStationDate = syntheticPowerStationDate(date);
+
+        try {
+            timeSeriesService.getTimeSeriesView(WARMUP_STATION, date);
+        } catch (IllegalArgumentException expected) {
+            // The station does not exist, the query plan and the connection pool are warm
+        } catch (DataAccessException e) {
+            log.warn("Warmup query failed, continuing without it: {}", e.getMessage());
+        }
+
+        long start = System.nanoTime();
+        long firstRound = 0;
+        long previousRound = Long.MAX_VALUE;
+        long round = 0;
+        int rounds = 0;
+        while (rounds < maxRounds) {
+            long roundStart = System.nanoTime();
+            for (int i = 0; i < iterationsPerRound; i++) {
+                iteration(json, powerStationDate, date);
+            }
+            round = System.nanoTime() - roundStart;
+            rounds++;
+            if (rounds == 1) {
+                firstRound = round;
+            }
+            if (Math.abs(round - previousRound) <= previousRound * STEADY_STATE_TOLERANCE) {
+                break;
+            }
+            previousRound = round;
+        }
+        log.info("Warmup finished after {} rounds of {} iterations in {} ms, first round {} us, last round {} us, "
+                        + "JVM uptime {} ms",
+                rounds, iterationsPerRound, (System.nanoTime() - start) / 1_000_000,
+                firstRound / 1_000, round / 1_000, ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    private void iteration(byte[] json, PowerStationDate powerStationDate, LocalDate date) throws IOException {
+        TimeSeriesData data = objectMapper.readValue(json, TimeSeriesData.class);
+        List<TimeSeriesVersion> versions = powerStationDate.getVersions();
+        List<Integer> previousSeries = versions.get(versions.size() - 1).getSeries();
+        List<Integer> merged = timeSeriesService.mergeDifferentPeriodSeries(previousSeries, data.getSeries(),
+                PERIOD, PERIOD, data.getTimestamp().plusMinutes(90), date);
+        TimeSeriesService.changedRange(previousSeries, merged);
+
+        objectMapper.writeValueAsBytes(timeSeriesService.toView(WARMUP_STATION, date, powerStationDate, versions));
+        objectMapper.writeValueAsBytes(timeSeriesService.toColumns(WARMUP_STATION, date, powerStationDate, versions));
+    }
+
+    private static TimeSeriesData syntheticData(LocalDate date, int offset) {
+        TimeSeriesData data = new TimeSeriesData();
+        data.setPowerStation(WARMUP_STATION);
+        data.setDate(date);
+        data.setZone("Europe/Budapest");
+        data.setTimestamp(date.atTime(10, 0));
+        data.setPeriod(PERIOD.toString());
+        data.setSeries(IntStream.range(0, 96).map(slot -> slot * 10 + offset).boxed().toList());
+        return data;
+    }
+
+    private static PowerStationDate syntheticPowerStationDate(LocalDate date) {
+        PowerStationDate powerStationDate = new PowerStationDate();
+        powerStationDate.setStationDate(date);
+        powerStationDate.setZone("Europe/Budapest");
+        List<TimeSeriesVersion> versions = new ArrayList<>();
+        for (int v = 1; v <= VERSIONS; v++) {
+            TimeSeriesVersion version = new TimeSeriesVersion();
+            version.setVersion(v);
+            version.setTimestamp(date.atStartOfDay().plusHours(v));
+            version.setPeriod(PERIOD);
+            version.setSeries(syntheticData(date, v).getSeries());
+            versions.add(version);
+        }
+        powerStationDate.setVersions(versions);
+        return powerStationDate;
+    }
+}
@@ -0,0 +1,107 @@
+package com.reg.time_series.service;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link SeriesKernels} on the incubating Vector API, using the widest vector
+ * shape of the CPU. Full vectors are processed without masks, only the tail of
+ * a series that does not fill a vector uses masked loads and stores. Only loaded
+ * reflectively by {@link SeriesKernels#get()}.
+ */
+final class VectorSeriesKernels implements SeriesKernels {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final IntVector IOTA = IntVector.zero(SPECIES).addIndex(1);
+
+    @Override
+    public void mergeFrom(int[] previous, int[] next, int from, int[] out) {
+        int bound = SPECIES.loopBound(out.length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            VectorMask<Integer> fromNext = IOTA.add(i).compare(VectorOperators.GE, from);
+            IntVector.fromArray(SPECIES, previous, i)
+                    .blend(IntVector.fromArray(SPECIES, next, i), fromNext)
+                    .intoArray(out, i);
+        }
+        if (i < out.length) {
+            VectorMask<Integer> inRange = SPECIES.indexInRange(i, out.length);
+            VectorMask<Integer> fromNext = IOTA.add(i).compare(VectorOperators.GE, from);
+            IntVector.fromArray(SPECIES, previous, i, inRange)
+                    .blend(IntVector.fromArray(SPECIES, next, i, inRange), fromNext)
+                    .intoArray(out, i, inRange);
+        }
+    }
+
+    @Override
+    public int[] sum(int[][] series, int length) {
+        int[] result = new int[length];
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            IntVector accumulator = IntVector.zero(SPECIES);
+            for (int[] values : series) {
+                accumulator = accumulator.add(IntVector.fromArray(SPECIES, values, i));
+            }
+            accumulator.intoArray(result, i);
+        }
+        if (i < length) {
+            VectorMask<Integer> inRange = SPECIES.indexInRange(i, length);
+            IntVector accumulator = IntVector.zero(SPECIES);
+            for (int[] values : series) {
+                accumulator = accumulator.add(IntVector.fromArray(SPECIES, values, i, inRange));
+            }
+            accumulator.intoArray(result, i, inRange);
+        }
+        return result;
+    }
+
+    @Override
+    public int[] max(int[][] series, int length) {
+        int[] result = new int[length];
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            IntVector accumulator = IntVector.broadcast(SPECIES, Integer.MIN_VALUE);
+            for (int[] values : series) {
+                accumulator = accumulator.max(IntVector.fromArray(SPECIES, values, i));
+            }
+            accumulator.intoArray(result, i);
+        }
+        if (i < length) {
+            VectorMask<Integer> inRange = SPECIES.indexInRange(i, length);
+            IntVector accumulator = IntVector.broadcast(SPECIES, Integer.MIN_VALUE);
+            for (int[] values : series) {
+                accumulator = accumulator.max(IntVector.fromArray(SPECIES, values, i, inRange));
+            }
+            accumulator.intoArray(result, i, inRange);
+        }
+        return result;
+    }
+
+    @Override
+    public int[] blockSum(int[] series, int blockSize) {
+        int[] result = new int[(series.length + blockSize - 1) / blockSize];
+        for (int block = 0; block < result.length; block++) {
+            int start = block * blockSize;
+            int end = Math.min(start + blockSize, series.length);
+            int fullEnd = start + SPECIES.loopBound(end - start);
+            IntVector accumulator = IntVector.zero(SPECIES);
+            int i = start;
+            for (; i < fullEnd; i += SPECIES.length()) {
+                accumulator = accumulator.add(IntVector.fromArray(SPECIES, series, i));
+            }
+            if (i < end) {
+                accumulator = accumulator.add(IntVector.fromArray(SPECIES, series, i, SPECIES.indexInRange(i, end)));
+            }
+            result[block] = accumulator.reduceLanes(VectorOperators.ADD);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "vector " + SPECIES;
+    }
+}
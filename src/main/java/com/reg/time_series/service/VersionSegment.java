@@ -0,0 +1,322 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.PowerStationDate;
+import com.reg.time_series.entity.TimeSeriesVersion;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file with the versions of every station on one date, mapped into
+ * memory. Records are never moved; rolled back versions are only marked.
+ * <pre>
+ * record:  status int | payload length int | CRC32 of the payload int | payload
+ * payload: station id long | version int | epoch second long | nano int | period seconds long |
+ *          changed from slot int | changed slot count int | zone length int | zone (UTF-8) |
+ *          slots int | values int...
+ * </pre>
+ * The status is written last, a zero status ends the data and the rest of the
+ * file is preallocated space. Opening an existing file rebuilds the index of
+ * (station id, version) to record offsets; a record with a bad checksum ends the
+ * data and is cleared together with everything after it, versions that were
+ * still pending are marked aborted.
+ */
+@Log4j2
+final class VersionSegment {
+    static final int PENDING = 1;
+    static final int COMMITTED = 2;
+    static final int ABORTED = 3;
+    static final int NO_VALUE = Integer.MIN_VALUE;
+    private static final int RECORD_HEADER = 12;
+    private static final int INITIAL_CAPACITY = 1 << 20;
+
+    private final Path file;
+    private final LocalDate date;
+    // Guarded by this, readers keep the buffer they got even after a remap
+    private ByteBuffer mapping;
+    private int end;
+    private final Map<Long, StationIndex> stations = new HashMap<>();
+
+    private VersionSegment(Path file, LocalDate date) {
+        this.file = file;
+        this.date = date;
+    }
+
+    /**
+     * Opens the segment of {@code date}, null when it has no file and {@code create}
+     * is false.
+     */
+    static VersionSegment open(Path directory, LocalDate date, boolean create) {
+        Path file = directory.resolve(date + ".seg");
+        try {
+            boolean exists = Files.exists(file);
+            if (!exists && !create) {
+                return null;
+            }
+            VersionSegment segment = new VersionSegment(file, date);
+            segment.map(exists ? Math.max(Files.size(file), RECORD_HEADER) : INITIAL_CAPACITY);
+            if (exists) {
+                segment.recover();
+            }
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open segment " + file, e);
+        }
+    }
+
+    synchronized boolean contains(long stationId) {
+        return stations.containsKey(stationId);
+    }
+
+    synchronized int size() {
+        return end;
+    }
+
+    /**
+     * The latest committed version of the station, pending ones may still be aborted.
+     */
+    synchronized Optional<TimeSeriesVersion> latestCommitted(long stationId) {
+        StationIndex index = stations.get(stationId);
+        if (index == null) {
+            return Optional.empty();
+        }
+        for (int i = index.count - 1; i >= 0; i--) {
+            if (mapping.getInt(index.offsets[i]) == COMMITTED) {
+                return Optional.of(read(mapping, index.offsets[i]));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The committed versions of the station, their series read straight from the mapping.
+     */
+    synchronized Optional<PowerStationDate> find(long stationId) {
+        StationIndex index = stations.get(stationId);
+        if (index == null) {
+            return Optional.empty();
+        }
+        List<TimeSeriesVersion> versions = new ArrayList<>(index.count);
+        for (int i = 0; i < index.count; i++) {
+            if (mapping.getInt(index.offsets[i]) == COMMITTED) {
+                versions.add(read(mapping, index.offsets[i]));
+            }
+        }
+        if (versions.isEmpty()) {
+            return Optional.empty();
+        }
+        PowerStationDate powerStationDate = new PowerStationDate();
+        powerStationDate.setStationDate(date);
+        powerStationDate.setZone(index.zone);
+        powerStationDate.setVersions(versions);
+        return Optional.of(powerStationDate);
+    }
+
+    /**
+     * Registers a station without versions, so that its versions are not loaded again.
+     */
+    synchronized void addStation(long stationId, String zone) {
+        stations.computeIfAbsent(stationId, id -> new StationIndex()).zone = zone;
+    }
+
+    /**
+     * Appends a version and returns the offset of its record.
+     */
+    synchronized int append(long stationId, String zone, TimeSeriesVersion version, int status) {
+        byte[] zoneBytes = zone.getBytes(StandardCharsets.UTF_8);
+        List<Integer> values = version.getSeries();
+        int length = 8 + 4 + 8 + 4 + 8 + 4 + 4 + 4 + zoneBytes.length + 4 + 4 * values.size();
+        ensureCapacity(end + RECORD_HEADER + length + 4);
+
+        int offset = end;
+        int position = offset + RECORD_HEADER;
+        mapping.putLong(position, stationId);
+        mapping.putInt(position + 8, version.getVersion());
+        mapping.putLong(position + 12, version.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+        mapping.putInt(position + 20, version.getTimestamp().getNano());
+        mapping.putLong(position + 24, version.getPeriod().getSeconds());
+        mapping.putInt(position + 32, version.getChangedFromSlot() == null ? -1 : version.getChangedFromSlot());
+        mapping.putInt(position + 36, version.getChangedSlotCount() == null ? -1 : version.getChangedSlotCount());
+        mapping.putInt(position + 40, zoneBytes.length);
+        mapping.put(position + 44, zoneBytes);
+        position += 44 + zoneBytes.length;
+        mapping.putInt(position, values.size());
+        position += 4;
+        for (Integer value : values) {
+            mapping.putInt(position, value == null ? NO_VALUE : value);
+            position += 4;
+        }
+        mapping.putInt(offset + 4, length);
+        mapping.putInt(offset + 8, checksum(mapping, offset + RECORD_HEADER, length));
+        mapping.putInt(offset, status);
+        end = offset + RECORD_HEADER + length;
+
+        StationIndex index = stations.computeIfAbsent(stationId, id -> new StationIndex());
+        index.zone = zone;
+        index.add(offset);
+        return offset;
+    }
+
+    /**
+     * Commits or aborts a pending record; an aborted one leaves the index.
+     */
+    synchronized void setStatus(int offset, int status, boolean force) {
+        mapping.putInt(offset, status);
+        if (status == ABORTED) {
+            long stationId = mapping.getLong(offset + RECORD_HEADER);
+            Optional.ofNullable(stations.get(stationId)).ifPresent(index -> index.remove(offset));
+        }
+        if (force && mapping instanceof MappedByteBuffer mapped) {
+            mapped.force(offset, RECORD_HEADER + mapping.getInt(offset + 4));
+        }
+    }
+
+    private void recover() {
+        int offset = 0;
+        int aborted = 0;
+        boolean torn = false;
+        while (offset + RECORD_HEADER <= mapping.capacity()) {
+            int status = mapping.getInt(offset);
+            if (status == 0) {
+                break;
+            }
+            int length = mapping.getInt(offset + 4);
+            if (status > ABORTED || length <= 0 || length > mapping.capacity() - offset - RECORD_HEADER
+                    || checksum(mapping, offset + RECORD_HEADER, length) != mapping.getInt(offset + 8)) {
+                torn = true;
+                break;
+            }
+            if (status == PENDING) {
+                mapping.putInt(offset, ABORTED);
+                aborted++;
+            } else if (status == COMMITTED) {
+                long stationId = mapping.getLong(offset + RECORD_HEADER);
+                int zoneLength = mapping.getInt(offset + RECORD_HEADER + 40);
+                byte[] zone = new byte[zoneLength];
+                mapping.get(offset + RECORD_HEADER + 44, zone);
+                StationIndex index = stations.computeIfAbsent(stationId, id -> new StationIndex());
+                index.zone = new String(zone, StandardCharsets.UTF_8);
+                index.add(offset);
+            }
+            offset += RECORD_HEADER + length;
+        }
+        end = offset;
+        if (torn) {
+            for (int i = offset; i < mapping.capacity(); i++) {
+                mapping.put(i, (byte) 0);
+            }
+        }
+        if (torn || aborted > 0) {
+            log.warn("Recovered segment {}: {} bytes kept, {} pending versions aborted, torn tail {}",
+                    file, end, aborted, torn);
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > mapping.capacity()) {
+            try {
+                map(Math.max((long) mapping.capacity() * 2, required));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot grow segment " + file, e);
+            }
+        }
+    }
+
+    // The file descriptor is only needed to create the mapping
+    private void map(long capacity) throws IOException {
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Segment " + file + " is full");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private TimeSeriesVersion read(ByteBuffer buffer, int offset) {
+        int position = offset + RECORD_HEADER;
+        TimeSeriesVersion version = new TimeSeriesVersion();
+        version.setStationDate(date);
+        version.setVersion(buffer.getInt(position + 8));
+        version.setTimestamp(LocalDateTime.ofEpochSecond(buffer.getLong(position + 12), buffer.getInt(position + 20), ZoneOffset.UTC));
+        version.setPeriod(Duration.ofSeconds(buffer.getLong(position + 24)));
+        int changedFromSlot = buffer.getInt(position + 32);
+        int changedSlotCount = buffer.getInt(position + 36);
+        version.setChangedFromSlot(changedFromSlot < 0 ? null : changedFromSlot);
+        version.setChangedSlotCount(changedSlotCount < 0 ? null : changedSlotCount);
+        position += 44 + buffer.getInt(position + 40);
+        version.setSeries(new MappedSeries(buffer, position + 4, buffer.getInt(position)));
+        return version;
+    }
+
+    /**
+     * Read-only view of the values of a record in the mapping.
+     */
+    static final class MappedSeries extends AbstractList<Integer> implements RandomAccess {
+        private final ByteBuffer buffer;
+        private final int base;
+        private final int size;
+
+        MappedSeries(ByteBuffer buffer, int base, int size) {
+            this.buffer = buffer;
+            this.base = base;
+            this.size = size;
+        }
+
+        @Override
+        public Integer get(int index) {
+            int value = buffer.getInt(base + 4 * Objects.checkIndex(index, size));
+            return value == NO_VALUE ? null : value;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    // Record offsets of a station in version order
+    private static final class StationIndex {
+        String zone;
+        int count;
+        int[] offsets = new int[8];
+
+        void add(int offset) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = offset;
+        }
+
+        void remove(int offset) {
+            for (int i = count - 1; i >= 0; i--) {
+                if (offsets[i] == offset) {
+                    System.arraycopy(offsets, i + 1, offsets, i, count - i - 1);
+                    count--;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.PowerStationDate;
+import com.reg.time_series.entity.TimeSeriesVersion;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Storage of the versions of the dates that {@link TimeSeriesService} does not
+ * keep in the version tables, selected with {@code time-series.store}. Stations
+ * and dates stay in the database.
+ */
+public interface VersionStore {
+
+    /**
+     * Whether the versions of {@code date} are saved to this store.
+     */
+    boolean isResident(LocalDate date);
+
+    /**
+     * Whether a version is durable once it is in this store. Otherwise the store
+     * writes it to the tables through the {@code durableWrite} of
+     * {@link #append}, and the date row is created there.
+     */
+    boolean isDurable();
+
+    /**
+     * Returns the date as a {@link PowerStationDate} that is not managed by JPA,
+     * with every version ordered by version number. Empty when the store holds no
+     * version of the date.
+     */
+    Optional<PowerStationDate> find(long stationId, LocalDate date);
+
+    /**
+     * Appends the next version of a date. The version is kept when the current
+     * transaction commits and dropped when it rolls back.
+     *
+     * @param loader       the date with all of its versions from the tables, read the
+     *                     first time the store sees the date; null when it does not exist
+     * @param nextVersion  builds the new version from the latest one, may throw to refuse it
+     * @param durableWrite writes a copy of the new version to the tables after the
+     *                     commit, only used when the store is not durable
+     * @return the new version
+     */
+    TimeSeriesVersion append(long stationId, LocalDate date, String zone,
+                             Supplier<PowerStationDate> loader,
+                             Function<Optional<TimeSeriesVersion>, TimeSeriesVersion> nextVersion,
+                             Consumer<TimeSeriesVersion> durableWrite);
+
+    /**
+     * Locks the dates that the current transaction is going to append to, in the
+     * same order in every transaction, until it completes. Called before a batch of
+     * saves so that two batches cannot wait for each other's dates in a cycle.
+     *
+     * @param dates the dates of every station id
+     */
+    void lockDates(Map<Long, ? extends Collection<LocalDate>> dates);
+}
@@ -0,0 +1,59 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.TimeSeriesVersion;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The versions of a date ordered by timestamp, equal timestamps by version
+ * number, for point-in-time lookups by binary search over the timestamps.
+ */
+final class VersionTimeline {
+    private final long[] timestamps;
+    private final TimeSeriesVersion[] versions;
+
+    private VersionTimeline(List<TimeSeriesVersion> versions) {
+        this.versions = versions.toArray(TimeSeriesVersion[]::new);
+        Arrays.sort(this.versions, Comparator.comparing(TimeSeriesVersion::getTimestamp)
+                .thenComparingInt(TimeSeriesVersion::getVersion));
+        this.timestamps = new long[this.versions.length];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = key(this.versions[i].getTimestamp());
+        }
+    }
+
+    static VersionTimeline of(List<TimeSeriesVersion> versions) {
+        return new VersionTimeline(versions);
+    }
+
+    /**
+     * The version with the latest timestamp at or before {@code asOf}, empty when
+     * every version is newer.
+     */
+    Optional<TimeSeriesVersion> latestAsOf(LocalDateTime asOf) {
+        long key = key(asOf);
+        int low = 0;
+        int high = timestamps.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] <= key) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found < 0 ? Optional.empty() : Optional.of(versions[found]);
+    }
+
+    // Nanoseconds of the local time, exact until the year 2262
+    private static long key(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + timestamp.getNano();
+    }
+}
@@ -0,0 +1,259 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.TimeSeriesVersion;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append only log of the versions that {@link WriteBehindVersionStore} accepted
+ * but has not written to the tables yet. The log is a sequence of generation
+ * files; {@link #rotate()} starts a new one and a file is deleted once every
+ * version in it is written to the tables.
+ * <p>
+ * A record is its length and CRC32C followed by the station id, date, zone and
+ * version with its values. Reading stops at the first record that is cut short
+ * or does not match its checksum, which is where a crash interrupted the write.
+ */
+@Log4j2
+final class WriteBehindLog implements Closeable {
+    private static final String SUFFIX = ".log";
+    private static final int FRAME_BYTES = 4 + 4;
+    private static final int NO_VALUE = Integer.MIN_VALUE;
+
+    private final Path directory;
+    private final boolean force;
+    // Versions not yet written to the tables per generation
+    private final Map<Long, Integer> unwritten = new HashMap<>();
+    private FileChannel channel;
+    private long generation;
+    private boolean appended;
+
+    /**
+     * An entry of the log, with the generation of the file it is in.
+     */
+    record Entry(long generation, long stationId, LocalDate date, String zone, TimeSeriesVersion version) {
+    }
+
+    WriteBehindLog(Path directory, boolean force) {
+        this.directory = directory;
+        this.force = force;
+        try {
+            Files.createDirectories(directory);
+            generation = generations().stream().mapToLong(Long::longValue).max().orElse(0) + 1;
+            channel = open(generation);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the write-behind log in " + directory, e);
+        }
+    }
+
+    /**
+     * The entries of the generations before this log was opened, in the order they
+     * were appended. They count as unwritten until {@link #written} is called.
+     */
+    synchronized List<Entry> recover() {
+        List<Entry> entries = new ArrayList<>();
+        for (long previous : generations()) {
+            if (previous == generation) {
+                continue;
+            }
+            int count = read(previous, entries);
+            if (count == 0) {
+                delete(previous);
+            } else {
+                unwritten.put(previous, count);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Appends a version and returns the generation it is in. Forced to the disk
+     * before returning when the log was opened with {@code force}.
+     */
+    synchronized long append(long stationId, LocalDate date, String zone, TimeSeriesVersion version) {
+        ByteBuffer record = encode(stationId, date, zone, version);
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to the write-behind log", e);
+        }
+        unwritten.merge(generation, 1, Integer::sum);
+        appended = true;
+        return generation;
+    }
+
+    /**
+     * Continues in a new file when the current one has entries, so that the
+     * entries appended so far can be deleted without waiting for later ones.
+     */
+    synchronized void rotate() {
+        if (!appended) {
+            return;
+        }
+        try {
+            channel.close();
+            channel = open(++generation);
+            appended = false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot rotate the write-behind log", e);
+        }
+        if (!unwritten.containsKey(generation - 1)) {
+            delete(generation - 1);
+        }
+    }
+
+    /**
+     * Marks {@code count} entries of a generation as written to the tables and
+     * deletes its file when none is left.
+     */
+    synchronized void written(long entryGeneration, int count) {
+        Integer left = unwritten.computeIfPresent(entryGeneration, (g, n) -> n - count > 0 ? n - count : null);
+        if (left == null && entryGeneration != generation) {
+            delete(entryGeneration);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+        if (!unwritten.containsKey(generation)) {
+            delete(generation);
+        }
+    }
+
+    private FileChannel open(long fileGeneration) throws IOException {
+        return FileChannel.open(file(fileGeneration),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private int read(long fileGeneration, List<Entry> entries) {
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file(fileGeneration)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the write-behind log " + file(fileGeneration), e);
+        }
+        int count = 0;
+        while (buffer.remaining() >= FRAME_BYTES) {
+            int length = buffer.getInt(buffer.position());
+            int checksum = buffer.getInt(buffer.position() + 4);
+            if (length <= 0 || length > buffer.remaining() - FRAME_BYTES) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice(buffer.position() + FRAME_BYTES, length);
+            CRC32C crc = new CRC32C();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            entries.add(decode(fileGeneration, payload));
+            buffer.position(buffer.position() + FRAME_BYTES + length);
+            count++;
+        }
+        if (buffer.hasRemaining()) {
+            log.warn("Ignored {} bytes of an unfinished record at the end of {}",
+                    buffer.remaining(), file(fileGeneration));
+        }
+        return count;
+    }
+
+    private static ByteBuffer encode(long stationId, LocalDate date, String zone, TimeSeriesVersion version) {
+        byte[] zoneBytes = zone.getBytes(StandardCharsets.UTF_8);
+        List<Integer> values = version.getSeries();
+        int length = 8 + 8 + 2 + zoneBytes.length + 4 + 8 + 4 + 8 + 4 + 4 + 4 + 4 * values.size();
+        ByteBuffer record = ByteBuffer.allocate(FRAME_BYTES + length);
+        record.position(FRAME_BYTES);
+        record.putLong(stationId);
+        record.putLong(date.toEpochDay());
+        record.putShort((short) zoneBytes.length);
+        record.put(zoneBytes);
+        record.putInt(version.getVersion());
+        record.putLong(version.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+        record.putInt(version.getTimestamp().getNano());
+        record.putLong(version.getPeriod().getSeconds());
+        record.putInt(version.getChangedFromSlot() == null ? -1 : version.getChangedFromSlot());
+        record.putInt(version.getChangedSlotCount() == null ? -1 : version.getChangedSlotCount());
+        record.putInt(values.size());
+        for (Integer value : values) {
+            record.putInt(value == null ? NO_VALUE : value);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), FRAME_BYTES, length);
+        record.putInt(0, length);
+        record.putInt(4, (int) crc.getValue());
+        return record.flip();
+    }
+
+    private static Entry decode(long fileGeneration, ByteBuffer payload) {
+        long stationId = payload.getLong();
+        LocalDate date = LocalDate.ofEpochDay(payload.getLong());
+        byte[] zoneBytes = new byte[payload.getShort()];
+        payload.get(zoneBytes);
+        TimeSeriesVersion version = new TimeSeriesVersion();
+        version.setStationDate(date);
+        version.setVersion(payload.getInt());
+        long epochSecond = payload.getLong();
+        version.setTimestamp(LocalDateTime.ofEpochSecond(epochSecond, payload.getInt(), ZoneOffset.UTC));
+        version.setPeriod(Duration.ofSeconds(payload.getLong()));
+        int changedFromSlot = payload.getInt();
+        int changedSlotCount = payload.getInt();
+        version.setChangedFromSlot(changedFromSlot < 0 ? null : changedFromSlot);
+        version.setChangedSlotCount(changedSlotCount < 0 ? null : changedSlotCount);
+        int slots = payload.getInt();
+        List<Integer> values = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            int value = payload.getInt();
+            values.add(value == NO_VALUE ? null : value);
+        }
+        version.setSeries(values);
+        return new Entry(fileGeneration, stationId, date, new String(zoneBytes, StandardCharsets.UTF_8), version);
+    }
+
+    private List<Long> generations() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list the write-behind log in " + directory, e);
+        }
+    }
+
+    private void delete(long fileGeneration) {
+        try {
+            Files.deleteIfExists(file(fileGeneration));
+        } catch (IOException e) {
+            log.warn("Cannot delete the written write-behind log {}", file(fileGeneration), e);
+        }
+    }
+
+    private Path file(long fileGeneration) {
+        return directory.resolve(String.format("%012d%s", fileGeneration, SUFFIX));
+    }
+}
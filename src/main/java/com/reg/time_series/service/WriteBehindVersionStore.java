@@ -0,0 +1,474 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.PowerStationDate;
+import com.reg.time_series.entity.TimeSeriesVersion;
+import com.reg.time_series.repositories.PowerStationRepository;
+import com.reg.time_series.repositories.TimeSeriesRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Accepts the versions of the recent dates in memory and writes them to the
+ * tables in batches. Enabled with {@code time-series.store=write-behind}.
+ * <p>
+ * Every (station id, date) holds an immutable list of its committed versions.
+ * Saves of the same date are serialized by {@link DateLocks} until their
+ * transaction completes; saves of different dates only wait for each other when
+ * their dates share one of the striped locks. A save merges on top of the latest
+ * committed version, or of its own one when its transaction saved the date
+ * before, and keeps the new version to itself. A date becomes resident on its
+ * first save within {@code resident-days}, with the versions read from the
+ * database, and is evicted once it falls out of that window and all of its
+ * versions are written.
+ * <p>
+ * When the transaction of a save commits, its versions are appended to the
+ * {@link WriteBehindLog} and then published, before the save returns; a rolled
+ * back save leaves nothing behind. A single flusher writes the logged versions
+ * to the tables every {@code flush-ms}, or as soon as {@code batch-size} are
+ * waiting, in one transaction per batch. The versions of a failed batch stay in the log and are
+ * written by the next flush. At startup the versions left in the log are written
+ * before the first save. A version already in the tables is skipped, so writing
+ * a log entry twice is harmless. Readers of this store see a version as soon as
+ * the save returns, until the date is evicted after the version was written.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "time-series.store", havingValue = "write-behind")
+public class WriteBehindVersionStore implements VersionStore {
+    private static final Versions RELEASED = new Versions(null, new TimeSeriesVersion[0]);
+
+    private final TimeSeriesRepository repository;
+    private final PowerStationRepository powerStationRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final WriteBehindLog writeBehindLog;
+    private final int batchSize;
+    private final int residentDays;
+    private final Map<Key, DateVersions> dates = new ConcurrentHashMap<>();
+    private final DateLocks locks = new DateLocks();
+    private final Deque<Logged> queue = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+
+    public WriteBehindVersionStore(TimeSeriesRepository repository,
+                                   PowerStationRepository powerStationRepository,
+                                   EntityManager entityManager,
+                                   PlatformTransactionManager transactionManager,
+                                   Clock clock,
+                                   @Value("${time-series.write-behind.directory}") Path directory,
+                                   @Value("${time-series.write-behind.force}") boolean force,
+                                   @Value("${time-series.write-behind.flush-ms}") long flushMs,
+                                   @Value("${time-series.write-behind.batch-size}") int batchSize,
+                                   @Value("${time-series.write-behind.resident-days}") int residentDays) {
+        this.repository = repository;
+        this.powerStationRepository = powerStationRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.writeBehindLog = new WriteBehindLog(directory, force);
+        this.batchSize = batchSize;
+        this.residentDays = residentDays;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQueued, flushMs, flushMs, TimeUnit.MILLISECONDS);
+        log.info("Write-behind store logging to {}, flushed every {} ms or {} versions, {} resident days",
+                directory.toAbsolutePath(), flushMs, batchSize, residentDays);
+    }
+
+    /**
+     * Writes the versions left in the log by the previous run to the tables.
+     */
+    @PostConstruct
+    public void recover() {
+        List<WriteBehindLog.Entry> entries = writeBehindLog.recover();
+        if (entries.isEmpty()) {
+            return;
+        }
+        for (int from = 0; from < entries.size(); from += batchSize) {
+            List<Logged> batch = entries.subList(from, Math.min(from + batchSize, entries.size())).stream()
+                    .map(entry -> new Logged(new Key(entry.stationId(), entry.date().toEpochDay()), null,
+                            entry.version(), entry.generation()))
+                    .toList();
+            transactionTemplate.executeWithoutResult(status -> writeVersions(batch));
+            batch.forEach(logged -> writeBehindLog.written(logged.generation(), 1));
+        }
+        log.info("Wrote {} versions left in the write-behind log to the tables", entries.size());
+    }
+
+    @Override
+    public boolean isResident(LocalDate date) {
+        return !date.isBefore(LocalDate.now(clock).minusDays(residentDays - 1L));
+    }
+
+    // Durable in the log once the save commits
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    // Empty when the date has not been saved since it became resident
+    @Override
+    public Optional<PowerStationDate> find(long stationId, LocalDate date) {
+        DateVersions dateVersions = dates.get(new Key(stationId, date.toEpochDay()));
+        Versions versions = dateVersions == null ? RELEASED : dateVersions.versions.get();
+        if (versions == RELEASED || versions.versions().length == 0) {
+            return Optional.empty();
+        }
+        PowerStationDate powerStationDate = new PowerStationDate();
+        powerStationDate.setStationDate(date);
+        powerStationDate.setZone(versions.zone());
+        List<TimeSeriesVersion> copies = new ArrayList<>(versions.versions().length);
+        for (TimeSeriesVersion version : versions.versions()) {
+            copies.add(copy(version));
+        }
+        powerStationDate.setVersions(copies);
+        return Optional.of(powerStationDate);
+    }
+
+    // The durable write is not used, the flusher writes the tables itself
+    @Override
+    public TimeSeriesVersion append(long stationId, LocalDate date, String zone,
+                                    Supplier<PowerStationDate> loader,
+                                    Function<Optional<TimeSeriesVersion>, TimeSeriesVersion> nextVersion,
+                                    Consumer<TimeSeriesVersion> durableWrite) {
+        Key key = new Key(stationId, date.toEpochDay());
+        ReentrantLock lock = locks.lock(stationId, date);
+        boolean staged = false;
+        try {
+            // The eviction takes the lock as well, a resident date stays while it is held
+            DateVersions dateVersions = dates.get(key);
+            if (dateVersions == null) {
+                dateVersions = load(key, date, zone, loader);
+                dates.put(key, dateVersions);
+            }
+            List<Append> transactionAppends = transactionAppends();
+            TimeSeriesVersion version = nextVersion.apply(latest(key, dateVersions, transactionAppends)
+                    .map(WriteBehindVersionStore::copy));
+            Append append = new Append(key, dateVersions, zone, copy(version), lock);
+            dateVersions.unwritten.incrementAndGet();
+            if (transactionAppends == null) {
+                commit(List.of(append));
+            } else {
+                transactionAppends.add(append);
+                staged = true;
+            }
+            return version;
+        } finally {
+            // A staged version keeps the lock until its transaction completes
+            if (!staged) {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void lockDates(Map<Long, ? extends Collection<LocalDate>> dates) {
+        locks.lockInOrder(dates);
+    }
+
+    public int residentDates() {
+        return dates.size();
+    }
+
+    // Versions accepted but not yet written to the tables
+    public int pendingWrites() {
+        return queued.get();
+    }
+
+    /**
+     * Waits until the versions logged so far are written to the tables.
+     */
+    public void flush() {
+        try {
+            flusher.submit(this::flushQueued).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Scheduled(cron = "${time-series.write-behind.eviction-cron}")
+    public void scheduledEviction() {
+        evictBefore(LocalDate.now(clock).minusDays(residentDays - 1L));
+    }
+
+    /**
+     * Releases the dates before {@code cutoff} whose versions are all written to the
+     * tables.
+     *
+     * @return the number of released dates
+     */
+    int evictBefore(LocalDate cutoff) {
+        int evicted = 0;
+        for (Map.Entry<Key, DateVersions> entry : dates.entrySet()) {
+            if (entry.getKey().epochDay() >= cutoff.toEpochDay()) {
+                continue;
+            }
+            // A date that is being saved is left for the next eviction
+            ReentrantLock lock = locks.tryLock(entry.getKey().stationId(), LocalDate.ofEpochDay(entry.getKey().epochDay()));
+            if (lock == null) {
+                continue;
+            }
+            try {
+                DateVersions dateVersions = entry.getValue();
+                if (dateVersions.unwritten.get() == 0 && dates.remove(entry.getKey(), dateVersions)) {
+                    dateVersions.versions.set(RELEASED);
+                    evicted++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        log.info("Evicted {} dates from the write-behind store, {} resident, {} writes pending",
+                evicted, residentDates(), pendingWrites());
+        return evicted;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        flusher.shutdown();
+        if (!flusher.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("The write-behind flusher did not stop in time");
+        }
+        flushQueued();
+        if (queued.get() > 0) {
+            log.warn("{} versions are left in the write-behind log for the next start", queued.get());
+        }
+        writeBehindLog.close();
+    }
+
+    private DateVersions load(Key key, LocalDate date, String zone, Supplier<PowerStationDate> loader) {
+        PowerStationDate stored = loader.get();
+        TimeSeriesVersion[] versions = stored == null ? new TimeSeriesVersion[0]
+                : stored.getVersions().stream().map(WriteBehindVersionStore::copy).toArray(TimeSeriesVersion[]::new);
+        log.debug("Loaded {} versions of station {} on {} into the write-behind store",
+                versions.length, key.stationId(), date);
+        return new DateVersions(new Versions(stored == null ? zone : stored.getZone(), versions));
+    }
+
+    // The latest version of the date, the one saved before in this transaction or the latest committed one
+    private static Optional<TimeSeriesVersion> latest(Key key, DateVersions dateVersions, List<Append> transactionAppends) {
+        if (transactionAppends != null) {
+            for (int i = transactionAppends.size() - 1; i >= 0; i--) {
+                if (transactionAppends.get(i).key().equals(key)) {
+                    return Optional.of(transactionAppends.get(i).version());
+                }
+            }
+        }
+        return dateVersions.versions.get().latest();
+    }
+
+    // The appends of the current transaction, committed after it in order or dropped on rollback; null outside one
+    private List<Append> transactionAppends() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        List<Append> appends = (List<Append>) TransactionSynchronizationManager.getResource(this);
+        if (appends == null) {
+            List<Append> transactionAppends = new ArrayList<>();
+            appends = transactionAppends;
+            TransactionSynchronizationManager.bindResource(this, transactionAppends);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                // Thrown to the caller of the commit, so a save is not acknowledged before it is logged
+                @Override
+                public void afterCommit() {
+                    commit(transactionAppends);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(WriteBehindVersionStore.this);
+                    if (status != STATUS_COMMITTED) {
+                        transactionAppends.forEach(WriteBehindVersionStore::drop);
+                    }
+                    for (int i = transactionAppends.size() - 1; i >= 0; i--) {
+                        transactionAppends.get(i).lock().unlock();
+                    }
+                }
+            });
+        }
+        return appends;
+    }
+
+    /**
+     * Logs the appends in order and publishes each one once it is logged. When the
+     * log fails, the appends that are not logged yet are dropped before the failure
+     * is thrown; the ones logged before it stay and are written to the tables.
+     */
+    private void commit(List<Append> appends) {
+        for (int i = 0; i < appends.size(); i++) {
+            Append append = appends.get(i);
+            try {
+                logAppend(append);
+            } catch (RuntimeException e) {
+                appends.subList(i, appends.size()).forEach(WriteBehindVersionStore::drop);
+                throw e;
+            }
+            append.dateVersions().versions.updateAndGet(versions -> versions.plus(append.version()));
+        }
+    }
+
+    private void logAppend(Append append) {
+        long generation = writeBehindLog.append(append.key().stationId(),
+                LocalDate.ofEpochDay(append.key().epochDay()), append.zone(), append.version());
+        queue.add(new Logged(append.key(), append.dateVersions(), append.version(), generation));
+        if (queued.incrementAndGet() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQueued);
+        }
+    }
+
+    // Never published, so only its count is taken back
+    private static void drop(Append append) {
+        append.dateVersions().unwritten.decrementAndGet();
+    }
+
+    // Run by the flusher thread only
+    private void flushQueued() {
+        flushRequested.set(false);
+        writeBehindLog.rotate();
+        while (true) {
+            List<Logged> batch = new ArrayList<>(Math.min(batchSize, Math.max(queued.get(), 1)));
+            Logged logged;
+            while (batch.size() < batchSize && (logged = queue.poll()) != null) {
+                batch.add(logged);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeVersions(batch));
+            } catch (RuntimeException e) {
+                log.warn("Writing {} versions to the tables failed, they are retried with the next flush",
+                        batch.size(), e);
+                for (int i = batch.size() - 1; i >= 0; i--) {
+                    queue.addFirst(batch.get(i));
+                }
+                return;
+            }
+            queued.addAndGet(-batch.size());
+            for (Logged written : batch) {
+                if (written.dateVersions() != null) {
+                    written.dateVersions().unwritten.decrementAndGet();
+                }
+                writeBehindLog.written(written.generation(), 1);
+            }
+            if (batch.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Inserts the versions of a batch that the tables do not have yet. The date
+     * rows are created by the saves, the versions are persisted without loading
+     * the other versions of their date.
+     */
+    private void writeVersions(List<Logged> batch) {
+        Map<Key, List<TimeSeriesVersion>> byDate = new LinkedHashMap<>();
+        for (Logged logged : batch) {
+            byDate.computeIfAbsent(logged.key(), key -> new ArrayList<>()).add(logged.version());
+        }
+        for (Map.Entry<Key, List<TimeSeriesVersion>> entry : byDate.entrySet()) {
+            Key key = entry.getKey();
+            LocalDate date = LocalDate.ofEpochDay(key.epochDay());
+            Optional<PowerStationDate> powerStationDate = repository.findByPowerStationAndStationDate(
+                    powerStationRepository.getReferenceById(key.stationId()), date);
+            if (powerStationDate.isEmpty()) {
+                log.warn("Station {} has no row for {}, {} versions are dropped",
+                        key.stationId(), date, entry.getValue().size());
+                continue;
+            }
+            // Checked per version, a log entry written twice must not add a row
+            Set<Integer> written = new HashSet<>(repository.findExistingVersionNumbers(powerStationDate.get(),
+                    entry.getValue().stream().map(TimeSeriesVersion::getVersion).toList()));
+            for (TimeSeriesVersion version : entry.getValue()) {
+                if (written.add(version.getVersion())) {
+                    TimeSeriesVersion row = copy(version);
+                    row.setPowerStationDate(powerStationDate.get());
+                    entityManager.persist(row);
+                }
+            }
+        }
+    }
+
+    private static TimeSeriesVersion copy(TimeSeriesVersion version) {
+        TimeSeriesVersion copy = new TimeSeriesVersion();
+        copy.setStationDate(version.getStationDate());
+        copy.setVersion(version.getVersion());
+        copy.setTimestamp(version.getTimestamp());
+        copy.setPeriod(version.getPeriod());
+        copy.setChangedFromSlot(version.getChangedFromSlot());
+        copy.setChangedSlotCount(version.getChangedSlotCount());
+        copy.setSeries(new ArrayList<>(version.getSeries()));
+        return copy;
+    }
+
+    private record Key(long stationId, long epochDay) {
+    }
+
+    // A version kept by a save, with the lock of its date held until the transaction completes
+    private record Append(Key key, DateVersions dateVersions, String zone, TimeSeriesVersion version,
+                          ReentrantLock lock) {
+    }
+
+    // A logged version waiting for the flusher, without a date when it was recovered from the log
+    private record Logged(Key key, DateVersions dateVersions, TimeSeriesVersion version, long generation) {
+    }
+
+    /**
+     * The committed versions of a date, ordered by version number and never changed
+     * once published; a commit replaces the whole list.
+     */
+    private record Versions(String zone, TimeSeriesVersion[] versions) {
+        Optional<TimeSeriesVersion> latest() {
+            return versions.length == 0 ? Optional.empty() : Optional.of(versions[versions.length - 1]);
+        }
+
+        Versions plus(TimeSeriesVersion version) {
+            TimeSeriesVersion[] next = Arrays.copyOf(versions, versions.length + 1);
+            next[versions.length] = version;
+            return new Versions(zone, next);
+        }
+    }
+
+    private static final class DateVersions {
+        final AtomicReference<Versions> versions;
+        // Kept versions not yet written to the tables or dropped
+        final AtomicInteger unwritten = new AtomicInteger();
+
+        DateVersions(Versions versions) {
+            this.versions = new AtomicReference<>(versions);
+        }
+    }
+}
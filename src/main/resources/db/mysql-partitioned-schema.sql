@@ -0,0 +1,82 @@
+-- Schema for the "mysql-partitioned" profile.
+--
+-- time_series_versions and time_series_values are RANGE COLUMNS partitioned by
+-- station_date, one partition per month plus a p_max catch-all. The monthly
+-- partitions are created and dropped by PartitionMaintenanceService.
+--
+-- MySQL requires the partitioning column in every unique key and does not allow
+-- foreign keys on partitioned tables, so the versions table has a composite
+-- primary key and the relations are enforced by the application only.
+
+CREATE TABLE IF NOT EXISTS power_station (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    power_station VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_power_station_name (power_station)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS power_station_date (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    power_station_id BIGINT NOT NULL,
+    station_date DATE NOT NULL,
+    zone VARCHAR(255) NOT NULL,
+    archived_versions INTEGER,
+    rewritten_from_version INTEGER,
+    rewritten_latest_version INTEGER,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_power_station_date (power_station_id, station_date),
+    KEY idx_power_station_date_date (station_date),
+    CONSTRAINT fk_power_station_date_station FOREIGN KEY (power_station_id) REFERENCES power_station (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS time_series_versions (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    time_series_id BIGINT NOT NULL,
+    station_date DATE NOT NULL,
+    version INTEGER NOT NULL,
+    timestamp DATETIME(6) NOT NULL,
+    period DECIMAL(21, 0) NOT NULL,
+    changed_from_slot INTEGER,
+    changed_slot_count INTEGER,
+    PRIMARY KEY (id, station_date),
+    KEY idx_time_series_versions_psd (time_series_id, version),
+    KEY idx_time_series_versions_as_of (time_series_id, timestamp)
+) ENGINE = InnoDB
+PARTITION BY RANGE COLUMNS (station_date) (
+    PARTITION p_max VALUES LESS THAN (MAXVALUE)
+);
+
+CREATE TABLE IF NOT EXISTS time_series_values (
+    time_series_version_id BIGINT NOT NULL,
+    station_date DATE NOT NULL,
+    slot INTEGER NOT NULL,
+    series_value INTEGER,
+    KEY idx_time_series_values_version (time_series_version_id, slot)
+) ENGINE = InnoDB
+PARTITION BY RANGE COLUMNS (station_date) (
+    PARTITION p_max VALUES LESS THAN (MAXVALUE)
+);
+
+CREATE TABLE IF NOT EXISTS time_series_archives (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    power_station_date_id BIGINT NOT NULL,
+    version_count INTEGER NOT NULL,
+    compacted_at DATETIME(6) NOT NULL,
+    data LONGBLOB NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_time_series_archives_psd (power_station_date_id),
+    CONSTRAINT fk_time_series_archives_psd FOREIGN KEY (power_station_date_id) REFERENCES power_station_date (id)
+) ENGINE = InnoDB;
+
+-- Hibernate does not know about time_series_values.station_date. The values of a
+-- version are inserted right after the version row, so the date is handed over in
+-- a session variable and only looked up when the rows arrive out of that order.
+DROP TRIGGER IF EXISTS time_series_versions_remember_date;
+CREATE TRIGGER time_series_versions_remember_date AFTER INSERT ON time_series_versions
+    FOR EACH ROW SET @time_series_last_version_id = NEW.id, @time_series_last_station_date = NEW.station_date;
+
+DROP TRIGGER IF EXISTS time_series_values_station_date;
+CREATE TRIGGER time_series_values_station_date BEFORE INSERT ON time_series_values
+    FOR EACH ROW SET NEW.station_date = IF(@time_series_last_version_id = NEW.time_series_version_id,
+        @time_series_last_station_date,
+        (SELECT v.station_date FROM time_series_versions v WHERE v.id = NEW.time_series_version_id LIMIT 1));
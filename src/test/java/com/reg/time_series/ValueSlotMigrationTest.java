@@ -0,0 +1,69 @@
+package com.reg.time_series;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ValueSlotMigrationTest {
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:slots-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    @DisplayName("Values stored without slots are numbered in the order they were read and the column becomes NOT NULL")
+    void migrate_NumbersValuesWithoutSlots() {
+        // Arrange: the values table as the unordered collection created it
+        jdbcTemplate.execute("CREATE TABLE time_series_values (time_series_version_id BIGINT NOT NULL, series_value INTEGER)");
+        jdbcTemplate.batchUpdate("INSERT INTO time_series_values VALUES (?, ?)", List.of(
+                new Object[]{1L, 30}, new Object[]{2L, 5}, new Object[]{1L, 10}, new Object[]{1L, null}));
+
+        // Act
+        new ValueSlotMigration(dataSource).afterPropertiesSet();
+
+        // Assert
+        assertThat(jdbcTemplate.queryForList("SELECT series_value FROM time_series_values " +
+                "WHERE time_series_version_id = 1 ORDER BY slot", Integer.class)).containsExactly(30, 10, null);
+        assertThat(jdbcTemplate.queryForList("SELECT slot FROM time_series_values " +
+                "WHERE time_series_version_id = 2", Integer.class)).containsExactly(0);
+        assertThatThrownBy(() -> jdbcTemplate.update("INSERT INTO time_series_values VALUES (3, 1, NULL)"))
+                .hasMessageContaining("NULL");
+    }
+
+    @Test
+    @DisplayName("The application does not start while a slot repeats within a version")
+    void migrate_WithDuplicatedSlots_RefusesToStart() {
+        // Arrange: the column as ddl-auto would have added it, every value in slot 0
+        jdbcTemplate.execute("CREATE TABLE time_series_values (time_series_version_id BIGINT NOT NULL, " +
+                "series_value INTEGER, slot INTEGER DEFAULT 0 NOT NULL)");
+        jdbcTemplate.update("INSERT INTO time_series_values (time_series_version_id, series_value) VALUES (7, 1), (7, 2)");
+
+        // Act & Assert
+        assertThatThrownBy(() -> new ValueSlotMigration(dataSource).afterPropertiesSet())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("version 7 have duplicated slots");
+    }
+
+    @Test
+    @DisplayName("A database without the values table is left to Hibernate")
+    void migrate_WithoutTable_DoesNothing() {
+        // Act
+        new ValueSlotMigration(dataSource).afterPropertiesSet();
+
+        // Assert
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES " +
+                "WHERE TABLE_NAME = 'TIME_SERIES_VALUES'", Integer.class)).isZero();
+    }
+}
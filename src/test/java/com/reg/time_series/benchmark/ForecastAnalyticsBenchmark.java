@@ -0,0 +1,94 @@
+package com.reg.time_series.benchmark;
+
+import com.reg.time_series.model.ForecastAccuracyDTO;
+import com.reg.time_series.service.ForecastAnalyticsService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Forecast accuracy of one station over a year of versions, loaded over JDBC
+ * into the in-memory H2 database.
+ * <pre>
+ * mvn test -Dtest=ForecastAnalyticsBenchmark -Dbenchmark.analytics=true
+ * </pre>
+ * The size is set with {@code benchmark.days} and {@code benchmark.versions}
+ * (versions per date).
+ */
+@EnabledIfSystemProperty(named = "benchmark.analytics", matches = "true")
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "time-series.warmup.enabled=false"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ForecastAnalyticsBenchmark {
+    private static final String STATION = "Analytics Benchmark";
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+    private static final long FIRST_ID = 1_000_000;
+    private static final int SLOTS = 96;
+    private static final int RUNS = 5;
+
+    private final int days = Integer.getInteger("benchmark.days", 365);
+    private final int versions = Integer.getInteger("benchmark.versions", 24);
+
+    @Autowired
+    private ForecastAnalyticsService analyticsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void load() {
+        jdbcTemplate.update("INSERT INTO power_station (id, power_station) VALUES (?, ?)", FIRST_ID, STATION);
+        Random random = new Random(42);
+        long versionId = FIRST_ID;
+        for (int d = 0; d < days; d++) {
+            LocalDate date = FIRST_DAY.plusDays(d);
+            long dateId = FIRST_ID + d;
+            jdbcTemplate.update("INSERT INTO power_station_date (id, power_station_id, station_date, zone) " +
+                    "VALUES (?, ?, ?, 'Europe/Budapest')", dateId, FIRST_ID, Date.valueOf(date));
+            List<Object[]> values = new ArrayList<>(versions * SLOTS);
+            for (int v = 1; v <= versions; v++, versionId++) {
+                jdbcTemplate.update("INSERT INTO time_series_versions (id, time_series_id, station_date, version, " +
+                                "timestamp, period) VALUES (?, ?, ?, ?, ?, 900000000000)",
+                        versionId, dateId, Date.valueOf(date), v,
+                        Timestamp.valueOf(date.minusDays(1).atStartOfDay().plusHours(v - 1)));
+                for (int slot = 0; slot < SLOTS; slot++) {
+                    values.add(new Object[]{versionId, slot, random.nextInt(500_000)});
+                }
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO time_series_values (time_series_version_id, slot, series_value) " +
+                    "VALUES (?, ?, ?)", values);
+        }
+    }
+
+    @Test
+    void measureYear() {
+        LocalDate lastDay = FIRST_DAY.plusDays(days - 1);
+        // Unmeasured warm up
+        analyticsService.getForecastAccuracy(STATION, FIRST_DAY, lastDay);
+
+        long start = System.nanoTime();
+        ForecastAccuracyDTO result = null;
+        for (int i = 0; i < RUNS; i++) {
+            result = analyticsService.getForecastAccuracy(STATION, FIRST_DAY, lastDay);
+        }
+        long average = (System.nanoTime() - start) / RUNS / 1_000_000;
+        if (result.getVersions() != (long) days * versions) {
+            throw new IllegalStateException("Unexpected version count " + result.getVersions());
+        }
+
+        System.out.printf("%nDataset: %d days, %d versions per day, %d values per version%n", days, versions, SLOTS);
+        System.out.printf("forecast accuracy of one station: %d ms on average of %d runs%n", average, RUNS);
+    }
+}
@@ -0,0 +1,48 @@
+package com.reg.time_series.benchmark;
+
+import com.reg.time_series.loadtest.LoadGenerator;
+import com.reg.time_series.loadtest.LoadReport;
+import com.reg.time_series.loadtest.LoadScenario;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+
+/**
+ * Replays {@code sample_data} against the embedded server at 50x speed with
+ * {@link LoadGenerator}, 200 stations by default, and reports the throughput,
+ * the error rate and the latency percentiles of the posts. The settings of a
+ * profile are measured by activating it:
+ * <pre>
+ * mvn test -Dtest=IngestReplayBenchmark -Dbenchmark.replay=true -Dspring.profiles.active=mysql,prod
+ * </pre>
+ * The scenario is set with the {@code benchmark.load.*} properties of
+ * {@link LoadScenario}, e.g. {@code benchmark.load.speed} and {@code benchmark.load.concurrency}.
+ */
+@EnabledIfSystemProperty(named = "benchmark.replay", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "time-series.warmup.enabled=false",
+        "time-series.retention.enabled=false"})
+class IngestReplayBenchmark {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private Environment environment;
+
+    @Test
+    void replay() throws Exception {
+        LoadScenario scenario = LoadScenario.fromSystemProperties("benchmark.load.");
+        if (System.getProperty("benchmark.load.stations") == null) {
+            scenario.setStations(200);
+        }
+
+        LoadReport report = new LoadGenerator(scenario, "http://localhost:" + port).run();
+
+        System.out.printf("%nProfiles %s, %s%n", String.join(",", environment.getActiveProfiles()), scenario);
+        report.print(System.out);
+    }
+}
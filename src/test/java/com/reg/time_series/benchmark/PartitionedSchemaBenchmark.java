@@ -0,0 +1,213 @@
+package com.reg.time_series.benchmark;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the plain Hibernate schema with the {@code mysql-partitioned} schema
+ * on a generated multi-year dataset. Needs a local MySQL server, for example the
+ * one from docker-compose:
+ * <pre>
+ * mvn test -Dtest=PartitionedSchemaBenchmark \
+ *   -Dbenchmark.mysql.url="jdbc:mysql://localhost:3306/?rewriteBatchedStatements=true" \
+ *   -Dbenchmark.mysql.user=root -Dbenchmark.mysql.password=ToKmInD1
+ * </pre>
+ * The size of the dataset is set with {@code benchmark.years}, {@code benchmark.stations}
+ * and {@code benchmark.versions-per-day}.
+ */
+@EnabledIfSystemProperty(named = "benchmark.mysql.url", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PartitionedSchemaBenchmark {
+    private static final String PLAIN = "ts_bench_plain";
+    private static final String PARTITIONED = "ts_bench_partitioned";
+    private static final int SLOTS = 96;
+
+    private final int years = Integer.getInteger("benchmark.years", 3);
+    private final int stations = Integer.getInteger("benchmark.stations", 10);
+    private final int versionsPerDay = Integer.getInteger("benchmark.versions-per-day", 4);
+    private final LocalDate firstDay = YearMonth.now().minusYears(years).atDay(1);
+    private final LocalDate lastDay = YearMonth.now().atEndOfMonth();
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private final Map<String, String> results = new LinkedHashMap<>();
+
+    @BeforeAll
+    void createSchemas() throws Exception {
+        dataSource = new SingleConnectionDataSource(
+                System.getProperty("benchmark.mysql.url"),
+                System.getProperty("benchmark.mysql.user", "root"),
+                System.getProperty("benchmark.mysql.password", ""),
+                true);
+        jdbc = new JdbcTemplate(dataSource);
+
+        for (String schema : new String[]{PLAIN, PARTITIONED}) {
+            jdbc.execute("DROP DATABASE IF EXISTS " + schema);
+            jdbc.execute("CREATE DATABASE " + schema);
+        }
+
+        jdbc.execute("USE " + PLAIN);
+        jdbc.execute("create table power_station (id bigint not null auto_increment, power_station varchar(255) not null, primary key (id)) engine=InnoDB");
+        jdbc.execute("create table power_station_date (station_date date not null, id bigint not null auto_increment, power_station_id bigint not null, zone varchar(255) not null, primary key (id), unique (power_station_id, station_date), foreign key (power_station_id) references power_station (id)) engine=InnoDB");
+        jdbc.execute("create table time_series_versions (period decimal(21,0) not null, station_date date, version integer not null, id bigint not null auto_increment, time_series_id bigint not null, timestamp datetime(6) not null, primary key (id), index (station_date), foreign key (time_series_id) references power_station_date (id)) engine=InnoDB");
+        jdbc.execute("create table time_series_values (series_value integer, slot integer not null, time_series_version_id bigint not null, primary key (time_series_version_id, slot), foreign key (time_series_version_id) references time_series_versions (id)) engine=InnoDB");
+
+        jdbc.execute("USE " + PARTITIONED);
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/mysql-partitioned-schema.sql"));
+        }
+        for (YearMonth month = YearMonth.from(firstDay); !month.isAfter(YearMonth.from(lastDay)); month = month.plusMonths(1)) {
+            for (String table : new String[]{"time_series_versions", "time_series_values"}) {
+                jdbc.execute(String.format("ALTER TABLE %s REORGANIZE PARTITION p_max INTO (" +
+                                "PARTITION p%s VALUES LESS THAN ('%s'), PARTITION p_max VALUES LESS THAN (MAXVALUE))",
+                        table, month.toString().replace("-", ""), month.plusMonths(1).atDay(1)));
+            }
+        }
+
+        measure("load", this::load);
+    }
+
+    @Test
+    void compareSchemas() {
+        String station = "Station " + (stations / 2);
+        LocalDate monthStart = lastDay.withDayOfMonth(1).minusMonths(6);
+        LocalDate monthEnd = monthStart.plusMonths(1).minusDays(1);
+
+        measure("versions of one station in a month (x100)", schema -> {
+            for (int i = 0; i < 100; i++) {
+                jdbc.queryForList("SELECT v.id FROM time_series_versions v " +
+                                "JOIN power_station_date psd ON psd.id = v.time_series_id " +
+                                "JOIN power_station p ON p.id = psd.power_station_id " +
+                                "WHERE p.power_station = ? AND v.station_date BETWEEN ? AND ? " +
+                                "ORDER BY v.station_date, v.version",
+                        Long.class, station, monthStart, monthEnd);
+            }
+        });
+        measure("latest version of a station date (x1000)", schema -> {
+            Random random = new Random(7);
+            for (int i = 0; i < 1000; i++) {
+                LocalDate date = firstDay.plusDays(random.nextInt((int) (lastDay.toEpochDay() - firstDay.toEpochDay())));
+                jdbc.queryForList("SELECT v.id FROM time_series_versions v " +
+                                "JOIN power_station_date psd ON psd.id = v.time_series_id " +
+                                "WHERE psd.power_station_id = 1 AND psd.station_date = ? " +
+                                "AND v.station_date = ? ORDER BY v.version DESC LIMIT 1",
+                        Long.class, date, date);
+            }
+        });
+        measure("expire oldest month", schema -> {
+            YearMonth oldest = YearMonth.from(firstDay);
+            if (PARTITIONED.equals(schema)) {
+                String partition = "p" + oldest.toString().replace("-", "");
+                jdbc.execute("ALTER TABLE time_series_values DROP PARTITION " + partition);
+                jdbc.execute("ALTER TABLE time_series_versions DROP PARTITION " + partition);
+            } else {
+                LocalDate cutoff = oldest.plusMonths(1).atDay(1);
+                jdbc.update("DELETE tv FROM time_series_values tv JOIN time_series_versions v " +
+                        "ON v.id = tv.time_series_version_id WHERE v.station_date < ?", cutoff);
+                jdbc.update("DELETE FROM time_series_versions WHERE station_date < ?", cutoff);
+            }
+        });
+    }
+
+    @AfterAll
+    void report() {
+        System.out.printf("%nDataset: %d years, %d stations, %d versions per day, %d values per version%n",
+                years, stations, versionsPerDay, SLOTS);
+        System.out.printf("%-45s %12s %12s%n", "operation", "plain", "partitioned");
+        results.forEach((operation, line) -> System.out.printf("%-45s %s%n", operation, line));
+        for (String schema : new String[]{PLAIN, PARTITIONED}) {
+            jdbc.execute("DROP DATABASE IF EXISTS " + schema);
+        }
+        dataSource.destroy();
+    }
+
+    private void measure(String operation, SchemaAction action) {
+        StringBuilder line = new StringBuilder();
+        for (String schema : new String[]{PLAIN, PARTITIONED}) {
+            jdbc.execute("USE " + schema);
+            long start = System.nanoTime();
+            try {
+                action.run(schema);
+            } catch (Exception e) {
+                throw new IllegalStateException(operation + " failed on " + schema, e);
+            }
+            line.append(String.format("%10d ms ", (System.nanoTime() - start) / 1_000_000));
+        }
+        results.put(operation, line.toString());
+    }
+
+    private void load(String schema) throws Exception {
+        Connection connection = dataSource.getConnection();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement();
+             PreparedStatement insertDate = connection.prepareStatement(
+                     "INSERT INTO power_station_date (power_station_id, station_date, zone) VALUES (?, ?, 'Europe/Budapest')",
+                     Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement insertVersion = connection.prepareStatement(
+                     "INSERT INTO time_series_versions (time_series_id, station_date, version, timestamp, period) " +
+                             "VALUES (?, ?, ?, ?, 900000000000)",
+                     Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement insertValue = connection.prepareStatement(
+                     "INSERT INTO time_series_values (time_series_version_id, slot, series_value) VALUES (?, ?, ?)")) {
+            Random random = new Random(42);
+            for (int s = 1; s <= stations; s++) {
+                statement.execute("INSERT INTO power_station (power_station) VALUES ('Station " + s + "')");
+                for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+                    insertDate.setLong(1, s);
+                    insertDate.setObject(2, day);
+                    insertDate.executeUpdate();
+                    long dateId = generatedKey(insertDate);
+                    for (int v = 1; v <= versionsPerDay; v++) {
+                        insertVersion.setLong(1, dateId);
+                        insertVersion.setObject(2, day);
+                        insertVersion.setInt(3, v);
+                        insertVersion.setObject(4, LocalDateTime.of(day, LocalTime.of(v, 0)));
+                        insertVersion.executeUpdate();
+                        long versionId = generatedKey(insertVersion);
+                        for (int slot = 0; slot < SLOTS; slot++) {
+                            insertValue.setLong(1, versionId);
+                            insertValue.setInt(2, slot);
+                            insertValue.setInt(3, random.nextInt(500_000));
+                            insertValue.addBatch();
+                        }
+                        insertValue.executeBatch();
+                    }
+                }
+                connection.commit();
+            }
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private long generatedKey(PreparedStatement statement) throws Exception {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            keys.next();
+            return keys.getLong(1);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SchemaAction {
+        void run(String schema) throws Exception;
+    }
+}
@@ -0,0 +1,148 @@
+package com.reg.time_series.benchmark;
+
+import com.reg.time_series.model.TimeSeriesData;
+import com.reg.time_series.repositories.PowerStationRepository;
+import com.reg.time_series.repositories.TimeSeriesArchiveRepository;
+import com.reg.time_series.repositories.TimeSeriesRepository;
+import com.reg.time_series.service.PowerStationCatalogue;
+import com.reg.time_series.service.PowerStationDictionary;
+import com.reg.time_series.service.SegmentVersionStore;
+import com.reg.time_series.service.TimeSeriesService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/**
+ * Compares the version tables in an H2 file database with the memory-mapped
+ * segments of {@link SegmentVersionStore}; stations and dates are in the H2 file
+ * database in both cases. Saves go through {@link TimeSeriesService}, one
+ * transaction each, and every view is read back in full.
+ * <pre>
+ * mvn test -Dtest=SegmentStoreBenchmark -Dbenchmark.segments=true
+ * </pre>
+ * The size is set with {@code benchmark.stations} and {@code benchmark.versions}
+ * (versions per station on one date).
+ */
+@EnabledIfSystemProperty(named = "benchmark.segments", matches = "true")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:file:./target/benchmark/h2-file;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "time-series.warmup.enabled=false",
+        "time-series.retention.enabled=false"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SegmentStoreBenchmark {
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 15);
+
+    private final int stations = Integer.getInteger("benchmark.stations", 20);
+    private final int versions = Integer.getInteger("benchmark.versions", 50);
+    private final Map<String, String> results = new LinkedHashMap<>();
+
+    @Autowired
+    private TimeSeriesService tableService;
+
+    @Autowired
+    private TimeSeriesRepository repository;
+
+    @Autowired
+    private PowerStationRepository powerStationRepository;
+
+    @Autowired
+    private TimeSeriesArchiveRepository archiveRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PowerStationCatalogue catalogue;
+
+    @Autowired
+    private PowerStationDictionary dictionary;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void compareStores() throws Exception {
+        Path directory = Files.createTempDirectory("segment-benchmark");
+        TimeSeriesService segmentService = new TimeSeriesService(repository, powerStationRepository, archiveRepository,
+                eventPublisher, catalogue, dictionary, Clock.systemDefaultZone(), new SegmentVersionStore(directory, false));
+        ReflectionTestUtils.setField(segmentService, "safetyWindowMinutes", 90);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        Map<String, TimeSeriesService> services = new LinkedHashMap<>();
+        services.put("H2 file", tableService);
+        services.put("segments", segmentService);
+
+        measure(services, "save " + stations * versions + " versions", (prefix, service) -> {
+            Random random = new Random(42);
+            for (int v = 0; v < versions; v++) {
+                for (int s = 0; s < stations; s++) {
+                    TimeSeriesData data = data(prefix + s, v, random);
+                    transaction.executeWithoutResult(status -> service.save(data));
+                }
+            }
+        });
+        measure(services, "view of every station (x20)", (prefix, service) -> {
+            long checksum = 0;
+            for (int i = 0; i < 20; i++) {
+                for (int s = 0; s < stations; s++) {
+                    String name = prefix + s;
+                    checksum += transaction.execute(status -> service.getTimeSeriesView(name, DATE))
+                            .getRows().get(95).getVersionValues().size();
+                }
+            }
+            if (checksum != 20L * stations * versions) {
+                throw new IllegalStateException("Unexpected view content " + checksum);
+            }
+        });
+    }
+
+    @AfterAll
+    void report() {
+        System.out.printf("%nDataset: %d stations, %d versions of 96 values each on one date%n", stations, versions);
+        System.out.printf("%-35s %12s %12s%n", "operation", "H2 file", "segments");
+        results.forEach((operation, line) -> System.out.printf("%-35s %s%n", operation, line));
+    }
+
+    private void measure(Map<String, TimeSeriesService> services, String operation,
+                         BiConsumer<String, TimeSeriesService> action) {
+        StringBuilder line = new StringBuilder();
+        services.forEach((store, service) -> {
+            // Unmeasured warm up on other stations
+            action.accept("Warmup " + store + " ", service);
+            long start = System.nanoTime();
+            action.accept("Bench " + store + " ", service);
+            line.append(String.format("%9d ms ", (System.nanoTime() - start) / 1_000_000));
+        });
+        results.put(operation, line.toString());
+    }
+
+    private static TimeSeriesData data(String powerStation, int version, Random random) {
+        TimeSeriesData data = new TimeSeriesData();
+        data.setPowerStation(powerStation);
+        data.setDate(DATE);
+        data.setZone("Europe/Budapest");
+        data.setPeriod("PT15M");
+        data.setTimestamp(LocalDateTime.of(2024, 3, 14, 0, 0).plusMinutes(version * 15L));
+        data.setSeries(random.ints(96, 0, 500_000).boxed().toList());
+        return data;
+    }
+}
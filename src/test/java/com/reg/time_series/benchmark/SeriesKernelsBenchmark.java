@@ -0,0 +1,84 @@
+package com.reg.time_series.benchmark;
+
+import com.reg.time_series.service.SeriesKernels;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * Compares the Vector API kernels with the scalar loops on the CPU of the build
+ * machine. Every operation is warmed up first, then timed over
+ * {@code benchmark.iterations} calls; the checksum of the results keeps the JIT
+ * from dropping the calls.
+ * <pre>
+ * mvn test -Dtest=SeriesKernelsBenchmark -Dbenchmark.kernels=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark.kernels", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SeriesKernelsBenchmark {
+    private static final int SERIES = 50;
+
+    private final int iterations = Integer.getInteger("benchmark.iterations", 200_000);
+    private final SeriesKernels scalar = SeriesKernels.scalar();
+    private final SeriesKernels vector = SeriesKernels.get();
+    private final Random random = new Random(42);
+    private final Map<String, String> results = new LinkedHashMap<>();
+    private long checksum;
+
+    @Test
+    void kernels() {
+        for (int slots : new int[]{96, 1440}) {
+            int[] previous = random.ints(slots, 0, 1000).toArray();
+            int[] next = random.ints(slots, 0, 1000).toArray();
+            int[] out = new int[slots];
+            int[][] series = new int[SERIES][];
+            for (int s = 0; s < SERIES; s++) {
+                series[s] = random.ints(slots, 0, 1000).toArray();
+            }
+            int from = slots / 2;
+
+            compare("merge " + slots,
+                    () -> { scalar.mergeFrom(previous, next, from, out); return out[slots - 1]; },
+                    () -> { vector.mergeFrom(previous, next, from, out); return out[slots - 1]; });
+            compare("sum of " + SERIES + " x " + slots,
+                    () -> scalar.sum(series, slots)[0],
+                    () -> vector.sum(series, slots)[0]);
+            compare("max of " + SERIES + " x " + slots,
+                    () -> scalar.max(series, slots)[0],
+                    () -> vector.max(series, slots)[0]);
+            compare("block sum " + slots + " / 15",
+                    () -> scalar.blockSum(previous, 15)[0],
+                    () -> vector.blockSum(previous, 15)[0]);
+        }
+    }
+
+    @AfterAll
+    void printResults() {
+        System.out.printf("%nKernels: %s, checksum %d%n", vector, checksum);
+        System.out.printf("%-30s %14s %14s %9s%n", "operation", "scalar ns/op", "vector ns/op", "speedup");
+        results.forEach((operation, line) -> System.out.printf("%-30s %s%n", operation, line));
+    }
+
+    private void compare(String operation, IntSupplier scalarCall, IntSupplier vectorCall) {
+        time(scalarCall);
+        time(vectorCall);
+        double scalarNanos = time(scalarCall);
+        double vectorNanos = time(vectorCall);
+        results.put(operation, String.format("%14.1f %14.1f %8.2fx", scalarNanos, vectorNanos, scalarNanos / vectorNanos));
+    }
+
+    private double time(IntSupplier call) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            checksum += call.getAsInt();
+        }
+        return (double) (System.nanoTime() - start) / iterations;
+    }
+}
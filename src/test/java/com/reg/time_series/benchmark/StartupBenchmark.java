@@ -0,0 +1,136 @@
+package com.reg.time_series.benchmark;
+
+import com.reg.time_series.TimeSeriesApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Starts the application in a new JVM with and without the startup warmup and
+ * measures the time to readiness, the time to the first answered view request
+ * and the time until the view latency is steady. Extra JVM options, e.g. a CDS
+ * archive, are passed with {@code benchmark.jvm-args}:
+ * <pre>
+ * mvn test -Dtest=StartupBenchmark -Dbenchmark.startup=true \
+ *   -Dbenchmark.jvm-args="-XX:SharedArchiveFile=app.jsa"
+ * </pre>
+ * The view is requested {@code benchmark.requests} times. The latency is steady
+ * from the first window of {@value #WINDOW} requests whose median is within 10%
+ * of the median of the last window.
+ */
+@EnabledIfSystemProperty(named = "benchmark.startup", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StartupBenchmark {
+    private static final int WINDOW = 50;
+
+    private final int requests = Integer.getInteger("benchmark.requests", 2000);
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final Map<String, String> results = new LinkedHashMap<>();
+
+    @Test
+    void startup() throws Exception {
+        measure("warmup disabled", false);
+        measure("warmup enabled", true);
+    }
+
+    @AfterAll
+    void printResults() {
+        System.out.printf("%n%-18s %12s %16s %16s %18s %16s%n", "run", "ready ms", "first view ms",
+                "first view lat", "steady at ms", "steady lat");
+        results.forEach((run, line) -> System.out.printf("%-18s %s%n", run, line));
+    }
+
+    private void measure(String run, boolean warmup) throws Exception {
+        int port = freePort();
+        String base = "http://localhost:" + port + "/api";
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        String jvmArgs = System.getProperty("benchmark.jvm-args", "");
+        if (!jvmArgs.isBlank()) {
+            command.addAll(Arrays.asList(jvmArgs.trim().split("\\s+")));
+        }
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), TimeSeriesApplication.class.getName(),
+                "--server.port=" + port, "--time-series.warmup.enabled=" + warmup));
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            while (status(base + "/ready") != 200) {
+                Thread.sleep(20);
+            }
+            long ready = System.nanoTime() - start;
+
+            LocalDate date = LocalDate.now();
+            String series = IntStream.range(0, 96).mapToObj(Integer::toString).collect(Collectors.joining(","));
+            client.send(HttpRequest.newBuilder(URI.create(base + "/time-series"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"powerStation\":\"Startup\",\"date\":\"" + date
+                            + "\",\"zone\":\"Europe/Budapest\",\"period\":\"PT15M\",\"timestamp\":\"" + date
+                            + "T00:00:00\",\"series\":[" + series + "]}"))
+                    .build(), HttpResponse.BodyHandlers.discarding());
+
+            String view = base + "/time-series/power-stations/Startup/dates/" + date;
+            long[] latencies = new long[requests];
+            long[] finishedAt = new long[requests];
+            for (int i = 0; i < requests; i++) {
+                long requestStart = System.nanoTime();
+                status(view);
+                latencies[i] = System.nanoTime() - requestStart;
+                finishedAt[i] = System.nanoTime() - start;
+            }
+
+            long steadyMedian = median(latencies, requests - WINDOW);
+            int steady = 0;
+            while (steady + WINDOW < requests && median(latencies, steady) > steadyMedian * 1.1) {
+                steady++;
+            }
+            results.put(run, String.format("%12d %16d %13d us %18d %13d us",
+                    ready / 1_000_000, finishedAt[0] / 1_000_000, latencies[0] / 1_000,
+                    finishedAt[steady + WINDOW - 1] / 1_000_000, steadyMedian / 1_000));
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private int status(String url) throws InterruptedException {
+        try {
+            return client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException notListeningYet) {
+            return -1;
+        }
+    }
+
+    private static long median(long[] latencies, int from) {
+        long[] window = Arrays.copyOfRange(latencies, from, from + WINDOW);
+        Arrays.sort(window);
+        return window[WINDOW / 2];
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
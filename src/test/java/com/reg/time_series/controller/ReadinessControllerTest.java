@@ -0,0 +1,36 @@
+package com.reg.time_series.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ReadinessControllerTest {
+
+    @Test
+    @DisplayName("Ready reports 503 until the application accepts traffic")
+    void ready_FollowsReadinessState() throws Exception {
+        // Arrange
+        ApplicationAvailability availability = mock(ApplicationAvailability.class);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new ReadinessController(availability)).build();
+
+        // Act & Assert
+        when(availability.getReadinessState()).thenReturn(ReadinessState.REFUSING_TRAFFIC);
+        mockMvc.perform(get("/api/ready"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(content().string("REFUSING_TRAFFIC"));
+
+        when(availability.getReadinessState()).thenReturn(ReadinessState.ACCEPTING_TRAFFIC);
+        mockMvc.perform(get("/api/ready"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("ACCEPTING_TRAFFIC"));
+    }
+}
@@ -3,8 +3,18 @@ package com.reg.time_series.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.reg.time_series.exceptions.GlobalExceptionHandler;
+import com.reg.time_series.model.ForecastAccuracyDTO;
+import com.reg.time_series.model.TimeSeriesAsOfDTO;
+import com.reg.time_series.model.TimeSeriesChangesDTO;
 import com.reg.time_series.model.TimeSeriesData;
 import com.reg.time_series.model.TimeSeriesViewDTO;
+import com.reg.time_series.model.TimeSeriesViewWindow;
+import com.reg.time_series.model.BulkImportResult;
+import com.reg.time_series.service.ForecastAnalyticsService;
+import com.reg.time_series.service.TimeSeriesBulkImportService;
+import com.reg.time_series.service.TimeSeriesETagTracker;
+import com.reg.time_series.service.TimeSeriesEventBroadcaster;
 import com.reg.time_series.service.TimeSeriesService;
 import org.apache.tomcat.util.http.fileupload.FileUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,6 +22,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
@@ -22,8 +33,11 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.time.Clock;
 import java.time.LocalDate;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.List;
 import java.util.zip.ZipEntry;
@@ -31,7 +45,9 @@ import java.util.zip.ZipOutputStream;
 import java.io.ByteArrayOutputStream;
 
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -42,6 +58,21 @@ class TimeSeriesControllerTest {
     @Mock
     private TimeSeriesService timeSeriesService;
 
+    @Mock
+    private TimeSeriesBulkImportService bulkImportService;
+
+    @Mock
+    private TimeSeriesEventBroadcaster eventBroadcaster;
+
+    @Mock
+    private TimeSeriesETagTracker eTagTracker;
+
+    @Mock
+    private ForecastAnalyticsService analyticsService;
+
+    @Spy
+    private Clock clock = Clock.systemDefaultZone();
+
     @InjectMocks
     private TimeSeriesController timeSeriesController;
 
@@ -116,6 +147,30 @@ class TimeSeriesControllerTest {
         verify(timeSeriesService).save(any(TimeSeriesData.class));
     }
 
+    @Test
+    void receiveTimeSeriesBulk_NdjsonFile_ReturnsCreated() throws Exception {
+        // Arrange
+        BulkImportResult result = new BulkImportResult();
+        result.setRecords(2);
+        result.setSavedRecords(2);
+        result.setBatches(1);
+        when(bulkImportService.importNdjson(any())).thenReturn(result);
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "month.ndjson",
+                "application/x-ndjson",
+                "{\"zone\": \"Europe/Budapest\", \"period\": \"PT15M\"}\n".getBytes()
+        );
+
+        // Act & Assert
+        mockMvc.perform(multipart("/api/time-series/bulk")
+                        .file(file))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.savedRecords").value(2));
+
+        verify(bulkImportService).importNdjson(any());
+        verify(bulkImportService, never()).importDocument(any());
+    }
+
     @Test
     void getPowerStations_ReturnsListOfStations() throws Exception {
         // Arrange
@@ -136,7 +191,7 @@ class TimeSeriesControllerTest {
                 LocalDate.of(2024, 1, 1),
                 LocalDate.of(2024, 1, 2)
         );
-        when(timeSeriesService.getAvailableDates(stationName)).thenReturn(dates);
+        when(timeSeriesService.getAvailableDates(stationName, null, null)).thenReturn(dates);
 
         // Act & Assert
         mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/dates", stationName))
@@ -158,6 +213,204 @@ class TimeSeriesControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void getTimeSeriesView_WhenETagMatches_ReturnsNotModifiedWithoutQuery() throws Exception {
+        // Arrange
+        when(eTagTracker.viewTag(eq("TestStation"), eq(LocalDate.of(2024, 1, 1)), any()))
+                .thenReturn("\"abc-v3\"");
+
+        // Act & Assert
+        mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/dates/{date}",
+                        "TestStation", "2024-01-01").header("If-None-Match", "\"abc-v3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"abc-v3\""));
+        verifyNoInteractions(timeSeriesService);
+    }
+
+    @Test
+    void getTimeSeriesView_PastDate_IsCacheable() throws Exception {
+        // Arrange
+        TimeSeriesViewDTO dto = new TimeSeriesViewDTO();
+        dto.setLatestVersion(3);
+        when(eTagTracker.viewTag(eq("TestStation"), eq(LocalDate.of(2024, 1, 1)), any()))
+                .thenReturn("\"abc-v3\"");
+        when(eTagTracker.viewTag(eq("TestStation"), eq(LocalDate.of(2024, 1, 1)), any(), eq(3)))
+                .thenReturn("\"abc-v3\"");
+        when(eTagTracker.observe("TestStation", LocalDate.of(2024, 1, 1), 3)).thenReturn(true);
+        when(timeSeriesService.getTimeSeriesView("TestStation", LocalDate.of(2024, 1, 1))).thenReturn(dto);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/dates/{date}",
+                        "TestStation", "2024-01-01").header("If-None-Match", "\"abc-v2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc-v3\""))
+                .andExpect(header().string("Cache-Control", containsString("max-age")));
+    }
+
+    @Test
+    void getTimeSeriesView_UsesClock() throws Exception {
+        // Arrange
+        doReturn(Instant.parse("2024-01-01T12:00:00Z")).when(clock).instant();
+        doReturn(ZoneOffset.UTC).when(clock).getZone();
+        TimeSeriesViewDTO dto = new TimeSeriesViewDTO();
+        dto.setLatestVersion(3);
+        when(eTagTracker.viewTag(eq("TestStation"), eq(LocalDate.of(2024, 1, 1)), any()))
+                .thenReturn("\"abc-v3\"");
+        when(eTagTracker.viewTag(eq("TestStation"), eq(LocalDate.of(2024, 1, 1)), any(), eq(3)))
+                .thenReturn("\"abc-v3\"");
+        when(eTagTracker.observe("TestStation", LocalDate.of(2024, 1, 1), 3)).thenReturn(true);
+        when(timeSeriesService.getTimeSeriesView("TestStation", LocalDate.of(2024, 1, 1))).thenReturn(dto);
+
+        // Act
+        mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/dates/{date}",
+                        "TestStation", "2024-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", not(containsString("max-age"))));
+
+        // Assert
+        verify(eTagTracker).viewTag("TestStation", LocalDate.of(2024, 1, 1), LocalDateTime.of(2024, 1, 1, 12, 0));
+    }
+
+    @Test
+    void getTimeSeriesView_ReadBehindSaves_IsTaggedWithVersionRead() throws Exception {
+        // Arrange: this instance committed version 3, the replica still serves version 2
+        TimeSeriesViewDTO dto = new TimeSeriesViewDTO();
+        dto.setLatestVersion(2);
+        when(eTagTracker.viewTag(eq("TestStation"), eq(LocalDate.of(2024, 1, 1)), any()))
+                .thenReturn("\"abc-v3\"");
+        when(eTagTracker.viewTag(eq("TestStation"), eq(LocalDate.of(2024, 1, 1)), any(), eq(2)))
+                .thenReturn("\"abc-v2\"");
+        when(eTagTracker.observe("TestStation", LocalDate.of(2024, 1, 1), 2)).thenReturn(false);
+        when(timeSeriesService.getTimeSeriesView("TestStation", LocalDate.of(2024, 1, 1))).thenReturn(dto);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/dates/{date}",
+                        "TestStation", "2024-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc-v2\""))
+                .andExpect(header().string("Cache-Control", "no-cache"));
+    }
+
+    @Test
+    void getTimeSeriesView_WithAsOf_ReturnsVersionAtThatTime() throws Exception {
+        // Arrange
+        TimeSeriesAsOfDTO dto = new TimeSeriesAsOfDTO();
+        dto.setVersion(2);
+        when(eTagTracker.viewTag(eq("TestStation"), eq(LocalDate.of(2024, 1, 1)), any()))
+                .thenReturn("\"abc-v3\"");
+        when(eTagTracker.viewTag(eq("TestStation"), eq(LocalDate.of(2024, 1, 1)), any(), eq(3)))
+                .thenReturn("\"abc-v3\"");
+        when(timeSeriesService.getLatestVersionNumber("TestStation", LocalDate.of(2024, 1, 1))).thenReturn(3);
+        when(timeSeriesService.getTimeSeriesAsOf("TestStation", LocalDate.of(2024, 1, 1),
+                LocalDateTime.of(2023, 12, 31, 10, 0))).thenReturn(dto);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/dates/{date}",
+                        "TestStation", "2024-01-01").param("asOf", "2023-12-31T10:00"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc-v3-asOf=2023-12-31T10:00\""))
+                .andExpect(jsonPath("$.version").value(2));
+        verify(timeSeriesService, never()).getTimeSeriesView(any(), any());
+    }
+
+    @Test
+    void getTimeSeriesView_WithWindow_ReturnsWindowWithOwnETag() throws Exception {
+        // Arrange
+        TimeSeriesViewWindow window = new TimeSeriesViewWindow();
+        window.setLatest(10);
+        window.setFromSlot(4);
+        when(eTagTracker.viewTag(eq("TestStation"), eq(LocalDate.of(2024, 1, 1)), any()))
+                .thenReturn("\"abc-v3\"");
+        when(eTagTracker.viewTag(eq("TestStation"), eq(LocalDate.of(2024, 1, 1)), any(), anyInt()))
+                .thenReturn("\"abc-v3\"");
+        when(timeSeriesService.getTimeSeriesView("TestStation", LocalDate.of(2024, 1, 1), window))
+                .thenReturn(new TimeSeriesViewDTO());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/dates/{date}",
+                        "TestStation", "2024-01-01").param("latest", "10").param("fromSlot", "4"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc-v3-versions=..;latest=10;slots=4..\""));
+        verify(timeSeriesService, never()).getTimeSeriesView(any(), any());
+    }
+
+    @Test
+    void getTimeSeriesView_WithWindow_WhenETagMatches_ReturnsNotModified() throws Exception {
+        // Arrange: the client sends the tag of the window together with another one
+        when(eTagTracker.viewTag(eq("TestStation"), eq(LocalDate.of(2024, 1, 1)), any()))
+                .thenReturn("\"abc-v3\"");
+        String windowTag = "\"abc-v3-versions=..;latest=10;slots=4..\"";
+
+        // Act & Assert
+        mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/dates/{date}",
+                        "TestStation", "2024-01-01").param("latest", "10").param("fromSlot", "4")
+                        .header("If-None-Match", "\"abc-v2\", " + windowTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", windowTag));
+        verifyNoInteractions(timeSeriesService);
+    }
+
+    @Test
+    void getTimeSeriesView_WithInvalidWindow_ReturnsBadRequest() throws Exception {
+        // Arrange
+        mockMvc = MockMvcBuilders.standaloneSetup(timeSeriesController)
+                .setControllerAdvice(new GlobalExceptionHandler()).build();
+
+        // Act & Assert
+        mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/dates/{date}",
+                        "TestStation", "2024-01-01").param("fromVersion", "3").param("toVersion", "2"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(timeSeriesService, eTagTracker);
+    }
+
+    @Test
+    void getTimeSeriesAsOf_ReturnsEveryStation() throws Exception {
+        // Arrange
+        TimeSeriesAsOfDTO first = new TimeSeriesAsOfDTO();
+        first.setPowerStationName("A");
+        TimeSeriesAsOfDTO second = new TimeSeriesAsOfDTO();
+        second.setPowerStationName("B");
+        when(timeSeriesService.getTimeSeriesAsOf(LocalDate.of(2024, 1, 1), LocalDateTime.of(2023, 12, 31, 10, 0)))
+                .thenReturn(List.of(first, second));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/time-series/dates/{date}", "2024-01-01").param("asOf", "2023-12-31T10:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].powerStationName").value("B"));
+    }
+
+    @Test
+    void getChangesSince_PassesSinceVersion() throws Exception {
+        // Arrange
+        String stationName = "TestStation";
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        TimeSeriesChangesDTO dto = new TimeSeriesChangesDTO();
+        dto.setLatestVersion(4);
+        when(timeSeriesService.getChangesSince(stationName, date, 3)).thenReturn(dto);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/dates/{date}/changes",
+                        stationName, "2024-01-01").param("sinceVersion", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.latestVersion").value(4));
+    }
+
+    @Test
+    void getForecastAccuracy_PassesRange() throws Exception {
+        // Arrange
+        ForecastAccuracyDTO dto = new ForecastAccuracyDTO();
+        dto.setDays(31);
+        when(analyticsService.getForecastAccuracy("TestStation", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)))
+                .thenReturn(dto);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/analytics", "TestStation")
+                        .param("from", "2024-01-01")
+                        .param("to", "2024-01-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.days").value(31));
+    }
+
     private TimeSeriesData createSampleTimeSeriesData() {
         TimeSeriesData data = new TimeSeriesData();
         data.setPowerStation("TestStation");
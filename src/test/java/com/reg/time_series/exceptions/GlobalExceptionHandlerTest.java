@@ -125,4 +125,21 @@ class GlobalExceptionHandlerTest {
                     assertThat(errorResponse.getPath()).isEqualTo("uri=/test");
                 });
     }
+
+    @Test
+    void handleStaleTimeSeriesException_ShouldReturnConflict() {
+        // Arrange
+        StaleTimeSeriesException ex = new StaleTimeSeriesException("Newer version exists");
+
+        // Act
+        ResponseEntity<ErrorResponse> response = handler.handleStaleTimeSeriesException(ex, webRequest);
+
+        // Assert
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(response.getBody())
+                .satisfies(errorResponse -> {
+                    assertThat(errorResponse.getStatus()).isEqualTo(409);
+                    assertThat(errorResponse.getMessage()).isEqualTo("Newer version exists");
+                });
+    }
 }
\ No newline at end of file
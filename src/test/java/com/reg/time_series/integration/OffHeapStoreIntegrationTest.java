@@ -0,0 +1,107 @@
+package com.reg.time_series.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reg.time_series.model.TimeSeriesColumnsDTO;
+import com.reg.time_series.model.TimeSeriesData;
+import com.reg.time_series.repositories.TimeSeriesRepository;
+import com.reg.time_series.service.OffHeapSeriesStore;
+import com.reg.time_series.service.TimeSeriesService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Saves through the off-heap store; the tables are written behind, so the test
+ * is not transactional.
+ */
+@SpringBootTest(properties = {
+        "time-series.store=off-heap",
+        "time-series.off-heap.capacity-mb=16",
+        "time-series.warmup.enabled=false"})
+@AutoConfigureMockMvc
+class OffHeapStoreIntegrationTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OffHeapSeriesStore store;
+
+    @Autowired
+    private TimeSeriesRepository repository;
+
+    @Autowired
+    private TimeSeriesService timeSeriesService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Versions are served from the store and written to the tables behind it")
+    void saveAndView_UseStore() throws Exception {
+        // Arrange
+        String powerStation = "Off-Heap Station " + UUID.randomUUID();
+        LocalDate today = LocalDate.now();
+
+        // Act
+        save(data(powerStation, today, 3, 100));
+        save(data(powerStation, today, 1, 200));
+        mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/dates/{date}", powerStation, today))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.versions.length()").value(2))
+                .andExpect(jsonPath("$.rows[95].versionValues.1").value(100))
+                .andExpect(jsonPath("$.rows[95].versionValues.2").value(200));
+        store.flush();
+
+        // Assert: the tables hold the same versions as the store
+        List<List<Integer>> stored = new TransactionTemplate(transactionManager).execute(status ->
+                repository.findByPowerStationPowerStationAndStationDate(powerStation, today).orElseThrow()
+                        .getVersions().stream()
+                        .sorted((a, b) -> Integer.compare(a.getVersion(), b.getVersion()))
+                        .map(version -> List.copyOf(version.getSeries()))
+                        .toList());
+        List<List<Integer>> resident = timeSeriesService.getTimeSeriesColumns(powerStation, today).getVersions().stream()
+                .map(TimeSeriesColumnsDTO.VersionColumn::getValues)
+                .toList();
+        assertThat(stored).isEqualTo(resident);
+        assertThat(store.pendingWrites()).isZero();
+        assertThat(store.residentDates()).isPositive();
+    }
+
+    private void save(TimeSeriesData data) throws Exception {
+        mockMvc.perform(post("/api/time-series")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(data)))
+                .andExpect(status().isCreated());
+    }
+
+    private static TimeSeriesData data(String powerStation, LocalDate date, int hoursBefore, int value) {
+        TimeSeriesData data = new TimeSeriesData();
+        data.setPowerStation(powerStation);
+        data.setDate(date);
+        data.setZone("UTC");
+        data.setPeriod("PT15M");
+        data.setTimestamp(date.atStartOfDay().minusHours(hoursBefore));
+        data.setSeries(Collections.nCopies(96, value));
+        return data;
+    }
+}
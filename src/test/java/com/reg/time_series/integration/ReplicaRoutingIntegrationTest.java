@@ -0,0 +1,166 @@
+package com.reg.time_series.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reg.time_series.entity.PowerStation;
+import com.reg.time_series.model.TimeSeriesData;
+import com.reg.time_series.repositories.PowerStationRepository;
+import com.reg.time_series.repositories.TimeSeriesRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and the replica. The
+ * replica only gets the schema, so a read that finds data was served by the primary.
+ * The schema is copied before each test, so the startup warmup has no replica to query.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingIntegrationTest.PRIMARY_URL,
+        "time-series.replica.enabled=true",
+        "time-series.replica.datasource.url=" + ReplicaRoutingIntegrationTest.REPLICA_URL,
+        "time-series.replica.read-your-writes-ms=60000",
+        "time-series.warmup.enabled=false"})
+@AutoConfigureMockMvc
+class ReplicaRoutingIntegrationTest {
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TimeSeriesRepository timeSeriesRepository;
+
+    @Autowired
+    private PowerStationRepository powerStationRepository;
+
+    @BeforeEach
+    void setUp() {
+        replica.execute("DROP ALL OBJECTS");
+        primary.queryForList("SCRIPT NODATA", String.class).forEach(replica::execute);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timeSeriesRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Read-only transactions use the replica, other transactions the primary")
+    void readOnlyTransactionsUseReplica() {
+        // Arrange
+        primary.update("INSERT INTO power_station (power_station) VALUES ('Primary Station')");
+        replica.update("INSERT INTO power_station (power_station) VALUES ('Replica Station')");
+        JdbcTemplate routed = new JdbcTemplate(dataSource);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        String query = "SELECT power_station FROM power_station WHERE power_station IN ('Primary Station', 'Replica Station')";
+
+        try {
+            // Act
+            List<String> readOnlyResult = readOnly.execute(status -> routed.queryForList(query, String.class));
+            List<String> readWriteResult = readWrite.execute(status -> routed.queryForList(query, String.class));
+
+            // Assert
+            assertThat(readOnlyResult).containsExactly("Replica Station");
+            assertThat(readWriteResult).containsExactly("Primary Station");
+        } finally {
+            primary.update("DELETE FROM power_station WHERE power_station = 'Primary Station'");
+        }
+    }
+
+    @Test
+    @DisplayName("A client that saved reads its write from the primary, other clients read the replica")
+    void clientThatSavedReadsPrimary() throws Exception {
+        // Arrange
+        LocalDate date = LocalDate.of(2024, 3, 15);
+        TimeSeriesData data = new TimeSeriesData();
+        data.setPowerStation("Routing Test Station");
+        data.setDate(date);
+        data.setZone("Europe/Budapest");
+        data.setTimestamp(LocalDateTime.of(2024, 3, 14, 10, 0));
+        data.setPeriod(String.valueOf(Duration.ofMinutes(15)));
+        data.setSeries(List.of(100, 200, 300, 400));
+        String viewPath = "/api/time-series/power-stations/Routing Test Station/dates/2024-03-15";
+
+        // Act
+        mockMvc.perform(post("/api/time-series")
+                        .with(remoteAddress("10.0.0.1"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(data)))
+                .andExpect(status().isCreated());
+
+        // Assert
+        mockMvc.perform(get(viewPath).with(remoteAddress("10.0.0.1")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(viewPath).with(remoteAddress("10.0.0.2")))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("A lookup that found nothing on a lagging replica finds the row once the replica caught up")
+    void replicaLookupsAreNotCached() {
+        // Arrange
+        primary.update("INSERT INTO power_station (power_station) VALUES ('Lagging Station')");
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        try {
+            // Act
+            Optional<PowerStation> lagging = readOnly.execute(status ->
+                    powerStationRepository.findByPowerStation("Lagging Station"));
+            replica.update("INSERT INTO power_station (power_station) VALUES ('Lagging Station')");
+            Optional<PowerStation> caughtUp = readOnly.execute(status ->
+                    powerStationRepository.findByPowerStation("Lagging Station"));
+
+            // Assert
+            assertThat(lagging).isEmpty();
+            assertThat(caughtUp).isPresent();
+        } finally {
+            primary.update("DELETE FROM power_station WHERE power_station = 'Lagging Station'");
+        }
+    }
+
+    private static RequestPostProcessor remoteAddress(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package com.reg.time_series.integration;
+
+import com.reg.time_series.entity.CacheRegions;
+import com.reg.time_series.entity.PowerStation;
+import com.reg.time_series.entity.PowerStationDate;
+import com.reg.time_series.model.SecondLevelCacheStatus;
+import com.reg.time_series.repositories.PowerStationRepository;
+import com.reg.time_series.repositories.TimeSeriesRepository;
+import com.reg.time_series.service.SecondLevelCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Every lookup runs in its own transaction, so that it cannot be answered by
+ * the persistence context of an earlier one.
+ */
+@SpringBootTest(properties = "time-series.warmup.enabled=false")
+class SecondLevelCacheIntegrationTest {
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 20);
+
+    @Autowired
+    private PowerStationRepository powerStationRepository;
+
+    @Autowired
+    private TimeSeriesRepository timeSeriesRepository;
+
+    @Autowired
+    private SecondLevelCache secondLevelCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            PowerStation powerStation = new PowerStation();
+            powerStation.setPowerStation("Cached Station");
+            powerStationRepository.save(powerStation);
+            PowerStationDate powerStationDate = new PowerStationDate();
+            powerStationDate.setPowerStation(powerStation);
+            powerStationDate.setStationDate(DATE);
+            powerStationDate.setZone("Europe/Budapest");
+            powerStationDate.setVersions(new ArrayList<>());
+            timeSeriesRepository.save(powerStationDate);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        timeSeriesRepository.deleteAll();
+        powerStationRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Repeated lookups of a station and its date are answered by the cache")
+    void lookups_HitTheCache() {
+        // Arrange
+        Long id = lookUp().orElseThrow().getId();
+        long queryHits = hits(CacheRegions.QUERY_RESULTS);
+        long dateHits = hits(CacheRegions.POWER_STATION_DATE);
+
+        // Act
+        Optional<PowerStationDate> found = lookUp();
+        Optional<PowerStationDate> byId = transaction.execute(status -> timeSeriesRepository.findById(id));
+
+        // Assert
+        assertThat(found).isPresent();
+        assertThat(byId).isPresent();
+        assertThat(hits(CacheRegions.QUERY_RESULTS)).isEqualTo(queryHits + 2);
+        assertThat(hits(CacheRegions.POWER_STATION_DATE)).isEqualTo(dateHits + 1);
+        assertThat(secondLevelCache.status().getRegions())
+                .allSatisfy(region -> assertThat(region.getHitRatio()).isBetween(0.0, 1.0));
+    }
+
+    @Test
+    @DisplayName("A saved change of a date is seen by the next lookup")
+    void save_InvalidatesCachedDate() {
+        // Arrange
+        lookUp();
+
+        // Act
+        transaction.executeWithoutResult(status -> lookUp().orElseThrow().setArchivedVersions(3));
+
+        // Assert
+        assertThat(lookUp().orElseThrow().getArchivedVersions()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Dates deleted with plain SQL are gone from the cache after the eviction")
+    void evictStationDates_DropsDeletedDates() {
+        // Arrange
+        lookUp();
+        jdbcTemplate.update("DELETE FROM power_station_date WHERE station_date = ?", DATE);
+
+        // Act
+        secondLevelCache.evictStationDates();
+
+        // Assert
+        assertThat(lookUp()).isEmpty();
+    }
+
+    private Optional<PowerStationDate> lookUp() {
+        return transaction.execute(status -> powerStationRepository.findByPowerStation("Cached Station")
+                .flatMap(powerStation -> timeSeriesRepository.findByPowerStationAndStationDate(powerStation, DATE)));
+    }
+
+    private long hits(String name) {
+        return secondLevelCache.status().getRegions().stream()
+                .filter(region -> region.getName().equals(name))
+                .mapToLong(SecondLevelCacheStatus.Region::getHits)
+                .findFirst().orElseThrow();
+    }
+}
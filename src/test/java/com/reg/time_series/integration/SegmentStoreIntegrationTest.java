@@ -0,0 +1,177 @@
+package com.reg.time_series.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reg.time_series.entity.TimeSeriesVersion;
+import com.reg.time_series.model.TimeSeriesData;
+import com.reg.time_series.service.SegmentVersionStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "time-series.store=segments",
+        "time-series.warmup.enabled=false"})
+@AutoConfigureMockMvc
+class SegmentStoreIntegrationTest {
+    @TempDir
+    static Path segments;
+
+    @TempDir
+    Path ownSegments;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void segmentDirectory(DynamicPropertyRegistry registry) {
+        registry.add("time-series.segments.directory", () -> segments.toString());
+    }
+
+    @Test
+    @DisplayName("Versions go to the segment of the date, only the date row to the database")
+    void saveAndView_UseSegments() throws Exception {
+        // Arrange
+        String powerStation = "Segment Station " + UUID.randomUUID();
+        LocalDate date = LocalDate.of(2024, 3, 15);
+
+        // Act
+        save(data(powerStation, date, LocalDateTime.of(2024, 3, 14, 10, 0), 100));
+        save(data(powerStation, date, LocalDateTime.of(2024, 3, 14, 12, 0), 200));
+
+        // Assert
+        mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/dates/{date}", powerStation, date))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.versions.length()").value(2))
+                .andExpect(jsonPath("$.rows[0].versionValues.1").value(100))
+                .andExpect(jsonPath("$.rows[0].versionValues.2").value(200));
+        mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/dates", powerStation))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value("2024-03-15"));
+        mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/analytics", powerStation)
+                        .param("from", date.toString())
+                        .param("to", date.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.days").value(1))
+                .andExpect(jsonPath("$.versions").value(2));
+        assertThat(Files.exists(segments.resolve("2024-03-15.seg"))).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM time_series_versions v " +
+                "JOIN power_station_date psd ON psd.id = v.time_series_id " +
+                "JOIN power_station ps ON ps.id = psd.power_station_id WHERE ps.power_station = ?",
+                Integer.class, powerStation)).isZero();
+    }
+
+    @Test
+    @DisplayName("A save of a date waits for the open one and merges on the committed version when it rolls back")
+    void append_WaitsForOpenSaveOfDate() throws Exception {
+        // Arrange: the first save keeps its transaction open until it is released, no station has the id
+        SegmentVersionStore store = new SegmentVersionStore(ownSegments, false);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        LocalDate date = LocalDate.of(2024, 3, 16);
+        append(store, -1, date, 100);
+        CountDownLatch appended = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService saves = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> rolledBack = saves.submit(() -> transaction.executeWithoutResult(status -> {
+                append(store, -1, date, 200);
+                appended.countDown();
+                await(release);
+                status.setRollbackOnly();
+            }));
+            assertThat(appended.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // Act
+            Future<TimeSeriesVersion> second = saves.submit(() -> transaction.execute(status ->
+                    append(store, -1, date, 300)));
+
+            // Assert: the second save waits until the first one rolls back, then follows the committed version
+            Thread.sleep(200);
+            assertThat(second).isNotDone();
+            release.countDown();
+            rolledBack.get(10, TimeUnit.SECONDS);
+            assertThat(second.get(10, TimeUnit.SECONDS).getVersion()).isEqualTo(2);
+            assertThat(store.find(-1, date).orElseThrow().getVersions())
+                    .extracting(version -> version.getSeries().get(0))
+                    .containsExactly(100, 300);
+        } finally {
+            release.countDown();
+            saves.shutdownNow();
+        }
+    }
+
+    private static TimeSeriesVersion append(SegmentVersionStore store, long stationId, LocalDate date, int value) {
+        return store.append(stationId, date, "UTC", () -> null, latest -> {
+            TimeSeriesVersion version = new TimeSeriesVersion();
+            version.setStationDate(date);
+            version.setVersion(latest.map(TimeSeriesVersion::getVersion).orElse(0) + 1);
+            version.setTimestamp(date.atStartOfDay().minusHours(2));
+            version.setPeriod(Duration.ofMinutes(15));
+            version.setSeries(Collections.nCopies(96, value));
+            return version;
+        }, version -> { });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void save(TimeSeriesData data) throws Exception {
+        mockMvc.perform(post("/api/time-series")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(data)))
+                .andExpect(status().isCreated());
+    }
+
+    private static TimeSeriesData data(String powerStation, LocalDate date, LocalDateTime timestamp, int value) {
+        TimeSeriesData data = new TimeSeriesData();
+        data.setPowerStation(powerStation);
+        data.setDate(date);
+        data.setZone("Europe/Budapest");
+        data.setPeriod("PT15M");
+        data.setTimestamp(timestamp);
+        data.setSeries(Collections.nCopies(96, value));
+        return data;
+    }
+}
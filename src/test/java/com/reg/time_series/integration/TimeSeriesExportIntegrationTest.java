@@ -0,0 +1,139 @@
+package com.reg.time_series.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reg.time_series.model.TimeSeriesData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Not transactional: the export runs in its own transaction after the request
+ * thread has returned, it only sees committed versions.
+ */
+@SpringBootTest(properties = "time-series.warmup.enabled=false")
+@AutoConfigureMockMvc
+class TimeSeriesExportIntegrationTest {
+    private static final LocalDate DATE = LocalDate.of(2021, 6, 1);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("Every slot of every version of the selected stations is a row, ordered by station name and date")
+    void exportCsv_StreamsRowsOfSelectedStations() throws Exception {
+        // Arrange
+        String suffix = UUID.randomUUID().toString();
+        String quoted = "Export, \"Quoted\" " + suffix;
+        String plain = "Export Plain " + suffix;
+        save(data(quoted, DATE, 3, Collections.nCopies(96, 10)));
+        save(data(quoted, DATE, 1, Collections.nCopies(96, 20)));
+        save(data(quoted, DATE.plusDays(1), 1, Collections.nCopies(96, 30)));
+        save(data(plain, DATE, 1, Collections.nCopies(96, 40)));
+        save(data("Export Other " + suffix, DATE, 1, Collections.nCopies(96, 50)));
+
+        // Act
+        MvcResult started = mockMvc.perform(get("/api/time-series/export")
+                        .param("station", quoted, plain)
+                        .param("from", DATE.toString())
+                        .param("to", DATE.plusDays(1).toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String csv = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename=\"time-series-2021-06-01-2021-06-02.csv\""))
+                .andReturn().getResponse().getContentAsString();
+
+        // Assert
+        List<String> lines = csv.lines().toList();
+        String quotedField = "\"Export, \"\"Quoted\"\" " + suffix + "\"";
+        assertThat(lines).hasSize(1 + 4 * 96);
+        assertThat(lines.get(0)).isEqualTo("power_station,date,version,timestamp,slot,value");
+        assertThat(lines.get(1)).isEqualTo(plain + ",2021-06-01,1,2021-05-31T23:00,0,40");
+        assertThat(lines.get(96 + 1)).isEqualTo(quotedField + ",2021-06-01,1,2021-05-31T21:00,0,10");
+        assertThat(lines.get(2 * 96 + 2)).isEqualTo(quotedField + ",2021-06-01,2,2021-05-31T23:00,1,20");
+        assertThat(lines.get(3 * 96)).isEqualTo(quotedField + ",2021-06-01,2,2021-05-31T23:00,95,20");
+        assertThat(lines.get(3 * 96 + 1)).isEqualTo(quotedField + ",2021-06-02,1,2021-06-01T23:00,0,30");
+        assertThat(lines).noneMatch(line -> line.startsWith("Export Other"));
+    }
+
+    @Test
+    @DisplayName("Every value is exported in its own slot, a missing value leaves its slot empty")
+    void exportCsv_KeepsSlotOfEveryValue() throws Exception {
+        // Arrange
+        String station = "Export Slots " + UUID.randomUUID();
+        List<Integer> series = new ArrayList<>();
+        for (int slot = 0; slot < 96; slot++) {
+            series.add(slot == 40 ? null : slot * 10);
+        }
+        save(data(station, DATE, 1, series));
+
+        // Act
+        MvcResult started = mockMvc.perform(get("/api/time-series/export")
+                        .param("station", station)
+                        .param("from", DATE.toString())
+                        .param("to", DATE.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String csv = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Assert
+        List<String> lines = csv.lines().toList();
+        assertThat(lines).hasSize(1 + 96);
+        assertThat(lines.get(1 + 39)).endsWith(",39,390");
+        assertThat(lines.get(1 + 40)).endsWith(",40,");
+        assertThat(lines.get(1 + 41)).endsWith(",41,410");
+        assertThat(lines.get(96)).endsWith(",95,950");
+    }
+
+    @Test
+    @DisplayName("A range that ends before it starts is refused before the export starts")
+    void exportCsv_WithInvertedRange_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/time-series/export")
+                        .param("from", DATE.toString())
+                        .param("to", DATE.minusDays(1).toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void save(TimeSeriesData data) throws Exception {
+        mockMvc.perform(post("/api/time-series")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(data)))
+                .andExpect(status().isCreated());
+    }
+
+    private static TimeSeriesData data(String powerStation, LocalDate date, int hoursBefore, List<Integer> series) {
+        TimeSeriesData data = new TimeSeriesData();
+        data.setPowerStation(powerStation);
+        data.setDate(date);
+        data.setZone("UTC");
+        data.setPeriod("PT15M");
+        data.setTimestamp(date.atStartOfDay().minusHours(hoursBefore));
+        data.setSeries(series);
+        return data;
+    }
+}
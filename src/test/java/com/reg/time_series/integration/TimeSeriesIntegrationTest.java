@@ -5,6 +5,9 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.reg.time_series.model.TimeSeriesData;
 import com.reg.time_series.repositories.PowerStationRepository;
 import com.reg.time_series.repositories.TimeSeriesRepository;
+import com.reg.time_series.service.TimeSeriesCompactionService;
+import jakarta.persistence.EntityManager;
+import lombok.extern.log4j.Log4j2;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,15 +23,21 @@ import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.zip.ZipEntry;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+@Log4j2
 @SpringBootTest
 @AutoConfigureMockMvc
 @Transactional
@@ -46,6 +55,12 @@ class TimeSeriesIntegrationTest {
     @Autowired
     private PowerStationRepository powerStationRepository;
 
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TimeSeriesCompactionService compactionService;
+
     private TimeSeriesData createSampleTimeSeriesData() {
         TimeSeriesData data = new TimeSeriesData();
         data.setPowerStation("Test Station");
@@ -111,6 +126,321 @@ class TimeSeriesIntegrationTest {
         assertThat(timeSeriesRepository.findDatesByPowerStation("Test Station"))
                 .contains(LocalDate.now());
     }
+    @Test
+    void changesSinceVersionTest() throws Exception {
+        // Arrange: a full day, then a revision at 10:00 that changes every value
+        TimeSeriesData first = createSampleTimeSeriesData();
+        first.setDate(LocalDate.of(2024, 3, 20));
+        first.setTimestamp(LocalDateTime.of(2024, 3, 20, 6, 0));
+        first.setSeries(Collections.nCopies(96, 100));
+        TimeSeriesData second = createSampleTimeSeriesData();
+        second.setDate(LocalDate.of(2024, 3, 20));
+        second.setTimestamp(LocalDateTime.of(2024, 3, 20, 10, 0));
+        second.setSeries(Collections.nCopies(96, 200));
+        for (TimeSeriesData data : List.of(first, second)) {
+            mockMvc.perform(post("/api/time-series")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(data)))
+                    .andExpect(status().isCreated());
+        }
+
+        // Act & Assert: only the tail after the safety window (10:15 + 90 minutes) changed
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/dates/2024-03-20/changes")
+                        .param("sinceVersion", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.latestVersion").value(2))
+                .andExpect(jsonPath("$.changes.length()").value(1))
+                .andExpect(jsonPath("$.changes[0].version").value(2))
+                .andExpect(jsonPath("$.changes[0].fromSlot").value(47))
+                .andExpect(jsonPath("$.changes[0].fromTimeSlot").value("11:45"))
+                .andExpect(jsonPath("$.changes[0].values.length()").value(49));
+
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/dates/2024-03-20/changes")
+                        .param("sinceVersion", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes.length()").value(0));
+
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/dates/2024-03-20/changes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes[0].fromSlot").value(0))
+                .andExpect(jsonPath("$.changes[0].values.length()").value(96));
+    }
+
+    @Test
+    void viewWindowTest() throws Exception {
+        // Arrange: four versions of a full day, version n has the value n everywhere
+        for (int number = 1; number <= 4; number++) {
+            TimeSeriesData data = createSampleTimeSeriesData();
+            data.setDate(LocalDate.of(2024, 3, 20));
+            data.setTimestamp(LocalDateTime.of(2024, 3, 20, 5 + number, 0));
+            data.setSeries(Collections.nCopies(96, number));
+            mockMvc.perform(post("/api/time-series")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(data)))
+                    .andExpect(status().isCreated());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act & Assert: the latest two versions of every slot
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/dates/2024-03-20")
+                        .param("latest", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.latestVersion").value(4))
+                .andExpect(jsonPath("$.versions.length()").value(2))
+                .andExpect(jsonPath("$.versions[0].version").value(3))
+                .andExpect(jsonPath("$.rows.length()").value(96))
+                .andExpect(jsonPath("$.rows[95].versionValues.length()").value(2));
+
+        // The page before them, cut to four slots
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/dates/2024-03-20")
+                        .param("toVersion", "2").param("latest", "2")
+                        .param("fromSlot", "92").param("toSlot", "95"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.latestVersion").value(4))
+                .andExpect(jsonPath("$.versions[0].version").value(1))
+                .andExpect(jsonPath("$.versions[1].version").value(2))
+                .andExpect(jsonPath("$.rows.length()").value(4))
+                .andExpect(jsonPath("$.rows[0].timeSlot").value("23:00"))
+                .andExpect(jsonPath("$.rows[3].versionValues['2']").value(2));
+
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/dates/2024-03-20")
+                        .param("fromSlot", "5").param("toSlot", "4"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void asOfQueryTest() throws Exception {
+        // Arrange: Test Station revised at 12:00, Other Station only forecast at 11:00
+        LocalDate date = LocalDate.of(2024, 3, 15);
+        Object[][] versions = {
+                {"Test Station", LocalDateTime.of(2024, 3, 14, 10, 0), 100},
+                {"Test Station", LocalDateTime.of(2024, 3, 14, 12, 0), 200},
+                {"Other Station", LocalDateTime.of(2024, 3, 14, 11, 0), 300}};
+        for (Object[] version : versions) {
+            TimeSeriesData data = createSampleTimeSeriesData();
+            data.setPowerStation((String) version[0]);
+            data.setDate(date);
+            data.setTimestamp((LocalDateTime) version[1]);
+            data.setSeries(Collections.nCopies(96, (Integer) version[2]));
+            mockMvc.perform(post("/api/time-series")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(data)))
+                    .andExpect(status().isCreated());
+        }
+        entityManager.flush();
+
+        // Act & Assert
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/dates/2024-03-15")
+                        .param("asOf", "2024-03-14T11:59"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(1))
+                .andExpect(jsonPath("$.values[95]").value(100));
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/dates/2024-03-15")
+                        .param("asOf", "2024-03-14T12:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(2))
+                .andExpect(jsonPath("$.values[95]").value(200));
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/dates/2024-03-15")
+                        .param("asOf", "2024-03-14T09:00"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/time-series/dates/2024-03-15").param("asOf", "2024-03-14T11:30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].powerStationName").value("Other Station"))
+                .andExpect(jsonPath("$[0].values[0]").value(300))
+                .andExpect(jsonPath("$[1].powerStationName").value("Test Station"))
+                .andExpect(jsonPath("$[1].version").value(1));
+        mockMvc.perform(get("/api/time-series/dates/2024-03-15").param("asOf", "2024-03-14T10:30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void lateArrivalTest() throws Exception {
+        // Arrange: the 10:00 revision arrives after the one of 14:00
+        Object[][] versions = {
+                {LocalDateTime.of(2024, 3, 20, 6, 0), 100},
+                {LocalDateTime.of(2024, 3, 20, 14, 0), 300},
+                {LocalDateTime.of(2024, 3, 20, 10, 0), 200}};
+        for (Object[] version : versions) {
+            TimeSeriesData data = createSampleTimeSeriesData();
+            data.setDate(LocalDate.of(2024, 3, 20));
+            data.setTimestamp((LocalDateTime) version[0]);
+            data.setSeries(Collections.nCopies(96, (Integer) version[1]));
+            mockMvc.perform(post("/api/time-series")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(data)))
+                    .andExpect(status().isCreated());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act & Assert: 10:00 became version 2, the 14:00 version is merged on top of it
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/dates/2024-03-20/changes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.latestVersion").value(3))
+                .andExpect(jsonPath("$.changes[1].timestamp[3]").value(10))
+                .andExpect(jsonPath("$.changes[1].fromSlot").value(47))
+                .andExpect(jsonPath("$.changes[2].timestamp[3]").value(14))
+                .andExpect(jsonPath("$.changes[2].fromSlot").value(63))
+                .andExpect(jsonPath("$.changes[2].values.length()").value(33));
+
+        // A reader that had versions 1 and 2 before the late one arrived reads version 2 again
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/dates/2024-03-20/changes")
+                        .param("sinceVersion", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rewrittenFrom").value(2))
+                .andExpect(jsonPath("$.changes.length()").value(2))
+                .andExpect(jsonPath("$.changes[0].version").value(2))
+                .andExpect(jsonPath("$.changes[0].timestamp[3]").value(10));
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/dates/2024-03-20/changes")
+                        .param("sinceVersion", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rewrittenFrom").doesNotExist())
+                .andExpect(jsonPath("$.changes.length()").value(0));
+
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/dates/2024-03-20")
+                        .param("asOf", "2024-03-20T14:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(3))
+                .andExpect(jsonPath("$.values[46]").value(100))
+                .andExpect(jsonPath("$.values[47]").value(200))
+                .andExpect(jsonPath("$.values[62]").value(200))
+                .andExpect(jsonPath("$.values[63]").value(300));
+    }
+
+    @Test
+    void forecastAccuracyTest() throws Exception {
+        // Arrange: two forecasts on the day before, a revision at midnight after the safety window
+        LocalDate date = LocalDate.of(2024, 3, 15);
+        Object[][] versions = {
+                {LocalDateTime.of(2024, 3, 14, 10, 0), 100},
+                {LocalDateTime.of(2024, 3, 14, 12, 0), 110},
+                {LocalDateTime.of(2024, 3, 15, 0, 0), 130}};
+        for (Object[] version : versions) {
+            TimeSeriesData data = createSampleTimeSeriesData();
+            data.setDate(date);
+            data.setTimestamp((LocalDateTime) version[0]);
+            data.setSeries(Collections.nCopies(96, (Integer) version[1]));
+            mockMvc.perform(post("/api/time-series")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(data)))
+                    .andExpect(status().isCreated());
+        }
+        entityManager.flush();
+
+        // Act & Assert: slots 0-6 (before 01:45) kept 110 in the last version
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/analytics")
+                        .param("from", "2024-03-01")
+                        .param("to", "2024-03-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.days").value(1))
+                .andExpect(jsonPath("$.versions").value(3))
+                .andExpect(jsonPath("$.periodMinutes").value(15))
+                .andExpect(jsonPath("$.slots[0].meanDrift").value(10.0))
+                .andExpect(jsonPath("$.slots[0].revisions").value(1))
+                .andExpect(jsonPath("$.slots[10].meanDrift").value(30.0))
+                .andExpect(jsonPath("$.slots[10].revisions").value(2))
+                .andExpect(jsonPath("$.leadTimes[0].leadTimeHours").value(12))
+                .andExpect(jsonPath("$.leadTimes[0].meanAbsoluteError").value(0.0))
+                .andExpect(jsonPath("$.leadTimes[0].samples").value(4))
+                .andExpect(jsonPath("$.leadTimes[2].leadTimeHours").value(14))
+                .andExpect(jsonPath("$.leadTimes[2].meanAbsoluteError").value(15.0))
+                .andExpect(jsonPath("$.leadTimes[2].samples").value(8));
+
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/analytics")
+                        .param("from", "2024-03-31")
+                        .param("to", "2024-03-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void forecastAccuracyOfCompactedDateTest() throws Exception {
+        // Arrange: the middle version is moved to the archive of the date
+        LocalDate date = LocalDate.of(2024, 3, 15);
+        Object[][] versions = {
+                {LocalDateTime.of(2024, 3, 14, 10, 0), 100},
+                {LocalDateTime.of(2024, 3, 14, 12, 0), 110},
+                {LocalDateTime.of(2024, 3, 15, 0, 0), 130}};
+        for (Object[] version : versions) {
+            TimeSeriesData data = createSampleTimeSeriesData();
+            data.setDate(date);
+            data.setTimestamp((LocalDateTime) version[0]);
+            data.setSeries(Collections.nCopies(96, (Integer) version[1]));
+            mockMvc.perform(post("/api/time-series")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(data)))
+                    .andExpect(status().isCreated());
+        }
+        entityManager.flush();
+        assertThat(compactionService.compact(date.plusDays(60))).isPositive();
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act & Assert: the same accuracy as before the compaction
+        mockMvc.perform(get("/api/time-series/power-stations/Test Station/analytics")
+                        .param("from", "2024-03-01")
+                        .param("to", "2024-03-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.days").value(1))
+                .andExpect(jsonPath("$.versions").value(3))
+                .andExpect(jsonPath("$.slots[0].revisions").value(1))
+                .andExpect(jsonPath("$.slots[10].meanDrift").value(30.0))
+                .andExpect(jsonPath("$.slots[10].revisions").value(2))
+                .andExpect(jsonPath("$.leadTimes[2].meanAbsoluteError").value(15.0));
+    }
+
+    @Test
+    void compactViewEncodingTest() throws Exception {
+        // Arrange: a busy day with 20 versions
+        for (int v = 0; v < 20; v++) {
+            TimeSeriesData data = createSampleTimeSeriesData();
+            data.setDate(LocalDate.of(2024, 3, 20));
+            data.setTimestamp(LocalDateTime.of(2024, 3, 20, v, 10));
+            List<Integer> series = new ArrayList<>();
+            for (int slot = 0; slot < 96; slot++) {
+                series.add(100_000 + slot * 1_000 + v * 17);
+            }
+            data.setSeries(series);
+            mockMvc.perform(post("/api/time-series")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(data)))
+                    .andExpect(status().isCreated());
+        }
+        String url = "/api/time-series/power-stations/Test Station/dates/2024-03-20";
+
+        // Act
+        byte[] json = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        String ndjson = mockMvc.perform(get(url).accept("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        // Assert
+        String[] lines = ndjson.split("\n");
+        assertThat(lines).hasSize(21);
+        assertThat(objectMapper.readTree(lines[0]).get("slots").asInt()).isEqualTo(96);
+        assertThat(objectMapper.readTree(lines[20]).get("version").asInt()).isEqualTo(20);
+        byte[] ndjsonBytes = ndjson.getBytes(StandardCharsets.UTF_8);
+        log.info("View of 20 versions: JSON {} bytes ({} gzipped), NDJSON {} bytes ({} gzipped)",
+                json.length, gzip(json).length, ndjsonBytes.length, gzip(ndjsonBytes).length);
+        assertThat(ndjsonBytes.length).isLessThan(json.length * 6 / 10);
+        assertThat(gzip(ndjsonBytes).length).isLessThan(gzip(json).length / 2);
+        assertThat(gzip(json).length).isLessThan(json.length / 4);
+    }
+
+    private byte[] gzip(byte[] content) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
     @SuppressWarnings("JsonStandardCompliance")
     @Test
     void errorHandlingTest() throws Exception {
@@ -0,0 +1,271 @@
+package com.reg.time_series.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reg.time_series.entity.PowerStation;
+import com.reg.time_series.entity.TimeSeriesVersion;
+import com.reg.time_series.model.TimeSeriesData;
+import com.reg.time_series.repositories.PowerStationRepository;
+import com.reg.time_series.repositories.TimeSeriesRepository;
+import com.reg.time_series.service.WriteBehindVersionStore;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Saves through the write-behind store with a flush interval longer than the
+ * test, so the tables only change when it flushes explicitly.
+ */
+@SpringBootTest(properties = {
+        "time-series.store=write-behind",
+        "time-series.write-behind.flush-ms=600000",
+        "time-series.warmup.enabled=false"})
+@AutoConfigureMockMvc
+class WriteBehindStoreIntegrationTest {
+    @TempDir
+    static Path log;
+
+    @TempDir
+    Path recoveredLog;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WriteBehindVersionStore store;
+
+    @Autowired
+    private TimeSeriesRepository repository;
+
+    @Autowired
+    private PowerStationRepository powerStationRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Clock clock;
+
+    @DynamicPropertySource
+    static void logDirectory(DynamicPropertyRegistry registry) {
+        registry.add("time-series.write-behind.directory", () -> log.toString());
+    }
+
+    @Test
+    @DisplayName("Versions are served before they are flushed and written to the tables in one batch")
+    void saveAndView_SeeUnflushedVersions() throws Exception {
+        // Arrange
+        String powerStation = "Write-Behind Station " + UUID.randomUUID();
+        LocalDate today = LocalDate.now(clock);
+
+        // Act
+        save(data(powerStation, today, 3, 100));
+        save(data(powerStation, today, 1, 200));
+
+        // Assert: the view sees both versions, the tables none of them yet
+        mockMvc.perform(get("/api/time-series/power-stations/{powerStationName}/dates/{date}", powerStation, today))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.versions.length()").value(2))
+                .andExpect(jsonPath("$.rows[95].versionValues.1").value(100))
+                .andExpect(jsonPath("$.rows[95].versionValues.2").value(200));
+        assertThat(storedSeries(powerStation, today)).isEmpty();
+        assertThat(store.pendingWrites()).isEqualTo(2);
+
+        store.flush();
+
+        assertThat(storedSeries(powerStation, today))
+                .containsExactly(Collections.nCopies(96, 100), Collections.nCopies(96, 200));
+        assertThat(store.pendingWrites()).isZero();
+    }
+
+    @Test
+    @DisplayName("Versions left in the log are written at startup, the ones already in the tables are skipped")
+    void recover_WritesLoggedVersions() throws Exception {
+        // Arrange: version 1 is in the tables, a run that never flushed logged versions 1 and 2
+        String powerStation = "Recovered Station " + UUID.randomUUID();
+        LocalDate today = LocalDate.now(clock);
+        save(data(powerStation, today, 3, 100));
+        store.flush();
+        long stationId = stationId(powerStation);
+        WriteBehindVersionStore crashed = store(recoveredLog);
+        for (int value : new int[]{999, 300}) {
+            append(crashed, stationId, today, "UTC", value);
+        }
+
+        // Act
+        WriteBehindVersionStore restarted = store(recoveredLog);
+        restarted.recover();
+        restarted.shutdown();
+
+        // Assert
+        assertThat(storedSeries(powerStation, today))
+                .containsExactly(Collections.nCopies(96, 100), Collections.nCopies(96, 300));
+        try (Stream<Path> files = Files.list(recoveredLog)) {
+            assertThat(files).isEmpty();
+        }
+        crashed.shutdown();
+    }
+
+    @Test
+    @DisplayName("A save of a date waits for the open one, which it does not see, and follows it only when it commits")
+    void append_WaitsForOpenSaveOfDate() throws Exception {
+        // Arrange: the first save keeps its transaction open until it is released, no station has the id
+        WriteBehindVersionStore store = store(recoveredLog);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        LocalDate today = LocalDate.now(clock);
+        CountDownLatch appended = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService saves = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> rolledBack = saves.submit(() -> transaction.executeWithoutResult(status -> {
+                append(store, -1, today, "UTC", 100);
+                appended.countDown();
+                await(release);
+                status.setRollbackOnly();
+            }));
+            assertThat(appended.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // Act
+            Future<TimeSeriesVersion> second = saves.submit(() -> transaction.execute(status ->
+                    append(store, -1, today, "UTC", 200)));
+
+            // Assert: nothing is visible and the second save waits until the first one rolls back
+            assertThat(store.find(-1, today)).isEmpty();
+            Thread.sleep(200);
+            assertThat(second).isNotDone();
+            release.countDown();
+            rolledBack.get(10, TimeUnit.SECONDS);
+            assertThat(second.get(10, TimeUnit.SECONDS).getVersion()).isEqualTo(1);
+            assertThat(store.find(-1, today).orElseThrow().getVersions())
+                    .extracting(TimeSeriesVersion::getSeries)
+                    .containsExactly(Collections.nCopies(96, 200));
+        } finally {
+            release.countDown();
+            saves.shutdownNow();
+            store.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("When logging fails after the commit, the versions logged before stay and the rest are dropped")
+    void commit_WithFailingLog_DropsVersionsNotLogged() throws Exception {
+        // Arrange: a version without a zone cannot be logged, the eviction runs a week later,
+        // no station has the ids
+        WriteBehindVersionStore store = store(recoveredLog, Clock.offset(clock, Duration.ofDays(7)));
+        LocalDate yesterday = LocalDate.now(clock).minusDays(1);
+
+        // Act
+        Throwable failure = catchThrowable(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            append(store, -2, yesterday, "UTC", 100);
+            append(store, -3, yesterday, null, 200);
+        }));
+
+        // Assert: only the logged version is visible and waits for the flush, the other date can be evicted
+        assertThat(failure).isInstanceOf(NullPointerException.class);
+        assertThat(store.find(-2, yesterday)).isPresent();
+        assertThat(store.find(-3, yesterday)).isEmpty();
+        assertThat(store.pendingWrites()).isEqualTo(1);
+        store.scheduledEviction();
+        assertThat(store.residentDates()).isEqualTo(1);
+        assertThat(store.find(-2, yesterday)).isPresent();
+        store.shutdown();
+    }
+
+    private static TimeSeriesVersion append(WriteBehindVersionStore store, long stationId, LocalDate date,
+                                            String zone, int value) {
+        return store.append(stationId, date, zone, () -> null, latest -> {
+            TimeSeriesVersion version = new TimeSeriesVersion();
+            version.setStationDate(date);
+            version.setVersion(latest.map(TimeSeriesVersion::getVersion).orElse(0) + 1);
+            version.setTimestamp(date.atStartOfDay().minusHours(2));
+            version.setPeriod(Duration.ofMinutes(15));
+            version.setSeries(Collections.nCopies(96, value));
+            return version;
+        }, version -> { });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private WriteBehindVersionStore store(Path directory) {
+        return store(directory, clock);
+    }
+
+    private WriteBehindVersionStore store(Path directory, Clock storeClock) {
+        return new WriteBehindVersionStore(repository, powerStationRepository, entityManager,
+                transactionManager, storeClock, directory, false, 600000, 1000, 2);
+    }
+
+    private long stationId(String powerStation) {
+        return powerStationRepository.findByPowerStation(powerStation).map(PowerStation::getId).orElseThrow();
+    }
+
+    private List<List<Integer>> storedSeries(String powerStation, LocalDate date) {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                repository.findByPowerStationPowerStationAndStationDate(powerStation, date)
+                        .map(powerStationDate -> powerStationDate.getVersions().stream()
+                                .map(version -> List.copyOf(version.getSeries()))
+                                .toList())
+                        .orElse(List.of()));
+    }
+
+    private void save(TimeSeriesData data) throws Exception {
+        mockMvc.perform(post("/api/time-series")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(data)))
+                .andExpect(status().isCreated());
+    }
+
+    private static TimeSeriesData data(String powerStation, LocalDate date, int hoursBefore, int value) {
+        TimeSeriesData data = new TimeSeriesData();
+        data.setPowerStation(powerStation);
+        data.setDate(date);
+        data.setZone("UTC");
+        data.setPeriod("PT15M");
+        data.setTimestamp(date.atStartOfDay().minusHours(hoursBefore));
+        data.setSeries(Collections.nCopies(96, value));
+        return data;
+    }
+}
@@ -0,0 +1,197 @@
+package com.reg.time_series.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Load generator of {@code POST /api/time-series}. Synthesizes stations from the
+ * {@code ps_*.json} templates and posts their versions at the time their forecast
+ * timestamps give, compressed by the speed of the {@link LoadScenario}.
+ * <p>
+ * Station {@code i} follows template station {@code i % templates}, with its
+ * values scaled by a random factor. Version {@code r} of every station is
+ * forecast at {@code start + r * interval}, where the start is the first template
+ * time rounded down to the interval. Within a round the stations post one after
+ * the other over the spread, so a round is the burst at the quarter hour. A rate
+ * limit stretches the burst further. Needs no network beyond the server:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.reg.time_series.loadtest.LoadGenerator \
+ *   -Dexec.args=http://localhost:8080 -Dload.stations=500 -Dload.speed=50
+ * </pre>
+ */
+public class LoadGenerator {
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final LoadScenario scenario;
+    private final URI endpoint;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public LoadGenerator(LoadScenario scenario, String baseUrl) {
+        this.scenario = scenario;
+        this.endpoint = URI.create(baseUrl + "/api/time-series");
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadScenario scenario = LoadScenario.fromSystemProperties("load.");
+        LoadReport report = new LoadGenerator(scenario, args.length > 0 ? args[0] : "http://localhost:8080").run();
+        System.out.println(scenario);
+        report.print(System.out);
+    }
+
+    public LoadReport run() throws InterruptedException {
+        List<Post> posts = schedule();
+        LoadReport report = new LoadReport();
+        ExecutorService executor = Executors.newFixedThreadPool(scenario.getConcurrency());
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(executor)
+                .build();
+        Semaphore inFlight = new Semaphore(scenario.getConcurrency());
+        CountDownLatch done = new CountDownLatch(posts.size());
+
+        long begin = System.nanoTime();
+        for (Post post : posts) {
+            long scheduled = begin + post.offsetNanos();
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            inFlight.acquire();
+            long sent = System.nanoTime();
+            client.sendAsync(request(post.body()), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        long end = System.nanoTime();
+                        report.record(failure == null ? response.statusCode() : 0,
+                                (end - scheduled) / 1000, (end - sent) / 1000);
+                        inFlight.release();
+                        done.countDown();
+                    });
+        }
+        done.await();
+        report.setSeconds((System.nanoTime() - begin) / 1e9);
+        executor.shutdown();
+        return report;
+    }
+
+    /**
+     * The posts in the order of their send time.
+     */
+    List<Post> schedule() {
+        List<List<ObjectNode>> templates = templates();
+        int rounds = scenario.getRounds() > 0 ? scenario.getRounds()
+                : templates.stream().mapToInt(List::size).max().orElse(0);
+        ObjectNode first = templates.get(0).get(0);
+        LocalDateTime start = truncate(LocalDateTime.parse(first.get("timestamp").asText(), TIMESTAMP));
+
+        Random random = new Random(scenario.getSeed());
+        double[] scales = new double[scenario.getStations()];
+        for (int i = 0; i < scales.length; i++) {
+            scales[i] = 0.5 + random.nextDouble();
+        }
+
+        long rateSpacing = scenario.getRate() > 0 ? (long) (1e9 / scenario.getRate()) : 0;
+        long earliest = 0;
+        List<Post> posts = new ArrayList<>(rounds * scenario.getStations());
+        for (int round = 0; round < rounds; round++) {
+            LocalDateTime roundTime = start.plus(scenario.getInterval().multipliedBy(round));
+            for (int i = 0; i < scenario.getStations(); i++) {
+                List<ObjectNode> files = templates.get(i % templates.size());
+                LocalDateTime timestamp = roundTime.plus(scenario.getSpread()
+                        .multipliedBy(i).dividedBy(scenario.getStations())).truncatedTo(ChronoUnit.SECONDS);
+                long offset = Math.max(earliest,
+                        (long) (Duration.between(start, timestamp).toNanos() / scenario.getSpeed()));
+                earliest = offset + rateSpacing;
+                ObjectNode body = files.get(round % files.size()).deepCopy();
+                body.put("power-station", "Load " + i);
+                body.put("date", first.get("date").asText());
+                body.put("timestamp", timestamp.format(TIMESTAMP));
+                body.set("series", scale((ArrayNode) body.get("series"), scales[i]));
+                posts.add(new Post(offset, write(body)));
+            }
+        }
+        // Only a spread longer than the interval mixes two rounds
+        posts.sort(Comparator.comparingLong(Post::offsetNanos));
+        return posts;
+    }
+
+    // The files of every template station in name order, which is the order they were sent in
+    private List<List<ObjectNode>> templates() {
+        Map<String, List<ObjectNode>> byStation = new LinkedHashMap<>();
+        try (Stream<Path> paths = Files.list(scenario.getTemplates())) {
+            for (Path path : paths.filter(p -> p.getFileName().toString().matches("ps_.*\\.json")).sorted().toList()) {
+                ObjectNode file = (ObjectNode) objectMapper.readTree(path.toFile());
+                byStation.computeIfAbsent(file.get("power-station").asText(), name -> new ArrayList<>()).add(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (byStation.isEmpty()) {
+            throw new IllegalArgumentException("No ps_*.json templates in " + scenario.getTemplates());
+        }
+        return new ArrayList<>(byStation.values());
+    }
+
+    private LocalDateTime truncate(LocalDateTime time) {
+        LocalDateTime midnight = time.truncatedTo(ChronoUnit.DAYS);
+        long interval = scenario.getInterval().toSeconds();
+        return midnight.plusSeconds(Duration.between(midnight, time).toSeconds() / interval * interval);
+    }
+
+    private ArrayNode scale(ArrayNode series, double factor) {
+        ArrayNode scaled = objectMapper.createArrayNode();
+        for (JsonNode value : series) {
+            if (value.isNull()) {
+                scaled.addNull();
+            } else {
+                scaled.add(Math.round(value.asLong() * factor));
+            }
+        }
+        return scaled;
+    }
+
+    private byte[] write(ObjectNode body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpRequest request(byte[] body) {
+        return HttpRequest.newBuilder(endpoint)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    record Post(long offsetNanos, byte[] body) {
+    }
+}
@@ -0,0 +1,86 @@
+package com.reg.time_series.loadtest;
+
+import com.reg.time_series.model.TimeSeriesViewDTO;
+import com.reg.time_series.repositories.PowerStationRepository;
+import com.reg.time_series.repositories.TimeSeriesRepository;
+import com.reg.time_series.service.TimeSeriesService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "time-series.warmup.enabled=false")
+class LoadGeneratorTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TimeSeriesService timeSeriesService;
+
+    @Autowired
+    private TimeSeriesRepository timeSeriesRepository;
+
+    @Autowired
+    private PowerStationRepository powerStationRepository;
+
+    @AfterEach
+    void tearDown() {
+        timeSeriesRepository.deleteAll();
+        powerStationRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Rounds of the stations are scheduled at their forecast time, spread and rate limited")
+    void schedule_FollowsForecastTimes() {
+        // Arrange
+        LoadScenario scenario = scenario(4, 3);
+        scenario.setSpeed(60);
+        scenario.setRate(1);
+
+        // Act
+        List<LoadGenerator.Post> posts = new LoadGenerator(scenario, "http://localhost").schedule();
+
+        // Assert: 30 minutes are 30 s at 60x, the stations of a round 15 s apart spread but 1 s apart at 1/s
+        assertThat(posts).hasSize(12);
+        assertThat(posts).extracting(post -> Duration.ofNanos(post.offsetNanos()).toMillis())
+                .startsWith(0L, 1000L, 2000L, 3000L, 30_000L, 31_000L);
+        assertThat(new String(posts.get(5).body()))
+                .contains("\"power-station\":\"Load 1\"", "\"timestamp\":\"2021-06-28 04:00:15\"");
+    }
+
+    @Test
+    @DisplayName("Every post of the replay is stored and measured")
+    void run_PostsEveryVersion() throws Exception {
+        // Arrange: 30 minutes of forecast time per 50 ms
+        LoadScenario scenario = scenario(10, 4);
+        scenario.setSpeed(36_000);
+
+        // Act
+        LoadReport report = new LoadGenerator(scenario, "http://localhost:" + port).run();
+
+        // Assert
+        assertThat(report.getRequests()).isEqualTo(40);
+        assertThat(report.getErrorCount()).isZero();
+        assertThat(report.getLatency().getTotalCount()).isEqualTo(40);
+        assertThat(report.getLatency().getMaxValue()).isGreaterThanOrEqualTo(report.getServiceTime().getMaxValue());
+        TimeSeriesViewDTO view = timeSeriesService.getTimeSeriesView("Load 9", LocalDate.of(2021, 6, 28));
+        assertThat(view.getVersions()).hasSize(4);
+    }
+
+    private static LoadScenario scenario(int stations, int rounds) {
+        LoadScenario scenario = new LoadScenario();
+        scenario.setStations(stations);
+        scenario.setRounds(rounds);
+        return scenario;
+    }
+}
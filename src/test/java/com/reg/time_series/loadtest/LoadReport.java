@@ -0,0 +1,60 @@
+package com.reg.time_series.loadtest;
+
+import lombok.Data;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Result of a {@link LoadGenerator} run. The latency of a post is measured from
+ * its scheduled time, so a post held back by a slow server or by the concurrency
+ * limit counts as slow too. The service time is measured from the send.
+ * Histograms are in microseconds.
+ */
+@Data
+public class LoadReport {
+    private final Histogram latency = new Histogram(3_600_000_000L, 3);
+    private final Histogram serviceTime = new Histogram(3_600_000_000L, 3);
+    // Posts that were not answered with 201 by status, 0 for a failed connection
+    private final Map<Integer, Long> errors = new TreeMap<>();
+    private long requests;
+    private double seconds;
+
+    synchronized void record(int status, long latencyMicros, long serviceMicros) {
+        requests++;
+        if (status != 201) {
+            errors.merge(status, 1L, Long::sum);
+        }
+        latency.recordValue(Math.min(latencyMicros, latency.getHighestTrackableValue()));
+        serviceTime.recordValue(Math.min(serviceMicros, serviceTime.getHighestTrackableValue()));
+    }
+
+    public long getErrorCount() {
+        return errors.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public double getErrorRate() {
+        return requests == 0 ? 0 : (double) getErrorCount() / requests;
+    }
+
+    public double getThroughput() {
+        return seconds == 0 ? 0 : requests / seconds;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%d posts in %.1f s, %.1f posts/s, %d errors (%.2f%%) %s%n",
+                requests, seconds, getThroughput(), getErrorCount(), getErrorRate() * 100, errors);
+        out.printf("%-13s %9s %9s %9s %9s %9s%n", "ms", "p50", "p90", "p99", "p99.9", "max");
+        print(out, "latency", latency);
+        print(out, "service time", serviceTime);
+    }
+
+    private static void print(PrintStream out, String name, Histogram histogram) {
+        out.printf("%-13s %9.1f %9.1f %9.1f %9.1f %9.1f%n", name,
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+}
@@ -0,0 +1,48 @@
+package com.reg.time_series.loadtest;
+
+import lombok.Data;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of a {@link LoadGenerator} run. {@link #fromSystemProperties(String)}
+ * reads every field from a property of the same name after the prefix, e.g.
+ * {@code load.stations}.
+ */
+@Data
+public class LoadScenario {
+    // Directory of the ps_*.json templates, each template station gives the series of its files in name order
+    private Path templates = Path.of("sample_data");
+    private int stations = 100;
+    // 0 posts every file of the templates once
+    private int rounds = 0;
+    // Forecast time between two versions of a station
+    private Duration interval = Duration.ofMinutes(30);
+    // The stations post one after the other within this time after the round, as real senders do
+    private Duration spread = Duration.ofSeconds(60);
+    // Forecast time passing per second of the run
+    private double speed = 50;
+    // Most posts per second, 0 for no limit
+    private double rate = 0;
+    // Most posts waiting for an answer
+    private int concurrency = 64;
+    private long seed = 42;
+
+    public static LoadScenario fromSystemProperties(String prefix) {
+        LoadScenario scenario = new LoadScenario();
+        String templates = System.getProperty(prefix + "templates");
+        if (templates != null) {
+            scenario.setTemplates(Path.of(templates));
+        }
+        scenario.setStations(Integer.getInteger(prefix + "stations", scenario.getStations()));
+        scenario.setRounds(Integer.getInteger(prefix + "rounds", scenario.getRounds()));
+        scenario.setInterval(Duration.parse(System.getProperty(prefix + "interval", scenario.getInterval().toString())));
+        scenario.setSpread(Duration.parse(System.getProperty(prefix + "spread", scenario.getSpread().toString())));
+        scenario.setSpeed(Double.parseDouble(System.getProperty(prefix + "speed", String.valueOf(scenario.getSpeed()))));
+        scenario.setRate(Double.parseDouble(System.getProperty(prefix + "rate", String.valueOf(scenario.getRate()))));
+        scenario.setConcurrency(Integer.getInteger(prefix + "concurrency", scenario.getConcurrency()));
+        scenario.setSeed(Long.getLong(prefix + "seed", scenario.getSeed()));
+        return scenario;
+    }
+}
@@ -14,6 +14,7 @@ import org.springframework.test.context.ActiveProfiles;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -142,4 +143,80 @@ class TimeSeriesRepositoryTest {
         assertThat(found.get().getVersions()).hasSize(1);
         assertThat(found.get().getVersions().get(0).getVersion()).isEqualTo(1);
     }
-}
\ No newline at end of file
+
+    @Test
+    void findVersionsByPowerStationBetween_ShouldReturnVersionsInDateRange() {
+        // Arrange
+        PowerStationDate otherDate = new PowerStationDate();
+        otherDate.setPowerStation(powerStation);
+        otherDate.setStationDate(LocalDate.of(2024, 4, 20));
+        otherDate.setZone("Europe/Budapest");
+        entityManager.persist(otherDate);
+
+        TimeSeriesVersion otherVersion = new TimeSeriesVersion();
+        otherVersion.setPowerStationDate(otherDate);
+        otherVersion.setVersion(1);
+        otherVersion.setTimestamp(LocalDateTime.now());
+        otherVersion.setPeriod(Duration.ofMinutes(15));
+        otherVersion.setSeries(List.of(9, 9, 9, 9));
+        entityManager.persist(otherVersion);
+        entityManager.flush();
+
+        // Act
+        List<TimeSeriesVersion> march = repository.findVersionsByPowerStationBetween(
+                "Test Station", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+
+        // Assert
+        assertThat(march).singleElement()
+                .satisfies(v -> assertThat(v.getStationDate()).isEqualTo(LocalDate.of(2024, 3, 20)));
+        assertThat(repository.findDatesByPowerStationBetween(
+                "Test Station", LocalDate.of(2024, 4, 1), LocalDate.of(2024, 4, 30)))
+                .containsExactly(LocalDate.of(2024, 4, 20));
+    }
+
+    @Test
+    void findLatestAsOf_ShouldReturnLatestVersionAtThatTime() {
+        // Arrange: versions 2 and 3 have the same timestamp, an hour after version 1
+        LocalDateTime later = version.getTimestamp().truncatedTo(ChronoUnit.SECONDS).plusHours(1);
+        for (int number = 2; number <= 3; number++) {
+            TimeSeriesVersion next = new TimeSeriesVersion();
+            next.setPowerStationDate(powerStationDate);
+            next.setVersion(number);
+            next.setTimestamp(later);
+            next.setPeriod(Duration.ofMinutes(15));
+            next.setSeries(List.of(number, number, number, number));
+            entityManager.persist(next);
+        }
+        entityManager.flush();
+
+        // Act & Assert
+        assertThat(repository.findLatestAsOf(powerStationDate, version.getTimestamp().minusSeconds(1))).isEmpty();
+        assertThat(repository.findLatestAsOf(powerStationDate, later.minusSeconds(1)))
+                .get().extracting(TimeSeriesVersion::getVersion).isEqualTo(1);
+        assertThat(repository.findLatestAsOf(powerStationDate, later))
+                .get().extracting(TimeSeriesVersion::getVersion).isEqualTo(3);
+        assertThat(repository.findLatestOfEveryStationAsOf(LocalDate.of(2024, 3, 20), later.minusSeconds(1)))
+                .extracting(TimeSeriesVersion::getVersion).containsExactly(1);
+    }
+
+    @Test
+    void findVersionsBetween_ShouldReturnOnlyTheRangeInVersionOrder() {
+        // Arrange
+        for (int number = 4; number >= 2; number--) {
+            TimeSeriesVersion next = new TimeSeriesVersion();
+            next.setPowerStationDate(powerStationDate);
+            next.setVersion(number);
+            next.setTimestamp(version.getTimestamp().plusHours(number));
+            next.setPeriod(Duration.ofMinutes(15));
+            next.setSeries(List.of(number, number, number, number));
+            entityManager.persist(next);
+        }
+        entityManager.flush();
+
+        // Act & Assert
+        assertThat(repository.findLatestVersionNumber(powerStationDate)).contains(4);
+        assertThat(repository.findVersionsBetween(powerStationDate, 2, 3))
+                .extracting(TimeSeriesVersion::getVersion).containsExactly(2, 3);
+        assertThat(repository.findVersionsBetween(powerStationDate, 5, 9)).isEmpty();
+    }
+}
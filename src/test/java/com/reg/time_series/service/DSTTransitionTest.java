@@ -4,6 +4,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.util.ReflectionTestUtils;
+import java.time.Clock;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import static org.junit.jupiter.api.Assertions.*;
@@ -14,7 +15,7 @@ class DSTTransitionTest {
 
     @BeforeEach
     void setUp() {
-        timeSeriesService = new TimeSeriesService(null, null);
+        timeSeriesService = new TimeSeriesService(null, null, null, null, null, null, Clock.systemDefaultZone(), null);
     }
 
     @Test
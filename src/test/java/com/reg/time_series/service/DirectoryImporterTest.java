@@ -0,0 +1,190 @@
+package com.reg.time_series.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.reg.time_series.model.DirectoryImportStatus;
+import com.reg.time_series.exceptions.StaleTimeSeriesException;
+import com.reg.time_series.model.TimeSeriesData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DirectoryImporterTest {
+
+    @TempDir
+    Path directory;
+
+    private TimeSeriesService timeSeriesService;
+    private List<List<TimeSeriesData>> savedGroups;
+
+    @BeforeEach
+    void setUp() {
+        timeSeriesService = mock(TimeSeriesService.class);
+        savedGroups = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> savedGroups.add(new ArrayList<>(invocation.getArgument(0))))
+                .when(timeSeriesService).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Files are saved per station and date in timestamp order and moved to done or failed")
+    void importRound_SavesGroupsInTimestampOrder() throws Exception {
+        // Arrange
+        DirectoryImporter importer = importer(0);
+        write("a-late.json", "A", "2024-03-20 12:00:00");
+        write("a-early.json", "A", "2024-03-20 10:00:00");
+        write("b.json", "B", "2024-03-20 11:00:00");
+        Files.writeString(directory.resolve("broken.json"), "{\"power-station\": ");
+
+        // Act
+        boolean unsettled = importer.importRound();
+
+        // Assert
+        assertThat(unsettled).isFalse();
+        assertThat(savedGroups).hasSize(2);
+        List<TimeSeriesData> stationA = savedGroups.stream()
+                .filter(group -> group.get(0).getPowerStation().equals("A")).findFirst().orElseThrow();
+        assertThat(stationA).extracting(data -> data.getTimestamp().getHour()).containsExactly(10, 12);
+        assertThat(directory.resolve("done")).isDirectoryContaining("glob:**/a-late.json")
+                .isDirectoryContaining("glob:**/a-early.json")
+                .isDirectoryContaining("glob:**/b.json");
+        assertThat(directory.resolve("failed")).isDirectoryContaining("glob:**/broken.json")
+                .isDirectoryContaining("glob:**/broken.json.error");
+        assertThat(directory).isDirectoryNotContaining("glob:**/*.json")
+                .isDirectoryNotContaining("glob:**/" + DirectoryImporter.CHECKPOINT);
+
+        DirectoryImportStatus status = importer.status();
+        assertThat(status.getImportedFiles()).isEqualTo(3);
+        assertThat(status.getFailedFiles()).isEqualTo(1);
+        assertThat(status.getPendingFiles()).isZero();
+        assertThat(status.getFilesPerSecond()).isPositive();
+        assertThat(status.getMaxLagMillis()).isGreaterThanOrEqualTo(status.getAverageLagMillis());
+        importer.stop();
+    }
+
+    @Test
+    @DisplayName("A failing group is saved file by file and files still being written are left")
+    void importRound_RetriesFailedGroupOneByOne() throws Exception {
+        // Arrange
+        DirectoryImporter importer = importer(60_000);
+        doThrow(new IllegalArgumentException("boom")).when(timeSeriesService).saveAll(anyList());
+        doThrow(new IllegalArgumentException("refused")).when(timeSeriesService)
+                .save(argThat(data -> data.getTimestamp().getHour() == 12));
+        write("ok.json", "A", "2024-03-20 10:00:00");
+        write("refused.json", "A", "2024-03-20 12:00:00");
+        Path fresh = write("fresh.json", "A", "2024-03-20 13:00:00");
+        for (String name : List.of("ok.json", "refused.json")) {
+            Files.setLastModifiedTime(directory.resolve(name),
+                    FileTime.fromMillis(System.currentTimeMillis() - 120_000));
+        }
+
+        // Act
+        boolean unsettled = importer.importRound();
+
+        // Assert
+        assertThat(unsettled).isTrue();
+        verify(timeSeriesService, times(2)).save(any());
+        assertThat(directory.resolve("done")).isDirectoryContaining("glob:**/ok.json");
+        assertThat(Files.readString(directory.resolve("failed/refused.json.error"))).isEqualTo("refused");
+        assertThat(fresh).exists();
+        assertThat(importer.status().getPendingFiles()).isEqualTo(1);
+        importer.stop();
+    }
+
+    @Test
+    @DisplayName("Files that cannot be saved for now stay in the directory and are imported on a later round")
+    void importRound_LeavesFilesOnTransientErrors() throws Exception {
+        // Arrange
+        DirectoryImporter importer = importer(0);
+        doThrow(new StaleTimeSeriesException("busy")).when(timeSeriesService).saveAll(anyList());
+        doThrow(new DataAccessResourceFailureException("down")).when(timeSeriesService).save(any());
+        Path file = write("later.json", "A", "2024-03-20 10:00:00");
+
+        // Act
+        boolean firstRound = importer.importRound();
+        doAnswer(invocation -> savedGroups.add(new ArrayList<>(invocation.getArgument(0))))
+                .when(timeSeriesService).saveAll(anyList());
+        boolean secondRound = importer.importRound();
+
+        // Assert
+        assertThat(firstRound).isTrue();
+        assertThat(secondRound).isFalse();
+        assertThat(file).doesNotExist();
+        assertThat(directory.resolve("done/later.json")).exists();
+        assertThat(directory.resolve("failed")).isEmptyDirectory();
+        assertThat(importer.status().getFailedFiles()).isZero();
+        assertThat(importer.status().getImportedFiles()).isEqualTo(1);
+        importer.stop();
+    }
+
+    @Test
+    @DisplayName("A file recorded in the checkpoint is moved without being saved again")
+    void importRound_MovesCheckpointedFiles() throws Exception {
+        // Arrange
+        DirectoryImporter importer = importer(0);
+        Path committed = write("committed.json", "A", "2024-03-20 10:00:00");
+        Files.writeString(directory.resolve(DirectoryImporter.CHECKPOINT), String.format("%s\t%d\t%d%n",
+                "committed.json", Files.size(committed), Files.getLastModifiedTime(committed).toMillis()));
+
+        // Act
+        importer.importRound();
+
+        // Assert
+        verifyNoInteractions(timeSeriesService);
+        assertThat(directory.resolve("done/committed.json")).exists();
+        assertThat(directory.resolve(DirectoryImporter.CHECKPOINT)).doesNotExist();
+        importer.stop();
+    }
+
+    @Test
+    @DisplayName("The watcher imports a file moved into the directory")
+    void start_ImportsNewFiles() throws Exception {
+        // Arrange
+        DirectoryImporter importer = importer(0);
+        importer.start();
+
+        // Act: written elsewhere and moved in, as the vendor should deliver
+        Path outside = Files.createTempFile("forecast", ".tmp");
+        Files.writeString(outside, json("A", "2024-03-20 10:00:00"));
+        Files.move(outside, directory.resolve("new.json"), StandardCopyOption.REPLACE_EXISTING);
+
+        // Assert
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!Files.exists(directory.resolve("done/new.json")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        importer.stop();
+        assertThat(directory.resolve("done/new.json")).exists();
+        assertThat(savedGroups).hasSize(1);
+    }
+
+    private DirectoryImporter importer(long settleMillis) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        return new DirectoryImporter(timeSeriesService, objectMapper, directory, 2, settleMillis);
+    }
+
+    private Path write(String name, String powerStation, String timestamp) throws Exception {
+        return Files.writeString(directory.resolve(name), json(powerStation, timestamp));
+    }
+
+    private static String json(String powerStation, String timestamp) {
+        return String.format("""
+                {"power-station": "%s", "date": "2024-03-20", "zone": "Europe/Budapest",
+                 "timestamp": "%s", "period": "PT15M", "series": [1, 2, 3, 4]}
+                """, powerStation, timestamp);
+    }
+}
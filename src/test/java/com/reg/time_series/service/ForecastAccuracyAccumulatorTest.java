@@ -0,0 +1,65 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.model.ForecastAccuracyDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static com.reg.time_series.service.ForecastAccuracyAccumulator.NO_VALUE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ForecastAccuracyAccumulatorTest {
+    private static final LocalDate DATE = LocalDate.of(2024, 1, 2);
+    private static final long DAY_START = DATE.toEpochDay() * 24 * 60;
+
+    @Test
+    @DisplayName("Drift and revisions are counted per slot, missing values are left out")
+    void addDay_DriftAndRevisions() {
+        // Arrange: 4 slots of 6 hours
+        ForecastAccuracyAccumulator accumulator = new ForecastAccuracyAccumulator();
+        long[] timestamps = {DAY_START - 120, DAY_START - 60, DAY_START - 30};
+        int[][] values = {
+                {10, 10, NO_VALUE, 10},
+                {12, 10, 5, 10},
+                {15, 10, 7, 4}};
+
+        // Act
+        accumulator.addDay(DATE, timestamps, values);
+        accumulator.addDay(DATE.plusDays(1), new long[]{DAY_START}, new int[][]{{1, 2, 3}});
+        ForecastAccuracyDTO result = accumulator.result("Station", DATE, DATE.plusDays(1));
+
+        // Assert
+        assertThat(result.getDays()).isEqualTo(1);
+        assertThat(result.getSkippedDays()).isEqualTo(1);
+        assertThat(result.getVersions()).isEqualTo(3);
+        assertThat(result.getPeriodMinutes()).isEqualTo(360);
+        assertThat(result.getSlots()).extracting(ForecastAccuracyDTO.SlotStatistics::getTimeSlot)
+                .containsExactly("00:00", "06:00", "12:00", "18:00");
+        assertThat(result.getSlots()).extracting(ForecastAccuracyDTO.SlotStatistics::getMeanDrift)
+                .containsExactly(5.0, 0.0, 0.0, -6.0);
+        assertThat(result.getSlots()).extracting(ForecastAccuracyDTO.SlotStatistics::getRevisions)
+                .containsExactly(2L, 0L, 1L, 1L);
+    }
+
+    @Test
+    @DisplayName("Lead time errors are measured against the last version")
+    void addDay_LeadTimeErrors() {
+        // Arrange: 2 slots of 12 hours, sent 1.5 hours and 30 minutes before the day
+        ForecastAccuracyAccumulator accumulator = new ForecastAccuracyAccumulator();
+        long[] timestamps = {DAY_START - 90, DAY_START - 30, DAY_START + 13 * 60};
+        int[][] values = {{10, 20}, {14, 24}, {20, 20}};
+
+        // Act
+        accumulator.addDay(DATE, timestamps, values);
+        ForecastAccuracyDTO result = accumulator.result("Station", DATE, DATE);
+
+        // Assert: 0:30, 1:30, 12:30 and 13:30 hours before the slots
+        assertThat(result.getLeadTimes()).extracting(ForecastAccuracyDTO.LeadTimeError::getLeadTimeHours)
+                .containsExactly(0, 1, 12, 13);
+        assertThat(result.getLeadTimes()).extracting(ForecastAccuracyDTO.LeadTimeError::getMeanAbsoluteError)
+                .containsExactly(6.0, 10.0, 4.0, 0.0);
+        assertThat(result.getLeadTimes()).extracting(ForecastAccuracyDTO.LeadTimeError::getSamples)
+                .containsOnly(1L);
+    }
+}
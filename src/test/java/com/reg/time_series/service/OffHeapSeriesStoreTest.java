@@ -0,0 +1,264 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.PowerStationDate;
+import com.reg.time_series.entity.TimeSeriesVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class OffHeapSeriesStoreTest {
+    private static final long STATION_ID = 7;
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-03-15T10:00:00Z"), ZoneOffset.UTC);
+    private static final LocalDate TODAY = LocalDate.now(CLOCK);
+
+    private OffHeapSeriesStore store;
+    private final List<TimeSeriesVersion> written = Collections.synchronizedList(new ArrayList<>());
+    private final Consumer<TimeSeriesVersion> durableWrite = written::add;
+
+    @BeforeEach
+    void setUp() {
+        // 1 MB in 1 KB chunks, two 96 slot versions per chunk
+        store = new OffHeapSeriesStore(mock(PlatformTransactionManager.class), CLOCK, 1, 1, 7);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clear();
+        }
+        store.shutdown();
+    }
+
+    @Test
+    @DisplayName("Appended versions are read back from direct memory with every field")
+    void append_ReadsBackVersions() {
+        // Arrange
+        PowerStationDate stored = new PowerStationDate();
+        stored.setZone("Europe/Budapest");
+        stored.setVersions(List.of(version(1, 100)));
+        List<Integer> withNull = new ArrayList<>(Collections.nCopies(96, 200));
+        withNull.set(3, null);
+
+        // Act
+        append(stored, 100);
+        TimeSeriesVersion appended = store.append(STATION_ID, TODAY, "UTC", () -> null,
+                latest -> {
+                    TimeSeriesVersion next = version(latest.orElseThrow().getVersion() + 1, 0);
+                    next.setSeries(withNull);
+                    next.setTimestamp(LocalDateTime.of(2024, 1, 1, 10, 0, 0, 123_000_000));
+                    next.setChangedFromSlot(3);
+                    return next;
+                }, durableWrite);
+        Optional<PowerStationDate> found = store.find(STATION_ID, TODAY);
+
+        // Assert
+        assertThat(appended.getVersion()).isEqualTo(3);
+        assertThat(found).isPresent();
+        assertThat(found.get().getZone()).isEqualTo("Europe/Budapest");
+        List<TimeSeriesVersion> versions = found.get().getVersions();
+        assertThat(versions).extracting(TimeSeriesVersion::getVersion).containsExactly(1, 2, 3);
+        assertThat(versions.get(1).getSeries()).isEqualTo(Collections.nCopies(96, 100));
+        assertThat(versions.get(2).getSeries()).isEqualTo(withNull);
+        assertThat(versions.get(2).getTimestamp()).isEqualTo(LocalDateTime.of(2024, 1, 1, 10, 0, 0, 123_000_000));
+        assertThat(versions.get(2).getPeriod()).isEqualTo(Duration.ofMinutes(15));
+        assertThat(versions.get(2).getChangedFromSlot()).isEqualTo(3);
+        assertThat(versions.get(2).getChangedSlotCount()).isNull();
+        assertThat(store.find(STATION_ID, TODAY.plusDays(1))).isEmpty();
+
+        store.flush();
+        assertThat(written).extracting(TimeSeriesVersion::getVersion).containsExactly(2, 3);
+    }
+
+    @Test
+    @DisplayName("A version larger than a chunk is kept on the heap")
+    void append_OverflowsToHeap() {
+        // Act
+        store.append(STATION_ID, TODAY, "UTC", () -> null, latest -> {
+            TimeSeriesVersion version = version(1, 5);
+            version.setSeries(Collections.nCopies(1440, 5));
+            version.setPeriod(Duration.ofMinutes(1));
+            return version;
+        }, durableWrite);
+
+        // Assert
+        assertThat(store.usedBytes()).isZero();
+        assertThat(store.find(STATION_ID, TODAY).orElseThrow().getVersions().get(0).getSeries())
+                .hasSize(1440).containsOnly(5);
+    }
+
+    @Test
+    @DisplayName("Versions are visible and written after the commit and dropped on rollback")
+    void append_FollowsTransaction() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act: a committed transaction, its second version follows its first one
+        append(null, 10);
+        append(null, 20);
+        assertThat(written).isEmpty();
+        assertThat(store.find(STATION_ID, TODAY)).isEmpty();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        store.flush();
+
+        // Act: a rolled back one
+        TransactionSynchronizationManager.initSynchronization();
+        append(null, 30);
+        append(null, 40);
+        assertThat(store.find(STATION_ID, TODAY).orElseThrow().getVersions()).hasSize(2);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        store.flush();
+
+        // Assert
+        assertThat(written).extracting(TimeSeriesVersion::getVersion).containsExactly(1, 2);
+        assertThat(store.find(STATION_ID, TODAY).orElseThrow().getVersions())
+                .extracting(TimeSeriesVersion::getVersion).containsExactly(1, 2);
+        assertThat(append(null, 50).getVersion()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("A save of a date waits until the open save of it has completed and follows the committed versions")
+    void append_WaitsForOpenSaveOfDate() throws Exception {
+        // Arrange: an open transaction saved the date
+        TransactionSynchronizationManager.initSynchronization();
+        append(null, 10);
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            // Act
+            Future<TimeSeriesVersion> waiting = other.submit(() -> append(null, 20));
+
+            // Assert: it merges on top of nothing once the open one rolled back
+            Thread.sleep(200);
+            assertThat(waiting).isNotDone();
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+            assertThat(waiting.get(10, TimeUnit.SECONDS).getVersion()).isEqualTo(1);
+            store.flush();
+            assertThat(written).extracting(TimeSeriesVersion::getSeries).containsExactly(Collections.nCopies(96, 20));
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("A batch locks its dates up front, another batch of the same dates in reverse order waits for all of them")
+    void lockDates_LocksTheDatesOfABatchInOneOrder() throws Exception {
+        // Arrange: an open batch of two dates has saved only the first one so far
+        LocalDate tomorrow = TODAY.plusDays(1);
+        TransactionSynchronizationManager.initSynchronization();
+        store.lockDates(Map.of(STATION_ID, List.of(TODAY, tomorrow)));
+        append(null, 10);
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            // Act
+            Future<Integer> reversed = other.submit(() -> {
+                TransactionSynchronizationManager.initSynchronization();
+                try {
+                    store.lockDates(Map.of(STATION_ID, List.of(tomorrow, TODAY)));
+                    return store.append(STATION_ID, tomorrow, "UTC", () -> null,
+                            latest -> version(latest.map(TimeSeriesVersion::getVersion).orElse(0) + 1, 20),
+                            durableWrite).getVersion();
+                } finally {
+                    complete(TransactionSynchronization.STATUS_COMMITTED);
+                }
+            });
+
+            // Assert: the second batch does not take the free date and wait for the other one
+            Thread.sleep(200);
+            assertThat(reversed).isNotDone();
+            store.append(STATION_ID, tomorrow, "UTC", () -> null,
+                    latest -> version(latest.map(TimeSeriesVersion::getVersion).orElse(0) + 1, 30), durableWrite);
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+            assertThat(reversed.get(10, TimeUnit.SECONDS)).isEqualTo(2);
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Dates before the window are evicted once written, releasing their memory")
+    void evictBefore_ReleasesWrittenDates() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            append(null, i);
+        }
+        store.flush();
+        assertThat(store.usedBytes()).isEqualTo(3 * 1024);
+
+        // Act
+        int kept = store.evictBefore(TODAY);
+        int evicted = store.evictBefore(TODAY.plusDays(1));
+
+        // Assert
+        assertThat(kept).isZero();
+        assertThat(evicted).isEqualTo(1);
+        assertThat(store.usedBytes()).isZero();
+        assertThat(store.find(STATION_ID, TODAY)).isEmpty();
+        assertThat(store.isResident(TODAY.minusDays(6))).isTrue();
+        assertThat(store.isResident(TODAY.minusDays(7))).isFalse();
+    }
+
+    @Test
+    @DisplayName("A write the database refuses is retried until it succeeds, the versions behind it follow in order")
+    void commit_WithFailingWrites_RetriesUntilWritten() {
+        // Arrange: the database is down for the first two attempts
+        int[] failures = {2};
+        Consumer<TimeSeriesVersion> flakyWrite = version -> {
+            if (failures[0]-- > 0) {
+                throw new IllegalStateException("Database unavailable");
+            }
+            written.add(version);
+        };
+
+        // Act
+        for (int value = 1; value <= 3; value++) {
+            int seriesValue = value;
+            store.append(STATION_ID, TODAY, "UTC", () -> null,
+                    latest -> version(latest.map(TimeSeriesVersion::getVersion).orElse(0) + 1, seriesValue), flakyWrite);
+        }
+        store.flush();
+
+        // Assert
+        assertThat(written).extracting(TimeSeriesVersion::getVersion).containsExactly(1, 2, 3);
+        assertThat(store.pendingWrites()).isZero();
+        assertThat(store.find(STATION_ID, TODAY).orElseThrow().getVersions()).hasSize(3);
+    }
+
+    private TimeSeriesVersion append(PowerStationDate stored, int value) {
+        return store.append(STATION_ID, TODAY, "UTC", () -> stored,
+                latest -> version(latest.map(TimeSeriesVersion::getVersion).orElse(0) + 1, value), durableWrite);
+    }
+
+    private void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    private static TimeSeriesVersion version(int number, int value) {
+        TimeSeriesVersion version = new TimeSeriesVersion();
+        version.setVersion(number);
+        version.setTimestamp(LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(number));
+        version.setPeriod(Duration.ofMinutes(15));
+        version.setSeries(Collections.nCopies(96, value));
+        return version;
+    }
+}
@@ -0,0 +1,67 @@
+package com.reg.time_series.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PartitionMaintenanceServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private final YearMonth current = YearMonth.now();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+    }
+
+    @Test
+    @DisplayName("Missing future months are split off the catch-all partition")
+    void maintainPartitions_CreatesFuturePartitions() {
+        // Arrange
+        PartitionMaintenanceService service = new PartitionMaintenanceService(jdbcTemplate, new TimeSeriesETagTracker(), mock(PowerStationCatalogue.class), mock(SecondLevelCache.class), 2, 0);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), anyString()))
+                .thenReturn(List.of(PartitionMaintenanceService.partitionName(current), "p_max"));
+
+        // Act
+        service.maintainPartitions();
+
+        // Assert
+        ArgumentCaptor<String> statements = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, times(4)).execute(statements.capture());
+        assertThat(statements.getAllValues())
+                .allMatch(sql -> sql.contains("REORGANIZE PARTITION p_max"))
+                .anyMatch(sql -> sql.startsWith("ALTER TABLE time_series_versions")
+                        && sql.contains("PARTITION " + PartitionMaintenanceService.partitionName(current.plusMonths(2))
+                        + " VALUES LESS THAN ('" + current.plusMonths(3).atDay(1) + "')"));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("Partitions older than the retention are dropped")
+    void maintainPartitions_DropsExpiredPartitions() {
+        // Arrange
+        PartitionMaintenanceService service = new PartitionMaintenanceService(jdbcTemplate, new TimeSeriesETagTracker(), mock(PowerStationCatalogue.class), mock(SecondLevelCache.class), 0, 12);
+        String expired = PartitionMaintenanceService.partitionName(current.minusMonths(13));
+        String retained = PartitionMaintenanceService.partitionName(current.minusMonths(12));
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), anyString()))
+                .thenReturn(List.of(expired, retained, PartitionMaintenanceService.partitionName(current), "p_max"));
+
+        // Act
+        service.maintainPartitions();
+
+        // Assert
+        verify(jdbcTemplate).execute("ALTER TABLE time_series_versions DROP PARTITION " + expired);
+        verify(jdbcTemplate).execute("ALTER TABLE time_series_values DROP PARTITION " + expired);
+        verify(jdbcTemplate, never()).execute(contains("DROP PARTITION " + retained));
+        verify(jdbcTemplate).update(startsWith("DELETE FROM power_station_date"), eq(current.minusMonths(12).atDay(1)));
+    }
+}
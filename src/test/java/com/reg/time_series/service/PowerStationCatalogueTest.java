@@ -0,0 +1,88 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.repositories.PowerStationRepository;
+import com.reg.time_series.repositories.TimeSeriesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PowerStationCatalogueTest {
+
+    private PowerStationCatalogue catalogue;
+
+    @BeforeEach
+    void setUp() {
+        TimeSeriesRepository repository = mock(TimeSeriesRepository.class);
+        PowerStationRepository powerStationRepository = mock(PowerStationRepository.class);
+        when(powerStationRepository.findDistinctPowerStationNames())
+                .thenReturn(List.of("solar Park", "Empty Station", "Solar Farm", "Wind Farm"));
+        when(repository.findAllStationDates()).thenReturn(List.of(
+                new Object[]{"Solar Farm", LocalDate.of(2024, 3, 21)},
+                new Object[]{"Solar Farm", LocalDate.of(2024, 3, 19)},
+                new Object[]{"Solar Farm", LocalDate.of(2024, 3, 20)},
+                new Object[]{"Wind Farm", LocalDate.of(2024, 1, 1)}));
+
+        catalogue = new PowerStationCatalogue(repository, powerStationRepository);
+    }
+
+    @Test
+    @DisplayName("Warm up loads sorted stations and dates")
+    void warmUp_LoadsStationsAndDates() {
+        // Act
+        catalogue.warmUp();
+
+        // Assert
+        assertThat(catalogue.isWarmedUp()).isTrue();
+        assertThat(catalogue.powerStations()).containsExactly("Empty Station", "Solar Farm", "solar Park", "Wind Farm");
+        assertThat(catalogue.dates("Solar Farm", LocalDate.MIN, LocalDate.MAX)).containsExactly(
+                LocalDate.of(2024, 3, 19), LocalDate.of(2024, 3, 20), LocalDate.of(2024, 3, 21));
+        assertThat(catalogue.dates("Solar Farm", LocalDate.of(2024, 3, 20), LocalDate.of(2024, 3, 30)))
+                .containsExactly(LocalDate.of(2024, 3, 20), LocalDate.of(2024, 3, 21));
+        assertThat(catalogue.dates("Empty Station", LocalDate.MIN, LocalDate.MAX)).isEmpty();
+        assertThat(catalogue.dates("Unknown", LocalDate.MIN, LocalDate.MAX)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Prefix search ignores case")
+    void powerStationsStartingWith_IgnoresCase() {
+        // Arrange
+        catalogue.warmUp();
+
+        // Act & Assert
+        assertThat(catalogue.powerStationsStartingWith("sol")).containsExactly("Solar Farm", "solar Park");
+        assertThat(catalogue.powerStationsStartingWith("SOLAR F")).containsExactly("Solar Farm");
+        assertThat(catalogue.powerStationsStartingWith("x")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Entries added in a rolled back transaction are removed")
+    void addDate_RemovedOnRollback() {
+        // Arrange
+        catalogue.warmUp();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            catalogue.addPowerStation("New Station");
+            catalogue.addDate("New Station", LocalDate.of(2024, 5, 1));
+            catalogue.addDate("Solar Farm", LocalDate.of(2024, 3, 20));
+            assertThat(catalogue.dates("New Station", LocalDate.MIN, LocalDate.MAX)).hasSize(1);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert
+        assertThat(catalogue.powerStations()).doesNotContain("New Station");
+        assertThat(catalogue.dates("Solar Farm", LocalDate.MIN, LocalDate.MAX)).hasSize(3);
+    }
+}
@@ -0,0 +1,90 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.repositories.PowerStationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class PowerStationDictionaryTest {
+
+    // The dictionary does not see deletes, every test uses a new station
+    private final String station = "Dictionary Test Station " + UUID.randomUUID();
+
+    @Autowired
+    private PowerStationDictionary dictionary;
+
+    @Autowired
+    private PowerStationRepository powerStationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        powerStationRepository.findByPowerStation(station).ifPresent(powerStationRepository::delete);
+    }
+
+    @Test
+    @DisplayName("Concurrent saves of a new station create it once")
+    void getOrCreate_ConcurrentlyCreatesOneStation() throws Exception {
+        // Arrange
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> ids = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 8; i++) {
+            ids.add(executor.submit(() -> {
+                start.await();
+                return transactionTemplate.execute(status -> dictionary.getOrCreate(station).getId());
+            }));
+        }
+        start.countDown();
+        Set<Long> distinctIds = new HashSet<>();
+        for (Future<Long> id : ids) {
+            distinctIds.add(id.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // Assert
+        assertThat(distinctIds).hasSize(1);
+        assertThat(powerStationRepository.findAll())
+                .filteredOn(powerStation -> station.equals(powerStation.getPowerStation()))
+                .hasSize(1);
+    }
+
+    @Test
+    @DisplayName("A station created in a rolled back transaction is not remembered")
+    void getOrCreate_RollbackIsNotRemembered() {
+        // Arrange
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int size = dictionary.size();
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            dictionary.getOrCreate(station);
+            status.setRollbackOnly();
+        });
+
+        // Assert
+        assertThat(dictionary.size()).isEqualTo(size);
+        assertThat(powerStationRepository.findByPowerStation(station)).isEmpty();
+        Long id = transactionTemplate.execute(status -> dictionary.getOrCreate(station).getId());
+        assertThat(powerStationRepository.findById(id)).isPresent();
+    }
+}
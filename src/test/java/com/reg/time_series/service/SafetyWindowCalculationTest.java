@@ -1,31 +1,52 @@
 package com.reg.time_series.service;
 
 
+import com.reg.time_series.entity.PowerStationDate;
+import com.reg.time_series.entity.TimeSeriesVersion;
+import com.reg.time_series.model.TimeSeriesColumnsDTO;
 import com.reg.time_series.model.TimeSeriesData;
+import com.reg.time_series.model.TimeSeriesViewDTO;
 import com.reg.time_series.repositories.PowerStationRepository;
+import com.reg.time_series.repositories.TimeSeriesArchiveRepository;
 import com.reg.time_series.repositories.TimeSeriesRepository;
 import org.junit.jupiter.api.BeforeEach;
+import org.springframework.context.ApplicationEventPublisher;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 
 class SafetyWindowCalculationTest {
+    // 2024-03-20 14:07 in Budapest, the clock itself is in UTC
+    private static final Clock CLOCK = Clock.fixed(
+            ZonedDateTime.of(2024, 3, 20, 14, 7, 0, 0, ZoneId.of("Europe/Budapest")).toInstant(), ZoneOffset.UTC);
+
     private TimeSeriesService timeSeriesService;
 
     @BeforeEach
     void setUp() {
         TimeSeriesRepository timeSeriesRepository = mock(TimeSeriesRepository.class);
         PowerStationRepository powerStationRepository = mock(PowerStationRepository.class);
-        timeSeriesService = new TimeSeriesService(timeSeriesRepository, powerStationRepository);
+        timeSeriesService = new TimeSeriesService(timeSeriesRepository, powerStationRepository, mock(TimeSeriesArchiveRepository.class),
+                mock(ApplicationEventPublisher.class), mock(PowerStationCatalogue.class),
+                new PowerStationDictionary(powerStationRepository, mock(PowerStationCatalogue.class)), CLOCK, null);
         // Set safety window minutes using reflection since it's a private field
         ReflectionTestUtils.setField(timeSeriesService, "safetyWindowMinutes", 30);
     }
@@ -136,6 +157,52 @@ class SafetyWindowCalculationTest {
         assertEquals(expected, result);
     }
 
+    @Test
+    @DisplayName("View of today marks the slots up to the safety window end at the clock time")
+    void toView_Today_MarksSafetyWindowFromClock() {
+        // Act
+        TimeSeriesViewDTO view = timeSeriesService.toView("Station", LocalDate.of(2024, 3, 20),
+                powerStationDate(), List.of(version()));
+        TimeSeriesColumnsDTO columns = timeSeriesService.toColumns("Station", LocalDate.of(2024, 3, 20),
+                powerStationDate(), List.of(version()));
+
+        // Assert
+        // 14:07 -> next period 14:15 + 30 minutes = 14:45, which is slot 59
+        assertTrue(view.isHasSafetyWindow());
+        assertTrue(view.getRows().get(59).isInSafetyWindow());
+        assertFalse(view.getRows().get(60).isInSafetyWindow());
+        assertEquals(60, view.getRows().stream().filter(TimeSeriesViewDTO.TimeSeriesRow::isInSafetyWindow).count());
+        assertEquals(0, columns.getHeader().getSafetyWindowFromSlot());
+        assertEquals(59, columns.getHeader().getSafetyWindowToSlot());
+    }
+
+    @Test
+    @DisplayName("View of another day has no safety window")
+    void toView_OtherDay_HasNoSafetyWindow() {
+        // Act
+        TimeSeriesViewDTO view = timeSeriesService.toView("Station", LocalDate.of(2024, 3, 19),
+                powerStationDate(), List.of(version()));
+
+        // Assert
+        assertFalse(view.isHasSafetyWindow());
+        assertTrue(view.getRows().stream().noneMatch(TimeSeriesViewDTO.TimeSeriesRow::isInSafetyWindow));
+    }
+
+    private PowerStationDate powerStationDate() {
+        PowerStationDate powerStationDate = new PowerStationDate();
+        powerStationDate.setZone("Europe/Budapest");
+        return powerStationDate;
+    }
+
+    private TimeSeriesVersion version() {
+        TimeSeriesVersion version = new TimeSeriesVersion();
+        version.setVersion(1);
+        version.setTimestamp(LocalDateTime.of(2024, 3, 20, 6, 0));
+        version.setPeriod(Duration.ofMinutes(15));
+        version.setSeries(Collections.nCopies(96, 100));
+        return version;
+    }
+
     // Helper method to invoke private calculateSafetyWindowEnd method
     private LocalDateTime invokeCalculateSafetyWindowEnd(TimeSeriesData data, Duration period) throws Exception {
         Method method = TimeSeriesService.class.getDeclaredMethod("calculateSafetyWindowEnd",
@@ -0,0 +1,91 @@
+package com.reg.time_series.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeriesKernelsTest {
+    // Lengths around the vector widths and the slot counts of a day
+    private static final int[] LENGTHS = {1, 7, 8, 15, 16, 17, 95, 96, 100, 1440};
+
+    private final SeriesKernels scalar = SeriesKernels.scalar();
+    private final SeriesKernels vector = new VectorSeriesKernels();
+    private final Random random = new Random(42);
+
+    @Test
+    @DisplayName("Vector API is used when the module is loaded")
+    void get_UsesVectorKernels() {
+        // Act & Assert
+        assertThat(SeriesKernels.get()).isInstanceOf(VectorSeriesKernels.class);
+    }
+
+    @Test
+    @DisplayName("Vector merge takes the new values from the given slot")
+    void mergeFrom_MatchesScalar() {
+        for (int length : LENGTHS) {
+            // Arrange
+            int[] previous = randomSeries(length);
+            int[] next = randomSeries(length);
+
+            for (int from : new int[]{-1, 0, 1, length / 2, length - 1, length, length + 5}) {
+                // Act
+                int[] expected = new int[length];
+                int[] actual = new int[length];
+                scalar.mergeFrom(previous, next, from, expected);
+                vector.mergeFrom(previous, next, from, actual);
+
+                // Assert
+                assertThat(actual).as("length %d from %d", length, from).containsExactly(expected);
+            }
+        }
+        assertThat(mergeWithScalar(new int[]{1, 1, 1, 1}, new int[]{2, 2, 2, 2}, 2)).containsExactly(1, 1, 2, 2);
+    }
+
+    @Test
+    @DisplayName("Vector sum and max across series match the scalar loops")
+    void sumAndMax_MatchScalar() {
+        for (int length : LENGTHS) {
+            // Arrange
+            int[][] series = new int[25][];
+            for (int s = 0; s < series.length; s++) {
+                series[s] = randomSeries(length);
+            }
+
+            // Act & Assert
+            assertThat(vector.sum(series, length)).containsExactly(scalar.sum(series, length));
+            assertThat(vector.max(series, length)).containsExactly(scalar.max(series, length));
+        }
+        assertThat(scalar.sum(new int[][]{{1, 2}, {3, 4}}, 2)).containsExactly(4, 6);
+        assertThat(scalar.max(new int[][]{{1, 5}, {3, -4}}, 2)).containsExactly(3, 5);
+    }
+
+    @Test
+    @DisplayName("Vector block sums match the scalar loop, including a partial last block")
+    void blockSum_MatchesScalar() {
+        for (int length : LENGTHS) {
+            // Arrange
+            int[] series = randomSeries(length);
+
+            for (int blockSize : new int[]{1, 4, 7, 15, 16, 60}) {
+                // Act & Assert
+                assertThat(vector.blockSum(series, blockSize))
+                        .as("length %d block %d", length, blockSize)
+                        .containsExactly(scalar.blockSum(series, blockSize));
+            }
+        }
+        assertThat(scalar.blockSum(new int[]{1, 2, 3, 4, 5}, 2)).containsExactly(3, 7, 5);
+    }
+
+    private int[] mergeWithScalar(int[] previous, int[] next, int from) {
+        int[] out = new int[previous.length];
+        scalar.mergeFrom(previous, next, from, out);
+        return out;
+    }
+
+    private int[] randomSeries(int length) {
+        return random.ints(length, -10_000, 10_000).toArray();
+    }
+}
@@ -0,0 +1,154 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.model.BulkImportResult;
+import com.reg.time_series.model.TimeSeriesData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class TimeSeriesBulkImportServiceTest {
+
+    private TimeSeriesService timeSeriesService;
+    private TimeSeriesBulkImportService bulkImportService;
+    private List<List<TimeSeriesData>> savedBatches;
+
+    @BeforeEach
+    void setUp() {
+        timeSeriesService = mock(TimeSeriesService.class);
+        bulkImportService = new TimeSeriesBulkImportService(timeSeriesService, 2);
+
+        // The service reuses its batch list, so the arguments have to be copied on invocation
+        savedBatches = new ArrayList<>();
+        doAnswer(invocation -> savedBatches.add(new ArrayList<>(invocation.getArgument(0))))
+                .when(timeSeriesService).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("NDJSON records inherit the header and are saved in batches")
+    void importNdjson_SavesInBatches() throws Exception {
+        // Arrange
+        String ndjson = """
+                {"zone": "Europe/Budapest", "period": "PT15M"}
+                {"power-station": "A", "date": "2021-06-28", "timestamp": "2021-06-28 03:30:04", "series": [1, 2]}
+                {"power-station": "B", "date": "2021-06-28", "timestamp": "2021-06-28 03:30:05", "series": [3, 4]}
+                {"power-station": "A", "date": "2021-06-29", "timestamp": "2021-06-29 03:30:04", "period": "PT5M", "series": [5]}
+                """;
+
+        // Act
+        BulkImportResult result = bulkImportService.importNdjson(stream(ndjson));
+
+        // Assert
+        assertThat(result.getRecords()).isEqualTo(3);
+        assertThat(result.getSavedRecords()).isEqualTo(3);
+        assertThat(result.getBatches()).isEqualTo(2);
+        assertThat(savedBatches).hasSize(2);
+        assertThat(savedBatches.get(0)).extracting(TimeSeriesData::getPowerStation).containsExactly("A", "B");
+
+        TimeSeriesData last = savedBatches.get(1).get(0);
+        assertThat(last.getDate()).isEqualTo(LocalDate.of(2021, 6, 29));
+        assertThat(last.getZone()).isEqualTo("Europe/Budapest");
+        assertThat(last.getPeriod()).isEqualTo("PT5M");
+    }
+
+    @Test
+    @DisplayName("JSON document with shared header is imported")
+    void importDocument_SavesAllRecords() throws Exception {
+        // Arrange
+        String document = """
+                {
+                  "zone": "Europe/Budapest",
+                  "period": "PT15M",
+                  "records": [
+                    {"power-station": "A", "date": "2021-06-28", "timestamp": "2021-06-28 03:30:04", "series": [1]},
+                    {"power-station": "A", "date": "2021-06-28", "timestamp": "2021-06-28 04:00:05", "series": [2]},
+                    {"power-station": "A", "date": "2021-06-28", "timestamp": "2021-06-28 04:30:03", "series": [3]}
+                  ]
+                }
+                """;
+
+        // Act
+        BulkImportResult result = bulkImportService.importDocument(stream(document));
+
+        // Assert
+        assertThat(result.getSavedRecords()).isEqualTo(3);
+        assertThat(result.getBatches()).isEqualTo(2);
+        assertThat(savedBatches).flatExtracting(batch -> batch)
+                .extracting(TimeSeriesData::getZone)
+                .containsOnly("Europe/Budapest");
+    }
+
+    @Test
+    @DisplayName("The records of a batch are saved in timestamp order")
+    void importNdjson_SortsBatchByTimestamp() throws Exception {
+        // Arrange
+        String ndjson = """
+                {"zone": "Europe/Budapest", "period": "PT15M"}
+                {"power-station": "A", "date": "2021-06-28", "timestamp": "2021-06-28 12:00:00", "series": [2]}
+                {"power-station": "A", "date": "2021-06-28", "timestamp": "2021-06-28 10:00:00", "series": [1]}
+                """;
+
+        // Act
+        bulkImportService.importNdjson(stream(ndjson));
+
+        // Assert
+        assertThat(savedBatches).singleElement()
+                .satisfies(batch -> assertThat(batch).extracting(data -> data.getSeries().get(0)).containsExactly(1, 2));
+    }
+
+    @Test
+    @DisplayName("A failing batch is retried record by record")
+    void importNdjson_FailedBatchFallsBackToSingleSaves() throws Exception {
+        // Arrange
+        doThrow(new IllegalArgumentException("boom")).when(timeSeriesService).saveAll(anyList());
+        doThrow(new IllegalArgumentException("Invalid period format: X"))
+                .when(timeSeriesService).save(argThat(data -> "B".equals(data.getPowerStation())));
+        String ndjson = """
+                {"zone": "Europe/Budapest", "period": "PT15M"}
+                {"power-station": "A", "date": "2021-06-28", "timestamp": "2021-06-28 03:30:04", "series": [1]}
+                {"power-station": "B", "date": "2021-06-28", "timestamp": "2021-06-28 03:30:05", "series": [2]}
+                """;
+
+        // Act
+        BulkImportResult result = bulkImportService.importNdjson(stream(ndjson));
+
+        // Assert
+        assertThat(result.getSavedRecords()).isEqualTo(1);
+        assertThat(result.getFailedRecords()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement().asString().contains("Invalid period format");
+        verify(timeSeriesService, times(2)).save(any(TimeSeriesData.class));
+    }
+
+    @Test
+    @DisplayName("Records parsed before a syntax error are still saved")
+    void importNdjson_StopsAtParseError() throws Exception {
+        // Arrange
+        String ndjson = """
+                {"zone": "Europe/Budapest", "period": "PT15M"}
+                {"power-station": "A", "date": "2021-06-28", "timestamp": "2021-06-28 03:30:04", "series": [1]}
+                {"power-station": "B", "date":
+                """;
+
+        // Act
+        BulkImportResult result = bulkImportService.importNdjson(stream(ndjson));
+
+        // Assert
+        assertThat(result.getSavedRecords()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement().asString().startsWith("Parse error after 1 records");
+        verify(timeSeriesService).saveAll(anyList());
+    }
+
+    private ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,159 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.PowerStation;
+import com.reg.time_series.entity.PowerStationDate;
+import com.reg.time_series.entity.TimeSeriesVersion;
+import com.reg.time_series.model.TimeSeriesViewDTO;
+import com.reg.time_series.repositories.PowerStationRepository;
+import com.reg.time_series.repositories.TimeSeriesArchiveRepository;
+import com.reg.time_series.repositories.TimeSeriesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.context.ApplicationEventPublisher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+class TimeSeriesCompactionServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 30);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TimeSeriesRepository repository;
+
+    @Autowired
+    private PowerStationRepository powerStationRepository;
+
+    @Autowired
+    private TimeSeriesArchiveRepository archiveRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private RetentionProperties retention;
+    private TimeSeriesCompactionService compactionService;
+
+    @BeforeEach
+    void setUp() {
+        retention = new RetentionProperties();
+        retention.setDefaultDays(30);
+        compactionService = new TimeSeriesCompactionService(repository, archiveRepository, retention, transactionManager, null);
+    }
+
+    @Test
+    @DisplayName("Intermediate versions of old dates are archived and rehydrated in the view")
+    void compact_ArchivesIntermediateVersions() {
+        // Arrange
+        PowerStationDate oldDate = persistDate("Old Station", LocalDate.of(2024, 5, 1), 5);
+        PowerStationDate recentDate = persistDate("Old Station", LocalDate.of(2024, 6, 20), 5);
+
+        // Act
+        int archived = compactionService.compact(TODAY);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Assert
+        assertThat(archived).isEqualTo(3);
+        PowerStationDate compacted = repository.findById(oldDate.getId()).orElseThrow();
+        assertThat(compacted.getVersions()).extracting(TimeSeriesVersion::getVersion).containsExactlyInAnyOrder(1, 5);
+        assertThat(compacted.getArchivedVersions()).isEqualTo(3);
+        assertThat(repository.findById(recentDate.getId()).orElseThrow().getVersions()).hasSize(5);
+
+        TimeSeriesService timeSeriesService = new TimeSeriesService(repository, powerStationRepository, archiveRepository,
+                mock(ApplicationEventPublisher.class), mock(PowerStationCatalogue.class),
+                new PowerStationDictionary(powerStationRepository, mock(PowerStationCatalogue.class)), Clock.systemDefaultZone(), null);
+        TimeSeriesViewDTO view = timeSeriesService.getTimeSeriesView("Old Station", LocalDate.of(2024, 5, 1));
+        assertThat(view.getVersions()).extracting(TimeSeriesViewDTO.VersionInfo::getVersion)
+                .containsExactly(1, 2, 3, 4, 5);
+        assertThat(view.getRows().get(0).getVersionValues()).containsEntry(3, 300).containsEntry(5, 500);
+    }
+
+    @Test
+    @DisplayName("Per station retention overrides the default and can turn compaction off")
+    void compact_UsesPerStationRetention() {
+        // Arrange
+        persistDate("Kept Station", LocalDate.of(2024, 5, 1), 4);
+        persistDate("Short Station", LocalDate.of(2024, 6, 25), 4);
+        retention.getStations().put("Kept Station", 0);
+        retention.getStations().put("Short Station", 2);
+
+        // Act
+        int archived = compactionService.compact(TODAY);
+
+        // Assert
+        assertThat(archived).isEqualTo(2);
+        assertThat(archiveRepository.findAll()).singleElement()
+                .satisfies(archive -> assertThat(archive.getPowerStationDate().getPowerStation().getPowerStation())
+                        .isEqualTo("Short Station"));
+    }
+
+    @Test
+    @DisplayName("Archive encoding round trip")
+    void archiveCodec_RoundTrip() {
+        // Arrange
+        TimeSeriesVersion version = version(null, 7, new ArrayList<>(List.of(1, 2, 3)));
+        version.getSeries().add(null);
+
+        // Act
+        List<TimeSeriesVersion> decoded = TimeSeriesArchiveCodec.decode(
+                TimeSeriesArchiveCodec.encode(List.of(version)), LocalDate.of(2024, 5, 1));
+
+        // Assert
+        assertThat(decoded).singleElement().satisfies(v -> {
+            assertThat(v.getVersion()).isEqualTo(7);
+            assertThat(v.getTimestamp()).isEqualTo(version.getTimestamp());
+            assertThat(v.getPeriod()).isEqualTo(Duration.ofMinutes(15));
+            assertThat(v.getSeries()).containsExactly(1, 2, 3, null);
+        });
+    }
+
+    private PowerStationDate persistDate(String stationName, LocalDate date, int versionCount) {
+        PowerStation powerStation = powerStationRepository.findByPowerStation(stationName).orElseGet(() -> {
+            PowerStation newStation = new PowerStation();
+            newStation.setPowerStation(stationName);
+            return entityManager.persist(newStation);
+        });
+
+        PowerStationDate powerStationDate = new PowerStationDate();
+        powerStationDate.setPowerStation(powerStation);
+        powerStationDate.setStationDate(date);
+        powerStationDate.setZone("Europe/Budapest");
+        powerStationDate.setVersions(new ArrayList<>());
+        entityManager.persist(powerStationDate);
+
+        for (int v = 1; v <= versionCount; v++) {
+            TimeSeriesVersion version = version(powerStationDate, v,
+                    new ArrayList<>(List.of(v * 100, v * 100, v * 100, v * 100)));
+            entityManager.persist(version);
+            powerStationDate.getVersions().add(version);
+        }
+        entityManager.flush();
+        return powerStationDate;
+    }
+
+    private TimeSeriesVersion version(PowerStationDate powerStationDate, int number, List<Integer> series) {
+        TimeSeriesVersion version = new TimeSeriesVersion();
+        version.setPowerStationDate(powerStationDate);
+        version.setVersion(number);
+        version.setTimestamp(LocalDateTime.of(2024, 5, 1, number, 0, 0, 123_000_000));
+        version.setPeriod(Duration.ofMinutes(15));
+        version.setSeries(series);
+        return version;
+    }
+}
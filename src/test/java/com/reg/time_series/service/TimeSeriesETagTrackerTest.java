@@ -0,0 +1,68 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.model.TimeSeriesVersionEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeSeriesETagTrackerTest {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 20);
+    private static final LocalDateTime LATER = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    private final TimeSeriesETagTracker tracker = new TimeSeriesETagTracker();
+
+    @Test
+    @DisplayName("A saved version changes only the tags it affects")
+    void onVersionSaved_ChangesAffectedTags() {
+        // Arrange
+        String stations = tracker.powerStationsTag();
+        String dates = tracker.datesTag("Station A");
+        String otherDates = tracker.datesTag("Station B");
+        String view = tracker.viewTag("Station A", DATE, LATER);
+        String otherView = tracker.viewTag("Station A", DATE.plusDays(1), LATER);
+
+        // Act
+        tracker.onVersionSaved(new TimeSeriesVersionEvent("Station A", DATE, 2, LATER, 0, 96));
+
+        // Assert
+        assertThat(tracker.powerStationsTag()).isNotEqualTo(stations);
+        assertThat(tracker.datesTag("Station A")).isNotEqualTo(dates);
+        assertThat(tracker.datesTag("Station B")).isEqualTo(otherDates);
+        assertThat(tracker.viewTag("Station A", DATE, LATER)).isNotEqualTo(view);
+        assertThat(tracker.viewTag("Station A", DATE.plusDays(1), LATER)).isEqualTo(otherView);
+    }
+
+    @Test
+    @DisplayName("Tags of the current day follow the clock, past days and invalidation")
+    void viewTag_DependsOnTimeAroundToday() {
+        // Arrange
+        LocalDateTime morning = DATE.atTime(9, 0);
+        String today = tracker.viewTag("Station A", DATE, morning);
+        String past = tracker.viewTag("Station A", DATE.minusDays(5), morning);
+
+        // Act & Assert
+        assertThat(tracker.viewTag("Station A", DATE, morning.plusMinutes(1))).isNotEqualTo(today);
+        assertThat(tracker.viewTag("Station A", DATE.minusDays(5), morning.plusMinutes(1))).isEqualTo(past);
+
+        tracker.invalidateAll();
+        assertThat(tracker.viewTag("Station A", DATE.minusDays(5), morning)).isNotEqualTo(past);
+    }
+
+    @Test
+    @DisplayName("A read behind the saves of this instance keeps the tag of what it read")
+    void observe_ReadBehindSaves_IsNotCurrent() {
+        // Arrange
+        tracker.onVersionSaved(new TimeSeriesVersionEvent("Station A", DATE, 2, LATER, 0, 96));
+
+        // Act & Assert
+        assertThat(tracker.observe("Station A", DATE, 1)).isFalse();
+        assertThat(tracker.viewTag("Station A", DATE, LATER, 1)).isNotEqualTo(tracker.viewTag("Station A", DATE, LATER));
+        assertThat(tracker.observe("Station A", DATE, 3)).isTrue();
+        assertThat(tracker.viewTag("Station A", DATE, LATER)).isEqualTo(tracker.viewTag("Station A", DATE, LATER, 3));
+    }
+}
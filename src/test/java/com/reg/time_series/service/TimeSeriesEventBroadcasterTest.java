@@ -0,0 +1,93 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.controller.TimeSeriesController;
+import com.reg.time_series.model.TimeSeriesVersionEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class TimeSeriesEventBroadcasterTest {
+
+    private TimeSeriesEventBroadcaster broadcaster;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new TimeSeriesEventBroadcaster(2, 0, 1);
+        TimeSeriesController controller = new TimeSeriesController(
+                mock(TimeSeriesService.class), mock(TimeSeriesBulkImportService.class), broadcaster,
+                new TimeSeriesETagTracker(), mock(ForecastAnalyticsService.class), Clock.systemDefaultZone());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    @DisplayName("Subscribers receive only the versions of their station")
+    void onVersionSaved_PushesMatchingEvents() throws Exception {
+        // Arrange
+        MvcResult result = mockMvc.perform(get("/api/time-series/events").param("powerStation", "Station A"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Act
+        broadcaster.onVersionSaved(event("Station B", 7));
+        broadcaster.onVersionSaved(event("Station A", 2));
+
+        // Assert
+        String body = awaitContent(result, "\"fromSlot\":40");
+        assertThat(body).contains("\"powerStationName\":\"Station A\"", "\"version\":2", "\"fromSlot\":40")
+                .doesNotContain("Station B");
+        assertThat(broadcaster.subscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A full subscriber buffer drops its oldest events instead of blocking")
+    void subscription_DropsOldestWhenFull() {
+        // Arrange
+        TimeSeriesEventBroadcaster.Subscription subscription = new TimeSeriesEventBroadcaster.Subscription(
+                new SseEmitter(), null, null, 2);
+
+        // Act
+        for (int i = 1; i <= 5; i++) {
+            subscription.offer(SseEmitter.event().id(String.valueOf(i)));
+        }
+
+        // Assert
+        assertThat(subscription.queue).hasSize(2);
+        assertThat(subscription.dropped).hasValue(3);
+        assertThat(subscription.matches(event("Any Station", 1))).isTrue();
+    }
+
+    private TimeSeriesVersionEvent event(String powerStationName, int version) {
+        return new TimeSeriesVersionEvent(powerStationName, LocalDate.of(2024, 3, 20), version,
+                LocalDateTime.of(2024, 3, 20, 10, 0), 40, 56);
+    }
+
+    private String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        String body = result.getResponse().getContentAsString();
+        while (!body.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            body = result.getResponse().getContentAsString();
+        }
+        return body;
+    }
+}
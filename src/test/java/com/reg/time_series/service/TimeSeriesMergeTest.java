@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -19,7 +20,7 @@ class TimeSeriesMergeTest {
 
     @BeforeEach
     void setUp() {
-        timeSeriesService = new TimeSeriesService(null, null);
+        timeSeriesService = new TimeSeriesService(null, null, null, null, null, null, Clock.systemDefaultZone(), null);
     }
 
     @Test
@@ -3,14 +3,19 @@ package com.reg.time_series.service;
 import com.reg.time_series.entity.PowerStation;
 import com.reg.time_series.entity.PowerStationDate;
 import com.reg.time_series.entity.TimeSeriesVersion;
+import com.reg.time_series.exceptions.StaleTimeSeriesException;
 import com.reg.time_series.model.TimeSeriesData;
+import com.reg.time_series.model.TimeSeriesVersionEvent;
 import com.reg.time_series.repositories.PowerStationRepository;
+import com.reg.time_series.repositories.TimeSeriesArchiveRepository;
 import com.reg.time_series.repositories.TimeSeriesRepository;
 import org.junit.jupiter.api.BeforeEach;
+import org.springframework.context.ApplicationEventPublisher;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -18,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -26,12 +32,16 @@ class TimeSeriesSaveTest {
     private TimeSeriesService timeSeriesService;
     private TimeSeriesRepository timeSeriesRepository;
     private PowerStationRepository powerStationRepository;
+    private ApplicationEventPublisher eventPublisher;
 
     @BeforeEach
     void setUp() {
         timeSeriesRepository = mock(TimeSeriesRepository.class);
         powerStationRepository = mock(PowerStationRepository.class);
-        timeSeriesService = new TimeSeriesService(timeSeriesRepository, powerStationRepository);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        timeSeriesService = new TimeSeriesService(timeSeriesRepository, powerStationRepository, mock(TimeSeriesArchiveRepository.class),
+                eventPublisher, mock(PowerStationCatalogue.class),
+                new PowerStationDictionary(powerStationRepository, mock(PowerStationCatalogue.class)), Clock.systemDefaultZone(), null);
 
         ReflectionTestUtils.setField(timeSeriesService, "safetyWindowMinutes", 30);
 
@@ -88,6 +98,8 @@ class TimeSeriesSaveTest {
 
             return basicPropertiesMatch && versionPropertiesMatch;
         }));
+        verify(eventPublisher).publishEvent(new TimeSeriesVersionEvent("Test Station", timeSeriesData.getDate(),
+                1, timeSeriesData.getTimestamp(), 0, 4));
     }
 
     @Test
@@ -145,4 +157,42 @@ class TimeSeriesSaveTest {
             return versionsUpdated && versionPropertiesMatch;
         }));
     }
+
+    @Test
+    @DisplayName("A version older than the latest one is refused under the REJECT policy")
+    void testSaveLateVersionRejected() {
+        // Arrange
+        ReflectionTestUtils.setField(timeSeriesService, "lateArrivalPolicy", LateArrivalPolicy.REJECT);
+        TimeSeriesData timeSeriesData = new TimeSeriesData();
+        timeSeriesData.setPowerStation("Test Station");
+        timeSeriesData.setDate(LocalDate.of(2024, 3, 20));
+        timeSeriesData.setZone("Europe/Budapest");
+        timeSeriesData.setTimestamp(LocalDateTime.of(2024, 3, 20, 10, 0));
+        timeSeriesData.setPeriod("PT15M");
+        timeSeriesData.setSeries(Arrays.asList(5, 6, 7, 8));
+
+        PowerStation powerStation = new PowerStation();
+        powerStation.setPowerStation("Test Station");
+        PowerStationDate powerStationDate = new PowerStationDate();
+        powerStationDate.setPowerStation(powerStation);
+        powerStationDate.setStationDate(timeSeriesData.getDate());
+        powerStationDate.setZone(timeSeriesData.getZone());
+        powerStationDate.setVersions(new ArrayList<>());
+
+        TimeSeriesVersion newerVersion = new TimeSeriesVersion();
+        newerVersion.setVersion(1);
+        newerVersion.setTimestamp(LocalDateTime.of(2024, 3, 20, 11, 0));
+
+        when(powerStationRepository.findByPowerStation("Test Station"))
+                .thenReturn(Optional.of(powerStation));
+        when(timeSeriesRepository.findByPowerStationAndStationDate(any(), any()))
+                .thenReturn(Optional.of(powerStationDate));
+        when(timeSeriesRepository.findFirstByPowerStationDateOrderByVersionDesc(any()))
+                .thenReturn(Optional.of(newerVersion));
+
+        // Act & Assert
+        assertThrows(StaleTimeSeriesException.class, () -> timeSeriesService.save(timeSeriesData));
+        verify(timeSeriesRepository, never()).save(any());
+        verifyNoInteractions(eventPublisher);
+    }
 }
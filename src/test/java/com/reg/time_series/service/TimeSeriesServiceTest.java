@@ -4,10 +4,13 @@ import com.reg.time_series.entity.PowerStation;
 import com.reg.time_series.entity.PowerStationDate;
 import com.reg.time_series.model.TimeSeriesData;
 import com.reg.time_series.repositories.PowerStationRepository;
+import com.reg.time_series.repositories.TimeSeriesArchiveRepository;
 import com.reg.time_series.repositories.TimeSeriesRepository;
 import org.junit.jupiter.api.BeforeEach;
+import org.springframework.context.ApplicationEventPublisher;
 import org.junit.jupiter.api.Test;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -31,7 +34,9 @@ class TimeSeriesServiceTest {
     void setUp() {
         timeSeriesRepository = mock(TimeSeriesRepository.class);
         powerStationRepository = mock(PowerStationRepository.class);
-        timeSeriesService = new TimeSeriesService(timeSeriesRepository, powerStationRepository);
+        timeSeriesService = new TimeSeriesService(timeSeriesRepository, powerStationRepository, mock(TimeSeriesArchiveRepository.class),
+                mock(ApplicationEventPublisher.class), mock(PowerStationCatalogue.class),
+                new PowerStationDictionary(powerStationRepository, mock(PowerStationCatalogue.class)), Clock.systemDefaultZone(), null);
     }
 
 
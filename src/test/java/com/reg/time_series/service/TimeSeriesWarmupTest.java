@@ -0,0 +1,69 @@
+package com.reg.time_series.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.reg.time_series.repositories.PowerStationRepository;
+import com.reg.time_series.repositories.TimeSeriesArchiveRepository;
+import com.reg.time_series.repositories.TimeSeriesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import java.time.Clock;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TimeSeriesWarmupTest {
+    private TimeSeriesRepository timeSeriesRepository;
+    private PowerStationRepository powerStationRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private TimeSeriesService timeSeriesService;
+
+    @BeforeEach
+    void setUp() {
+        timeSeriesRepository = mock(TimeSeriesRepository.class);
+        powerStationRepository = mock(PowerStationRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        timeSeriesService = new TimeSeriesService(timeSeriesRepository, powerStationRepository, mock(TimeSeriesArchiveRepository.class),
+                eventPublisher, mock(PowerStationCatalogue.class),
+                new PowerStationDictionary(powerStationRepository, mock(PowerStationCatalogue.class)), Clock.systemDefaultZone(), null);
+        ReflectionTestUtils.setField(timeSeriesService, "safetyWindowMinutes", 90);
+        when(timeSeriesRepository.findByPowerStationNameAndDate(eq("__warmup__"), any())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    @DisplayName("Warmup runs the parse, merge and view paths without writing")
+    void run_DoesNotWrite() throws Exception {
+        // Arrange
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        TimeSeriesWarmup warmup = new TimeSeriesWarmup(timeSeriesService, objectMapper, true, 3, 5);
+
+        // Act
+        warmup.run(new DefaultApplicationArguments());
+
+        // Assert
+        verify(timeSeriesRepository).findByPowerStationNameAndDate(eq("__warmup__"), any());
+        verifyNoMoreInteractions(timeSeriesRepository);
+        verifyNoInteractions(powerStationRepository, eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Disabled warmup does nothing")
+    void run_Disabled() throws Exception {
+        // Arrange
+        TimeSeriesWarmup warmup = new TimeSeriesWarmup(timeSeriesService, new ObjectMapper(), false, 3, 5);
+
+        // Act
+        warmup.run(new DefaultApplicationArguments());
+
+        // Assert
+        verifyNoInteractions(timeSeriesRepository, powerStationRepository, eventPublisher);
+    }
+}
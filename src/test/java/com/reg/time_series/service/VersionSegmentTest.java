@@ -0,0 +1,106 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.PowerStationDate;
+import com.reg.time_series.entity.TimeSeriesVersion;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VersionSegmentTest {
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 15);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Committed versions are found again after reopening, pending ones are aborted")
+    void open_RecoversCommittedVersions() {
+        // Arrange
+        VersionSegment segment = VersionSegment.open(directory, DATE, true);
+        List<Integer> withNull = new ArrayList<>(Collections.nCopies(96, 7));
+        withNull.set(95, null);
+        segment.append(1, "Europe/Budapest", version(1, Collections.nCopies(96, 5)), VersionSegment.COMMITTED);
+        int second = segment.append(1, "Europe/Budapest", version(2, withNull), VersionSegment.PENDING);
+        int third = segment.append(1, "Europe/Budapest", version(3, Collections.nCopies(96, 9)), VersionSegment.PENDING);
+        segment.append(2, "UTC", version(1, Collections.nCopies(24, 1)), VersionSegment.COMMITTED);
+        segment.setStatus(second, VersionSegment.COMMITTED, true);
+
+        // Act: the third version was still pending when the process stopped
+        assertThat(segment.latestCommitted(1).orElseThrow().getVersion()).isEqualTo(2);
+        VersionSegment reopened = VersionSegment.open(directory, DATE, false);
+
+        // Assert
+        PowerStationDate found = reopened.find(1).orElseThrow();
+        assertThat(found.getZone()).isEqualTo("Europe/Budapest");
+        assertThat(found.getVersions()).extracting(TimeSeriesVersion::getVersion).containsExactly(1, 2);
+        assertThat(found.getVersions().get(1).getSeries()).isEqualTo(withNull);
+        assertThat(found.getVersions().get(1).getPeriod()).isEqualTo(Duration.ofMinutes(15));
+        assertThat(reopened.latestCommitted(1).orElseThrow().getVersion()).isEqualTo(2);
+        assertThat(reopened.find(2).orElseThrow().getVersions().get(0).getSeries()).hasSize(24);
+        assertThat(reopened.size()).isEqualTo(segment.size());
+        assertThat(third).isGreaterThan(second);
+        assertThat(VersionSegment.open(directory, DATE.plusDays(1), false)).isNull();
+    }
+
+    @Test
+    @DisplayName("A record with a bad checksum ends the data and is cleared")
+    void open_DropsTornTail() throws Exception {
+        // Arrange
+        VersionSegment segment = VersionSegment.open(directory, DATE, true);
+        segment.append(1, "UTC", version(1, Collections.nCopies(96, 5)), VersionSegment.COMMITTED);
+        int torn = segment.append(1, "UTC", version(2, Collections.nCopies(96, 6)), VersionSegment.COMMITTED);
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve(DATE + ".seg").toFile(), "rw")) {
+            file.seek(torn + 100);
+            file.write(0x7f);
+        }
+
+        // Act
+        VersionSegment reopened = VersionSegment.open(directory, DATE, false);
+        reopened.append(1, "UTC", version(2, Collections.nCopies(96, 8)), VersionSegment.COMMITTED);
+
+        // Assert
+        assertThat(reopened.find(1).orElseThrow().getVersions())
+                .extracting(version -> version.getSeries().get(0)).containsExactly(5, 8);
+        assertThat(VersionSegment.open(directory, DATE, false).find(1).orElseThrow().getVersions()).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Aborted versions leave the index and the segment grows past its first mapping")
+    void append_AbortsAndGrows() {
+        // Arrange
+        VersionSegment segment = VersionSegment.open(directory, DATE, true);
+
+        // Act: 400 one-minute versions are about 2.3 MB
+        for (int v = 1; v <= 400; v++) {
+            int offset = segment.append(1, "UTC", version(v, Collections.nCopies(1440, v)), VersionSegment.PENDING);
+            segment.setStatus(offset, v % 2 == 0 ? VersionSegment.ABORTED : VersionSegment.COMMITTED, false);
+        }
+
+        // Assert
+        List<TimeSeriesVersion> versions = VersionSegment.open(directory, DATE, false).find(1).orElseThrow().getVersions();
+        assertThat(versions).hasSize(200);
+        assertThat(versions.get(199).getVersion()).isEqualTo(399);
+        assertThat(versions.get(199).getSeries().get(1439)).isEqualTo(399);
+        assertThat(segment.size()).isGreaterThan(1 << 21);
+    }
+
+    private static TimeSeriesVersion version(int number, List<Integer> series) {
+        TimeSeriesVersion version = new TimeSeriesVersion();
+        version.setVersion(number);
+        version.setTimestamp(LocalDateTime.of(2024, 3, 14, 10, 0).plusMinutes(number));
+        version.setPeriod(Duration.ofMinutes(series.size() == 1440 ? 1 : 24 * 60 / series.size()));
+        version.setSeries(series);
+        return version;
+    }
+}
@@ -0,0 +1,39 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.TimeSeriesVersion;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VersionTimelineTest {
+    private static final LocalDateTime T = LocalDateTime.of(2024, 3, 14, 10, 0);
+
+    @Test
+    @DisplayName("The latest version at or before the time wins, the higher number on equal timestamps")
+    void latestAsOf_FindsVersionValidAtThatTime() {
+        // Arrange: version 4 arrived late with an older timestamp
+        VersionTimeline timeline = VersionTimeline.of(List.of(
+                version(1, T), version(2, T.plusHours(1)), version(3, T.plusHours(1)),
+                version(4, T.plusMinutes(30)), version(5, T.plusHours(2).plusNanos(1))));
+
+        // Act & Assert
+        assertThat(timeline.latestAsOf(T.minusNanos(1))).isEmpty();
+        assertThat(timeline.latestAsOf(T)).get().extracting(TimeSeriesVersion::getVersion).isEqualTo(1);
+        assertThat(timeline.latestAsOf(T.plusMinutes(45))).get().extracting(TimeSeriesVersion::getVersion).isEqualTo(4);
+        assertThat(timeline.latestAsOf(T.plusHours(1))).get().extracting(TimeSeriesVersion::getVersion).isEqualTo(3);
+        assertThat(timeline.latestAsOf(T.plusHours(2))).get().extracting(TimeSeriesVersion::getVersion).isEqualTo(3);
+        assertThat(timeline.latestAsOf(T.plusDays(1))).get().extracting(TimeSeriesVersion::getVersion).isEqualTo(5);
+        assertThat(VersionTimeline.of(List.of()).latestAsOf(T)).isEmpty();
+    }
+
+    private static TimeSeriesVersion version(int number, LocalDateTime timestamp) {
+        TimeSeriesVersion version = new TimeSeriesVersion();
+        version.setVersion(number);
+        version.setTimestamp(timestamp);
+        return version;
+    }
+}
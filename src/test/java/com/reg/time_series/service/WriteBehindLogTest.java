@@ -0,0 +1,99 @@
+package com.reg.time_series.service;
+
+import com.reg.time_series.entity.TimeSeriesVersion;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteBehindLogTest {
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 20);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Entries not written to the tables are recovered with every field after a restart")
+    void recover_ReturnsUnwrittenEntries() throws Exception {
+        // Arrange
+        List<Integer> withNull = new ArrayList<>(Collections.nCopies(96, 200));
+        withNull.set(3, null);
+        WriteBehindLog log = new WriteBehindLog(directory, false);
+        long first = log.append(7, DATE, "Europe/Budapest", version(1, Collections.nCopies(96, 100)));
+        log.written(first, 1);
+        log.rotate();
+        TimeSeriesVersion second = version(2, withNull);
+        second.setChangedFromSlot(3);
+        log.append(7, DATE, "Europe/Budapest", second);
+        log.close();
+
+        // Act
+        WriteBehindLog reopened = new WriteBehindLog(directory, false);
+        List<WriteBehindLog.Entry> entries = reopened.recover();
+
+        // Assert
+        assertThat(entries).hasSize(1);
+        WriteBehindLog.Entry entry = entries.get(0);
+        assertThat(entry.stationId()).isEqualTo(7);
+        assertThat(entry.date()).isEqualTo(DATE);
+        assertThat(entry.zone()).isEqualTo("Europe/Budapest");
+        assertThat(entry.version().getVersion()).isEqualTo(2);
+        assertThat(entry.version().getSeries()).isEqualTo(withNull);
+        assertThat(entry.version().getTimestamp()).isEqualTo(second.getTimestamp());
+        assertThat(entry.version().getPeriod()).isEqualTo(Duration.ofMinutes(15));
+        assertThat(entry.version().getChangedFromSlot()).isEqualTo(3);
+        assertThat(entry.version().getChangedSlotCount()).isNull();
+
+        reopened.written(entry.generation(), 1);
+        reopened.close();
+        assertThat(logFiles()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("A record cut short by a crash ends the recovery of its file")
+    void recover_IgnoresUnfinishedRecord() throws Exception {
+        // Arrange
+        WriteBehindLog log = new WriteBehindLog(directory, true);
+        log.append(7, DATE, "UTC", version(1, Collections.nCopies(96, 100)));
+        log.append(7, DATE, "UTC", version(2, Collections.nCopies(96, 200)));
+        log.close();
+        Path file = logFiles().get(0);
+        long size = Files.size(file);
+        try (var channel = Files.newByteChannel(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 10);
+        }
+
+        // Act
+        List<WriteBehindLog.Entry> entries = new WriteBehindLog(directory, false).recover();
+
+        // Assert
+        assertThat(entries).extracting(entry -> entry.version().getVersion()).containsExactly(1);
+    }
+
+    private List<Path> logFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static TimeSeriesVersion version(int number, List<Integer> values) {
+        TimeSeriesVersion version = new TimeSeriesVersion();
+        version.setVersion(number);
+        version.setTimestamp(LocalDateTime.of(2024, 3, 20, 10, 0, 0, 123_000_000).plusHours(number));
+        version.setPeriod(Duration.ofMinutes(15));
+        version.setSeries(values);
+        return version;
+    }
+}